@@ -26,7 +26,6 @@
 package java.beans;
 
 import com.sun.beans.TypeResolver;
-import com.sun.beans.WeakCache;
 import com.sun.beans.finder.ClassFinder;
 import com.sun.beans.finder.MethodFinder;
 
@@ -107,7 +106,10 @@ public class Introspector {
     public final static int IGNORE_ALL_BEANINFO        = 3;
 
     // Static Caches to speed up introspection.
-    private static final WeakCache<Class<?>, Method[]> declaredMethodCache = new WeakCache<>();
+    // The public declared methods of a class are kept in the ClassValue map
+    // of the class, so that they are found without locking and do not keep
+    // the class reachable; flushCaches replaces the whole cache.
+    private static volatile ClassValue<MethodsRef> declaredMethodCache = newDeclaredMethodCache();
 
     private Class<?> beanClass;
     private BeanInfo explicitBeanInfo;
@@ -165,15 +167,10 @@ public class Introspector {
             return (new Introspector(beanClass, null, USE_ALL_BEANINFO)).getBeanInfo();
         }
         ThreadGroupContext context = ThreadGroupContext.getContext();
-        BeanInfo beanInfo;
-        synchronized (declaredMethodCache) {
-            beanInfo = context.getBeanInfo(beanClass);
-        }
+        BeanInfo beanInfo = context.getBeanInfo(beanClass);
         if (beanInfo == null) {
             beanInfo = new Introspector(beanClass, null, USE_ALL_BEANINFO).getBeanInfo();
-            synchronized (declaredMethodCache) {
-                context.putBeanInfo(beanClass, beanInfo);
-            }
+            context.putBeanInfo(beanClass, beanInfo);
         }
         return beanInfo;
     }
@@ -341,10 +338,8 @@ public class Introspector {
      */
 
     public static void flushCaches() {
-        synchronized (declaredMethodCache) {
-            ThreadGroupContext.getContext().clearBeanInfoCache();
-            declaredMethodCache.clear();
-        }
+        ThreadGroupContext.getContext().clearBeanInfoCache();
+        declaredMethodCache = newDeclaredMethodCache();
     }
 
     /**
@@ -366,10 +361,8 @@ public class Introspector {
         if (clz == null) {
             throw new NullPointerException();
         }
-        synchronized (declaredMethodCache) {
-            ThreadGroupContext.getContext().removeBeanInfo(clz);
-            declaredMethodCache.put(clz, null);
-        }
+        ThreadGroupContext.getContext().removeBeanInfo(clz);
+        declaredMethodCache.remove(clz);
     }
 
     //======================================================================
@@ -1330,33 +1323,79 @@ public class Introspector {
         if (!ReflectUtil.isPackageAccessible(clz)) {
             return new Method[0];
         }
-        synchronized (declaredMethodCache) {
-            Method[] result = declaredMethodCache.get(clz);
-            if (result == null) {
-                result = clz.getMethods();
-                for (int i = 0; i < result.length; i++) {
-                    Method method = result[i];
-                    if (!method.getDeclaringClass().equals(clz)) {
-                        result[i] = null; // ignore methods declared elsewhere
-                    }
-                    else {
-                        try {
-                            method = MethodFinder.findAccessibleMethod(method);
-                            Class<?> type = method.getDeclaringClass();
-                            result[i] = type.equals(clz) || type.isInterface()
-                                    ? method
-                                    : null; // ignore methods from superclasses
-                        }
-                        catch (NoSuchMethodException exception) {
-                            // commented out because of 6976577
-                            // result[i] = null; // ignore inaccessible methods
-                        }
-                    }
+        ClassValue<MethodsRef> cache = declaredMethodCache;
+        while (true) {
+            MethodsRef ref = cache.get(clz);
+            // methods just computed are still strongly reachable: return
+            // them, and leave only the soft reference in the cache
+            Method[] result = ref.getStrong();
+            if (result != null) {
+                ref.clearStrong();
+                return result;
+            }
+            result = ref.get();
+            if (result != null) {
+                return result;
+            }
+            // cleared by the GC under memory pressure
+            cache.remove(clz);
+        }
+    }
+
+    private static ClassValue<MethodsRef> newDeclaredMethodCache() {
+        return new ClassValue<MethodsRef>() {
+            @Override
+            protected MethodsRef computeValue(Class<?> clz) {
+                return new MethodsRef(computePublicDeclaredMethods(clz));
+            }
+        };
+    }
+
+    /**
+     * Soft reference to the public declared methods of a class, as in
+     * java.io.ClassCache: the methods are also held strongly until first
+     * returned, so that a lookup makes progress even if the GC clears the
+     * soft reference right after it is created.
+     */
+    private static final class MethodsRef extends SoftReference<Method[]> {
+        private Method[] strongReferent;
+
+        MethodsRef(Method[] referent) {
+            super(referent);
+            this.strongReferent = referent;
+        }
+
+        Method[] getStrong() {
+            return strongReferent;
+        }
+
+        void clearStrong() {
+            strongReferent = null;
+        }
+    }
+
+    private static Method[] computePublicDeclaredMethods(Class<?> clz) {
+        Method[] result = clz.getMethods();
+        for (int i = 0; i < result.length; i++) {
+            Method method = result[i];
+            if (!method.getDeclaringClass().equals(clz)) {
+                result[i] = null; // ignore methods declared elsewhere
+            }
+            else {
+                try {
+                    method = MethodFinder.findAccessibleMethod(method);
+                    Class<?> type = method.getDeclaringClass();
+                    result[i] = type.equals(clz) || type.isInterface()
+                            ? method
+                            : null; // ignore methods from superclasses
+                }
+                catch (NoSuchMethodException exception) {
+                    // commented out because of 6976577
+                    // result[i] = null; // ignore inaccessible methods
                 }
-                declaredMethodCache.put(clz, result);
             }
-            return result;
         }
+        return result;
     }
 
     //======================================================================
@@ -29,8 +29,6 @@ import com.sun.beans.finder.BeanInfoFinder;
 import com.sun.beans.finder.PropertyEditorFinder;
 
 import java.awt.GraphicsEnvironment;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
  * The {@code ThreadGroupContext} is an application-dependent
@@ -60,7 +58,7 @@ final class ThreadGroupContext {
     private volatile boolean isDesignTime;
     private volatile Boolean isGuiAvailable;
 
-    private Map<Class<?>, BeanInfo> beanInfoCache;
+    private volatile BeanInfoCache beanInfoCache = new BeanInfoCache();
     private BeanInfoFinder beanInfoFinder;
     private PropertyEditorFinder propertyEditorFinder;
 
@@ -89,28 +87,22 @@ final class ThreadGroupContext {
 
 
     BeanInfo getBeanInfo(Class<?> type) {
-        return (this.beanInfoCache != null)
-                ? this.beanInfoCache.get(type)
-                : null;
+        return this.beanInfoCache.get(type).info;
     }
 
     BeanInfo putBeanInfo(Class<?> type, BeanInfo info) {
-        if (this.beanInfoCache == null) {
-            this.beanInfoCache = new WeakHashMap<>();
-        }
-        return this.beanInfoCache.put(type, info);
+        BeanInfoCache.Entry entry = this.beanInfoCache.get(type);
+        BeanInfo old = entry.info;
+        entry.info = info;
+        return old;
     }
 
     void removeBeanInfo(Class<?> type) {
-        if (this.beanInfoCache != null) {
-            this.beanInfoCache.remove(type);
-        }
+        this.beanInfoCache.remove(type);
     }
 
     void clearBeanInfoCache() {
-        if (this.beanInfoCache != null) {
-            this.beanInfoCache.clear();
-        }
+        this.beanInfoCache = new BeanInfoCache();
     }
 
 
@@ -127,4 +119,20 @@ final class ThreadGroupContext {
         }
         return this.propertyEditorFinder;
     }
+
+    /**
+     * Keeps the bean information of a class in the {@link ClassValue} map
+     * of the class, so that it is found without locking
+     * and does not keep the class reachable.
+     */
+    private static final class BeanInfoCache extends ClassValue<BeanInfoCache.Entry> {
+        static final class Entry {
+            volatile BeanInfo info;
+        }
+
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            return new Entry();
+        }
+    }
 }
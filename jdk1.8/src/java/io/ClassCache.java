@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+
+/**
+ * Cache mapping Class -> Object, for the metadata serialization derives
+ * from a class by reflection.  The values are kept in the {@link ClassValue}
+ * map of the class itself, so that a lookup neither locks nor allocates a
+ * key, and the cache does not keep the class or its class loader reachable;
+ * the values are softly referenced, cleared by the GC under memory pressure,
+ * and recomputed on demand.
+ *
+ * <p>{@link #computeValue} may be called by several threads for the same
+ * class, or reentrantly by the same thread; one of the values is retained.
+ *
+ * @param <T> the type of the cached values
+ */
+abstract class ClassCache<T> {
+
+    private static class CacheRef<T> extends SoftReference<T> {
+        private final Class<?> type;
+        /**
+         * strong reference to the value until it is first returned, so that
+         * a lookup makes progress even if the GC clears the soft reference
+         * right after it is created
+         */
+        private T strongReferent;
+
+        CacheRef(T referent, ReferenceQueue<T> queue, Class<?> type) {
+            super(referent, queue);
+            this.type = type;
+            this.strongReferent = referent;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        T getStrong() {
+            return strongReferent;
+        }
+
+        void clearStrong() {
+            strongReferent = null;
+        }
+    }
+
+    private final ReferenceQueue<T> queue;
+    private final ClassValue<CacheRef<T>> map;
+
+    /**
+     * Computes the value to cache for the given class.  Exceptions thrown
+     * are propagated to the caller of {@link #get} and not cached.
+     */
+    protected abstract T computeValue(Class<?> cl);
+
+    protected ClassCache() {
+        queue = new ReferenceQueue<>();
+        map = new ClassValue<CacheRef<T>>() {
+            @Override
+            protected CacheRef<T> computeValue(Class<?> type) {
+                T v = ClassCache.this.computeValue(type);
+                if (v == null) {
+                    throw new NullPointerException();
+                }
+                return new CacheRef<>(v, queue, type);
+            }
+        };
+    }
+
+    /**
+     * Returns the value for the given class, computing it if it is not
+     * cached or has been cleared.
+     */
+    T get(Class<?> cl) {
+        while (true) {
+            processQueue();
+            CacheRef<T> ref = map.get(cl);
+            // a value just computed is still strongly reachable: return it,
+            // and leave only the soft reference in the cache
+            T val = ref.getStrong();
+            if (val != null) {
+                ref.clearStrong();
+                return val;
+            }
+            val = ref.get();
+            if (val != null) {
+                return val;
+            }
+            // cleared by the GC: recompute
+            map.remove(cl);
+        }
+    }
+
+    /**
+     * Removes the mappings of classes whose values have been cleared.
+     */
+    @SuppressWarnings("unchecked")
+    private void processQueue() {
+        Reference<? extends T> ref;
+        while((ref = queue.poll()) != null) {
+            map.remove(((CacheRef<? extends T>) ref).getType());
+        }
+    }
+}
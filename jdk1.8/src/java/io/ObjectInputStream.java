@@ -25,8 +25,6 @@
 
 package java.io;
 
-import java.io.ObjectStreamClass.WeakClassKey;
-import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Array;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
@@ -38,10 +36,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
-import static java.io.ObjectStreamClass.processQueue;
 
 import sun.misc.SharedSecrets;
 import sun.misc.ObjectInputFilter;
@@ -237,12 +232,13 @@ public class ObjectInputStream
 
     private static class Caches {
         /** cache of subclass security audit results */
-        static final ConcurrentMap<WeakClassKey,Boolean> subclassAudits =
-            new ConcurrentHashMap<>();
-
-        /** queue for WeakReferences to audited subclasses */
-        static final ReferenceQueue<Class<?>> subclassAuditsQueue =
-            new ReferenceQueue<>();
+        static final ClassCache<Boolean> subclassAudits =
+            new ClassCache<Boolean>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    return auditSubclass(type);
+                }
+            };
     }
 
     static {
@@ -349,9 +345,18 @@ public class ObjectInputStream
      * @see     ObjectOutputStream#ObjectOutputStream(OutputStream)
      */
     public ObjectInputStream(InputStream in) throws IOException {
+        this(in, 10);
+    }
+
+    /**
+     * Creates an ObjectInputStream whose handle table is initially sized
+     * for the given number of objects, so that a stream of an {@link
+     * ObjectStreamSession} does not grow it again for every message.
+     */
+    ObjectInputStream(InputStream in, int handleCapacity) throws IOException {
         verifySubclass();
         bin = new BlockDataInputStream(in);
-        handles = new HandleTable(10);
+        handles = new HandleTable(handleCapacity);
         vlist = new ValidationList();
         serialFilter = ObjectInputFilter.Config.getSerialFilter();
         enableOverride = false;
@@ -1462,14 +1467,7 @@ public class ObjectInputStream
         if (sm == null) {
             return;
         }
-        processQueue(Caches.subclassAuditsQueue, Caches.subclassAudits);
-        WeakClassKey key = new WeakClassKey(cl, Caches.subclassAuditsQueue);
-        Boolean result = Caches.subclassAudits.get(key);
-        if (result == null) {
-            result = Boolean.valueOf(auditSubclass(cl));
-            Caches.subclassAudits.putIfAbsent(key, result);
-        }
-        if (result.booleanValue()) {
+        if (Caches.subclassAudits.get(cl)) {
             return;
         }
         sm.checkPermission(SUBCLASS_IMPLEMENTATION_PERMISSION);
@@ -1515,6 +1513,14 @@ public class ObjectInputStream
         vlist.clear();
     }
 
+    /**
+     * Returns the number of handles assigned since the stream was created
+     * or last reset.
+     */
+    int handleCount() {
+        return handles.size();
+    }
+
     /**
      * Underlying readObject implementation.
      */
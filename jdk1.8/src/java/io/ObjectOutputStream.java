@@ -25,16 +25,11 @@
 
 package java.io;
 
-import java.io.ObjectStreamClass.WeakClassKey;
-import java.lang.ref.ReferenceQueue;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import static java.io.ObjectStreamClass.processQueue;
 import java.io.SerialCallbackContext;
 import sun.reflect.misc.ReflectUtil;
 
@@ -165,12 +160,13 @@ public class ObjectOutputStream
 
     private static class Caches {
         /** cache of subclass security audit results */
-        static final ConcurrentMap<WeakClassKey,Boolean> subclassAudits =
-            new ConcurrentHashMap<>();
-
-        /** queue for WeakReferences to audited subclasses */
-        static final ReferenceQueue<Class<?>> subclassAuditsQueue =
-            new ReferenceQueue<>();
+        static final ClassCache<Boolean> subclassAudits =
+            new ClassCache<Boolean>() {
+                @Override
+                protected Boolean computeValue(Class<?> type) {
+                    return auditSubclass(type);
+                }
+            };
     }
 
     /** filter stream for handling block data conversion */
@@ -238,9 +234,20 @@ public class ObjectOutputStream
      * @see     ObjectInputStream#ObjectInputStream(InputStream)
      */
     public ObjectOutputStream(OutputStream out) throws IOException {
+        this(out, 10);
+    }
+
+    /**
+     * Creates an ObjectOutputStream whose handle table is initially sized
+     * for the given number of objects, so that a stream of an {@link
+     * ObjectStreamSession} does not grow it again for every message.
+     */
+    ObjectOutputStream(OutputStream out, int handleCapacity)
+        throws IOException
+    {
         verifySubclass();
         bout = new BlockDataOutputStream(out);
-        handles = new HandleTable(10, (float) 3.00);
+        handles = new HandleTable(handleCapacity, (float) 3.00);
         subs = new ReplaceTable(10, (float) 3.00);
         enableOverride = false;
         writeStreamHeader();
@@ -1046,14 +1053,7 @@ public class ObjectOutputStream
         if (sm == null) {
             return;
         }
-        processQueue(Caches.subclassAuditsQueue, Caches.subclassAudits);
-        WeakClassKey key = new WeakClassKey(cl, Caches.subclassAuditsQueue);
-        Boolean result = Caches.subclassAudits.get(key);
-        if (result == null) {
-            result = Boolean.valueOf(auditSubclass(cl));
-            Caches.subclassAudits.putIfAbsent(key, result);
-        }
-        if (result.booleanValue()) {
+        if (Caches.subclassAudits.get(cl)) {
             return;
         }
         sm.checkPermission(SUBCLASS_IMPLEMENTATION_PERMISSION);
@@ -1099,6 +1099,14 @@ public class ObjectOutputStream
         handles.clear();
     }
 
+    /**
+     * Returns the number of handles assigned since the stream was created
+     * or last reset.
+     */
+    int handleCount() {
+        return handles.size();
+    }
+
     /**
      * Underlying writeObject/writeUnshared implementation.
      */
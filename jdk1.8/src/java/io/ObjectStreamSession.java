@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.io;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A serialization session creates the object streams for a series of
+ * messages exchanged with one peer, for example over a connection, and
+ * shares class descriptors between them.  An {@link ObjectOutputStream}
+ * writes the descriptor of every class it serializes in full, once per
+ * stream; the streams of a session write the descriptor of a class in
+ * full only the first time it is written in the session, and afterwards
+ * refer to it by an integer identifier.  The streams of a session also
+ * size their handle tables for the largest message seen so far.
+ *
+ * <p>Descriptors are exchanged through {@link
+ * ObjectOutputStream#writeClassDescriptor} and {@link
+ * ObjectInputStream#readClassDescriptor}, so the streams of a session can
+ * only be read by the streams of a session.  The peer must read the
+ * streams in the order in which they were written, with a session used
+ * only for them: the output streams of a session are to be written one
+ * after the other, and its input streams read one after the other.  If a
+ * stream is not read or written completely, for example because it throws
+ * an exception, the session must be discarded on both sides.  Streams
+ * created by the constructors of {@code ObjectOutputStream} and {@code
+ * ObjectInputStream} are not affected and keep the format defined in the
+ * Object Serialization Specification.
+ *
+ * <p>A session keeps the classes it has written or read reachable for as
+ * long as it is reachable.  Sessions are not safe for use by multiple
+ * concurrent threads.
+ *
+ * @see ObjectOutputStream#writeClassDescriptor
+ * @see ObjectInputStream#readClassDescriptor
+ */
+public final class ObjectStreamSession {
+
+    /** identifier written before a descriptor new to the session */
+    private static final int NEW_DESCRIPTOR = -1;
+
+    /** initial capacity of the handle tables of the first streams */
+    private static final int MIN_HANDLE_CAPACITY = 10;
+
+    /**
+     * bound on the initial capacity of the handle tables, so that a single
+     * large message does not make every later stream allocate large tables
+     */
+    private static final int MAX_HANDLE_CAPACITY = 4096;
+
+    /** descriptors written by the output streams -> identifiers */
+    private final Map<ObjectStreamClass, Integer> writtenDescs =
+        new IdentityHashMap<>();
+
+    /** descriptors read by the input streams, indexed by identifier */
+    private final List<ObjectStreamClass> readDescs = new ArrayList<>();
+
+    /** initial capacity of the handle table of the next output stream */
+    private int outputHandleCapacity = MIN_HANDLE_CAPACITY;
+
+    /** initial capacity of the handle table of the next input stream */
+    private int inputHandleCapacity = MIN_HANDLE_CAPACITY;
+
+    /**
+     * Creates a new session, which has not yet written or read any class
+     * descriptors.
+     */
+    public ObjectStreamSession() {
+    }
+
+    /**
+     * Creates an ObjectOutputStream of this session that writes to the
+     * specified OutputStream.  The stream writes the serialization stream
+     * header to the underlying stream, as {@link
+     * ObjectOutputStream#ObjectOutputStream(OutputStream)} does.
+     *
+     * @param   out output stream to write to
+     * @return  the new output stream
+     * @throws  IOException if an I/O error occurs while writing stream header
+     * @throws  NullPointerException if <code>out</code> is <code>null</code>
+     */
+    public ObjectOutputStream newObjectOutputStream(OutputStream out)
+        throws IOException
+    {
+        return new SessionOutputStream(this, out);
+    }
+
+    /**
+     * Creates an ObjectInputStream of this session that reads from the
+     * specified InputStream, which must have been written by an output
+     * stream of the peer session.  The stream reads and verifies the
+     * serialization stream header, as {@link
+     * ObjectInputStream#ObjectInputStream(InputStream)} does.
+     *
+     * @param   in input stream to read from
+     * @return  the new input stream
+     * @throws  StreamCorruptedException if the stream header is incorrect
+     * @throws  IOException if an I/O error occurs while reading stream header
+     * @throws  NullPointerException if <code>in</code> is <code>null</code>
+     */
+    public ObjectInputStream newObjectInputStream(InputStream in)
+        throws IOException
+    {
+        return new SessionInputStream(this, in);
+    }
+
+    /**
+     * Returns the initial capacity of a handle table for a stream, given
+     * the largest number of handles the streams of the session have used.
+     */
+    private static int handleCapacity(int capacity, int handleCount) {
+        return Math.max(capacity, Math.min(handleCount, MAX_HANDLE_CAPACITY));
+    }
+
+    private static class SessionOutputStream extends ObjectOutputStream {
+        private final ObjectStreamSession session;
+
+        SessionOutputStream(ObjectStreamSession session, OutputStream out)
+            throws IOException
+        {
+            super(out, session.outputHandleCapacity);
+            this.session = session;
+        }
+
+        @Override
+        public void useProtocolVersion(int version) throws IOException {
+            if (version == PROTOCOL_VERSION_1) {
+                // descriptors would be written without the hook
+                throw new IllegalArgumentException(
+                    "class descriptor sharing requires PROTOCOL_VERSION_2");
+            }
+            super.useProtocolVersion(version);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+            throws IOException
+        {
+            Map<ObjectStreamClass, Integer> descs = session.writtenDescs;
+            Integer id = descs.get(desc);
+            if (id != null) {
+                writeInt(id);
+            } else {
+                writeInt(NEW_DESCRIPTOR);
+                super.writeClassDescriptor(desc);
+                descs.put(desc, descs.size());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            session.outputHandleCapacity = handleCapacity(
+                session.outputHandleCapacity, handleCount());
+            super.close();
+        }
+    }
+
+    private static class SessionInputStream extends ObjectInputStream {
+        private final ObjectStreamSession session;
+
+        SessionInputStream(ObjectStreamSession session, InputStream in)
+            throws IOException
+        {
+            super(in, session.inputHandleCapacity);
+            this.session = session;
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+            throws IOException, ClassNotFoundException
+        {
+            List<ObjectStreamClass> descs = session.readDescs;
+            int id = readInt();
+            if (id == NEW_DESCRIPTOR) {
+                ObjectStreamClass desc = super.readClassDescriptor();
+                descs.add(desc);
+                return desc;
+            }
+            if (id < 0 || id >= descs.size()) {
+                throw new StreamCorruptedException(
+                    "invalid class descriptor id: " + id);
+            }
+            return descs.get(id);
+        }
+
+        @Override
+        public void close() throws IOException {
+            session.inputHandleCapacity = handleCapacity(
+                session.inputHandleCapacity, handleCount());
+            super.close();
+        }
+    }
+}
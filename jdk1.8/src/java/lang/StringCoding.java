@@ -36,6 +36,7 @@ import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import sun.misc.MessageUtils;
@@ -118,6 +119,66 @@ class StringCoding {
     }
 
 
+    // -- Latin-1 fast paths --
+
+    /*
+     * Most text passed through String's byte[] constructors and
+     * getBytes methods is ASCII, or at least Latin-1, and most of it
+     * uses UTF-8, ISO-8859-1 or US-ASCII.  For these, decoding and
+     * encoding such text is a plain widening or narrowing copy, which
+     * we do here without a coder: the Charset forms otherwise create
+     * a new coder for each call.  Anything else returns null so that
+     * the caller falls back to the coder, including unmappable input,
+     * which the coder replaces (counting a surrogate pair as one
+     * character).
+     */
+
+    /**
+     * Returns the decoded chars, or null if the charset is not one
+     * of the above or the input needs a decoder.
+     */
+    private static char[] decodeLatin1(Charset cs, byte[] ba, int off, int len) {
+        if (cs == StandardCharsets.ISO_8859_1) {
+            char[] ca = new char[len];
+            for (int i = 0; i < len; i++)
+                ca[i] = (char)(ba[off + i] & 0xff);
+            return ca;
+        }
+        if (cs == StandardCharsets.UTF_8 || cs == StandardCharsets.US_ASCII) {
+            for (int i = off, end = off + len; i < end; i++) {
+                if (ba[i] < 0)
+                    return null;
+            }
+            char[] ca = new char[len];
+            for (int i = 0; i < len; i++)
+                ca[i] = (char)ba[off + i];
+            return ca;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the encoded bytes, or null if the charset is not one
+     * of the above or the input needs an encoder.
+     */
+    private static byte[] encodeLatin1(Charset cs, char[] ca, int off, int len) {
+        int max;
+        if (cs == StandardCharsets.ISO_8859_1)
+            max = 0xff;
+        else if (cs == StandardCharsets.UTF_8 || cs == StandardCharsets.US_ASCII)
+            max = 0x7f;
+        else
+            return null;
+        for (int i = off, end = off + len; i < end; i++) {
+            if (ca[i] > max)
+                return null;
+        }
+        byte[] ba = new byte[len];
+        for (int i = 0; i < len; i++)
+            ba[i] = (byte)ca[off + i];
+        return ba;
+    }
+
     // -- Decoding --
     private static class StringDecoder {
         private final String requestedCharsetName;
@@ -145,6 +206,9 @@ class StringCoding {
         }
 
         char[] decode(byte[] ba, int off, int len) {
+            char[] fast = decodeLatin1(cs, ba, off, len);
+            if (fast != null)
+                return fast;
             int en = scale(len, cd.maxCharsPerByte());
             char[] ca = new char[en];
             if (len == 0)
@@ -210,6 +274,12 @@ class StringCoding {
         // check (... && (isTrusted || SM == null || getClassLoader0())) in trim
         // but it then can be argued that the SM is null when the opertaion
         // is started...
+        // (5)Latin-1/ASCII text in ISO-8859-1, US-ASCII or UTF-8 needs no
+        // coder at all (see decodeLatin1), and since the input is never
+        // passed out of the JDK it needs no defensive copy either.
+        char[] fast = decodeLatin1(cs, ba, off, len);
+        if (fast != null)
+            return fast;
         CharsetDecoder cd = cs.newDecoder();
         int en = scale(len, cd.maxCharsPerByte());
         char[] ca = new char[en];
@@ -296,6 +366,9 @@ class StringCoding {
         }
 
         byte[] encode(char[] ca, int off, int len) {
+            byte[] fast = encodeLatin1(cs, ca, off, len);
+            if (fast != null)
+                return fast;
             int en = scale(len, ce.maxBytesPerChar());
             byte[] ba = new byte[en];
             if (len == 0)
@@ -345,6 +418,10 @@ class StringCoding {
     }
 
     static byte[] encode(Charset cs, char[] ca, int off, int len) {
+        // See (1)-(5) in decode(Charset, ...)
+        byte[] fast = encodeLatin1(cs, ca, off, len);
+        if (fast != null)
+            return fast;
         CharsetEncoder ce = cs.newEncoder();
         int en = scale(len, ce.maxBytesPerChar());
         byte[] ba = new byte[en];
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.invoke;
+
+/**
+ * StringConcatException is thrown by {@link StringConcatFactory} when linkage
+ * invariants are violated.
+ */
+public class StringConcatException extends Exception {
+    private static final long serialVersionUID = 292L + 9L;
+
+    /**
+     * Constructs a {@code StringConcatException} with a message.
+     * @param message the detail message
+     */
+    public StringConcatException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a {@code StringConcatException} with a message and cause.
+     * @param message the detail message
+     * @param cause the cause
+     */
+    public StringConcatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
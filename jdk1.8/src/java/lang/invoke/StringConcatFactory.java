@@ -0,0 +1,736 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.invoke;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import sun.misc.JavaLangAccess;
+import sun.misc.SharedSecrets;
+
+import static java.lang.invoke.MethodHandleStatics.*;
+import static java.lang.invoke.MethodHandles.Lookup.IMPL_LOOKUP;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * <p>Methods to facilitate the creation of String concatenation methods, that
+ * can be used to efficiently concatenate a known number of arguments of known
+ * types, possibly after type adaptation and partial evaluation of arguments.
+ * These methods are typically used as <em>bootstrap methods</em> for {@code
+ * invokedynamic} call sites, to support the <em>string concatenation</em>
+ * feature of the Java Programming Language.
+ *
+ * <p>Compiling {@code a + b + c} to a fresh {@link StringBuilder} lets its
+ * buffer grow by doubling, and {@code toString()} copies the result once
+ * more, so a concatenation may allocate several times the size of the
+ * resulting string.  Knowing the number and static types of the arguments
+ * at link time, the call sites produced here instead compute the length of
+ * the result first and allocate its storage once.
+ *
+ * <p>Concatenation proceeds by one of the following strategies, selected
+ * by the {@linkplain System#getProperty system property} {@code
+ * java.lang.invoke.stringConcat}:
+ * <ul>
+ * <li>{@code MH_INLINE_SIZED_EXACT} (the default): converts reference,
+ * {@code float} and {@code double} arguments to strings, computes the exact
+ * length of the result, fills a single {@code char[]} of that length from
+ * the end towards the start ("prepending" each element), and wraps it in a
+ * {@code String} without copying it.</li>
+ * <li>{@code MH_SB_SIZED_EXACT}: converts all arguments to strings,
+ * and appends them to a {@code StringBuilder} of exactly the length of the
+ * result, which {@code toString()} then copies.</li>
+ * <li>{@code MH_SB_SIZED}: appends the arguments to a {@code StringBuilder}
+ * whose capacity is estimated from the constants and the argument types,
+ * as a compiler could, without converting any argument in advance.</li>
+ * </ul>
+ * All strategies are composed of method handles; none generates classes.
+ *
+ * <p>Every strategy converts each argument to a string exactly once, in
+ * the same way as {@link String#valueOf(Object)} and its primitive
+ * overloads do, except that a {@code null} result of {@code toString()} is
+ * also converted to {@code "null"}.
+ */
+public final class StringConcatFactory {
+
+    /**
+     * Tag used to demarcate an ordinary argument.
+     */
+    private static final char TAG_ARG = '\u0001';
+
+    /**
+     * Tag used to demarcate a constant.
+     */
+    private static final char TAG_CONST = '\u0002';
+
+    /**
+     * Maximum number of argument slots in String Concat call.
+     *
+     * While the maximum number of argument slots that indy call can handle is 253,
+     * we do not use all those slots, to let the strategies with MethodHandle
+     * combinators to use some arguments.
+     */
+    private static final int MAX_INDY_CONCAT_ARG_SLOTS = 200;
+
+    /**
+     * Concatenation strategy to use. See {@link Strategy} for possible options.
+     */
+    private static final Strategy STRATEGY;
+
+    private enum Strategy {
+        /**
+         * MethodHandle-based generator, that uses {@link StringBuilder},
+         * sized with the estimated length of the result.
+         */
+        MH_SB_SIZED,
+
+        /**
+         * MethodHandle-based generator, that uses {@link StringBuilder},
+         * sized with the exact length of the result.
+         */
+        MH_SB_SIZED_EXACT,
+
+        /**
+         * MethodHandle-based generator, that fills an exactly sized
+         * {@code char[]} and wraps it in a {@code String}.
+         */
+        MH_INLINE_SIZED_EXACT
+    }
+
+    static {
+        String strategy = AccessController.doPrivileged(
+                new PrivilegedAction<String>() {
+                    public String run() {
+                        return System.getProperty("java.lang.invoke.stringConcat");
+                    }
+                });
+        STRATEGY = (strategy == null)
+                ? Strategy.MH_INLINE_SIZED_EXACT
+                : Strategy.valueOf(strategy);
+    }
+
+    private StringConcatFactory() {
+        // no instantiation
+    }
+
+    /**
+     * Facilitates the creation of optimized String concatenation methods,
+     * that can be used to efficiently concatenate a known number of
+     * arguments of known types, possibly after type adaptation and partial
+     * evaluation of arguments.  Typically used as a <em>bootstrap
+     * method</em> for {@code invokedynamic} call sites.
+     *
+     * <p>The returned call site concatenates all of its arguments, in
+     * order, as if by {@code makeConcatWithConstants} with a recipe
+     * consisting of one {@code \1} tag per argument.
+     *
+     * @param lookup   Represents a lookup context with the accessibility
+     *                 privileges of the caller.  When used with {@code
+     *                 invokedynamic}, this is stacked automatically by the VM.
+     * @param name     The name of the method to implement.  This name is
+     *                 arbitrary, and has no meaning for this linkage method.
+     *                 When used with {@code invokedynamic}, this is provided
+     *                 by the {@code NameAndType} of the {@code InvokeDynamic}
+     *                 structure and is stacked automatically by the VM.
+     * @param concatType The expected signature of the {@code CallSite}.  The
+     *                 parameter types represent the types of concatenation
+     *                 arguments; the return type is always assignable from
+     *                 {@link java.lang.String}.  When used with {@code
+     *                 invokedynamic}, this is provided by the {@code
+     *                 NameAndType} of the {@code InvokeDynamic} structure and
+     *                 is stacked automatically by the VM.
+     * @return a CallSite whose target can be used to perform String
+     * concatenation, with dynamic concatenation arguments described by the
+     * given {@code concatType}.
+     * @throws StringConcatException If any of the linkage invariants are
+     *                               violated
+     * @throws NullPointerException If any of the incoming arguments is null.
+     */
+    public static CallSite makeConcat(MethodHandles.Lookup lookup,
+                                      String name,
+                                      MethodType concatType) throws StringConcatException {
+        Objects.requireNonNull(concatType, "Concat type is null");
+        char[] recipe = new char[concatType.parameterCount()];
+        Arrays.fill(recipe, TAG_ARG);
+        return doStringConcat(lookup, name, concatType, new String(recipe), new Object[0]);
+    }
+
+    /**
+     * Facilitates the creation of optimized String concatenation methods,
+     * that can be used to efficiently concatenate a known number of
+     * arguments of known types, possibly after type adaptation and partial
+     * evaluation of arguments.  Typically used as a <em>bootstrap
+     * method</em> for {@code invokedynamic} call sites.
+     *
+     * <p>The recipe describes the result, from left to right:
+     * <ul>
+     * <li>each {@code \1 (Unicode point 0001)} is replaced by the next
+     * dynamic argument of the call site, converted to a string;</li>
+     * <li>each {@code \2 (Unicode point 0002)} is replaced by the next
+     * element of {@code constants}, converted to a string when linking;</li>
+     * <li>any other character is copied as is.</li>
+     * </ul>
+     *
+     * @param lookup   Represents a lookup context with the accessibility
+     *                 privileges of the caller.  When used with {@code
+     *                 invokedynamic}, this is stacked automatically by the VM.
+     * @param name     The name of the method to implement.  This name is
+     *                 arbitrary, and has no meaning for this linkage method.
+     * @param concatType The expected signature of the {@code CallSite}.  The
+     *                 parameter types represent the types of dynamic
+     *                 concatenation arguments; the return type is always
+     *                 assignable from {@link java.lang.String}.
+     * @param recipe   Concatenation recipe, described above.
+     * @param constants A vararg parameter representing the constants passed
+     *                 to the linkage method.
+     * @return a CallSite whose target can be used to perform String
+     * concatenation, with dynamic concatenation arguments described by the
+     * given {@code concatType}.
+     * @throws StringConcatException If any of the linkage invariants are
+     *                               violated, for example if the number of
+     *                               {@code \1} tags in the recipe differs
+     *                               from the number of parameters, or the
+     *                               number of {@code \2} tags from the
+     *                               number of constants
+     * @throws NullPointerException If any of the incoming arguments is null,
+     *                              or any of the constants is null.
+     */
+    public static CallSite makeConcatWithConstants(MethodHandles.Lookup lookup,
+                                                   String name,
+                                                   MethodType concatType,
+                                                   String recipe,
+                                                   Object... constants) throws StringConcatException {
+        return doStringConcat(lookup, name, concatType, recipe, constants);
+    }
+
+    private static CallSite doStringConcat(MethodHandles.Lookup lookup,
+                                           String name,
+                                           MethodType concatType,
+                                           String recipe,
+                                           Object[] constants) throws StringConcatException {
+        Objects.requireNonNull(lookup, "Lookup is null");
+        Objects.requireNonNull(name, "Name is null");
+        Objects.requireNonNull(concatType, "Concat type is null");
+        Objects.requireNonNull(recipe, "Recipe is null");
+        Objects.requireNonNull(constants, "Constants are null");
+        for (Object o : constants) {
+            Objects.requireNonNull(o, "Cannot accept null constants");
+        }
+
+        if (!concatType.returnType().isAssignableFrom(String.class)) {
+            throw new StringConcatException(
+                    "The return type should be compatible with String, but it is " +
+                    concatType.returnType());
+        }
+        if (concatType.parameterSlotCount() > MAX_INDY_CONCAT_ARG_SLOTS) {
+            throw new StringConcatException("MethodType should not have more than " +
+                    MAX_INDY_CONCAT_ARG_SLOTS + " parameter slots: " + concatType);
+        }
+
+        List<RecipeElement> elements = parseRecipe(concatType, recipe, constants);
+
+        MethodType mt = adaptType(concatType);
+        MethodHandle mh;
+        switch (STRATEGY) {
+            case MH_SB_SIZED:
+                mh = sbSized(mt, elements);
+                break;
+            case MH_SB_SIZED_EXACT:
+                mh = sbSizedExact(mt, elements);
+                break;
+            case MH_INLINE_SIZED_EXACT:
+                mh = inlineSizedExact(mt, elements);
+                break;
+            default:
+                throw new StringConcatException("Concatenation strategy " + STRATEGY + " is not implemented");
+        }
+        return new ConstantCallSite(mh.asType(concatType));
+    }
+
+    /**
+     * An element of a parsed recipe: either a constant string, in which
+     * adjacent constants and literal characters are merged, or the
+     * position of a dynamic argument.
+     */
+    private static final class RecipeElement {
+        final String value;
+        final int argPos;
+
+        RecipeElement(String value) {
+            this.value = value;
+            this.argPos = -1;
+        }
+
+        RecipeElement(int argPos) {
+            this.value = null;
+            this.argPos = argPos;
+        }
+
+        boolean isConstant() {
+            return argPos < 0;
+        }
+    }
+
+    private static List<RecipeElement> parseRecipe(MethodType concatType,
+                                                   String recipe,
+                                                   Object[] constants) throws StringConcatException {
+        List<RecipeElement> elements = new ArrayList<>();
+        StringBuilder acc = new StringBuilder();
+        int argC = 0;
+        int constC = 0;
+        for (int i = 0; i < recipe.length(); i++) {
+            char c = recipe.charAt(i);
+            if (c == TAG_CONST) {
+                if (constC == constants.length) {
+                    throw new StringConcatException("Mismatched number of concat constants: recipe wants more than " +
+                            constants.length + " constants: " + recipe);
+                }
+                acc.append(constants[constC++]);
+            } else if (c == TAG_ARG) {
+                if (acc.length() > 0) {
+                    elements.add(new RecipeElement(acc.toString()));
+                    acc.setLength(0);
+                }
+                elements.add(new RecipeElement(argC++));
+            } else {
+                acc.append(c);
+            }
+        }
+        if (acc.length() > 0) {
+            elements.add(new RecipeElement(acc.toString()));
+        }
+
+        if (argC != concatType.parameterCount()) {
+            throw new StringConcatException("Mismatched number of concat arguments: recipe wants " +
+                    argC + " arguments, but signature provides " + concatType.parameterCount());
+        }
+        if (constC != constants.length) {
+            throw new StringConcatException("Mismatched number of concat constants: recipe wants " +
+                    constC + " constants, but " + constants.length + " are passed");
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the type actually concatenated: a String result, and
+     * parameters of the types the strategies handle.  Subword integral
+     * types widen to int, and references other than String are treated
+     * as Object.  The call site adapts the result to the caller's type.
+     */
+    private static MethodType adaptType(MethodType concatType) {
+        Class<?>[] ptypes = concatType.parameterArray();
+        for (int i = 0; i < ptypes.length; i++) {
+            Class<?> c = ptypes[i];
+            if (c == byte.class || c == short.class) {
+                ptypes[i] = int.class;
+            } else if (!c.isPrimitive() && c != String.class) {
+                ptypes[i] = Object.class;
+            }
+        }
+        return methodType(String.class, ptypes);
+    }
+
+    private static int constantLength(List<RecipeElement> elements) {
+        int len = 0;
+        for (RecipeElement e : elements) {
+            if (e.isConstant()) {
+                len = checkOverflow(len + e.value.length());
+            }
+        }
+        return len;
+    }
+
+    // -- Strategies --
+
+    /**
+     * MH_SB_SIZED: {@code new StringBuilder(estimate).append(...)...toString()}.
+     */
+    private static MethodHandle sbSized(MethodType mt, List<RecipeElement> elements) {
+        Class<?>[] ptypes = mt.parameterArray();
+        int estimate = constantLength(elements);
+        for (Class<?> c : ptypes) {
+            estimate = checkOverflow(estimate + estimatedLength(c));
+        }
+        MethodHandle builder = MethodHandles.dropArguments(
+                MethodHandles.insertArguments(NEW_STRING_BUILDER, 0, estimate), 0, ptypes);
+        return appendAll(builder, ptypes, elements);
+    }
+
+    /**
+     * MH_SB_SIZED_EXACT: converts all arguments to strings first, then
+     * appends them to a StringBuilder of the exact size of the result.
+     */
+    private static MethodHandle sbSizedExact(MethodType mt, List<RecipeElement> elements) {
+        Class<?>[] ptypes = mt.parameterArray();
+        MethodHandle[] filters = new MethodHandle[ptypes.length];
+        Class<?>[] stypes = new Class<?>[ptypes.length];
+        for (int i = 0; i < ptypes.length; i++) {
+            filters[i] = stringifier(ptypes[i]);
+            stypes[i] = String.class;
+        }
+        MethodHandle builder = MethodHandles.filterReturnValue(
+                lengthOf(stypes, elements), NEW_STRING_BUILDER);
+        MethodHandle mh = appendAll(builder, stypes, elements);
+        return MethodHandles.filterArguments(mh, 0, filters);
+    }
+
+    /**
+     * MH_INLINE_SIZED_EXACT: computes the exact length of the result,
+     * allocates its char[] and prepends all elements, from the last to
+     * the first, before wrapping the array in a String without copying.
+     * Only arguments whose length cannot be computed cheaply from the
+     * value are converted to strings in advance.
+     */
+    private static MethodHandle inlineSizedExact(MethodType mt, List<RecipeElement> elements) {
+        Class<?>[] ptypes = mt.parameterArray();
+        MethodHandle[] filters = new MethodHandle[ptypes.length];
+        Class<?>[] stypes = new Class<?>[ptypes.length];
+        for (int i = 0; i < ptypes.length; i++) {
+            Class<?> c = ptypes[i];
+            if (c == int.class || c == long.class || c == char.class || c == boolean.class) {
+                stypes[i] = c;
+            } else {
+                filters[i] = stringifier(c);
+                stypes[i] = String.class;
+            }
+        }
+
+        // (int index, char[] buf, T...)String; the first element is prepended last
+        MethodHandle mh = MethodHandles.dropArguments(NEW_STRING, 2, stypes);
+        for (RecipeElement e : elements) {
+            MethodHandle prepender;
+            if (e.isConstant()) {
+                prepender = MethodHandles.dropArguments(
+                        MethodHandles.insertArguments(prepender(String.class), 2, e.value), 2, stypes);
+            } else {
+                prepender = selectArgument(prepender(stypes[e.argPos]),
+                        methodType(int.class, int.class, char[].class).appendParameterTypes(stypes),
+                        2, e.argPos);
+            }
+            mh = foldFirst(mh, prepender);
+        }
+
+        // (int length, T...)String: the array is allocated with the length,
+        // which is also the index to prepend the last element at
+        int[] reorder = new int[2 + stypes.length];
+        reorder[0] = 1;
+        reorder[1] = 0;
+        for (int i = 0; i < stypes.length; i++) {
+            reorder[2 + i] = 2 + i;
+        }
+        mh = MethodHandles.permuteArguments(mh,
+                methodType(String.class, char[].class, int.class).appendParameterTypes(stypes),
+                reorder);
+        mh = MethodHandles.foldArguments(mh, NEW_ARRAY);
+
+        // (T...)String
+        mh = MethodHandles.foldArguments(mh, lengthOf(stypes, elements));
+        return MethodHandles.filterArguments(mh, 0, filters);
+    }
+
+    // -- Combinators --
+
+    /**
+     * Given {@code builder} of type (T...)StringBuilder, returns a handle of
+     * type (T...)String that appends all elements to the builder it creates.
+     */
+    private static MethodHandle appendAll(MethodHandle builder, Class<?>[] ptypes,
+                                          List<RecipeElement> elements) {
+        // (StringBuilder sb, T...)String; the first element is appended first,
+        // so its appender is the outermost
+        MethodHandle mh = MethodHandles.dropArguments(STRING_BUILDER_TO_STRING, 1, ptypes);
+        MethodType appenderType = methodType(StringBuilder.class, StringBuilder.class).appendParameterTypes(ptypes);
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            RecipeElement e = elements.get(i);
+            MethodHandle appender;
+            if (e.isConstant()) {
+                appender = MethodHandles.dropArguments(
+                        MethodHandles.insertArguments(appender(String.class), 1, e.value), 1, ptypes);
+            } else {
+                appender = selectArgument(appender(ptypes[e.argPos]), appenderType, 1, e.argPos);
+            }
+            mh = foldFirst(mh, appender);
+        }
+        return MethodHandles.foldArguments(mh, builder);
+    }
+
+    /**
+     * Returns a handle of type (T...)int computing the length of the
+     * result, the constants included.
+     */
+    private static MethodHandle lengthOf(Class<?>[] ptypes, List<RecipeElement> elements) {
+        // (int length, T...)int
+        MethodHandle mh = MethodHandles.dropArguments(MethodHandles.identity(int.class), 1, ptypes);
+        MethodType mixerType = methodType(int.class, int.class).appendParameterTypes(ptypes);
+        for (int i = 0; i < ptypes.length; i++) {
+            mh = foldFirst(mh, selectArgument(mixer(ptypes[i]), mixerType, 1, i));
+        }
+        return MethodHandles.insertArguments(mh, 0, constantLength(elements));
+    }
+
+    /**
+     * Given {@code target} of type (A, T...)R and {@code combiner} of type
+     * (A, T...)A, returns a handle of type (A, T...)R that invokes the
+     * target with the first argument replaced by the result of the combiner.
+     */
+    private static MethodHandle foldFirst(MethodHandle target, MethodHandle combiner) {
+        MethodHandle mh = MethodHandles.dropArguments(target, 1, target.type().parameterType(0));
+        return MethodHandles.foldArguments(mh, combiner);
+    }
+
+    /**
+     * Adapts {@code mh}, whose last parameter takes argument {@code argPos}
+     * of the trailing arguments of {@code newType}, to {@code newType},
+     * dropping the other trailing arguments.  The {@code lead} arguments
+     * of {@code newType} are passed through.
+     */
+    private static MethodHandle selectArgument(MethodHandle mh, MethodType newType, int lead, int argPos) {
+        int[] reorder = new int[lead + 1];
+        for (int i = 0; i < lead; i++) {
+            reorder[i] = i;
+        }
+        reorder[lead] = lead + argPos;
+        return MethodHandles.permuteArguments(mh, newType, reorder);
+    }
+
+    // -- Elementary handles --
+
+    private static final MethodHandle NEW_STRING;
+    private static final MethodHandle NEW_ARRAY;
+    private static final MethodHandle NEW_STRING_BUILDER;
+    private static final MethodHandle STRING_BUILDER_TO_STRING;
+    private static final MethodHandle STRINGIFY_OBJECT;
+    private static final MethodHandle STRINGIFY_STRING;
+
+    static {
+        try {
+            Class<?> SCF = StringConcatFactory.class;
+            NEW_STRING = IMPL_LOOKUP.findStatic(SCF, "newString",
+                    methodType(String.class, int.class, char[].class));
+            NEW_ARRAY = IMPL_LOOKUP.findStatic(SCF, "newArray",
+                    methodType(char[].class, int.class));
+            NEW_STRING_BUILDER = IMPL_LOOKUP.findConstructor(StringBuilder.class,
+                    methodType(void.class, int.class));
+            STRING_BUILDER_TO_STRING = IMPL_LOOKUP.findVirtual(StringBuilder.class, "toString",
+                    methodType(String.class));
+            STRINGIFY_OBJECT = IMPL_LOOKUP.findStatic(SCF, "stringOf",
+                    methodType(String.class, Object.class));
+            STRINGIFY_STRING = IMPL_LOOKUP.findStatic(SCF, "stringOf",
+                    methodType(String.class, String.class));
+        } catch (ReflectiveOperationException ex) {
+            throw newInternalError(ex);
+        }
+    }
+
+    /**
+     * Returns a handle converting a value of the given type to a string.
+     */
+    private static MethodHandle stringifier(Class<?> c) {
+        if (c == Object.class) {
+            return STRINGIFY_OBJECT;
+        } else if (c == String.class) {
+            return STRINGIFY_STRING;
+        }
+        try {
+            return IMPL_LOOKUP.findStatic(String.class, "valueOf", methodType(String.class, c));
+        } catch (ReflectiveOperationException ex) {
+            throw newInternalError(ex);
+        }
+    }
+
+    /**
+     * Returns a handle of type (StringBuilder, C)StringBuilder appending
+     * a value of the given type.
+     */
+    private static MethodHandle appender(Class<?> c) {
+        try {
+            return IMPL_LOOKUP.findVirtual(StringBuilder.class, "append",
+                    methodType(StringBuilder.class, c));
+        } catch (ReflectiveOperationException ex) {
+            throw newInternalError(ex);
+        }
+    }
+
+    /**
+     * Returns a handle of type (int, char[], C)int prepending a value of
+     * the given type, one of int, long, char, boolean or String.
+     */
+    private static MethodHandle prepender(Class<?> c) {
+        try {
+            return IMPL_LOOKUP.findStatic(StringConcatFactory.class, "prepend",
+                    methodType(int.class, int.class, char[].class, c));
+        } catch (ReflectiveOperationException ex) {
+            throw newInternalError(ex);
+        }
+    }
+
+    /**
+     * Returns a handle of type (int, C)int adding the length of the
+     * string form of a value of the given type, one of int, long, char,
+     * boolean or String.
+     */
+    private static MethodHandle mixer(Class<?> c) {
+        try {
+            return IMPL_LOOKUP.findStatic(StringConcatFactory.class, "mix",
+                    methodType(int.class, int.class, c));
+        } catch (ReflectiveOperationException ex) {
+            throw newInternalError(ex);
+        }
+    }
+
+    /**
+     * Returns the expected length of the string form of a value of the
+     * given type, used to size the builder by MH_SB_SIZED.
+     */
+    private static int estimatedLength(Class<?> c) {
+        if (c == int.class) {
+            return 11;
+        } else if (c == long.class) {
+            return 20;
+        } else if (c == char.class) {
+            return 1;
+        } else if (c == boolean.class) {
+            return 5;
+        } else if (c == float.class) {
+            return 15;
+        } else if (c == double.class) {
+            return 24;
+        } else {
+            return 16;
+        }
+    }
+
+    // -- Methods invoked by the call sites --
+
+    private static final JavaLangAccess JLA = SharedSecrets.getJavaLangAccess();
+
+    private static String stringOf(Object value) {
+        String s;
+        return (value == null || (s = value.toString()) == null) ? "null" : s;
+    }
+
+    private static String stringOf(String value) {
+        return (value == null) ? "null" : value;
+    }
+
+    private static char[] newArray(int length) {
+        return new char[length];
+    }
+
+    private static String newString(int index, char[] buf) {
+        if (index != 0) {
+            throw newIllegalStateException("Storage is not completely initialized, " + index + " chars left");
+        }
+        return JLA.newStringUnsafe(buf);
+    }
+
+    private static int checkOverflow(int length) {
+        if (length < 0) {
+            throw new OutOfMemoryError("Overflow: String length out of range");
+        }
+        return length;
+    }
+
+    private static int mix(int length, int value) {
+        return checkOverflow(length + stringSize(value));
+    }
+
+    private static int mix(int length, long value) {
+        return checkOverflow(length + stringSize(value));
+    }
+
+    private static int mix(int length, char value) {
+        return checkOverflow(length + 1);
+    }
+
+    private static int mix(int length, boolean value) {
+        return checkOverflow(length + (value ? 4 : 5));
+    }
+
+    private static int mix(int length, String value) {
+        return checkOverflow(length + value.length());
+    }
+
+    private static int prepend(int index, char[] buf, int value) {
+        // Work with negative values, so that MIN_VALUE needs no special case
+        boolean negative = value < 0;
+        int q = negative ? value : -value;
+        do {
+            buf[--index] = (char)('0' - q % 10);
+            q /= 10;
+        } while (q != 0);
+        if (negative) {
+            buf[--index] = '-';
+        }
+        return index;
+    }
+
+    private static int prepend(int index, char[] buf, long value) {
+        boolean negative = value < 0;
+        long q = negative ? value : -value;
+        do {
+            buf[--index] = (char)('0' - q % 10);
+            q /= 10;
+        } while (q != 0);
+        if (negative) {
+            buf[--index] = '-';
+        }
+        return index;
+    }
+
+    private static int prepend(int index, char[] buf, char value) {
+        buf[--index] = value;
+        return index;
+    }
+
+    private static int prepend(int index, char[] buf, boolean value) {
+        return prepend(index, buf, value ? "true" : "false");
+    }
+
+    private static int prepend(int index, char[] buf, String value) {
+        index -= value.length();
+        value.getChars(0, value.length(), buf, index);
+        return index;
+    }
+
+    private static int stringSize(int value) {
+        int size = (value < 0) ? 2 : 1;
+        for (int q = (value < 0) ? value : -value; q <= -10; q /= 10) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int stringSize(long value) {
+        int size = (value < 0) ? 2 : 1;
+        for (long q = (value < 0) ? value : -value; q <= -10; q /= 10) {
+            size++;
+        }
+        return size;
+    }
+}
@@ -33,6 +33,7 @@ import sun.reflect.generics.factory.CoreReflectionFactory;
 import sun.reflect.generics.factory.GenericsFactory;
 import sun.reflect.generics.scope.ClassScope;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.util.Map;
 import java.util.Objects;
 import sun.reflect.annotation.AnnotationParser;
@@ -156,6 +157,11 @@ class Field extends AccessibleObject implements Member {
         return res;
     }
 
+    // Returns the root Field, or null if this Field is the root
+    Field getRoot() {
+        return root;
+    }
+
     /**
      * Returns the {@code Class} object representing the class or interface
      * that declares the field represented by this {@code Field} object.
@@ -1060,6 +1066,90 @@ class Field extends AccessibleObject implements Member {
         getFieldAccessor(obj).setDouble(obj, d);
     }
 
+    /**
+     * Returns a method handle reading the field represented by this
+     * {@code Field} object.  The method handle returns a value of the
+     * type of the field, and takes the instance containing the field,
+     * of the declaring class, as its argument unless the field is
+     * static, in which case it takes no arguments.
+     *
+     * <p>Unlike {@link #get get}, the method handle returns values of
+     * primitive types without boxing them, and is not subject to access
+     * checks when invoked.  Access is checked instead when the method
+     * handle is created, as by {@code get} for an instance of the
+     * declaring class.  If the field is a protected instance field that
+     * the caller can only access as a subclass of the declaring class in
+     * another package, the method handle takes an instance of the
+     * caller's class instead, as with {@code Lookup.unreflectGetter}.
+     * A method handle held in a {@code static final} field can be
+     * inlined by the JIT compiler into its callers.
+     *
+     * <p>If the field is static, invoking the method handle initializes
+     * the declaring class if it has not already been initialized.
+     *
+     * @return a method handle reading the underlying field
+     * @exception IllegalAccessException if this {@code Field} object
+     *              is enforcing Java language access control and the
+     *              underlying field is inaccessible.
+     * @see java.lang.invoke.MethodHandles.Lookup#unreflectGetter
+     */
+    @CallerSensitive
+    public MethodHandle unreflectGetter() throws IllegalAccessException {
+        Class<?> caller = null;
+        if (!override) {
+            if (!Reflection.quickCheckMemberAccess(clazz, modifiers)) {
+                caller = Reflection.getCallerClass();
+                checkAccess(caller, clazz, null, modifiers);
+            }
+        }
+        return MethodHandleAccessorFactory.restrictReceiver(
+            MethodHandleAccessorFactory.getter(this), caller, clazz, modifiers);
+    }
+
+    /**
+     * Returns a method handle writing the field represented by this
+     * {@code Field} object.  The method handle returns {@code void},
+     * and takes the value to store, of the type of the field, preceded
+     * by the instance containing the field, of the declaring class,
+     * unless the field is static.
+     *
+     * <p>Unlike {@link #set set}, the method handle takes values of
+     * primitive types without boxing them, and is not subject to access
+     * checks when invoked.  Access is checked instead when the method
+     * handle is created, as by {@code set} for an instance of the
+     * declaring class: in particular, a final field can only be written
+     * if {@code setAccessible(true)} has succeeded for this {@code Field}
+     * object and the field is non-static.  The instance is narrowed to
+     * the caller's class for a protected field, as by {@link
+     * #unreflectGetter unreflectGetter}.
+     *
+     * <p>If the field is static, invoking the method handle initializes
+     * the declaring class if it has not already been initialized.
+     *
+     * @return a method handle writing the underlying field
+     * @exception IllegalAccessException if this {@code Field} object
+     *              is enforcing Java language access control and the
+     *              underlying field is either inaccessible or final, or
+     *              if the underlying field is static and final.
+     * @see java.lang.invoke.MethodHandles.Lookup#unreflectSetter
+     */
+    @CallerSensitive
+    public MethodHandle unreflectSetter() throws IllegalAccessException {
+        Class<?> caller = null;
+        if (!override) {
+            if (!Reflection.quickCheckMemberAccess(clazz, modifiers)) {
+                caller = Reflection.getCallerClass();
+                checkAccess(caller, clazz, null, modifiers);
+            }
+        }
+        if (Modifier.isFinal(modifiers) && (!override || Modifier.isStatic(modifiers)))
+            throw new IllegalAccessException("Can not set " +
+                (Modifier.isStatic(modifiers) ? "static " : "") + "final " +
+                type.getName() + " field " + clazz.getName() + "." + name);
+        return MethodHandleAccessorFactory.restrictReceiver(
+            MethodHandleAccessorFactory.setter(this), caller, clazz, modifiers);
+    }
+
     // security check is done before calling this method
     private FieldAccessor getFieldAccessor(Object obj)
         throws IllegalAccessException
@@ -36,6 +36,7 @@ import sun.reflect.annotation.AnnotationType;
 import sun.reflect.annotation.AnnotationParser;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.AnnotationFormatError;
+import java.lang.invoke.MethodHandle;
 import java.nio.ByteBuffer;
 
 /**
@@ -498,6 +499,47 @@ public final class Method extends Executable {
         return ma.invoke(obj, args);
     }
 
+    /**
+     * Returns a direct method handle for the method represented by
+     * this {@code Method} object.  The type of the method handle is
+     * that of the method, with the declaring class prepended as the
+     * type of the receiver if the method is an instance method.  The
+     * method handle has variable arity if and only if the method does.
+     *
+     * <p>Unlike {@link #invoke invoke}, the method handle passes
+     * arguments and return values of primitive types without boxing
+     * them, and is not subject to access checks when invoked.  Access
+     * is checked instead when the method handle is created, as by
+     * {@code invoke} for a receiver of the declaring class.  If the
+     * method is a protected instance method that the caller can only
+     * access as a subclass of the declaring class in another package,
+     * the receiver type is the caller's class instead, as with {@code
+     * Lookup.unreflect}.  Invoking
+     * an instance method performs dynamic method lookup, as {@code
+     * invoke} does.  A method handle held in a {@code static final}
+     * field can be inlined by the JIT compiler into its callers.
+     *
+     * @return a method handle invoking the underlying method
+     * @exception IllegalAccessException if this {@code Method} object
+     *              is enforcing Java language access control and the
+     *              underlying method is inaccessible, or if the
+     *              underlying method is caller-sensitive, and its
+     *              behavior depends on the class calling it
+     * @see java.lang.invoke.MethodHandles.Lookup#unreflect
+     */
+    @CallerSensitive
+    public MethodHandle unreflect() throws IllegalAccessException {
+        Class<?> caller = null;
+        if (!override) {
+            if (!Reflection.quickCheckMemberAccess(clazz, modifiers)) {
+                caller = Reflection.getCallerClass();
+                checkAccess(caller, clazz, null, modifiers);
+            }
+        }
+        return MethodHandleAccessorFactory.restrictReceiver(
+            MethodHandleAccessorFactory.directMethodHandle(this), caller, clazz, modifiers);
+    }
+
     /**
      * Returns {@code true} if this method is a bridge
      * method; returns {@code false} otherwise.
@@ -561,7 +603,9 @@ public final class Method extends Executable {
             methodAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newMethodAccessor(this);
+            tmp = MethodHandleAccessorFactory.newMethodAccessor(this);
+            if (tmp == null)
+                tmp = reflectionFactory.newMethodAccessor(this);
             setMethodAccessor(tmp);
         }
 
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.lang.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import sun.misc.Unsafe;
+import sun.misc.VM;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.MethodAccessor;
+
+/**
+ * Creates method and constructor accessors backed by direct method
+ * handles, and the method handles returned by {@link Method#unreflect},
+ * {@link Field#unreflectGetter} and {@link Field#unreflectSetter}.
+ *
+ * <p>The accessors created by {@code sun.reflect.ReflectionFactory} call
+ * into the VM for the first invocations of a {@code Method} or {@code
+ * Constructor}, and then generate a class per member, which takes
+ * metaspace for every member that is invoked often enough, however
+ * simple its signature.  A direct method handle instead links to the
+ * member through {@code LambdaForm}s shared by all members of the same
+ * erased signature, and the JIT compiler can inline through it.
+ *
+ * <p>The handles are created with a copy of the member whose accessible
+ * flag is set, so that {@link MethodHandles.Lookup} performs no access
+ * checks: callers check access as they do before invoking the member.
+ * The method handle accessors are used once the VM is booted, unless the
+ * system property {@code sun.reflect.useDirectMethodHandle} is set to
+ * {@code false}.  {@code ReflectionFactory} still provides the accessors
+ * for caller-sensitive methods, which need the caller of the accessor
+ * rather than a fixed lookup class, for members of the method handle
+ * implementation itself, and for constructors of abstract classes and
+ * of {@code Class}.
+ */
+final class MethodHandleAccessorFactory {
+
+    private MethodHandleAccessorFactory() { }
+
+    private static final class Holder {
+        static final boolean USE_DIRECT_METHOD_HANDLE =
+            AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+                public Boolean run() {
+                    return !"false".equals(
+                        System.getProperty("sun.reflect.useDirectMethodHandle"));
+                }
+            });
+    }
+
+    private static boolean useDirectMethodHandle(Class<?> declaringClass) {
+        if (!VM.isBooted() || !Holder.USE_DIRECT_METHOD_HANDLE)
+            return false;
+        // Reflecting on the method handle implementation might need
+        // the method handle implementation
+        String name = declaringClass.getName();
+        return !name.startsWith("java.lang.invoke.") && !name.startsWith("sun.invoke.");
+    }
+
+    /**
+     * Returns a method accessor backed by a direct method handle, or
+     * null if {@code ReflectionFactory} is to provide the accessor.
+     */
+    static MethodAccessor newMethodAccessor(Method method) {
+        if (!useDirectMethodHandle(method.getDeclaringClass()))
+            return null;
+        MethodHandle target;
+        try {
+            target = directMethodHandle(method);
+        } catch (IllegalAccessException e) {
+            return null; // caller-sensitive
+        }
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (isStatic)
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        int paramCount = method.getParameterCount();
+        target = target.asFixedArity()
+                       .asType(MethodType.genericMethodType(1 + paramCount))
+                       .asSpreader(Object[].class, paramCount);
+        return new DirectMethodHandleAccessor(method, isStatic, target);
+    }
+
+    /**
+     * Returns a constructor accessor backed by a direct method handle, or
+     * null if {@code ReflectionFactory} is to provide the accessor.
+     */
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> ctor) {
+        Class<?> declaringClass = ctor.getDeclaringClass();
+        if (!useDirectMethodHandle(declaringClass)
+                || Modifier.isAbstract(declaringClass.getModifiers())
+                || declaringClass == Class.class)
+            return null;
+        Constructor<?> root = (Constructor<?>) ctor.getRoot();
+        Constructor<?> copy = (root != null ? root : ctor).copy();
+        copy.override = true;
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflectConstructor(copy);
+        } catch (IllegalAccessException e) {
+            throw new InternalError(e);
+        }
+        int paramCount = ctor.getParameterCount();
+        target = target.asFixedArity()
+                       .asType(MethodType.genericMethodType(paramCount))
+                       .asSpreader(Object[].class, paramCount);
+        return new DirectConstructorHandleAccessor(ctor, target);
+    }
+
+    /**
+     * Returns a direct method handle for the given method, without
+     * access checks.
+     *
+     * @throws IllegalAccessException if the method is caller-sensitive
+     */
+    static MethodHandle directMethodHandle(Method method) throws IllegalAccessException {
+        Method root = (Method) method.getRoot();
+        Method copy = (root != null ? root : method).copy();
+        copy.override = true;
+        return MethodHandles.publicLookup().unreflect(copy);
+    }
+
+    /**
+     * Returns a method handle reading the given field, without access
+     * checks.
+     */
+    static MethodHandle getter(Field field) {
+        try {
+            return MethodHandles.publicLookup().unreflectGetter(trustedCopy(field));
+        } catch (IllegalAccessException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a method handle writing the given field, without access
+     * checks, even if it is final.
+     */
+    static MethodHandle setter(Field field) {
+        try {
+            return MethodHandles.publicLookup().unreflectSetter(trustedCopy(field));
+        } catch (IllegalAccessException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Narrows the receiver type of a method handle for a protected
+     * instance member to the class of the caller, if the caller was
+     * granted access as a subclass of the declaring class in another
+     * package, so that the member can only be reached through instances
+     * of the caller's class (JLS 6.6.2), as with {@link
+     * MethodHandles.Lookup}.  A null caller means access was not checked.
+     */
+    static MethodHandle restrictReceiver(MethodHandle mh, Class<?> caller,
+                                         Class<?> declaringClass, int modifiers) {
+        if (caller == null || caller == declaringClass
+                || !Modifier.isProtected(modifiers) || Modifier.isStatic(modifiers)
+                || isSamePackage(caller, declaringClass))
+            return mh;
+        MethodType type = mh.type().changeParameterType(0, caller);
+        if (!mh.isVarargsCollector())
+            return mh.asType(type);
+        return mh.asFixedArity().asType(type)
+                 .asVarargsCollector(type.parameterType(type.parameterCount() - 1));
+    }
+
+    private static boolean isSamePackage(Class<?> c1, Class<?> c2) {
+        if (c1.getClassLoader() != c2.getClassLoader())
+            return false;
+        String n1 = c1.getName();
+        String n2 = c2.getName();
+        int i = n1.lastIndexOf('.');
+        return i == n2.lastIndexOf('.') && n1.regionMatches(0, n2, 0, Math.max(i, 0));
+    }
+
+    private static Field trustedCopy(Field field) {
+        Field root = field.getRoot();
+        Field copy = (root != null ? root : field).copy();
+        copy.override = true;
+        return copy;
+    }
+
+    // -- Argument checks --
+
+    private static final Unsafe UNSAFE = Unsafe.getUnsafe();
+
+    /**
+     * Checks the arguments as the accessors of {@code ReflectionFactory}
+     * do, so that the conversions of the method handle cannot fail, and
+     * any exception it throws comes from the member invoked.
+     */
+    static void checkArguments(Class<?>[] parameterTypes, Object[] args) {
+        int n = (args == null) ? 0 : args.length;
+        if (n != parameterTypes.length)
+            throw new IllegalArgumentException("wrong number of arguments");
+        for (int i = 0; i < n; i++) {
+            if (!isConvertible(parameterTypes[i], args[i]))
+                throw new IllegalArgumentException("argument type mismatch");
+        }
+    }
+
+    /**
+     * Returns true if the argument can be passed for a parameter of the
+     * given type by a method invocation conversion, after unboxing.
+     */
+    private static boolean isConvertible(Class<?> type, Object arg) {
+        if (!type.isPrimitive())
+            return arg == null || type.isInstance(arg);
+        if (arg instanceof Boolean)
+            return type == boolean.class;
+        if (arg instanceof Character)
+            return type == char.class || rank(type) >= rank(int.class);
+        int rank = (arg == null) ? 0 : rank(arg.getClass());
+        return rank > 0 && rank(type) >= rank;
+    }
+
+    /**
+     * Returns the position of the given numeric primitive or wrapper
+     * type in the order of widening conversions, or 0.
+     */
+    private static int rank(Class<?> c) {
+        if (c == byte.class || c == Byte.class) return 1;
+        if (c == short.class || c == Short.class) return 2;
+        if (c == int.class || c == Integer.class) return 3;
+        if (c == long.class || c == Long.class) return 4;
+        if (c == float.class || c == Float.class) return 5;
+        if (c == double.class || c == Double.class) return 6;
+        return 0;
+    }
+
+    /**
+     * Initializes the given class if needed, so that an error in its
+     * initialization is thrown to the caller as is, rather than from the
+     * method handle as the cause of an {@code InvocationTargetException}.
+     */
+    static void ensureClassInitialized(Class<?> c) {
+        if (UNSAFE.shouldBeInitialized(c))
+            UNSAFE.ensureClassInitialized(c);
+    }
+
+    // -- Accessors --
+
+    static final class DirectMethodHandleAccessor implements MethodAccessor {
+        private final Class<?> declaringClass;
+        private final Class<?>[] parameterTypes;
+        private final boolean isStatic;
+        // (Object receiver, Object[] args)Object
+        private final MethodHandle target;
+        private boolean initialized;
+
+        DirectMethodHandleAccessor(Method method, boolean isStatic, MethodHandle target) {
+            this.declaringClass = method.getDeclaringClass();
+            this.parameterTypes = method.getParameterTypes();
+            this.isStatic = isStatic;
+            this.target = target;
+            this.initialized = !isStatic;
+        }
+
+        public Object invoke(Object obj, Object[] args)
+            throws IllegalArgumentException, InvocationTargetException
+        {
+            if (!isStatic) {
+                if (obj == null)
+                    throw new NullPointerException();
+                if (!declaringClass.isInstance(obj))
+                    throw new IllegalArgumentException("object is not an instance of declaring class");
+            } else if (!initialized) {
+                ensureClassInitialized(declaringClass);
+                initialized = true;
+            }
+            checkArguments(parameterTypes, args);
+            try {
+                return target.invokeExact(obj, args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    static final class DirectConstructorHandleAccessor implements ConstructorAccessor {
+        private final Class<?> declaringClass;
+        private final Class<?>[] parameterTypes;
+        // (Object[] args)Object
+        private final MethodHandle target;
+        private boolean initialized;
+
+        DirectConstructorHandleAccessor(Constructor<?> ctor, MethodHandle target) {
+            this.declaringClass = ctor.getDeclaringClass();
+            this.parameterTypes = ctor.getParameterTypes();
+            this.target = target;
+        }
+
+        public Object newInstance(Object[] args)
+            throws InstantiationException, IllegalArgumentException, InvocationTargetException
+        {
+            if (!initialized) {
+                ensureClassInitialized(declaringClass);
+                initialized = true;
+            }
+            checkArguments(parameterTypes, args);
+            try {
+                return target.invokeExact(args);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A file-based lines spliterator, leveraging a shared file channel and
+ * memory-mapped windows of the file for efficient line reading and
+ * splitting.
+ * <p>
+ * The spliterator covers a range of bytes of the file, beginning at the
+ * start of a line and ending immediately after a line terminator (or at the
+ * end of the file).  Splitting finds the first line terminator at or after
+ * the midpoint of the range using positional reads on the channel, so both
+ * halves remain aligned to line boundaries.  The channel's position is
+ * never used, hence a single channel can be shared by any number of
+ * spliterators traversed concurrently.
+ * <p>
+ * Traversal maps the file in windows of up to {@link #WINDOW_SIZE} bytes.
+ * Line terminators are found by scanning for the bytes {@code '\n'} and
+ * {@code '\r'}, which is only valid for charsets in which those bytes never
+ * occur as part of the encoding of another character; this is the case for
+ * the charsets in {@link #SUPPORTED_CHARSET_NAMES}.  Each line is decoded
+ * only when it is reached.
+ * <p>
+ * Depending on how it is created a spliterator reports each line either as
+ * a {@code String}, or as a {@code CharSequence} that, where the charset
+ * allows it, is a view of the mapped bytes rather than a copy.  Such views
+ * keep their mapped window reachable, whereas windows of a {@code String}
+ * spliterator are unmapped eagerly once traversal moves past them.
+ *
+ * @param <T> the type of the lines
+ */
+final class FileChannelLinesSpliterator<T extends CharSequence>
+        implements Spliterator<T> {
+
+    static final Set<String> SUPPORTED_CHARSET_NAMES;
+    static {
+        SUPPORTED_CHARSET_NAMES = new HashSet<>();
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.UTF_8.name());
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.ISO_8859_1.name());
+        SUPPORTED_CHARSET_NAMES.add(StandardCharsets.US_ASCII.name());
+    }
+
+    /**
+     * The default number of bytes mapped at a time during traversal.  A
+     * window is enlarged when a single line does not fit into it.
+     */
+    static final int WINDOW_SIZE = 1 << 26;
+
+    /**
+     * The number of bytes read at a time when searching for a line
+     * terminator at which to split.
+     */
+    static final int SPLIT_SCAN_SIZE = 1 << 13;
+
+    private final FileChannel fc;
+    private final Charset cs;
+    private final boolean latin1;
+    private final boolean sequences;
+    // Offset of the first byte of the next line
+    private long index;
+    // Offset one past the last byte covered by this spliterator
+    private final long fence;
+
+    // The currently mapped window, created lazily during traversal
+    private MappedByteBuffer window;
+    // Read-only duplicate of the window shared by CharSequence views
+    private ByteBuffer windowView;
+    // Offset in the file of the first byte of the window
+    private long windowStart;
+    // Number of bytes in the window
+    private int windowLimit;
+
+    // Decoder and scratch buffers, created lazily during traversal
+    private CharsetDecoder decoder;
+    private CharBuffer chars;
+    private byte[] bytes;
+
+    private FileChannelLinesSpliterator(FileChannel fc, Charset cs,
+                                        boolean sequences,
+                                        long index, long fence) {
+        this.fc = fc;
+        this.cs = cs;
+        this.latin1 = cs.equals(StandardCharsets.ISO_8859_1);
+        this.sequences = sequences;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    /**
+     * Creates a spliterator reporting each line of the first {@code fence}
+     * bytes of the file as a {@code String}.
+     */
+    static FileChannelLinesSpliterator<String> lines(FileChannel fc,
+                                                     Charset cs,
+                                                     long fence) {
+        return new FileChannelLinesSpliterator<>(fc, cs, false, 0, fence);
+    }
+
+    /**
+     * Creates a spliterator reporting each line of the first {@code fence}
+     * bytes of the file as a {@code CharSequence}.  A line is valid after
+     * the spliterator has moved on and after the channel is closed.
+     */
+    static FileChannelLinesSpliterator<CharSequence> lineSequences(
+            FileChannel fc, Charset cs, long fence) {
+        return new FileChannelLinesSpliterator<>(fc, cs, true, 0, fence);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (index >= fence) {
+            unmap();
+            return false;
+        }
+        action.accept(readLine());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if (action == null)
+            throw new NullPointerException();
+        while (index < fence)
+            action.accept(readLine());
+        unmap();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        long lo = index, hi = fence;
+        if (hi - lo < 2)
+            return null;
+        long mid = nextLineStart(lo + ((hi - lo) >>> 1));
+        if (mid <= lo || mid >= hi)
+            return null;
+        index = mid;
+        return new FileChannelLinesSpliterator<>(fc, cs, sequences, lo, mid);
+    }
+
+    @Override
+    public long estimateSize() {
+        // Use the number of bytes as an estimate; counting the lines
+        // would require reading the whole range
+        return fence - index;
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return -1;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    /**
+     * Reads the line starting at {@code index} and advances {@code index}
+     * past its terminator.
+     */
+    private T readLine() {
+        long start = index;
+        for (;;) {
+            if (window == null || start < windowStart
+                || start >= windowStart + windowLimit)
+                map(start, WINDOW_SIZE);
+            MappedByteBuffer w = window;
+            int from = (int) (start - windowStart), limit = windowLimit;
+            boolean more = windowStart + limit < fence;
+            // bits accumulates the sign bits of the line's bytes; it stays
+            // non-negative if and only if the line is ASCII
+            int i = from, bits = 0;
+            byte b = 0;
+            while (i < limit && (b = w.get(i)) != '\n' && b != '\r') {
+                bits |= b;
+                i++;
+            }
+            int next = i;
+            if (i < limit) {
+                next++;
+                if (b == '\r') {
+                    if (next < limit) {
+                        if (w.get(next) == '\n')
+                            next++;
+                    } else if (more) {
+                        // "\r\n" may straddle the end of the window
+                        next = -1;
+                    }
+                }
+            } else if (more) {
+                // The line continues beyond the end of the window
+                next = -1;
+            }
+            if (next < 0) {
+                if (from == 0) {
+                    if (limit == Integer.MAX_VALUE)
+                        throw new UncheckedIOException(new IOException(
+                            "Line at offset " + start + " is too long"));
+                    map(start, (int) Math.min((long) limit << 1,
+                                              Integer.MAX_VALUE));
+                } else {
+                    map(start, Math.max(WINDOW_SIZE, limit - from + 1));
+                }
+                continue;
+            }
+            index = windowStart + next;
+            return line(from, i - from, bits >= 0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T line(int from, int length, boolean ascii) {
+        if (sequences) {
+            if (ascii || latin1)
+                return (T) new ByteCharSequence(windowView, from, length);
+            return (T) decode(from, length, false);
+        }
+        if (ascii || latin1)
+            return (T) new String(copy(from, length), 0, length,
+                                  StandardCharsets.ISO_8859_1);
+        return (T) decode(from, length, true).toString();
+    }
+
+    /**
+     * Decodes a line of the window, reporting malformed or unmappable input.
+     * If {@code scratch} is true the characters are decoded into a buffer
+     * that is reused for the next line.
+     */
+    private CharBuffer decode(int from, int length, boolean scratch) {
+        CharsetDecoder d = decoder;
+        if (d == null)
+            decoder = d = cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // The supported charsets decode each byte to at most one char
+        CharBuffer out;
+        if (scratch) {
+            out = chars;
+            if (out == null || out.capacity() < length)
+                chars = out = CharBuffer.allocate(Math.max(length, 128));
+            out.clear();
+        } else {
+            out = CharBuffer.allocate(length);
+        }
+        // Decoding from a heap buffer is considerably faster than decoding
+        // directly from the mapped window
+        ByteBuffer in = ByteBuffer.wrap(copy(from, length), 0, length);
+        try {
+            d.reset();
+            CoderResult cr = d.decode(in, out, true);
+            if (cr.isUnderflow())
+                cr = d.flush(out);
+            if (!cr.isUnderflow())
+                cr.throwException();
+        } catch (CharacterCodingException x) {
+            throw new UncheckedIOException(x);
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Copies bytes of the window into a scratch array that is reused for
+     * the next line.
+     */
+    private byte[] copy(int from, int length) {
+        byte[] b = bytes;
+        if (b == null || b.length < length)
+            bytes = b = new byte[Math.max(length, 128)];
+        MappedByteBuffer w = window;
+        w.position(from);
+        w.get(b, 0, length);
+        return b;
+    }
+
+    /**
+     * Maps a window of at least {@code size} bytes starting at
+     * {@code start}, or fewer if the fence is reached first.
+     */
+    private void map(long start, int size) {
+        unmap();
+        int n = (int) Math.min(fence - start, size);
+        MappedByteBuffer w;
+        try {
+            w = fc.map(FileChannel.MapMode.READ_ONLY, start, n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        window = w;
+        windowView = sequences ? w.asReadOnlyBuffer() : null;
+        windowStart = start;
+        windowLimit = n;
+    }
+
+    /**
+     * Releases the current window.  Windows that may be referenced by
+     * CharSequence views are left to be unmapped when they are garbage
+     * collected.
+     */
+    private void unmap() {
+        MappedByteBuffer w = window;
+        if (w != null) {
+            window = null;
+            windowView = null;
+            if (!sequences) {
+                Cleaner cl = ((DirectBuffer) w).cleaner();
+                if (cl != null)
+                    cl.clean();
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the first line that starts at or after
+     * {@code pos}, or {@code fence} if there is none.
+     */
+    private long nextLineStart(long pos) {
+        ByteBuffer b = ByteBuffer.allocate(SPLIT_SCAN_SIZE);
+        while (pos < fence) {
+            int n = read(b, pos);
+            if (n <= 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                byte c = b.get(i);
+                if (c == '\n')
+                    return pos + i + 1;
+                if (c == '\r') {
+                    long next = pos + i + 1;
+                    if (next < fence) {
+                        if (i + 1 < n ? b.get(i + 1) == '\n'
+                                      : read(b, next) > 0 && b.get(0) == '\n')
+                            next++;
+                    }
+                    return next;
+                }
+            }
+            pos += n;
+        }
+        return fence;
+    }
+
+    /**
+     * Reads the bytes at {@code pos} into the buffer, not reading past the
+     * fence, and returns the number of bytes read or -1 at the end of file.
+     */
+    private int read(ByteBuffer b, long pos) {
+        b.clear();
+        b.limit((int) Math.min(b.capacity(), fence - pos));
+        try {
+            return fc.read(b, pos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A line of single-byte characters viewed directly from a mapped window.
+     */
+    static final class ByteCharSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        ByteCharSequence(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("index " + index
+                                                    + ", length " + length);
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException("start " + start
+                                                    + ", end " + end
+                                                    + ", length " + length);
+            return new ByteCharSequence(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            byte[] b = new byte[length];
+            ByteBuffer d = buffer.duplicate();
+            d.position(offset);
+            d.get(b);
+            return new String(b, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -3720,6 +3720,27 @@ public final class Files {
      * {@link Stream#close close} method is invoked after the stream operations
      * are completed.
      *
+     * @implNote
+     * This implementation supports good parallel stream performance for the
+     * standard charsets {@link StandardCharsets#UTF_8 UTF-8},
+     * {@link StandardCharsets#US_ASCII US-ASCII} and
+     * {@link StandardCharsets#ISO_8859_1 ISO-8859-1}.  Such
+     * <em>line-optimal</em> charsets have the property that the encoded bytes
+     * of a line feed ('\n') or a carriage return ('\r') are efficiently
+     * identifiable from other encoded characters when randomly accessing the
+     * bytes of the file.  The file is then split at line terminators near the
+     * middle of the remaining bytes, and regions of it are memory-mapped and
+     * decoded only as lines are reached.
+     *
+     * <p> For non-<em>line-optimal</em> charsets, files not associated
+     * with the default file system, files that are not regular files, and
+     * files whose size is reported as zero, which include some files whose
+     * contents are generated as they are read, the file is read using a
+     * {@link BufferedReader}, and the stream source's spliterator has poor
+     * splitting properties, similar to that of a spliterator associated with
+     * an iterator or that associated with a stream returned from
+     * {@link BufferedReader#lines()}.  Poor splitting properties can result in
+     * poor parallel stream performance.
      *
      * @param   path
      *          the path to the file
@@ -3741,7 +3762,36 @@ public final class Files {
      * @since   1.8
      */
     public static Stream<String> lines(Path path, Charset cs) throws IOException {
-        BufferedReader br = Files.newBufferedReader(path, cs);
+        if (hasLineOptimalChannel(path, cs)) {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+            long size = sizeOf(fc);
+            if (size > 0L)
+                return createFileChannelLinesStream(fc,
+                    FileChannelLinesSpliterator.lines(fc, cs, size));
+            fc.close();
+        }
+        return createBufferedReaderLinesStream(Files.newBufferedReader(path, cs));
+    }
+
+    /**
+     * Returns true if the lines of the file may be read with the good
+     * splitting spliterator over a file channel, which requires that:
+     * 1) the path is associated with the default file system;
+     * 2) the character set is supported; and
+     * 3) the file is a regular file.
+     * The caller must also check that the size of the channel is not
+     * zero, since files such as those under /proc report a zero size
+     * while having content, which only a sequential read will find.
+     */
+    private static boolean hasLineOptimalChannel(Path path, Charset cs)
+        throws IOException
+    {
+        return path.getFileSystem() == FileSystems.getDefault() &&
+            FileChannelLinesSpliterator.SUPPORTED_CHARSET_NAMES.contains(cs.name()) &&
+            readAttributes(path, BasicFileAttributes.class).isRegularFile();
+    }
+
+    private static Stream<String> createBufferedReaderLinesStream(BufferedReader br) {
         try {
             return br.lines().onClose(asUncheckedRunnable(br));
         } catch (Error|RuntimeException e) {
@@ -3784,4 +3834,119 @@ public final class Files {
     public static Stream<String> lines(Path path) throws IOException {
         return lines(path, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Returns the size of the file open by the given channel, closing the
+     * channel if the size cannot be determined.
+     */
+    private static long sizeOf(FileChannel fc) throws IOException {
+        try {
+            return fc.size();
+        } catch (IOException | Error | RuntimeException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+    }
+
+    private static <T> Stream<T> createFileChannelLinesStream(FileChannel fc,
+                                                              Spliterator<T> s) {
+        try {
+            return StreamSupport.stream(s, false)
+                                .onClose(asUncheckedRunnable(fc));
+        } catch (Error|RuntimeException e) {
+            try {
+                fc.close();
+            } catch (IOException ex) {
+                try {
+                    e.addSuppressed(ex);
+                } catch (Throwable ignore) {}
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Read all lines from a file as a {@code Stream} of {@code CharSequence}.
+     * This method behaves as {@link #lines(Path, Charset) lines} except that
+     * lines need not be copied into a {@code String} each.
+     *
+     * <p> When the file is associated with the default file system and the
+     * charset is {@link StandardCharsets#UTF_8 UTF-8}, {@link
+     * StandardCharsets#ISO_8859_1 ISO-8859-1} or {@link
+     * StandardCharsets#US_ASCII US-ASCII}, lines consisting of characters that
+     * are each encoded in a single byte are returned as read-only views of
+     * the file's contents, mapped into memory, and other lines are decoded
+     * into a {@link java.nio.CharBuffer CharBuffer}. Otherwise lines are
+     * returned as {@code String}s. A view remains readable after the stream
+     * is closed, but its contents are unspecified if the file is modified
+     * while the stream is open or while the view is reachable.
+     *
+     * <p> The returned stream is as efficient to traverse in parallel as
+     * the one returned by {@link #lines(Path, Charset) lines}. Views of lines
+     * that are retained, for example by collecting them, keep the region of
+     * the file mapped into memory until they are garbage collected.
+     *
+     * @param   path
+     *          the path to the file
+     * @param   cs
+     *          the charset to use for decoding
+     *
+     * @return  the lines from the file as a {@code Stream}
+     *
+     * @throws  IOException
+     *          if an I/O error occurs opening the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     *
+     * @see     #lines(Path, Charset)
+     */
+    public static Stream<CharSequence> lineSequences(Path path, Charset cs)
+        throws IOException
+    {
+        if (hasLineOptimalChannel(path, cs)) {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+            long size = sizeOf(fc);
+            if (size > 0L)
+                return createFileChannelLinesStream(fc,
+                    FileChannelLinesSpliterator.lineSequences(fc, cs, size));
+            fc.close();
+        }
+        return createBufferedReaderLinesStream(Files.newBufferedReader(path, cs))
+            .map(CharSequence.class::cast);
+    }
+
+    /**
+     * Read all lines from a file as a {@code Stream} of {@code CharSequence}.
+     * Bytes from the file are decoded into characters using the {@link
+     * StandardCharsets#UTF_8 UTF-8} {@link Charset charset}.
+     *
+     * <p> This method works as if invoking it were equivalent to evaluating the
+     * expression:
+     * <pre>{@code
+     * Files.lineSequences(path, StandardCharsets.UTF_8)
+     * }</pre>
+     *
+     * @param   path
+     *          the path to the file
+     *
+     * @return  the lines from the file as a {@code Stream}
+     *
+     * @throws  IOException
+     *          if an I/O error occurs opening the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     */
+    public static Stream<CharSequence> lineSequences(Path path) throws IOException {
+        return lineSequences(path, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.security;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+/**
+ * The implementation behind {@link SecureRandom#getBufferedInstance}.
+ *
+ * <p>Bytes are generated by a small set of {@code SHA1PRNG} instances
+ * (stripes), each thread being assigned one in turn, so that threads
+ * contend on a stripe only when there are more threads than stripes.
+ * The stripes cannot be instances of the default algorithm: on Unix
+ * that is {@code NativePRNG}, whose instances all read from the same
+ * pool under the same lock, so threads would still contend however
+ * many instances there are.  Each stripe has its own state instead,
+ * seeded from an instance of the default algorithm, which also
+ * generates seeds for {@link #engineGenerateSeed}.
+ *
+ * <p>Each thread also keeps a buffer of bytes generated in one call,
+ * from which it serves small requests, such as the 16 bytes of a
+ * random {@link java.util.UUID}, without calling into its stripe.
+ * Bytes are cleared from the buffer as they are handed out, so the
+ * buffer never holds bytes that were returned to a caller.  Requests
+ * larger than a quarter of the buffer are passed directly to the
+ * stripe.
+ *
+ * <p>Seeding supplements the seeds of all stripes; bytes already
+ * buffered remain in use.
+ *
+ * @see SecureRandom#getBufferedInstance
+ */
+final class BufferedSecureRandomSpi extends SecureRandomSpi {
+
+    private static final long serialVersionUID = 5370315402758263413L;
+
+    /**
+     * The size of each thread's buffer.
+     */
+    static final int BUFFER_SIZE = 256;
+
+    /**
+     * The largest request served from a buffer.
+     */
+    static final int MAX_BUFFERED = BUFFER_SIZE >>> 2;
+
+    /**
+     * The maximum number of stripes.
+     */
+    static final int MAX_STRIPES = 16;
+
+    /**
+     * The generators supplying the buffers.
+     *
+     * @serial
+     */
+    private final SecureRandom[] stripes;
+
+    /**
+     * The instance of the default algorithm seeding the stripes.
+     *
+     * @serial
+     */
+    private final SecureRandom seeder;
+
+    /**
+     * Round-robin index of the stripe to assign to the next thread.
+     */
+    private transient int nextStripe;
+
+    private transient ThreadLocal<Buffer> buffers;
+
+    /**
+     * A thread's buffer, and its stripe.  Bytes at indices below pos
+     * have been handed out (and cleared).
+     */
+    static final class Buffer {
+        final byte[] bytes = new byte[BUFFER_SIZE];
+        final SecureRandom stripe;
+        int pos = BUFFER_SIZE;
+        Buffer(SecureRandom stripe) { this.stripe = stripe; }
+    }
+
+    BufferedSecureRandomSpi() {
+        int n = Math.max(1, Math.min(MAX_STRIPES,
+                                     Runtime.getRuntime().availableProcessors()));
+        SecureRandom seeder = new SecureRandom();
+        SecureRandom[] ss = new SecureRandom[n];
+        for (int i = 0; i < n; ++i)
+            ss[i] = newStripe(seeder);
+        this.seeder = seeder;
+        this.stripes = ss;
+        this.buffers = newBuffers();
+    }
+
+    /**
+     * Returns a SHA1PRNG instance seeded from the given generator, or
+     * an instance of the default algorithm if SHA1PRNG is unavailable.
+     * Seeding before the first call to nextBytes replaces the self
+     * seeding of SHA1PRNG.
+     */
+    private static SecureRandom newStripe(SecureRandom seeder) {
+        SecureRandom stripe;
+        try {
+            stripe = SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+        byte[] seed = new byte[32];
+        seeder.nextBytes(seed);
+        stripe.setSeed(seed);
+        return stripe;
+    }
+
+    private ThreadLocal<Buffer> newBuffers() {
+        return new ThreadLocal<Buffer>() {
+            @Override
+            protected Buffer initialValue() {
+                return new Buffer(nextStripe());
+            }
+        };
+    }
+
+    private synchronized SecureRandom nextStripe() {
+        int i = nextStripe;
+        nextStripe = (i + 1 < stripes.length) ? i + 1 : 0;
+        return stripes[i];
+    }
+
+    /**
+     * Returns the provider of the stripes.
+     */
+    Provider getProvider() {
+        return stripes[0].getProvider();
+    }
+
+    /**
+     * Returns the algorithm of the stripes.
+     */
+    String getAlgorithm() {
+        return stripes[0].getAlgorithm();
+    }
+
+    @Override
+    protected void engineSetSeed(byte[] seed) {
+        for (SecureRandom s : stripes)
+            s.setSeed(seed);
+    }
+
+    @Override
+    protected void engineNextBytes(byte[] bytes) {
+        int len = bytes.length;
+        Buffer b = buffers.get();
+        if (len > MAX_BUFFERED)
+            b.stripe.nextBytes(bytes);
+        else if (len > 0) {
+            byte[] buf = b.bytes;
+            int pos = b.pos;
+            if (len > BUFFER_SIZE - pos) { // refill, dropping the remainder
+                b.stripe.nextBytes(buf);
+                pos = 0;
+            }
+            System.arraycopy(buf, pos, bytes, 0, len);
+            Arrays.fill(buf, pos, pos + len, (byte)0);
+            b.pos = pos + len;
+        }
+    }
+
+    @Override
+    protected byte[] engineGenerateSeed(int numBytes) {
+        return seeder.generateSeed(numBytes);
+    }
+
+    /**
+     * Reconstitutes the per-thread buffers, which are not serialized.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        buffers = newBuffers();
+    }
+}
@@ -656,6 +656,47 @@ public class SecureRandom extends java.util.Random {
             "No strong SecureRandom impls available: " + property);
     }
 
+    /*
+     * Lazily initialize since creating the stripes seeds each from the
+     * default PRNG.
+     */
+    private static final class BufferedHolder {
+        static final SecureRandom instance;
+        static {
+            BufferedSecureRandomSpi spi = new BufferedSecureRandomSpi();
+            instance = new SecureRandom(spi, spi.getProvider(),
+                                        spi.getAlgorithm());
+        }
+    }
+
+    /**
+     * Returns a shared {@code SecureRandom} object, suitable for use by
+     * many threads, that generates bytes using the {@code SHA1PRNG}
+     * algorithm, seeded from the default random number algorithm.
+     * <p>
+     * Applications that draw many small amounts of random bytes from a
+     * single {@code SecureRandom} from many threads, such as when
+     * generating random {@link java.util.UUID UUIDs}, session ids or
+     * nonces, may find that calls contend on the underlying
+     * implementation, each of which also pays the fixed cost of a
+     * call to it.  The returned object spreads threads over several
+     * {@code SHA1PRNG} instances, each with its own state, since the
+     * instances of the default algorithm may share theirs, and each
+     * thread obtains random bytes from its instance in blocks of a few
+     * hundred bytes, serving small requests from them.  Bytes are cleared from these
+     * blocks as they are handed out.  Requests of more than 64 bytes
+     * bypass the blocks.
+     * <p>
+     * Calls to {@code setSeed} supplement the seeds of all the
+     * underlying instances, and {@code generateSeed} uses the default
+     * algorithm.
+     *
+     * @return a shared, thread-buffered {@code SecureRandom} object
+     */
+    public static SecureRandom getBufferedInstance() {
+        return BufferedHolder.instance;
+    }
+
     // Declare serialVersionUID to be compatible with JDK1.1
     static final long serialVersionUID = 4940670005562187L;
 
@@ -59,6 +59,15 @@ import java.util.stream.StreamSupport;
  * example, the algorithm used by {@code sort(Object[])} does not have to be
  * a MergeSort, but it does have to be <i>stable</i>.)
  *
+ * <p>The {@code parallelSort} methods look for existing order before
+ * splitting the range to be sorted.  A range of {@code int}, {@code long},
+ * {@code float} or {@code double} values that is already in ascending or
+ * descending order is not sorted further, and large ranges of these types
+ * that are not already ordered are sorted using a parallel radix sort
+ * instead of a sort-merge.  For objects, natural runs of ordered elements
+ * are detected first, and if they are long enough on average, are merged
+ * rather than sorted.
+ *
  * <p>This class is a member of the
  * <a href="{@docRoot}/../technotes/guides/collections/index.html">
  * Java Collections Framework</a>.
@@ -675,10 +684,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJInt.Sorter
-                (null, a, new int[n], 0, n, 0,
+            ArraysParallelSortHelpers.FJInt.parallelSort
+                (a, 0, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -715,10 +724,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJInt.Sorter
-                (null, a, new int[n], fromIndex, n, 0,
+            ArraysParallelSortHelpers.FJInt.parallelSort
+                (a, fromIndex, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -745,10 +754,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJLong.Sorter
-                (null, a, new long[n], 0, n, 0,
+            ArraysParallelSortHelpers.FJLong.parallelSort
+                (a, 0, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -785,10 +794,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJLong.Sorter
-                (null, a, new long[n], fromIndex, n, 0,
+            ArraysParallelSortHelpers.FJLong.parallelSort
+                (a, fromIndex, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -823,10 +832,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJFloat.Sorter
-                (null, a, new float[n], 0, n, 0,
+            ArraysParallelSortHelpers.FJFloat.parallelSort
+                (a, 0, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -871,10 +880,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJFloat.Sorter
-                (null, a, new float[n], fromIndex, n, 0,
+            ArraysParallelSortHelpers.FJFloat.parallelSort
+                (a, fromIndex, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -909,10 +918,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, 0, n - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJDouble.Sorter
-                (null, a, new double[n], 0, n, 0,
+            ArraysParallelSortHelpers.FJDouble.parallelSort
+                (a, 0, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -957,10 +966,10 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJDouble.Sorter
-                (null, a, new double[n], fromIndex, n, 0,
+            ArraysParallelSortHelpers.FJDouble.parallelSort
+                (a, fromIndex, n,
                  ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g).invoke();
+                 MIN_ARRAY_SORT_GRAN : g);
     }
 
     /**
@@ -997,18 +1006,15 @@ public class Arrays {
      *
      * @since 1.8
      */
-    @SuppressWarnings("unchecked")
     public static <T extends Comparable<? super T>> void parallelSort(T[] a) {
         int n = a.length, p, g;
         if (n <= MIN_ARRAY_SORT_GRAN ||
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             TimSort.sort(a, 0, n, NaturalOrder.INSTANCE, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJObject.Sorter<T>
-                (null, a,
-                 (T[])Array.newInstance(a.getClass().getComponentType(), n),
-                 0, n, 0, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g, NaturalOrder.INSTANCE).invoke();
+            ArraysParallelSortHelpers.FJObject.parallelSort
+                (a, 0, n, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g, NaturalOrder.INSTANCE);
     }
 
     /**
@@ -1054,7 +1060,6 @@ public class Arrays {
      *
      * @since 1.8
      */
-    @SuppressWarnings("unchecked")
     public static <T extends Comparable<? super T>>
     void parallelSort(T[] a, int fromIndex, int toIndex) {
         rangeCheck(a.length, fromIndex, toIndex);
@@ -1063,11 +1068,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             TimSort.sort(a, fromIndex, toIndex, NaturalOrder.INSTANCE, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJObject.Sorter<T>
-                (null, a,
-                 (T[])Array.newInstance(a.getClass().getComponentType(), n),
-                 fromIndex, n, 0, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g, NaturalOrder.INSTANCE).invoke();
+            ArraysParallelSortHelpers.FJObject.parallelSort
+                (a, fromIndex, n, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g, NaturalOrder.INSTANCE);
     }
 
     /**
@@ -1103,7 +1106,6 @@ public class Arrays {
      *
      * @since 1.8
      */
-    @SuppressWarnings("unchecked")
     public static <T> void parallelSort(T[] a, Comparator<? super T> cmp) {
         if (cmp == null)
             cmp = NaturalOrder.INSTANCE;
@@ -1112,11 +1114,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             TimSort.sort(a, 0, n, cmp, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJObject.Sorter<T>
-                (null, a,
-                 (T[])Array.newInstance(a.getClass().getComponentType(), n),
-                 0, n, 0, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g, cmp).invoke();
+            ArraysParallelSortHelpers.FJObject.parallelSort
+                (a, 0, n, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g, cmp);
     }
 
     /**
@@ -1162,7 +1162,6 @@ public class Arrays {
      *
      * @since 1.8
      */
-    @SuppressWarnings("unchecked")
     public static <T> void parallelSort(T[] a, int fromIndex, int toIndex,
                                         Comparator<? super T> cmp) {
         rangeCheck(a.length, fromIndex, toIndex);
@@ -1173,11 +1172,9 @@ public class Arrays {
             (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
             TimSort.sort(a, fromIndex, toIndex, cmp, null, 0, 0);
         else
-            new ArraysParallelSortHelpers.FJObject.Sorter<T>
-                (null, a,
-                 (T[])Array.newInstance(a.getClass().getComponentType(), n),
-                 fromIndex, n, 0, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
-                 MIN_ARRAY_SORT_GRAN : g, cmp).invoke();
+            ArraysParallelSortHelpers.FJObject.parallelSort
+                (a, fromIndex, n, ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g, cmp);
     }
 
     /*
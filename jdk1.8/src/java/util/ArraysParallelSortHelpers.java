@@ -24,6 +24,7 @@
  */
 package java.util;
 
+import java.lang.reflect.Array;
 import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.CountedCompleter;
 
@@ -66,6 +67,35 @@ import java.util.concurrent.CountedCompleter;
  * The primitive class versions (FJByte... FJDouble) are
  * identical to each other except for type declarations.
  *
+ * Before splitting, each sort first looks for existing order, which
+ * the fixed quartering above would otherwise only find within each
+ * leaf.  For int, long, float and double, a range that is already
+ * ascending, or is descending and can be reversed, needs no further
+ * work.  For
+ * Objects, the range is scanned for natural runs (as in TimSort,
+ * reversing strictly descending ones).  If the runs are long enough
+ * on average, a RunSorter instead splits at run boundaries, sorts
+ * leaves of at most the granularity using TimSort, which skips
+ * single runs altogether, and merges with the same Merger tasks.
+ * Since the run tree need not be balanced, each RunSorter is told
+ * whether its result should end up in the main or workspace array,
+ * and leaves copy into the workspace when required.  The Object
+ * Merger also copies rather than merges two partitions that are
+ * already in order.
+ *
+ * Large int, long, float and double ranges that are neither already
+ * ordered nor made of few ascending runs are instead sorted with a
+ * least-significant-digit radix sort (RadixSorter) of RADIX_BITS per
+ * pass, which needs no comparisons.  Each pass counts digits of
+ * chunks of the range in parallel, converts the counts to per-chunk
+ * starting positions, and then distributes the chunks in parallel into
+ * the other array.
+ * Passes in which all elements share a digit are skipped.  Keys are
+ * formed by flipping the sign bit, and for floating point values also
+ * the other bits of negative values, of the canonical bit patterns, so
+ * that -0.0 precedes 0.0 and NaNs come last, as in the sequential
+ * sorts.
+ *
  * The base sequential sorts rely on non-public versions of TimSort,
  * ComparableTimSort, and DualPivotQuicksort sort methods that accept
  * temp workspace array slices that we will have already allocated, so
@@ -82,6 +112,32 @@ import java.util.concurrent.CountedCompleter;
      * reduce distraction.
      */
 
+    /**
+     * The minimum number of elements of an int, long, float or
+     * double range for which a radix sort is used.  Below this, the
+     * fixed cost of the passes outweighs the cost of comparisons.
+     */
+    static final int MIN_RADIX_SORT_SIZE = 1 << 17;
+
+    /**
+     * The maximum number of ascending runs in a primitive range for
+     * which merge sorting is used rather than a radix sort.  The
+     * sequential leaf sorts merge runs themselves if there are few.
+     */
+    static final int MAX_RUN_COUNT = 64;
+
+    /** The number of bits of the key sorted by each radix pass. */
+    static final int RADIX_BITS = 8;
+    static final int RADIX = 1 << RADIX_BITS;
+    static final int RADIX_MASK = RADIX - 1;
+
+    /**
+     * The shift giving the minimum average run length, relative to
+     * the size of the range, for which Objects are sorted by merging
+     * runs.  Equal to log2 of the minimum run length of TimSort.
+     */
+    static final int MIN_RUN_SHIFT = 5;
+
     /**
      * A placeholder task for Sorters, used for the lowest
      * quartile task, that does not need to maintain array state.
@@ -172,6 +228,13 @@ import java.util.concurrent.CountedCompleter;
                 if (a == null || w == null || lb < 0 || rb < 0 || k < 0 ||
                     c == null)
                     throw new IllegalStateException(); // hoist checks
+                if (ln > 0 && rn > 0 &&
+                    c.compare(a[lb + ln - 1], a[rb]) <= 0) { // in order
+                    System.arraycopy(a, lb, w, k, ln);
+                    System.arraycopy(a, rb, w, k + ln, rn);
+                    tryComplete();
+                    return;
+                }
                 for (int lh, rh;;) {  // split larger, find point in smaller
                     if (ln >= rn) {
                         if (ln <= g)
@@ -191,9 +254,9 @@ import java.util.concurrent.CountedCompleter;
                             break;
                         lh = ln;
                         T split = a[(rh = rn >>> 1) + rb];
-                        for (int lo = 0; lo < lh; ) {
+                        for (int lo = 0; lo < lh; ) { // keep equal ones left
                             int lm = (lo + lh) >>> 1;
-                            if (c.compare(split, a[lm + lb]) <= 0)
+                            if (c.compare(split, a[lm + lb]) < 0)
                                 lh = lm;
                             else
                                 lo = lm + 1;
@@ -228,6 +291,124 @@ import java.util.concurrent.CountedCompleter;
             }
 
         }
+
+        /**
+         * Sorts the given range, which must be larger than the
+         * granularity, merging natural runs if there are few enough.
+         */
+        @SuppressWarnings("unchecked")
+        static <T> void parallelSort(T[] a, int base, int size, int gran,
+                                     Comparator<? super T> c) {
+            int[] runs = findRuns(a, base, base + size,
+                                  size >>> MIN_RUN_SHIFT, c);
+            if (runs == null || runs.length > 2) {
+                T[] w = (T[])Array.newInstance
+                    (a.getClass().getComponentType(), size);
+                if (runs == null)
+                    new Sorter<T>(null, a, w, base, size, 0, gran, c).invoke();
+                else
+                    new RunSorter<T>(null, a, w, runs, 0, runs.length - 1,
+                                     base, gran, false, c).invoke();
+            }
+        }
+
+        /**
+         * Returns the starting indices of the natural runs in the range,
+         * followed by hi, after reversing strictly descending runs, or
+         * null if there are more than maxRuns runs.
+         */
+        static <T> int[] findRuns(T[] a, int lo, int hi, int maxRuns,
+                                  Comparator<? super T> c) {
+            int[] runs = new int[Math.min(maxRuns, 64) + 1];
+            int count = 0;
+            for (int k = lo; k < hi; ) {
+                if (count == maxRuns)
+                    return null;
+                if (count == runs.length - 1)
+                    runs = Arrays.copyOf(runs,
+                                         Math.min(maxRuns, count << 1) + 1);
+                int s = k;
+                runs[count++] = k++;
+                if (k < hi) {
+                    if (c.compare(a[k], a[s]) < 0) {
+                        while (++k < hi && c.compare(a[k], a[k - 1]) < 0)
+                            ;
+                        for (int i = s, j = k - 1; i < j; ++i, --j) {
+                            T t = a[i]; a[i] = a[j]; a[j] = t;
+                        }
+                    }
+                    else {
+                        while (++k < hi && c.compare(a[k], a[k - 1]) >= 0)
+                            ;
+                    }
+                }
+            }
+            runs[count++] = hi;
+            return (count == runs.length) ? runs : Arrays.copyOf(runs, count);
+        }
+
+        /**
+         * Sorts the runs with indices [lo, hi) of the given run starts,
+         * leaving the result in the workspace array if toW is true.
+         * Workspace indices are offset by -base.
+         */
+        static final class RunSorter<T> extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final T[] a, w;
+            final int[] runs;
+            final int lo, hi, base, gran;
+            final boolean toW;
+            Comparator<? super T> comparator;
+            RunSorter(CountedCompleter<?> par, T[] a, T[] w, int[] runs,
+                      int lo, int hi, int base, int gran, boolean toW,
+                      Comparator<? super T> comparator) {
+                super(par);
+                this.a = a; this.w = w; this.runs = runs;
+                this.lo = lo; this.hi = hi; this.base = base;
+                this.gran = gran; this.toW = toW;
+                this.comparator = comparator;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                Comparator<? super T> c = this.comparator;
+                T[] a = this.a, w = this.w; // localize all params
+                int[] runs = this.runs;
+                int l = this.lo, h = this.hi, b = this.base, g = this.gran;
+                boolean toW = this.toW;
+                if (a == null || w == null || runs == null || c == null)
+                    throw new IllegalStateException(); // hoist checks
+                int f, t;
+                while (h - l > 1 && (t = runs[h]) - (f = runs[l]) > g) {
+                    int mid = (f + t) >>> 1, m = l + 1;
+                    for (int r = h - 1; m < r; ) { // first run start >= mid
+                        int q = (m + r) >>> 1;
+                        if (runs[q] < mid)
+                            m = q + 1;
+                        else
+                            r = q;
+                    }
+                    int k = runs[m];
+                    Relay rc;
+                    if (toW)  // children leave results in a
+                        rc = new Relay(new Merger<T>(s, a, w, f, k - f, k,
+                                                     t - k, f - b, g, c));
+                    else
+                        rc = new Relay(new Merger<T>(s, w, a, f - b, k - f,
+                                                     k - b, t - k, f, g, c));
+                    new RunSorter<T>(rc, a, w, runs, m, h, b, g,
+                                     !toW, c).fork();
+                    s = new EmptyCompleter(rc);
+                    h = m;
+                    toW = !toW;
+                }
+                f = runs[l]; t = runs[h];
+                if (h - l > 1)
+                    TimSort.sort(a, f, t, c, w, f - b, t - f);
+                if (toW)
+                    System.arraycopy(a, f, w, f - b, t - f);
+                s.tryComplete();
+            }
+        }
     } // FJObject
 
     /** byte support class */
@@ -672,6 +853,147 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts the given range, which must be larger than the
+         * granularity, checking first whether it is already ordered.
+         */
+        static void parallelSort(int[] a, int base, int size, int gran) {
+            if (!sortedOrReversed(a, base, base + size)) {
+                int[] w = new int[size];
+                if (size >= MIN_RADIX_SORT_SIZE &&
+                    !fewRuns(a, base, base + size))
+                    new RadixSorter(a, w, base, size, gran).invoke();
+                else
+                    new Sorter(null, a, w, base, size, 0, gran).invoke();
+            }
+        }
+
+        /**
+         * Returns true if the range is in ascending order, or was in
+         * descending order and has been reversed.
+         */
+        static boolean sortedOrReversed(int[] a, int lo, int hi) {
+            int k = lo + 1;
+            while (k < hi && a[k - 1] <= a[k])
+                ++k;
+            if (k == hi)
+                return true;
+            if (k != lo + 1)
+                return false;
+            while (k < hi && a[k] <= a[k - 1])
+                ++k;
+            if (k != hi)
+                return false;
+            while (lo < --k) {
+                int t = a[lo]; a[lo++] = a[k]; a[k] = t;
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the range has at most MAX_RUN_COUNT ascending
+         * runs, which the leaf sorts will find and merge.
+         */
+        static boolean fewRuns(int[] a, int lo, int hi) {
+            int count = 1;
+            for (int k = lo + 1; k < hi; ++k) {
+                if (a[k - 1] > a[k] && ++count > MAX_RUN_COUNT)
+                    return false;
+            }
+            return true;
+        }
+
+        static final class RadixSorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final int base, size, gran;
+            RadixSorter(int[] a, int[] w, int base, int size, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.gran = gran;
+            }
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, g = this.gran;
+                if (a == null || w == null || b < 0 || g <= 0)
+                    throw new IllegalStateException(); // hoist checks
+                int m = (n + g - 1) / g; // number of chunks
+                int[][] counts = new int[m][RADIX];
+                RadixPass[] ps = new RadixPass[m];
+                int[] src = a, dst = w;
+                int sb = b, db = 0;
+                for (int shift = 0; shift < 32; shift += RADIX_BITS) {
+                    for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                        ps[i] = new RadixPass(src, dst, sb + lo,
+                                              Math.min(g, n - lo), db,
+                                              shift, counts[i], false);
+                    invokeAll(ps);
+                    boolean skip = false; // all keys share this digit
+                    for (int d = 0, pos = 0; d < RADIX; ++d) {
+                        int start = pos;
+                        for (int i = 0; i < m; ++i) {
+                            int[] c = counts[i];
+                            int k = c[d];
+                            c[d] = pos;
+                            pos += k;
+                        }
+                        if (pos - start == n)
+                            skip = true;
+                    }
+                    if (!skip) {
+                        for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                            ps[i] = new RadixPass(src, dst, sb + lo,
+                                                  Math.min(g, n - lo), db,
+                                                  shift, counts[i], true);
+                        invokeAll(ps);
+                        int[] t = src; src = dst; dst = t;
+                        int tb = sb; sb = db; db = tb;
+                    }
+                }
+                if (src != a)
+                    System.arraycopy(w, 0, a, b, n);
+            }
+        }
+
+        /**
+         * Counts the digits of one chunk, or, once the counts have been
+         * replaced by starting positions, distributes its elements.
+         */
+        static final class RadixPass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final int base, size, wbase, shift;
+            final int[] counts;
+            final boolean distribute;
+            RadixPass(int[] a, int[] w, int base, int size, int wbase,
+                      int shift, int[] counts, boolean distribute) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.counts = counts;
+                this.distribute = distribute;
+            }
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int[] c = this.counts;
+                int b = this.base, f = b + this.size, wb = this.wbase,
+                    sh = this.shift;
+                if (a == null || w == null || c == null || b < 0 || wb < 0)
+                    throw new IllegalStateException(); // hoist checks
+                if (!distribute) {
+                    Arrays.fill(c, 0);
+                    for (int i = b; i < f; ++i) {
+                        int k = a[i] ^ Integer.MIN_VALUE;
+                        ++c[(int)(k >>> sh) & RADIX_MASK];
+                    }
+                }
+                else {
+                    for (int i = b; i < f; ++i) {
+                        int v = a[i];
+                        int k = v ^ Integer.MIN_VALUE;
+                        w[wb + c[(int)(k >>> sh) & RADIX_MASK]++] = v;
+                    }
+                }
+            }
+        }
     } // FJInt
 
     /** long support class */
@@ -783,6 +1105,147 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts the given range, which must be larger than the
+         * granularity, checking first whether it is already ordered.
+         */
+        static void parallelSort(long[] a, int base, int size, int gran) {
+            if (!sortedOrReversed(a, base, base + size)) {
+                long[] w = new long[size];
+                if (size >= MIN_RADIX_SORT_SIZE &&
+                    !fewRuns(a, base, base + size))
+                    new RadixSorter(a, w, base, size, gran).invoke();
+                else
+                    new Sorter(null, a, w, base, size, 0, gran).invoke();
+            }
+        }
+
+        /**
+         * Returns true if the range is in ascending order, or was in
+         * descending order and has been reversed.
+         */
+        static boolean sortedOrReversed(long[] a, int lo, int hi) {
+            int k = lo + 1;
+            while (k < hi && a[k - 1] <= a[k])
+                ++k;
+            if (k == hi)
+                return true;
+            if (k != lo + 1)
+                return false;
+            while (k < hi && a[k] <= a[k - 1])
+                ++k;
+            if (k != hi)
+                return false;
+            while (lo < --k) {
+                long t = a[lo]; a[lo++] = a[k]; a[k] = t;
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the range has at most MAX_RUN_COUNT ascending
+         * runs, which the leaf sorts will find and merge.
+         */
+        static boolean fewRuns(long[] a, int lo, int hi) {
+            int count = 1;
+            for (int k = lo + 1; k < hi; ++k) {
+                if (a[k - 1] > a[k] && ++count > MAX_RUN_COUNT)
+                    return false;
+            }
+            return true;
+        }
+
+        static final class RadixSorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final int base, size, gran;
+            RadixSorter(long[] a, long[] w, int base, int size, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.gran = gran;
+            }
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, g = this.gran;
+                if (a == null || w == null || b < 0 || g <= 0)
+                    throw new IllegalStateException(); // hoist checks
+                int m = (n + g - 1) / g; // number of chunks
+                int[][] counts = new int[m][RADIX];
+                RadixPass[] ps = new RadixPass[m];
+                long[] src = a, dst = w;
+                int sb = b, db = 0;
+                for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+                    for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                        ps[i] = new RadixPass(src, dst, sb + lo,
+                                              Math.min(g, n - lo), db,
+                                              shift, counts[i], false);
+                    invokeAll(ps);
+                    boolean skip = false; // all keys share this digit
+                    for (int d = 0, pos = 0; d < RADIX; ++d) {
+                        int start = pos;
+                        for (int i = 0; i < m; ++i) {
+                            int[] c = counts[i];
+                            int k = c[d];
+                            c[d] = pos;
+                            pos += k;
+                        }
+                        if (pos - start == n)
+                            skip = true;
+                    }
+                    if (!skip) {
+                        for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                            ps[i] = new RadixPass(src, dst, sb + lo,
+                                                  Math.min(g, n - lo), db,
+                                                  shift, counts[i], true);
+                        invokeAll(ps);
+                        long[] t = src; src = dst; dst = t;
+                        int tb = sb; sb = db; db = tb;
+                    }
+                }
+                if (src != a)
+                    System.arraycopy(w, 0, a, b, n);
+            }
+        }
+
+        /**
+         * Counts the digits of one chunk, or, once the counts have been
+         * replaced by starting positions, distributes its elements.
+         */
+        static final class RadixPass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final int base, size, wbase, shift;
+            final int[] counts;
+            final boolean distribute;
+            RadixPass(long[] a, long[] w, int base, int size, int wbase,
+                      int shift, int[] counts, boolean distribute) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.counts = counts;
+                this.distribute = distribute;
+            }
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int[] c = this.counts;
+                int b = this.base, f = b + this.size, wb = this.wbase,
+                    sh = this.shift;
+                if (a == null || w == null || c == null || b < 0 || wb < 0)
+                    throw new IllegalStateException(); // hoist checks
+                if (!distribute) {
+                    Arrays.fill(c, 0);
+                    for (int i = b; i < f; ++i) {
+                        long k = a[i] ^ Long.MIN_VALUE;
+                        ++c[(int)(k >>> sh) & RADIX_MASK];
+                    }
+                }
+                else {
+                    for (int i = b; i < f; ++i) {
+                        long v = a[i];
+                        long k = v ^ Long.MIN_VALUE;
+                        w[wb + c[(int)(k >>> sh) & RADIX_MASK]++] = v;
+                    }
+                }
+            }
+        }
     } // FJLong
 
     /** float support class */
@@ -894,6 +1357,150 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts the given range, which must be larger than the
+         * granularity, checking first whether it is already ordered.
+         */
+        static void parallelSort(float[] a, int base, int size, int gran) {
+            if (!sortedOrReversed(a, base, base + size)) {
+                float[] w = new float[size];
+                if (size >= MIN_RADIX_SORT_SIZE &&
+                    !fewRuns(a, base, base + size))
+                    new RadixSorter(a, w, base, size, gran).invoke();
+                else
+                    new Sorter(null, a, w, base, size, 0, gran).invoke();
+            }
+        }
+
+        /**
+         * Returns true if the range is in ascending order, or was in
+         * descending order and has been reversed.
+         */
+        static boolean sortedOrReversed(float[] a, int lo, int hi) {
+            int k = lo + 1;
+            while (k < hi && Float.compare(a[k - 1], a[k]) <= 0)
+                ++k;
+            if (k == hi)
+                return true;
+            if (k != lo + 1)
+                return false;
+            while (k < hi && Float.compare(a[k], a[k - 1]) <= 0)
+                ++k;
+            if (k != hi)
+                return false;
+            while (lo < --k) {
+                float t = a[lo]; a[lo++] = a[k]; a[k] = t;
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the range has at most MAX_RUN_COUNT ascending
+         * runs, which the leaf sorts will find and merge.
+         */
+        static boolean fewRuns(float[] a, int lo, int hi) {
+            int count = 1;
+            for (int k = lo + 1; k < hi; ++k) {
+                if (Float.compare(a[k - 1], a[k]) > 0 &&
+                    ++count > MAX_RUN_COUNT)
+                    return false;
+            }
+            return true;
+        }
+
+        static final class RadixSorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final float[] a, w;
+            final int base, size, gran;
+            RadixSorter(float[] a, float[] w, int base, int size, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.gran = gran;
+            }
+            public final void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, g = this.gran;
+                if (a == null || w == null || b < 0 || g <= 0)
+                    throw new IllegalStateException(); // hoist checks
+                int m = (n + g - 1) / g; // number of chunks
+                int[][] counts = new int[m][RADIX];
+                RadixPass[] ps = new RadixPass[m];
+                float[] src = a, dst = w;
+                int sb = b, db = 0;
+                for (int shift = 0; shift < 32; shift += RADIX_BITS) {
+                    for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                        ps[i] = new RadixPass(src, dst, sb + lo,
+                                              Math.min(g, n - lo), db,
+                                              shift, counts[i], false);
+                    invokeAll(ps);
+                    boolean skip = false; // all keys share this digit
+                    for (int d = 0, pos = 0; d < RADIX; ++d) {
+                        int start = pos;
+                        for (int i = 0; i < m; ++i) {
+                            int[] c = counts[i];
+                            int k = c[d];
+                            c[d] = pos;
+                            pos += k;
+                        }
+                        if (pos - start == n)
+                            skip = true;
+                    }
+                    if (!skip) {
+                        for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                            ps[i] = new RadixPass(src, dst, sb + lo,
+                                                  Math.min(g, n - lo), db,
+                                                  shift, counts[i], true);
+                        invokeAll(ps);
+                        float[] t = src; src = dst; dst = t;
+                        int tb = sb; sb = db; db = tb;
+                    }
+                }
+                if (src != a)
+                    System.arraycopy(w, 0, a, b, n);
+            }
+        }
+
+        /**
+         * Counts the digits of one chunk, or, once the counts have been
+         * replaced by starting positions, distributes its elements.
+         */
+        static final class RadixPass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final float[] a, w;
+            final int base, size, wbase, shift;
+            final int[] counts;
+            final boolean distribute;
+            RadixPass(float[] a, float[] w, int base, int size, int wbase,
+                      int shift, int[] counts, boolean distribute) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.counts = counts;
+                this.distribute = distribute;
+            }
+            public final void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int[] c = this.counts;
+                int b = this.base, f = b + this.size, wb = this.wbase,
+                    sh = this.shift;
+                if (a == null || w == null || c == null || b < 0 || wb < 0)
+                    throw new IllegalStateException(); // hoist checks
+                if (!distribute) {
+                    Arrays.fill(c, 0);
+                    for (int i = b; i < f; ++i) {
+                        int k = Float.floatToIntBits(a[i]);
+                        k ^= (k >> 31) | Integer.MIN_VALUE;
+                        ++c[(int)(k >>> sh) & RADIX_MASK];
+                    }
+                }
+                else {
+                    for (int i = b; i < f; ++i) {
+                        float v = a[i];
+                        int k = Float.floatToIntBits(v);
+                        k ^= (k >> 31) | Integer.MIN_VALUE;
+                        w[wb + c[(int)(k >>> sh) & RADIX_MASK]++] = v;
+                    }
+                }
+            }
+        }
     } // FJFloat
 
     /** double support class */
@@ -1005,6 +1612,150 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        /**
+         * Sorts the given range, which must be larger than the
+         * granularity, checking first whether it is already ordered.
+         */
+        static void parallelSort(double[] a, int base, int size, int gran) {
+            if (!sortedOrReversed(a, base, base + size)) {
+                double[] w = new double[size];
+                if (size >= MIN_RADIX_SORT_SIZE &&
+                    !fewRuns(a, base, base + size))
+                    new RadixSorter(a, w, base, size, gran).invoke();
+                else
+                    new Sorter(null, a, w, base, size, 0, gran).invoke();
+            }
+        }
+
+        /**
+         * Returns true if the range is in ascending order, or was in
+         * descending order and has been reversed.
+         */
+        static boolean sortedOrReversed(double[] a, int lo, int hi) {
+            int k = lo + 1;
+            while (k < hi && Double.compare(a[k - 1], a[k]) <= 0)
+                ++k;
+            if (k == hi)
+                return true;
+            if (k != lo + 1)
+                return false;
+            while (k < hi && Double.compare(a[k], a[k - 1]) <= 0)
+                ++k;
+            if (k != hi)
+                return false;
+            while (lo < --k) {
+                double t = a[lo]; a[lo++] = a[k]; a[k] = t;
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the range has at most MAX_RUN_COUNT ascending
+         * runs, which the leaf sorts will find and merge.
+         */
+        static boolean fewRuns(double[] a, int lo, int hi) {
+            int count = 1;
+            for (int k = lo + 1; k < hi; ++k) {
+                if (Double.compare(a[k - 1], a[k]) > 0 &&
+                    ++count > MAX_RUN_COUNT)
+                    return false;
+            }
+            return true;
+        }
+
+        static final class RadixSorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final double[] a, w;
+            final int base, size, gran;
+            RadixSorter(double[] a, double[] w, int base, int size, int gran) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.gran = gran;
+            }
+            public final void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, g = this.gran;
+                if (a == null || w == null || b < 0 || g <= 0)
+                    throw new IllegalStateException(); // hoist checks
+                int m = (n + g - 1) / g; // number of chunks
+                int[][] counts = new int[m][RADIX];
+                RadixPass[] ps = new RadixPass[m];
+                double[] src = a, dst = w;
+                int sb = b, db = 0;
+                for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+                    for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                        ps[i] = new RadixPass(src, dst, sb + lo,
+                                              Math.min(g, n - lo), db,
+                                              shift, counts[i], false);
+                    invokeAll(ps);
+                    boolean skip = false; // all keys share this digit
+                    for (int d = 0, pos = 0; d < RADIX; ++d) {
+                        int start = pos;
+                        for (int i = 0; i < m; ++i) {
+                            int[] c = counts[i];
+                            int k = c[d];
+                            c[d] = pos;
+                            pos += k;
+                        }
+                        if (pos - start == n)
+                            skip = true;
+                    }
+                    if (!skip) {
+                        for (int i = 0, lo = 0; i < m; ++i, lo += g)
+                            ps[i] = new RadixPass(src, dst, sb + lo,
+                                                  Math.min(g, n - lo), db,
+                                                  shift, counts[i], true);
+                        invokeAll(ps);
+                        double[] t = src; src = dst; dst = t;
+                        int tb = sb; sb = db; db = tb;
+                    }
+                }
+                if (src != a)
+                    System.arraycopy(w, 0, a, b, n);
+            }
+        }
+
+        /**
+         * Counts the digits of one chunk, or, once the counts have been
+         * replaced by starting positions, distributes its elements.
+         */
+        static final class RadixPass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final double[] a, w;
+            final int base, size, wbase, shift;
+            final int[] counts;
+            final boolean distribute;
+            RadixPass(double[] a, double[] w, int base, int size, int wbase,
+                      int shift, int[] counts, boolean distribute) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.counts = counts;
+                this.distribute = distribute;
+            }
+            public final void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int[] c = this.counts;
+                int b = this.base, f = b + this.size, wb = this.wbase,
+                    sh = this.shift;
+                if (a == null || w == null || c == null || b < 0 || wb < 0)
+                    throw new IllegalStateException(); // hoist checks
+                if (!distribute) {
+                    Arrays.fill(c, 0);
+                    for (int i = b; i < f; ++i) {
+                        long k = Double.doubleToLongBits(a[i]);
+                        k ^= (k >> 63) | Long.MIN_VALUE;
+                        ++c[(int)(k >>> sh) & RADIX_MASK];
+                    }
+                }
+                else {
+                    for (int i = b; i < f; ++i) {
+                        double v = a[i];
+                        long k = Double.doubleToLongBits(v);
+                        k ^= (k >> 63) | Long.MIN_VALUE;
+                        w[wb + c[(int)(k >>> sh) & RADIX_MASK]++] = v;
+                    }
+                }
+            }
+        }
     } // FJDouble
 
 }
@@ -76,6 +76,16 @@ import sun.misc.SharedSecrets;
  * maximum number of entries divided by the load factor, no rehash
  * operations will ever occur.
  *
+ * <p>Rehashing normally moves every mapping in a single call, so the
+ * operation that triggers it takes time proportional to the size of the
+ * map.  A map constructed with {@link #HashMap(int, float, boolean)
+ * incremental resizing} instead keeps the old table alongside the new one
+ * and moves a bounded number of bins on each subsequent insertion, so
+ * that no single operation bears the full cost of a rehash.  Lookups,
+ * iteration and other operations that only read the map never move
+ * mappings, so such a map may still be shared between threads without
+ * synchronization once it is safely published and no longer modified.
+ *
  * <p>If many mappings are to be stored in a <tt>HashMap</tt>
  * instance, creating it with a sufficiently large capacity will allow
  * the mappings to be stored more efficiently than letting it perform
@@ -218,6 +228,28 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * rebalancings, we compare classes and identityHashCodes as
      * tie-breakers.
      *
+     * When incrementalResize is set, resize() of a large table only
+     * installs the doubled table and retains the old one in field
+     * oldTable.  Only operations that may insert a key (putVal for a
+     * new key, compute, computeIfAbsent, merge) advance the transfer:
+     * they first transfer the old bin their hash maps to (so the key,
+     * if present, is then reachable from table alone, and the
+     * remainder of the method is unchanged), plus up to
+     * INCREMENTAL_TRANSFER_STRIDE further bins starting at
+     * transferIndex.  Transferred old bins are nulled out, so bins
+     * moved ahead of transferIndex are simply skipped when it gets
+     * there.  Each old bin j is split between new bins j and
+     * j + oldCap exactly as in a full resize; these are still empty
+     * at that point, since any key hashing to them would first have
+     * transferred bin j.  So a key is in oldTable if its old bin is
+     * non-null and in table otherwise (see tableFor), which lets
+     * lookups and removals work on either table in place.  Likewise
+     * traversals (iteration, bulk operations, serialization) visit
+     * the bins of table followed by those of oldTable (see binCount
+     * and binAt).  Reads thus never write to the map, preserving the
+     * usual guarantee that an unmodified map may be shared read-only
+     * after safe publication.
+     *
      * The use and transitions among plain vs tree modes is
      * complicated by the existence of subclass LinkedHashMap. See
      * below for hook methods defined to be invoked upon insertion,
@@ -272,6 +304,21 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     static final int MIN_TREEIFY_CAPACITY = 64;
 
+    /**
+     * The smallest table capacity that is resized incrementally when
+     * incrementalResize is set.  Smaller tables are cheap enough to
+     * rehash at once.
+     */
+    static final int MIN_INCREMENTAL_RESIZE_CAPACITY = 1 << 12;
+
+    /**
+     * The number of old bins, in addition to the one holding the
+     * accessed key, transferred by each keyed operation during an
+     * incremental resize.  Must be large enough that a transfer always
+     * completes well before the new table reaches its own threshold.
+     */
+    static final int INCREMENTAL_TRANSFER_STRIDE = 8;
+
     /**
      * Basic hash bin node, used for most entries.  (See below for
      * TreeNode subclass, and in LinkedHashMap for its Entry subclass.)
@@ -433,6 +480,24 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final float loadFactor;
 
+    /**
+     * True if this map resizes incrementally.  Not serialized: a
+     * deserialized map always resizes in a single step.
+     */
+    transient boolean incrementalResize;
+
+    /**
+     * The previous table while an incremental resize is in progress,
+     * else null.  Bins below transferIndex, and any others already
+     * transferred, are null.
+     */
+    transient Node<K,V>[] oldTable;
+
+    /**
+     * The next bin of oldTable to be transferred.
+     */
+    transient int transferIndex;
+
     /* ---------------- Public operations -------------- */
 
     /**
@@ -457,6 +522,36 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         this.threshold = tableSizeFor(initialCapacity);
     }
 
+    /**
+     * Constructs an empty <tt>HashMap</tt> with the specified initial
+     * capacity and load factor, optionally resizing incrementally.
+     *
+     * <p>When {@code incrementalResize} is true, growing a large table
+     * does not rehash all mappings at once.  The old table is retained,
+     * and each subsequent insertion moves the mappings of a small,
+     * bounded number of old bins into the new table until none remain.
+     * This bounds the latency of any single <tt>put</tt>, at the price of
+     * both tables being live until enough further insertions complete
+     * the transfer.  While a transfer is in progress, an insertion of a
+     * new key as well as <tt>compute</tt>, <tt>computeIfAbsent</tt> and
+     * <tt>merge</tt> count as structural modifications even when they
+     * leave the set of mappings unchanged.  Lookups, iteration and other
+     * read-only operations never move mappings, and so never modify the
+     * map.  The choice is not retained when the map is serialized.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  incrementalResize true to spread rehashing over subsequent
+     *         operations, false to rehash in a single step
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public HashMap(int initialCapacity, float loadFactor,
+                   boolean incrementalResize) {
+        this(initialCapacity, loadFactor);
+        this.incrementalResize = incrementalResize;
+    }
+
     /**
      * Constructs an empty <tt>HashMap</tt> with the specified initial
      * capacity and the default load factor (0.75).
@@ -566,7 +661,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final Node<K,V> getNode(int hash, Object key) {
         Node<K,V>[] tab; Node<K,V> first, e; int n; K k;
-        if ((tab = table) != null && (n = tab.length) > 0 &&
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 &&
             (first = tab[(n - 1) & hash]) != null) {
             if (first.hash == hash && // always check first node
                 ((k = first.key) == key || (key != null && key.equals(k))))
@@ -627,6 +722,17 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V>[] tab; Node<K,V> p; int n, i;
         if ((tab = table) == null || (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null) {
+            Node<K,V> e;
+            if ((e = getNode(hash, key)) != null) { // existing mapping for key
+                V oldValue = e.value;
+                if (!onlyIfAbsent || oldValue == null)
+                    e.value = value;
+                afterNodeAccess(e);
+                return oldValue;
+            }
+            transferBins(hash);
+        }
         if ((p = tab[i = (n - 1) & hash]) == null)
             tab[i] = newNode(hash, key, value, null);
         else {
@@ -670,11 +776,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * accord with initial capacity target held in field threshold.
      * Otherwise, because we are using power-of-two expansion, the
      * elements from each bin must either stay at same index, or move
-     * with a power of two offset in the new table.
+     * with a power of two offset in the new table.  For incremental
+     * resizing of a large table, the elements are left in the old
+     * table, to be moved by transferBins.
      *
      * @return the table
      */
     final Node<K,V>[] resize() {
+        if (oldTable != null)
+            transferRemainingBins();
         Node<K,V>[] oldTab = table;
         int oldCap = (oldTab == null) ? 0 : oldTab.length;
         int oldThr = threshold;
@@ -704,50 +814,137 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V>[] newTab = (Node<K,V>[])new Node[newCap];
         table = newTab;
         if (oldTab != null) {
-            for (int j = 0; j < oldCap; ++j) {
-                Node<K,V> e;
-                if ((e = oldTab[j]) != null) {
-                    oldTab[j] = null;
-                    if (e.next == null)
-                        newTab[e.hash & (newCap - 1)] = e;
-                    else if (e instanceof TreeNode)
-                        ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
-                    else { // preserve order
-                        Node<K,V> loHead = null, loTail = null;
-                        Node<K,V> hiHead = null, hiTail = null;
-                        Node<K,V> next;
-                        do {
-                            next = e.next;
-                            if ((e.hash & oldCap) == 0) {
-                                if (loTail == null)
-                                    loHead = e;
-                                else
-                                    loTail.next = e;
-                                loTail = e;
-                            }
-                            else {
-                                if (hiTail == null)
-                                    hiHead = e;
-                                else
-                                    hiTail.next = e;
-                                hiTail = e;
-                            }
-                        } while ((e = next) != null);
-                        if (loTail != null) {
-                            loTail.next = null;
-                            newTab[j] = loHead;
-                        }
-                        if (hiTail != null) {
-                            hiTail.next = null;
-                            newTab[j + oldCap] = hiHead;
-                        }
-                    }
+            if (incrementalResize && oldCap >= MIN_INCREMENTAL_RESIZE_CAPACITY) {
+                transferIndex = 0;
+                oldTable = oldTab;
+            }
+            else {
+                for (int j = 0; j < oldCap; ++j) {
+                    if (oldTab[j] != null)
+                        transferBin(oldTab, newTab, j);
                 }
             }
         }
         return newTab;
     }
 
+    /**
+     * Moves the nodes of bin j of oldTab, which must be non-empty, into
+     * newTab of twice the length.  Because we are using power-of-two
+     * expansion, each node either stays at index j or moves to index
+     * j + oldCap.
+     */
+    final void transferBin(Node<K,V>[] oldTab, Node<K,V>[] newTab, int j) {
+        int oldCap = oldTab.length, newCap = newTab.length;
+        Node<K,V> e = oldTab[j];
+        oldTab[j] = null;
+        if (e.next == null)
+            newTab[e.hash & (newCap - 1)] = e;
+        else if (e instanceof TreeNode)
+            ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
+        else { // preserve order
+            Node<K,V> loHead = null, loTail = null;
+            Node<K,V> hiHead = null, hiTail = null;
+            Node<K,V> next;
+            do {
+                next = e.next;
+                if ((e.hash & oldCap) == 0) {
+                    if (loTail == null)
+                        loHead = e;
+                    else
+                        loTail.next = e;
+                    loTail = e;
+                }
+                else {
+                    if (hiTail == null)
+                        hiHead = e;
+                    else
+                        hiTail.next = e;
+                    hiTail = e;
+                }
+            } while ((e = next) != null);
+            if (loTail != null) {
+                loTail.next = null;
+                newTab[j] = loHead;
+            }
+            if (hiTail != null) {
+                hiTail.next = null;
+                newTab[j + oldCap] = hiHead;
+            }
+        }
+    }
+
+    /**
+     * Advances an incremental resize on behalf of an operation inserting
+     * the given hash: transfers the old bin holding that hash, then up to
+     * INCREMENTAL_TRANSFER_STRIDE bins from transferIndex onward.  Moving
+     * nodes between tables invalidates traversals in progress, so this
+     * counts as a structural modification.  Called only when oldTable is
+     * non-null, and never by operations that only read the map.
+     */
+    final void transferBins(int hash) {
+        ++modCount;
+        Node<K,V>[] oldTab = oldTable, newTab = table;
+        int oldCap = oldTab.length, i = transferIndex;
+        int bound = Math.min(i + INCREMENTAL_TRANSFER_STRIDE, oldCap);
+        int j = (oldCap - 1) & hash;
+        if (j >= i && oldTab[j] != null)
+            transferBin(oldTab, newTab, j);
+        for (; i < bound; ++i) {
+            if (oldTab[i] != null)
+                transferBin(oldTab, newTab, i);
+        }
+        if ((transferIndex = i) >= oldCap)
+            oldTable = null;
+    }
+
+    /**
+     * Completes any incremental resize in progress, so that all nodes
+     * are reachable from table.
+     */
+    final void transferRemainingBins() {
+        Node<K,V>[] oldTab, newTab;
+        if ((oldTab = oldTable) != null) {
+            newTab = table;
+            for (int j = transferIndex; j < oldTab.length; ++j) {
+                if (oldTab[j] != null)
+                    transferBin(oldTab, newTab, j);
+            }
+            oldTable = null;
+        }
+    }
+
+    /**
+     * Returns the table whose bin for the given hash holds the key, if
+     * present: oldTable while an incremental resize has not transferred
+     * that bin yet, else table.  New bins j and j + oldCap remain empty
+     * until old bin j is transferred, so a key is never in both.
+     */
+    final Node<K,V>[] tableFor(int hash) {
+        Node<K,V>[] oldTab;
+        return ((oldTab = oldTable) != null &&
+                oldTab[(oldTab.length - 1) & hash] != null) ? oldTab : table;
+    }
+
+    /**
+     * Returns the number of bins visited by a traversal of the given
+     * tables: the bins of tab, followed during an incremental resize by
+     * those of oldTab.  Transferred old bins are null, so a traversal
+     * visits every node exactly once without moving any.
+     */
+    static int binCount(Node<?,?>[] tab, Node<?,?>[] oldTab) {
+        return ((tab == null) ? 0 : tab.length) +
+            ((oldTab == null) ? 0 : oldTab.length);
+    }
+
+    /**
+     * Returns bin i of the bins counted by binCount.
+     */
+    static <K,V> Node<K,V> binAt(Node<K,V>[] tab, Node<K,V>[] oldTab, int i) {
+        int n = tab.length;
+        return (i < n) ? tab[i] : oldTab[i - n];
+    }
+
     /**
      * Replaces all linked nodes in bin at index for given hash unless
      * table is too small, in which case resizes instead.
@@ -813,7 +1010,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     final Node<K,V> removeNode(int hash, Object key, Object value,
                                boolean matchValue, boolean movable) {
         Node<K,V>[] tab; Node<K,V> p; int n, index;
-        if ((tab = table) != null && (n = tab.length) > 0 &&
+        if ((tab = tableFor(hash)) != null && (n = tab.length) > 0 &&
             (p = tab[index = (n - 1) & hash]) != null) {
             Node<K,V> node = null, e; K k; V v;
             if (p.hash == hash &&
@@ -858,6 +1055,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     public void clear() {
         Node<K,V>[] tab;
         modCount++;
+        oldTable = null;
         if ((tab = table) != null && size > 0) {
             size = 0;
             for (int i = 0; i < tab.length; ++i)
@@ -876,8 +1074,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     public boolean containsValue(Object value) {
         Node<K,V>[] tab; V v;
         if ((tab = table) != null && size > 0) {
-            for (int i = 0; i < tab.length; ++i) {
-                for (Node<K,V> e = tab[i]; e != null; e = e.next) {
+            Node<K,V>[] oldTab = oldTable;
+            for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next) {
                     if ((v = e.value) == value ||
                         (value != null && value.equals(v)))
                         return true;
@@ -927,9 +1126,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             if (size > 0 && (tab = table) != null) {
+                Node<K,V>[] oldTab = oldTable;
                 int mc = modCount;
-                for (int i = 0; i < tab.length; ++i) {
-                    for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                    for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next)
                         action.accept(e.key);
                 }
                 if (modCount != mc)
@@ -975,9 +1175,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             if (size > 0 && (tab = table) != null) {
+                Node<K,V>[] oldTab = oldTable;
                 int mc = modCount;
-                for (int i = 0; i < tab.length; ++i) {
-                    for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                    for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next)
                         action.accept(e.value);
                 }
                 if (modCount != mc)
@@ -1038,9 +1239,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             if (size > 0 && (tab = table) != null) {
+                Node<K,V>[] oldTab = oldTable;
                 int mc = modCount;
-                for (int i = 0; i < tab.length; ++i) {
-                    for (Node<K,V> e = tab[i]; e != null; e = e.next)
+                for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                    for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next)
                         action.accept(e);
                 }
                 if (modCount != mc)
@@ -1104,6 +1306,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            transferBins(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1178,6 +1382,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            transferBins(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1233,6 +1439,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
             (n = tab.length) == 0)
             n = (tab = resize()).length;
+        if (oldTable != null)
+            transferBins(hash);
         if ((first = tab[i = (n - 1) & hash]) != null) {
             if (first instanceof TreeNode)
                 old = (t = (TreeNode<K,V>)first).getTreeNode(hash, key);
@@ -1283,9 +1491,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (action == null)
             throw new NullPointerException();
         if (size > 0 && (tab = table) != null) {
+            Node<K,V>[] oldTab = oldTable;
             int mc = modCount;
-            for (int i = 0; i < tab.length; ++i) {
-                for (Node<K,V> e = tab[i]; e != null; e = e.next)
+            for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next)
                     action.accept(e.key, e.value);
             }
             if (modCount != mc)
@@ -1299,9 +1508,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         if (function == null)
             throw new NullPointerException();
         if (size > 0 && (tab = table) != null) {
+            Node<K,V>[] oldTab = oldTable;
             int mc = modCount;
-            for (int i = 0; i < tab.length; ++i) {
-                for (Node<K,V> e = tab[i]; e != null; e = e.next) {
+            for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next) {
                     e.value = function.apply(e.key, e.value);
                 }
             }
@@ -1426,11 +1636,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
         HashIterator() {
             expectedModCount = modCount;
-            Node<K,V>[] t = table;
+            Node<K,V>[] t = table, ot = oldTable;
             current = next = null;
             index = 0;
             if (t != null && size > 0) { // advance to first entry
-                do {} while (index < t.length && (next = t[index++]) == null);
+                int n = binCount(t, ot);
+                do {} while (index < n && (next = binAt(t, ot, index++)) == null);
             }
         }
 
@@ -1446,7 +1657,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (e == null)
                 throw new NoSuchElementException();
             if ((next = (current = e).next) == null && (t = table) != null) {
-                do {} while (index < t.length && (next = t[index++]) == null);
+                Node<K,V>[] ot = oldTable;
+                int n = binCount(t, ot);
+                do {} while (index < n && (next = binAt(t, ot, index++)) == null);
             }
             return e;
         }
@@ -1506,8 +1719,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 HashMap<K,V> m = map;
                 est = m.size;
                 expectedModCount = m.modCount;
-                Node<K,V>[] tab = m.table;
-                hi = fence = (tab == null) ? 0 : tab.length;
+                hi = fence = binCount(m.table, m.oldTable);
             }
             return hi;
         }
@@ -1538,20 +1750,20 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
+            Node<K,V>[] tab = m.table, oldTab = m.oldTable;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+                hi = fence = binCount(tab, oldTab);
             }
             else
                 mc = expectedModCount;
-            if (tab != null && tab.length >= hi &&
+            if (tab != null && binCount(tab, oldTab) >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
                 current = null;
                 do {
                     if (p == null)
-                        p = tab[i++];
+                        p = binAt(tab, oldTab, i++);
                     else {
                         action.accept(p.key);
                         p = p.next;
@@ -1566,11 +1778,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             int hi;
             if (action == null)
                 throw new NullPointerException();
-            Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            Node<K,V>[] tab = map.table, oldTab = map.oldTable;
+            if (tab != null && binCount(tab, oldTab) >= (hi = getFence()) &&
+                index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
-                        current = tab[index++];
+                        current = binAt(tab, oldTab, index++);
                     else {
                         K k = current.key;
                         current = current.next;
@@ -1610,20 +1823,20 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
+            Node<K,V>[] tab = m.table, oldTab = m.oldTable;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+                hi = fence = binCount(tab, oldTab);
             }
             else
                 mc = expectedModCount;
-            if (tab != null && tab.length >= hi &&
+            if (tab != null && binCount(tab, oldTab) >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
                 current = null;
                 do {
                     if (p == null)
-                        p = tab[i++];
+                        p = binAt(tab, oldTab, i++);
                     else {
                         action.accept(p.value);
                         p = p.next;
@@ -1638,11 +1851,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             int hi;
             if (action == null)
                 throw new NullPointerException();
-            Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            Node<K,V>[] tab = map.table, oldTab = map.oldTable;
+            if (tab != null && binCount(tab, oldTab) >= (hi = getFence()) &&
+                index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
-                        current = tab[index++];
+                        current = binAt(tab, oldTab, index++);
                     else {
                         V v = current.value;
                         current = current.next;
@@ -1681,20 +1895,20 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
+            Node<K,V>[] tab = m.table, oldTab = m.oldTable;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+                hi = fence = binCount(tab, oldTab);
             }
             else
                 mc = expectedModCount;
-            if (tab != null && tab.length >= hi &&
+            if (tab != null && binCount(tab, oldTab) >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
                 current = null;
                 do {
                     if (p == null)
-                        p = tab[i++];
+                        p = binAt(tab, oldTab, i++);
                     else {
                         action.accept(p);
                         p = p.next;
@@ -1709,11 +1923,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             int hi;
             if (action == null)
                 throw new NullPointerException();
-            Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            Node<K,V>[] tab = map.table, oldTab = map.oldTable;
+            if (tab != null && binCount(tab, oldTab) >= (hi = getFence()) &&
+                index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
-                        current = tab[index++];
+                        current = binAt(tab, oldTab, index++);
                     else {
                         Node<K,V> e = current;
                         current = current.next;
@@ -1770,6 +1985,8 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     void reinitialize() {
         table = null;
+        oldTable = null;
+        transferIndex = 0;
         entrySet = null;
         keySet = null;
         values = null;
@@ -1787,8 +2004,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     void internalWriteEntries(java.io.ObjectOutputStream s) throws IOException {
         Node<K,V>[] tab;
         if (size > 0 && (tab = table) != null) {
-            for (int i = 0; i < tab.length; ++i) {
-                for (Node<K,V> e = tab[i]; e != null; e = e.next) {
+            Node<K,V>[] oldTab = oldTable;
+            for (int i = 0, n = binCount(tab, oldTab); i < n; ++i) {
+                for (Node<K,V> e = binAt(tab, oldTab, i); e != null; e = e.next) {
                     s.writeObject(e.key);
                     s.writeObject(e.value);
                 }
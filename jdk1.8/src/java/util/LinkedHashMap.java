@@ -402,6 +402,30 @@ public class LinkedHashMap<K,V>
         this.accessOrder = accessOrder;
     }
 
+    /**
+     * Constructs an empty <tt>LinkedHashMap</tt> instance with the
+     * specified initial capacity, load factor, ordering mode and
+     * resizing mode.  Incremental resizing behaves as described for
+     * {@link HashMap#HashMap(int, float, boolean)}; it does not affect
+     * iteration order, which is maintained independently of the table.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  accessOrder     the ordering mode - <tt>true</tt> for
+     *         access-order, <tt>false</tt> for insertion-order
+     * @param  incrementalResize true to spread rehashing over subsequent
+     *         operations, false to rehash in a single step
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public LinkedHashMap(int initialCapacity,
+                         float loadFactor,
+                         boolean accessOrder,
+                         boolean incrementalResize) {
+        super(initialCapacity, loadFactor, incrementalResize);
+        this.accessOrder = accessOrder;
+    }
+
 
     /**
      * Returns <tt>true</tt> if this map maps one or more keys to the
@@ -0,0 +1,822 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Hash table mapping primitive {@code long} keys to object values.  Unlike
+ * a {@code HashMap<Long,V>}, this class neither boxes its keys nor
+ * allocates a node per mapping: keys and values are held in two parallel
+ * arrays and collisions are resolved by open addressing with linear
+ * probing.  Removal shifts subsequent entries of a probe sequence back
+ * into the vacated slot, so the table never accumulates tombstones.
+ *
+ * <p>The methods of this class mirror those of {@link Map}, with the key
+ * type replaced by {@code long} and functional arguments replaced by their
+ * primitive specializations from {@link java.util.function} wherever the
+ * key is passed through.  {@code null} values are permitted; as with
+ * {@code HashMap}, {@link #containsKey} may be used to distinguish a key
+ * mapped to {@code null} from an absent key.
+ *
+ * <p>An instance has two parameters that affect its performance:
+ * <i>initial capacity</i> and <i>load factor</i>, with the same meaning
+ * as for {@link HashMap}.  Because every mapping occupies a slot of the
+ * table itself, the load factor must be strictly less than one; the
+ * default (.5) keeps expected probe sequences short.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The spliterators returned by {@link #keySpliterator} are <i>fail-fast</i>
+ * in the same sense as those of {@code HashMap}.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IntHashMap
+ */
+public class LongHashMap<V> implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = -6129465287813102437L;
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    /**
+     * The maximum capacity, MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The key table, allocated on first use.  A zero entry marks a free
+     * slot; the key {@code 0} itself is tracked by {@link #hasZeroKey}.
+     */
+    transient long[] keys;
+
+    /**
+     * The value table, one longer than {@link #keys}.  The extra last
+     * slot holds the value mapped to key {@code 0}.
+     */
+    transient Object[] vals;
+
+    /**
+     * True if key {@code 0} is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     * Before the table is allocated, holds the initial capacity.
+     *
+     * @serial
+     */
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in the range {@code (0, 1)}
+     */
+    public LongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.5).
+     */
+    public LongHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads the key bits so that consecutive keys, which are common
+     * for identifiers, do not form long runs of occupied slots.
+     */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int x = (int)(h ^ (h >>> 32));
+        return x ^ (x >>> 16);
+    }
+
+    /* ---------------- Table access -------------- */
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.  The key
+     * {@code 0} maps to the extra slot at index {@code keys.length}.
+     */
+    final int indexOf(long key) {
+        long[] ks;
+        if ((ks = keys) == null)
+            return -1;
+        if (key == 0)
+            return hasZeroKey ? ks.length : -1;
+        int mask = ks.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            long k;
+            if ((k = ks[i]) == key)
+                return i;
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the slot holding the given key, claiming a free one for it
+     * if absent.  A newly claimed slot holds a {@code null} value and is
+     * already counted in {@link #size}; callers may detect this case by
+     * comparing {@link #modCount} before and after the call.
+     */
+    final int insertionIndexOf(long key) {
+        long[] ks;
+        if ((ks = keys) == null)
+            ks = resize();
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                ++modCount;
+                if (++size > threshold)
+                    ks = resize();
+            }
+            return ks.length;
+        }
+        int mask = ks.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            long k;
+            if ((k = ks[i]) == key)
+                return i;
+            if (k == 0) {
+                ks[i] = key;
+                ++modCount;
+                if (++size > threshold) {
+                    resize();
+                    return indexOf(key);
+                }
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping held in slot {@code i}, then moves every
+     * following entry of the probe run whose home slot does not lie
+     * cyclically between the gap and itself back into the gap.
+     */
+    final void removeAt(int i) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int n = ks.length;
+        ++modCount;
+        --size;
+        if (i == n) {
+            hasZeroKey = false;
+            vs[n] = null;
+            return;
+        }
+        int mask = n - 1, gap = i;
+        for (int j = (i + 1) & mask;; j = (j + 1) & mask) {
+            long k;
+            if ((k = ks[j]) == 0)
+                break;
+            int home = hash(k) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                ks[gap] = k;
+                vs[gap] = vs[j];
+                gap = j;
+            }
+        }
+        ks[gap] = 0;
+        vs[gap] = null;
+    }
+
+    /**
+     * Initializes or doubles table size, reinserting every mapping into
+     * its new home slot.
+     *
+     * @return the key table
+     */
+    final long[] resize() {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldCap = (oldKeys == null) ? 0 : oldKeys.length;
+        int newCap;
+        if (oldCap > 0) {
+            if (oldCap >= MAXIMUM_CAPACITY) {
+                if (size >= MAXIMUM_CAPACITY - 1)
+                    throw new IllegalStateException("Map is full");
+                threshold = MAXIMUM_CAPACITY - 1;
+                return oldKeys;
+            }
+            newCap = oldCap << 1;
+        }
+        else if (threshold > 0)
+            newCap = threshold;
+        else
+            newCap = DEFAULT_INITIAL_CAPACITY;
+        // keep at least one free slot so that probe sequences terminate
+        while (newCap < MAXIMUM_CAPACITY && (int)(newCap * loadFactor) < 1)
+            newCap <<= 1;
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        long[] newKeys = new long[newCap];
+        Object[] newVals = new Object[newCap + 1];
+        if (oldKeys != null) {
+            int mask = newCap - 1;
+            for (int j = 0; j < oldCap; ++j) {
+                long k;
+                if ((k = oldKeys[j]) != 0) {
+                    int i = hash(k) & mask;
+                    while (newKeys[i] != 0)
+                        i = (i + 1) & mask;
+                    newKeys[i] = k;
+                    newVals[i] = oldVals[j];
+                }
+            }
+            newVals[newCap] = oldVals[oldCap];
+        }
+        keys = newKeys;
+        vals = newVals;
+        return newKeys;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value mapped to the key, or {@code null} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i;
+        return ((i = indexOf(key)) < 0) ? null : (V)vals[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value mapped to the key, or {@code defaultValue} if none
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        int i;
+        return ((i = indexOf(key)) < 0) ? defaultValue : (V)vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        long[] ks; Object[] vs;
+        if ((ks = keys) != null && size > 0) {
+            vs = vals;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0 && Objects.equals(value, vs[i]))
+                    return true;
+            }
+            return hasZeroKey && Objects.equals(value, vs[ks.length]);
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int i = insertionIndexOf(key);
+        V oldValue = (V)vals[i];
+        vals[i] = value;
+        return oldValue;
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}) associates it with the given value and
+     * returns {@code null}, else returns the current value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value) {
+        int i = insertionIndexOf(key);
+        V oldValue;
+        if ((oldValue = (V)vals[i]) == null)
+            vals[i] = value;
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i);
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        long[] ks;
+        modCount++;
+        if ((ks = keys) != null && size > 0) {
+            size = 0;
+            hasZeroKey = false;
+            Arrays.fill(ks, 0L);
+            Arrays.fill(vals, null);
+        }
+    }
+
+    /**
+     * If the specified key is not already associated with a value (or is
+     * mapped to {@code null}), attempts to compute its value using the
+     * given mapping function and enters it into this map unless
+     * {@code null}.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        V v;
+        int i = indexOf(key);
+        if (i >= 0 && (v = (V)vals[i]) != null)
+            return v;
+        int mc = modCount;
+        v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null) {
+            if (i < 0)
+                i = insertionIndexOf(key);
+            vals[i] = v;
+        }
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value or is
+     * associated with null, associates it with the given non-null value.
+     * Otherwise, replaces the associated value with the results of the
+     * given remapping function, or removes if the result is {@code null}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the non-null value to be merged with the existing value
+     *        associated with the key or, if no existing value or a null
+     *        value is associated with the key, to be associated with the key
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if
+     *         no value is associated with the key
+     * @throws NullPointerException if the value or remapping function is
+     *         null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         remapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V merge(long key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        V old;
+        int i = indexOf(key);
+        if (i < 0 || (old = (V)vals[i]) == null) {
+            if (i < 0)
+                i = insertionIndexOf(key);
+            vals[i] = value;
+            return value;
+        }
+        int mc = modCount;
+        V v = remappingFunction.apply(old, value);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null)
+            vals[i] = v;
+        else
+            removeAt(i);
+        return v;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * mappings have been processed or the action throws an exception.
+     * The action receives the value first and the key second, following
+     * the argument order of {@link ObjLongConsumer}.
+     *
+     * @param action The action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if a mapping is found to be
+     *         added or removed during iteration
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<? super V> action) {
+        long[] ks;
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0 && (ks = keys) != null) {
+            Object[] vs = vals;
+            int mc = modCount;
+            for (int i = 0; i < ks.length && mc == modCount; ++i) {
+                long k;
+                if ((k = ks[i]) != 0)
+                    action.accept((V)vs[i], k);
+            }
+            if (hasZeroKey && mc == modCount)
+                action.accept((V)vs[ks.length], 0L);
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns the keys of this map as an array, in table order.
+     *
+     * @return an array containing every key in this map
+     */
+    public long[] keys() {
+        long[] ks, a = new long[size];
+        if ((ks = keys) != null) {
+            int j = 0;
+            for (long k : ks) {
+                if (k != 0)
+                    a[j++] = k;
+            }
+            if (hasZeroKey)
+                a[j] = 0;
+        }
+        return a;
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfLong} over the keys of this
+     * map.  The spliterator reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT} and {@link Spliterator#NONNULL}, and
+     * splits the table by slot ranges, so that the resulting streams need
+     * neither box the keys nor buffer them when run in parallel.
+     *
+     * @return a {@code Spliterator.OfLong} over the keys of this map
+     */
+    public Spliterator.OfLong keySpliterator() {
+        return new KeySpliterator(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     *
+     * @return a {@code LongStream} over the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(keySpliterator(), false);
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach((v, k) -> {
+            if (sb.length() > 1)
+                sb.append(',').append(' ');
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>LongHashMap</tt> instance: the
+     * values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public LongHashMap<V> clone() {
+        LongHashMap<V> result;
+        try {
+            result = (LongHashMap<V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        if (keys != null) {
+            result.keys = keys.clone();
+            result.vals = vals.clone();
+        }
+        result.modCount = 0;
+        return result;
+    }
+
+    /**
+     * Save the state of the <tt>LongHashMap</tt> instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (long) and
+     *             value (Object) for each key-value mapping.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        long[] ks;
+        s.defaultWriteObject();
+        s.writeInt(size);
+        if (size > 0 && (ks = keys) != null) {
+            Object[] vs = vals;
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0) {
+                    s.writeLong(ks[i]);
+                    s.writeObject(vs[i]);
+                }
+            }
+            if (hasZeroKey) {
+                s.writeLong(0L);
+                s.writeObject(vs[ks.length]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code LongHashMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        keys = null;
+        vals = null;
+        hasZeroKey = false;
+        size = 0;
+        float fc = (float)mappings / loadFactor + 1.0f;
+        threshold = HashMap.tableSizeFor(
+            (fc >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : (int)fc);
+        for (int i = 0; i < mappings; i++) {
+            long key = s.readLong();
+            V value = (V) s.readObject();
+            put(key, value);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // spliterators
+
+    /**
+     * Spliterator over slot ranges of the table.  Slot indices run from
+     * {@code 0} to {@code keys.length} inclusive; the last one is the
+     * slot of key {@code 0}.
+     */
+    static final class KeySpliterator implements Spliterator.OfLong {
+        final LongHashMap<?> map;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        KeySpliterator(LongHashMap<?> m, int origin, int fence, int est,
+                       int expectedModCount) {
+            this.map = m;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                LongHashMap<?> m = map;
+                est = m.size;
+                expectedModCount = m.modCount;
+                long[] ks = m.keys;
+                hi = fence = (ks == null) ? 0 : ks.length + 1;
+            }
+            return hi;
+        }
+
+        public KeySpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator(map, lo, index = mid, est >>>= 1,
+                                   expectedModCount);
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            LongHashMap<?> m = map;
+            long[] ks = m.keys;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = m.modCount;
+                hi = fence = (ks == null) ? 0 : ks.length + 1;
+            }
+            else
+                mc = expectedModCount;
+            if (ks != null && ks.length + 1 >= hi &&
+                (i = index) >= 0 && i < (index = hi)) {
+                int n = ks.length;
+                for (; i < hi; ++i) {
+                    long k;
+                    if (i < n) {
+                        if ((k = ks[i]) != 0)
+                            action.accept(k);
+                    }
+                    else if (m.hasZeroKey)
+                        action.accept(0L);
+                }
+                if (m.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            LongHashMap<?> m = map;
+            long[] ks = m.keys;
+            if (ks != null && ks.length + 1 >= (hi = getFence()) &&
+                index >= 0) {
+                int n = ks.length;
+                while (index < hi) {
+                    int i = index++;
+                    if (i < n ? ks[i] != 0 : m.hasZeroKey) {
+                        action.accept((i < n) ? ks[i] : 0L);
+                        if (m.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.DoubleConsumer;
 import java.util.function.IntConsumer;
 import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -70,11 +71,15 @@ import sun.misc.Unsafe;
  * get a cryptographically secure pseudo-random number generator for use
  * by security-sensitive applications.
  *
+ * <p>This class implements {@link RandomGenerator}; the methods of that
+ * interface not defined here, such as {@code nextLong(long)}, are
+ * derived from the algorithms shown for this class.
+ *
  * @author  Frank Yellin
  * @since   1.0
  */
 public
-class Random implements java.io.Serializable {
+class Random implements RandomGenerator, java.io.Serializable {
     /** use serialVersionUID from JDK 1.1 for interoperability */
     static final long serialVersionUID = 3905348978240129619L;
 
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.IntConsumer;
 import java.util.function.LongConsumer;
 import java.util.function.DoubleConsumer;
+import java.util.random.RandomGenerator;
 import java.util.stream.StreamSupport;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -86,7 +87,8 @@ import java.util.stream.DoubleStream;
  * @author  Doug Lea
  * @since   1.8
  */
-public final class SplittableRandom {
+public final class SplittableRandom
+        implements RandomGenerator.SplittableGenerator {
 
     /*
      * Implementation Overview.
@@ -396,6 +398,19 @@ public final class SplittableRandom {
         return new SplittableRandom(nextLong(), mixGamma(nextSeed()));
     }
 
+    /**
+     * Constructs and returns a new SplittableRandom instance that
+     * shares no mutable state with this instance, using the given
+     * generator rather than this one to form its seed and gamma.
+     *
+     * @param source a generator used to initialize the new instance
+     * @return the new SplittableRandom instance
+     * @throws NullPointerException if source is null
+     */
+    public SplittableRandom split(SplittableGenerator source) {
+        return new SplittableRandom(source.nextLong(), mixGamma(source.nextLong()));
+    }
+
     /**
      * Returns a pseudorandom {@code int} value.
      *
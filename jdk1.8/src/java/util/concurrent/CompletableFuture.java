@@ -213,6 +213,13 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
      * Completion fields need not be declared as final or volatile
      * because they are only visible to other threads upon safe
      * publication.
+     *
+     * Timeouts (orTimeout, completeOnTimeout) and delayed executors
+     * rely on class Delayer, a single-threaded hashed timing wheel
+     * with constant-time insertion and cancellation.  A timeout is
+     * pushed as a Completion on the stack of its future, so that
+     * normal completion cancels the timer without allocating any
+     * intermediate stage.
      */
 
     volatile Object result;       // Either the result or boxed AltResult
@@ -612,6 +619,10 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         if (f == null) throw new NullPointerException();
         CompletableFuture<V> d =  new CompletableFuture<V>();
         if (e != null || !d.uniApply(this, f, null)) {
+            // A new UniApply per stage even in linear thenApply chains:
+            // once pushed, a Completion may be claimed, run or unlinked
+            // (cleanStack) by other threads until it fires, so sharing
+            // one across stages would need a lock on every completion
             UniApply<T,V> c = new UniApply<T,V>(e, d, this, f);
             push(c);
             c.tryFire(SYNC);
@@ -1796,7 +1807,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     /**
      * Creates a new complete CompletableFuture with given encoded result.
      */
-    private CompletableFuture(Object r) {
+    CompletableFuture(Object r) {
         this.result = r;
     }
 
@@ -2364,6 +2375,415 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
               "[Completed normally]"));
     }
 
+    /* ------------- Timeouts and delays -------------- */
+
+    /**
+     * Exceptionally completes this CompletableFuture with
+     * a {@link TimeoutException} if not otherwise completed
+     * before the given timeout.
+     *
+     * @param timeout how long to wait before completing exceptionally
+     *        with a TimeoutException, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return this CompletableFuture
+     */
+    public CompletableFuture<T> orTimeout(long timeout, TimeUnit unit) {
+        if (unit == null)
+            throw new NullPointerException();
+        if (result == null)
+            pushTimeout(new Timeout(this, null), timeout, unit);
+        return this;
+    }
+
+    /**
+     * Completes this CompletableFuture with the given value if not
+     * otherwise completed before the given timeout.
+     *
+     * @param value the value to use upon timeout
+     * @param timeout how long to wait before completing normally
+     *        with the given value, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @return this CompletableFuture
+     */
+    public CompletableFuture<T> completeOnTimeout(T value, long timeout,
+                                                  TimeUnit unit) {
+        if (unit == null)
+            throw new NullPointerException();
+        if (result == null)
+            pushTimeout(new Timeout(this, encodeValue(value)), timeout, unit);
+        return this;
+    }
+
+    /**
+     * Schedules the given Timeout, and pushes it so that it cancels
+     * the timer upon completion of this future.
+     */
+    private void pushTimeout(Timeout t, long timeout, TimeUnit unit) {
+        t.timer = Delayer.delay(t, timeout, unit);
+        while (result == null && !tryPushStack(t))
+            lazySetNext(t, null); // clear on failure
+        if (result != null)
+            t.tryFire(SYNC);
+    }
+
+    /**
+     * Returns a new Executor that submits a task to the given base
+     * executor after the given delay (or no delay if non-positive).
+     * Each delay commences upon invocation of the returned executor's
+     * {@code execute} method.
+     *
+     * @param delay how long to delay, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code delay} parameter
+     * @param executor the base executor
+     * @return the new delayed executor
+     * @throws NullPointerException if either argument is null
+     */
+    public static Executor delayedExecutor(long delay, TimeUnit unit,
+                                           Executor executor) {
+        if (unit == null || executor == null)
+            throw new NullPointerException();
+        return new DelayedExecutor(delay, unit, executor);
+    }
+
+    /**
+     * Returns a new Executor that submits a task to the default
+     * executor after the given delay (or no delay if non-positive).
+     * Each delay commences upon invocation of the returned executor's
+     * {@code execute} method.
+     *
+     * @param delay how long to delay, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code delay} parameter
+     * @return the new delayed executor
+     * @throws NullPointerException if unit is null
+     */
+    public static Executor delayedExecutor(long delay, TimeUnit unit) {
+        if (unit == null)
+            throw new NullPointerException();
+        return new DelayedExecutor(delay, unit, asyncPool);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is already completed
+     * exceptionally with the given exception.
+     *
+     * @param ex the exception
+     * @param <U> the type of the value
+     * @return the exceptionally completed CompletableFuture
+     * @throws NullPointerException if the exception is null
+     */
+    public static <U> CompletableFuture<U> failedFuture(Throwable ex) {
+        if (ex == null) throw new NullPointerException();
+        return new CompletableFuture<U>(new AltResult(ex));
+    }
+
+    /**
+     * Returns a new CompletionStage that is already completed with
+     * the given value and supports only those methods in
+     * interface {@link CompletionStage}.
+     *
+     * @param value the value
+     * @param <U> the type of the value
+     * @return the completed CompletionStage
+     */
+    public static <U> CompletionStage<U> completedStage(U value) {
+        return new MinimalStage<U>((value == null) ? NIL : value);
+    }
+
+    /**
+     * Returns a new CompletionStage that is already completed
+     * exceptionally with the given exception and supports only those
+     * methods in interface {@link CompletionStage}.
+     *
+     * @param ex the exception
+     * @param <U> the type of the value
+     * @return the exceptionally completed CompletionStage
+     * @throws NullPointerException if the exception is null
+     */
+    public static <U> CompletionStage<U> failedStage(Throwable ex) {
+        if (ex == null) throw new NullPointerException();
+        return new MinimalStage<U>(new AltResult(ex));
+    }
+
+    /**
+     * Completion that completes its source with a TimeoutException
+     * (if value is null) or the given encoded value when its timer
+     * expires, and cancels the timer when the source completes first.
+     */
+    @SuppressWarnings("serial")
+    static final class Timeout extends Completion {
+        CompletableFuture<?> src;   // the future to complete on timeout
+        final Object value;         // encoded value, or null to fail
+        Delayer.Task timer;         // set before pushing
+        Timeout(CompletableFuture<?> src, Object value) {
+            this.src = src; this.value = value;
+        }
+        final CompletableFuture<?> tryFire(int ignore) {
+            Delayer.Task t;
+            src = null;
+            if ((t = timer) != null) {
+                timer = null;
+                t.cancel();
+            }
+            return null;
+        }
+        final boolean isLive() { return src != null; }
+
+        /** Called by the Delayer thread when the timer expires. */
+        final void expire() {
+            CompletableFuture<?> f; Object v;
+            if ((f = src) != null && f.result == null &&
+                (((v = value) == null) ?
+                 f.completeThrowable(new TimeoutException()) :
+                 f.internalComplete(v)))
+                f.postComplete();
+        }
+    }
+
+    static final class DelayedExecutor implements Executor {
+        final long delay;
+        final TimeUnit unit;
+        final Executor executor;
+        DelayedExecutor(long delay, TimeUnit unit, Executor executor) {
+            this.delay = delay; this.unit = unit; this.executor = executor;
+        }
+        public void execute(Runnable r) {
+            Delayer.delay(new TaskSubmitter(executor, r), delay, unit);
+        }
+    }
+
+    /** Action to submit user task */
+    static final class TaskSubmitter implements Runnable {
+        final Executor executor;
+        final Runnable action;
+        TaskSubmitter(Executor executor, Runnable action) {
+            if (action == null) throw new NullPointerException();
+            this.executor = executor;
+            this.action = action;
+        }
+        public void run() { executor.execute(action); }
+    }
+
+    /**
+     * Singleton timer used for timeouts and delayed executors: a
+     * hashed timing wheel of WHEEL_SIZE buckets of TICK_NANOS each,
+     * run by a single daemon thread.
+     *
+     * Scheduling a task computes its expiration tick, and pushes it
+     * onto a Treiber stack of pending tasks, so that producers never
+     * contend with the timer thread on the wheel itself.  The timer
+     * thread moves pending tasks into the doubly-linked bucket of
+     * their tick (modulo WHEEL_SIZE), and on each tick runs those in
+     * the current bucket that are due, leaving ones that are one or
+     * more rotations ahead.  Cancellation just clears the task field
+     * (dropping references to the future), and the node is unlinked
+     * when its bucket is next visited, so both are constant-time.
+     *
+     * Rather than waking up every tick, the timer thread sleeps until
+     * the tick of the next nonempty bucket (published in field
+     * wakeTick), or indefinitely if there are none, and producers
+     * unpark it only when scheduling a task due before that.  Tasks
+     * are run in the timer thread, so they must be short; for delayed
+     * executors they just submit the user task to its executor.
+     */
+    static final class Delayer implements Runnable {
+        static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+        static final int WHEEL_SIZE = 512;  // must be a power of two
+        static final int MASK = WHEEL_SIZE - 1;
+        // Delays are capped to keep tick arithmetic from overflowing
+        static final long MAX_DELAY_NANOS = Long.MAX_VALUE >>> 2;
+
+        final long origin = System.nanoTime(); // base of ticks
+        volatile Task pending;     // Treiber stack of tasks to insert
+        volatile long wakeTick;    // tick timer sleeps until; 0 if awake
+        Thread thread;
+
+        /** A scheduled action; the node of a wheel bucket. */
+        static final class Task {
+            volatile Object action;   // Runnable or Timeout; null if done
+            final long tick;          // expiration tick
+            Task next, prev;          // links in pending stack or bucket
+            Task(Object action, long tick) {
+                this.action = action; this.tick = tick;
+            }
+
+            /** Returns true if this call cancelled the task. */
+            final boolean cancel() {
+                Object a;
+                return (a = action) != null &&
+                    UNSAFE.compareAndSwapObject(this, ACTION, a, null);
+            }
+
+            /** Runs the action unless already cancelled. */
+            final void fire() {
+                Object a;
+                if ((a = action) != null &&
+                    UNSAFE.compareAndSwapObject(this, ACTION, a, null)) {
+                    try {
+                        if (a instanceof Timeout)
+                            ((Timeout)a).expire();
+                        else
+                            ((Runnable)a).run();
+                    } catch (Throwable ignore) {
+                        // as with ScheduledThreadPoolExecutor, a failed
+                        // action does not affect the timer
+                    }
+                }
+            }
+        }
+
+        /**
+         * Schedules the given Runnable or Timeout to run in the timer
+         * thread after the given delay.
+         */
+        static Task delay(Object action, long delay, TimeUnit unit) {
+            Delayer d = instance;
+            long nanos = unit.toNanos(delay);
+            if (nanos < 0L)
+                nanos = 0L;
+            else if (nanos > MAX_DELAY_NANOS)
+                nanos = MAX_DELAY_NANOS;
+            long tick = (System.nanoTime() - d.origin + nanos +
+                         TICK_NANOS - 1L) / TICK_NANOS;
+            Task t = new Task(action, tick), p;
+            do {
+                t.next = p = d.pending;
+            } while (!UNSAFE.compareAndSwapObject(d, PENDING, p, t));
+            if (tick < d.wakeTick)
+                LockSupport.unpark(d.thread);
+            return t;
+        }
+
+        public void run() {
+            final Task[] wheel = new Task[WHEEL_SIZE];
+            long tick = 0L;                 // next tick to process
+            int count = 0;                  // number of tasks in wheel
+            for (;;) {
+                wakeTick = 0L;
+                Task p = (Task)UNSAFE.getAndSetObject(this, PENDING, null);
+                while (p != null) {
+                    Task next = p.next;
+                    int i = (int)Math.max(p.tick, tick) & MASK;
+                    Task h = wheel[i];
+                    p.prev = null;
+                    if ((p.next = h) != null)
+                        h.prev = p;
+                    wheel[i] = p;
+                    ++count;
+                    p = next;
+                }
+                long now = (System.nanoTime() - origin) / TICK_NANOS;
+                // visit each bucket at most once, even after a long stall
+                for (long k = Math.max(tick, now - MASK);
+                     k <= now && count > 0; ++k) {
+                    int i = (int)k & MASK;
+                    for (Task t = wheel[i], next; t != null; t = next) {
+                        next = t.next;
+                        if (t.action == null || t.tick <= k) {
+                            Task prev = t.prev;
+                            if (prev == null)
+                                wheel[i] = next;
+                            else
+                                prev.next = next;
+                            if (next != null)
+                                next.prev = prev;
+                            t.next = t.prev = null;
+                            --count;
+                            t.fire();
+                        }
+                    }
+                }
+                tick = now + 1L;
+                long wake = Long.MAX_VALUE;
+                if (count > 0) {
+                    for (int j = 0; j < WHEEL_SIZE; ++j) {
+                        if (wheel[(int)(tick + j) & MASK] != null) {
+                            wake = tick + j;
+                            break;
+                        }
+                    }
+                }
+                wakeTick = wake;
+                if (pending == null) {
+                    if (wake == Long.MAX_VALUE)
+                        LockSupport.park(this);
+                    else {
+                        long nanos = origin + wake * TICK_NANOS - System.nanoTime();
+                        if (nanos > 0L)
+                            LockSupport.parkNanos(this, nanos);
+                    }
+                }
+            }
+        }
+
+        private static final long PENDING;
+        private static final long ACTION;
+        static {
+            try {
+                PENDING = UNSAFE.objectFieldOffset
+                    (Delayer.class.getDeclaredField("pending"));
+                ACTION = UNSAFE.objectFieldOffset
+                    (Task.class.getDeclaredField("action"));
+            } catch (Exception x) {
+                throw new Error(x);
+            }
+        }
+
+        static final Delayer instance = new Delayer();
+        static {
+            Thread t = new Thread(instance, "CompletableFutureDelayScheduler");
+            t.setDaemon(true);
+            instance.thread = t;
+            t.start();
+        }
+    }
+
+    /**
+     * A subclass that just throws UOE for most non-CompletionStage
+     * methods, used by completedStage and failedStage.  Stages
+     * derived from it are ordinary CompletableFutures.
+     */
+    static final class MinimalStage<T> extends CompletableFuture<T> {
+        MinimalStage(Object r) { super(r); }
+        @Override public T get() {
+            throw new UnsupportedOperationException(); }
+        @Override public T get(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException(); }
+        @Override public T getNow(T valueIfAbsent) {
+            throw new UnsupportedOperationException(); }
+        @Override public T join() {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean complete(T value) {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean completeExceptionally(Throwable ex) {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            throw new UnsupportedOperationException(); }
+        @Override public void obtrudeValue(T value) {
+            throw new UnsupportedOperationException(); }
+        @Override public void obtrudeException(Throwable ex) {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean isDone() {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean isCancelled() {
+            throw new UnsupportedOperationException(); }
+        @Override public boolean isCompletedExceptionally() {
+            throw new UnsupportedOperationException(); }
+        @Override public int getNumberOfDependents() {
+            throw new UnsupportedOperationException(); }
+        @Override public CompletableFuture<T> orTimeout
+            (long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException(); }
+        @Override public CompletableFuture<T> completeOnTimeout
+            (T value, long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException(); }
+        @Override public CompletableFuture<T> toCompletableFuture() {
+            return new CompletableFuture<T>(encodeRelay(result)); }
+    }
+
     // Unsafe mechanics
     private static final sun.misc.Unsafe UNSAFE;
     private static final long RESULT;
@@ -0,0 +1,1161 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded, thread-safe cache of key-value mappings backed by a
+ * {@link ConcurrentHashMap}.  Mappings are retained until they are
+ * evicted to keep the cache within its {@linkplain Builder#maximumSize
+ * maximum size} or {@linkplain Builder#maximumWeight maximum weight},
+ * until they expire, or until they are explicitly removed.  Like
+ * {@code ConcurrentHashMap}, this class does not allow {@code null} to be
+ * used as a key or value.
+ *
+ * <p>Eviction follows the <em>W-TinyLFU</em> policy.  Newly added
+ * entries enter a small <em>admission window</em> ordered by recency.
+ * An entry leaving the window becomes a candidate for the <em>main
+ * space</em>, a segmented LRU consisting of a <em>probation</em> and a
+ * <em>protected</em> segment, and is admitted only if its estimated
+ * frequency of use exceeds that of the entry it would displace.
+ * Frequencies are estimated by a compact count-min sketch of four-bit
+ * counters that are periodically halved, so that the history ages.  This
+ * policy retains frequently used entries even under scans and bursts of
+ * one-time accesses that would flush a pure LRU cache.
+ *
+ * <p>Entries may also be configured to {@linkplain
+ * Builder#expireAfterWrite expire} a fixed duration after they were
+ * created or last replaced, or {@linkplain Builder#expireAfterAccess
+ * after} they were last read or written.  Expired entries are never
+ * returned by retrieval operations, and are removed during routine
+ * maintenance.
+ *
+ * <p>Retrievals never block: the eviction policy is not updated on each
+ * read, but reads are recorded in a set of small lossy buffers, striped
+ * by thread, which are replayed against the policy in batches.  Writes
+ * are recorded in a queue that is drained under a lock by whichever
+ * writing thread acquires it without waiting; the drain also applies
+ * pending reads, expires entries and performs eviction.  Maintenance
+ * triggered only by reads is carried out by the {@linkplain
+ * Builder#executor executor} of the cache.  Consequently the cache may
+ * briefly exceed its bound, and the policy may occasionally lose track
+ * of a read under heavy contention, which only affects the precision of
+ * its decisions.
+ *
+ * <p>Hit, miss and eviction counts are maintained using {@link LongAdder}s
+ * and are reported by {@link #hitCount}, {@link #missCount} and
+ * {@link #evictionCount}.
+ *
+ * @author zohar
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class ConcurrentCache<K,V> {
+
+    /* ---------------- Constants -------------- */
+
+    /** The percentage of the maximum used by the admission window. */
+    static final int WINDOW_PERCENT = 1;
+
+    /** The percentage of the main space used by the protected segment. */
+    static final int PROTECTED_PERCENT = 80;
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of stripes of the read buffer: a power of two at least
+     * twice the number of CPUs, bounded to limit footprint.
+     */
+    static final int READ_BUFFER_STRIPES =
+        Math.min(64, Integer.highestOneBit(NCPU) << 2);
+
+    /** Capacity of each read buffer stripe; must be a power of two. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** The frequency below which a candidate is never admitted at random. */
+    static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+    /* Queue types of nodes */
+    static final int UNLINKED  = 0;
+    static final int WINDOW    = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    /* Lifecycle states of nodes */
+    static final int ALIVE   = 0;
+    static final int RETIRED = 1;   // removed from the map, not the policy
+    static final int DEAD    = 2;   // removed from the map and the policy
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A cache entry.  The key is immutable; the value, weight and
+     * timestamps may be replaced by writers holding the node's monitor.
+     * A node is removed from the map only while its monitor is held, and
+     * is no longer alive afterwards, so a writer holding the monitor of
+     * a live node knows it to be mapped.  The remaining fields are
+     * maintained by the policy under the eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime;
+        volatile long accessTime;
+        volatile int state;
+
+        // Fields guarded by the eviction lock
+        int queueType;
+        int policyWeight;
+        Node<K,V> prevInAccessOrder, nextInAccessOrder;
+        Node<K,V> prevInWriteOrder, nextInWriteOrder;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+
+        boolean isAlive() { return state == ALIVE; }
+    }
+
+    /**
+     * A doubly-linked list threaded through nodes, in which each node
+     * may appear at most once.  Subclasses select the pair of links used.
+     */
+    abstract static class LinkedDeque<K,V> {
+        Node<K,V> first, last;
+
+        abstract Node<K,V> getPrevious(Node<K,V> e);
+        abstract void setPrevious(Node<K,V> e, Node<K,V> prev);
+        abstract Node<K,V> getNext(Node<K,V> e);
+        abstract void setNext(Node<K,V> e, Node<K,V> next);
+
+        final Node<K,V> peekFirst() { return first; }
+
+        final boolean contains(Node<K,V> e) {
+            return getPrevious(e) != null || getNext(e) != null || first == e;
+        }
+
+        final void linkLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            last = e;
+            if (l == null)
+                first = e;
+            else {
+                setNext(l, e);
+                setPrevious(e, l);
+            }
+        }
+
+        final void unlink(Node<K,V> e) {
+            Node<K,V> prev = getPrevious(e), next = getNext(e);
+            if (prev == null)
+                first = next;
+            else {
+                setNext(prev, next);
+                setPrevious(e, null);
+            }
+            if (next == null)
+                last = prev;
+            else {
+                setPrevious(next, prev);
+                setNext(e, null);
+            }
+        }
+
+        final void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                unlink(e);
+                linkLast(e);
+            }
+        }
+
+        final Node<K,V> pollFirst() {
+            Node<K,V> f = first;
+            if (f != null)
+                unlink(f);
+            return f;
+        }
+    }
+
+    static final class AccessOrderDeque<K,V> extends LinkedDeque<K,V> {
+        Node<K,V> getPrevious(Node<K,V> e) { return e.prevInAccessOrder; }
+        void setPrevious(Node<K,V> e, Node<K,V> p) { e.prevInAccessOrder = p; }
+        Node<K,V> getNext(Node<K,V> e) { return e.nextInAccessOrder; }
+        void setNext(Node<K,V> e, Node<K,V> n) { e.nextInAccessOrder = n; }
+    }
+
+    static final class WriteOrderDeque<K,V> extends LinkedDeque<K,V> {
+        Node<K,V> getPrevious(Node<K,V> e) { return e.prevInWriteOrder; }
+        void setPrevious(Node<K,V> e, Node<K,V> p) { e.prevInWriteOrder = p; }
+        Node<K,V> getNext(Node<K,V> e) { return e.nextInWriteOrder; }
+        void setNext(Node<K,V> e, Node<K,V> n) { e.nextInWriteOrder = n; }
+    }
+
+    /* ---------------- Frequency sketch -------------- */
+
+    /**
+     * A count-min sketch estimating the popularity of keys within a time
+     * window, using four-bit counters packed sixteen to a long.  Each key
+     * selects a group of four counters in one of the four quarters of
+     * each of four longs.  When the number of increments reaches the
+     * sample size, all counters are halved, aging the history.  The table
+     * is allocated on the first addition and sized by the number of
+     * entries in the cache, growing (and discarding the history) as they
+     * outgrow it.  A size-bounded cache switches to its maximum once half
+     * full, so that the table does not grow again while evicting; the
+     * maximum of a weighted cache is a total weight, unrelated to the
+     * number of counters needed, and is never used.  Accessed only under
+     * the eviction lock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = { // first primes after 2^64 * the golden ratio
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        /** The largest table length. */
+        static final int MAXIMUM_CAPACITY = 1 << 28;
+
+        long[] table;
+        int sampleSize;
+        int size;
+
+        /**
+         * Grows the table, if needed, to at least the given number of
+         * entries rounded up to a power of two.
+         */
+        void ensureCapacity(long entries) {
+            int n = (int)Math.min(Math.max(entries, 8L), MAXIMUM_CAPACITY);
+            long[] tab = table;
+            if (tab != null && tab.length >= n)
+                return;
+            int cap = Integer.highestOneBit(n - 1) << 1;
+            table = new long[cap];
+            sampleSize = (int)Math.min(10L * cap, Integer.MAX_VALUE);
+            size = 0;
+        }
+
+        /** Returns the estimated number of occurrences of the key, at most 15. */
+        int frequency(Object key) {
+            if (table == null)
+                return 0;
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2;
+            int freq = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(h, i);
+                int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+                freq = Math.min(freq, count);
+            }
+            return freq;
+        }
+
+        /** Increments the popularity of the key, aging all counters if needed. */
+        void increment(Object key) {
+            if (table == null)
+                return;
+            int h = spread(key.hashCode());
+            int start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++)
+                added |= incrementAt(indexOf(h, i), start + i);
+            if (added && ++size >= sampleSize)
+                reset();
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = 0xfL << offset;
+            if ((table[i] & mask) != mask) {
+                table[i] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int count = 0;
+            long[] tab = table;
+            for (int i = 0; i < tab.length; i++) {
+                count += Long.bitCount(tab[i] & ONE_MASK);
+                tab[i] = (tab[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (count >>> 2);
+        }
+
+        private int indexOf(int h, int i) {
+            long hash = (h + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return (int)hash & (table.length - 1);
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    /* ---------------- Read buffers -------------- */
+
+    /**
+     * A bounded, lossy ring buffer of reads.  Producers claim a slot by
+     * CAS on the tail and drop the record if the buffer is full or the
+     * claim fails; the single consumer holds the eviction lock.
+     */
+    static final class ReadBuffer<K,V> {
+        static final int MASK = READ_BUFFER_SIZE - 1;
+        static final int SUCCESS = 0, FAILED = 1, FULL = 2;
+
+        final AtomicLong tail = new AtomicLong();
+        final AtomicReferenceArray<Node<K,V>> buffer =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+        volatile long head;
+
+        int offer(Node<K,V> e) {
+            long h = head, t = tail.get();
+            if (t - h >= READ_BUFFER_SIZE)
+                return FULL;
+            if (!tail.compareAndSet(t, t + 1L))
+                return FAILED;
+            buffer.lazySet((int)t & MASK, e);
+            return SUCCESS;
+        }
+
+        /** Transfers the recorded reads to the cache's policy. */
+        void drainTo(ConcurrentCache<K,V> cache) {
+            long h = head, t = tail.get();
+            for (; h != t; h++) {
+                int i = (int)h & MASK;
+                Node<K,V> e = buffer.get(i);
+                if (e == null)
+                    break;      // producer has not yet published
+                buffer.lazySet(i, null);
+                cache.onAccess(e);
+            }
+            head = h;
+        }
+    }
+
+    /* ---------------- Fields -------------- */
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final Executor executor;
+    final boolean evicts;
+    final boolean weighted;
+    final long expireAfterWriteNanos;   // negative if not expiring
+    final long expireAfterAccessNanos;  // negative if not expiring
+
+    final ReadBuffer<K,V>[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer;
+    final ReentrantLock evictionLock;
+    final AtomicBoolean drainScheduled;
+    final Runnable drainTask;
+
+    // Policy state, guarded by the eviction lock
+    final FrequencySketch sketch;
+    final AccessOrderDeque<K,V> windowDeque;
+    final AccessOrderDeque<K,V> probationDeque;
+    final AccessOrderDeque<K,V> protectedDeque;
+    final WriteOrderDeque<K,V> writeOrderDeque;
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long weightedSize;
+    long windowWeightedSize;
+    long protectedWeightedSize;
+
+    final LongAdder hitCount;
+    final LongAdder missCount;
+    final LongAdder evictionCount;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentCache(Builder<K,V> builder) {
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(builder.initialCapacity);
+        this.weigher = builder.weigher;
+        this.executor = builder.executor;
+        this.maximum = builder.maximum;
+        this.evicts = maximum >= 0L;
+        this.weighted = builder.weighted;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.windowMaximum = evicts ?
+            Math.max(1L, maximum * WINDOW_PERCENT / 100L) : 0L;
+        this.protectedMaximum = evicts ?
+            (maximum - windowMaximum) * PROTECTED_PERCENT / 100L : 0L;
+        this.sketch = evicts ? new FrequencySketch() : null;
+        ReadBuffer<K,V>[] rb = (ReadBuffer<K,V>[])new ReadBuffer<?,?>[READ_BUFFER_STRIPES];
+        for (int i = 0; i < rb.length; i++)
+            rb[i] = new ReadBuffer<K,V>();
+        this.readBuffers = rb;
+        this.writeBuffer = new ConcurrentLinkedQueue<Runnable>();
+        this.evictionLock = new ReentrantLock();
+        this.drainScheduled = new AtomicBoolean();
+        this.drainTask = new Runnable() {
+            public void run() {
+                drainScheduled.set(false);
+                performCleanUp();
+            }
+        };
+        this.windowDeque = new AccessOrderDeque<K,V>();
+        this.probationDeque = new AccessOrderDeque<K,V>();
+        this.protectedDeque = new AccessOrderDeque<K,V>();
+        this.writeOrderDeque = new WriteOrderDeque<K,V>();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Returns a new builder for a cache.
+     *
+     * @param <K> the type of keys maintained by the cache
+     * @param <V> the type of cached values
+     * @return a new builder
+     */
+    public static <K,V> Builder<K,V> newBuilder() {
+        return new Builder<K,V>();
+    }
+
+    /* ---------------- Internal utilities -------------- */
+
+    final boolean expiresAfterWrite() { return expireAfterWriteNanos >= 0L; }
+
+    final boolean expiresAfterAccess() { return expireAfterAccessNanos >= 0L; }
+
+    /** Returns the current time, or zero if entries never expire. */
+    final long now() {
+        return (expireAfterWriteNanos >= 0L || expireAfterAccessNanos >= 0L) ?
+            System.nanoTime() : 0L;
+    }
+
+    final boolean hasExpired(Node<K,V> e, long now) {
+        return (expireAfterWriteNanos >= 0L &&
+                now - e.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos >= 0L &&
+             now - e.accessTime >= expireAfterAccessNanos);
+    }
+
+    final int weigh(K key, V value) {
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("negative weight");
+        return w;
+    }
+
+    /**
+     * Records a read of the given node, scheduling maintenance if the
+     * read buffer of the current thread is full.
+     */
+    final void afterRead(Node<K,V> e, long now) {
+        if (expireAfterAccessNanos >= 0L)
+            e.accessTime = now;
+        if (evicts || expireAfterAccessNanos >= 0L) {
+            int h;
+            if ((h = ThreadLocalRandom.getProbe()) == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            ReadBuffer<K,V> b = readBuffers[h & (readBuffers.length - 1)];
+            int r = b.offer(e);
+            if (r == ReadBuffer.FULL)
+                scheduleDrain();
+            else if (r == ReadBuffer.FAILED)
+                ThreadLocalRandom.advanceProbe(h);
+        }
+    }
+
+    /**
+     * Records a write to be applied to the policy, and performs
+     * maintenance unless another thread is already doing so.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        performCleanUp();
+    }
+
+    /**
+     * Performs maintenance if the eviction lock is free, repeating if
+     * writes were recorded while the lock was held, since the writers
+     * that recorded them may have failed to acquire it.
+     */
+    final void performCleanUp() {
+        while (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (writeBuffer.isEmpty())
+                break;
+        }
+    }
+
+    /** Arranges for maintenance to be performed by the executor. */
+    final void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException ex) {
+                drainScheduled.set(false);  // left to the next writer
+            }
+        }
+    }
+
+    /* ---------------- Policy -------------- */
+
+    /** Applies buffered reads and writes, then expires and evicts. */
+    final void maintenance() {
+        for (ReadBuffer<K,V> b : readBuffers)
+            b.drainTo(this);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null)
+            task.run();
+        if (expireAfterWriteNanos >= 0L || expireAfterAccessNanos >= 0L)
+            expireEntries(System.nanoTime());
+        if (evicts)
+            evictEntries();
+    }
+
+    /** Updates the position of a read or written node. */
+    final void onAccess(Node<K,V> e) {
+        int type = e.queueType;
+        if (type == UNLINKED)
+            return;
+        if (evicts)
+            sketch.increment(e.key);
+        if (type == WINDOW)
+            windowDeque.moveToBack(e);
+        else if (type == PROBATION) {
+            probationDeque.unlink(e);
+            e.queueType = PROTECTED;
+            protectedDeque.linkLast(e);
+            protectedWeightedSize += e.policyWeight;
+            demoteFromProtected();
+        }
+        else
+            protectedDeque.moveToBack(e);
+    }
+
+    /** Moves the least recently used protected entries to probation. */
+    final void demoteFromProtected() {
+        Node<K,V> e;
+        while (protectedWeightedSize > protectedMaximum &&
+               (e = protectedDeque.pollFirst()) != null) {
+            protectedWeightedSize -= e.policyWeight;
+            e.queueType = PROBATION;
+            probationDeque.linkLast(e);
+        }
+    }
+
+    final void onAdd(Node<K,V> e) {
+        if (!e.isAlive() || e.queueType != UNLINKED)
+            return;
+        int w = e.weight;
+        e.policyWeight = w;
+        e.queueType = WINDOW;
+        weightedSize += w;
+        windowWeightedSize += w;
+        windowDeque.linkLast(e);
+        if (expireAfterWriteNanos >= 0L)
+            writeOrderDeque.linkLast(e);
+        if (evicts) {
+            // size by maximum once half full, unless it is a weight
+            sketch.ensureCapacity((!weighted && weightedSize >= maximum >>> 1) ?
+                                  maximum : data.mappingCount());
+            sketch.increment(e.key);
+        }
+    }
+
+    final void onUpdate(Node<K,V> e) {
+        int type = e.queueType;
+        if (type == UNLINKED)
+            return;
+        int w = e.weight, delta = w - e.policyWeight;
+        e.policyWeight = w;
+        weightedSize += delta;
+        if (type == WINDOW)
+            windowWeightedSize += delta;
+        else if (type == PROTECTED)
+            protectedWeightedSize += delta;
+        if (expireAfterWriteNanos >= 0L)
+            writeOrderDeque.moveToBack(e);
+        onAccess(e);
+    }
+
+    /** Removes a node from the policy; it must no longer be mapped. */
+    final void onRemove(Node<K,V> e) {
+        int type = e.queueType;
+        if (type != UNLINKED) {
+            int w = e.policyWeight;
+            weightedSize -= w;
+            if (type == WINDOW) {
+                windowWeightedSize -= w;
+                windowDeque.unlink(e);
+            }
+            else if (type == PROBATION)
+                probationDeque.unlink(e);
+            else {
+                protectedWeightedSize -= w;
+                protectedDeque.unlink(e);
+            }
+            if (expireAfterWriteNanos >= 0L && writeOrderDeque.contains(e))
+                writeOrderDeque.unlink(e);
+            e.queueType = UNLINKED;
+        }
+        e.state = DEAD;
+    }
+
+    /**
+     * Removes a node selected by the policy from the map, if still
+     * mapped, and from the policy.
+     */
+    final void evictEntry(Node<K,V> e) {
+        boolean removed = false;
+        synchronized (e) {
+            if (e.isAlive())
+                removed = data.remove(e.key, e);
+            e.state = DEAD;
+        }
+        onRemove(e);
+        if (removed)
+            evictionCount.increment();
+    }
+
+    final void expireEntries(long now) {
+        Node<K,V> e;
+        if (expireAfterAccessNanos >= 0L) {
+            expireAfterAccess(windowDeque, now);
+            expireAfterAccess(probationDeque, now);
+            expireAfterAccess(protectedDeque, now);
+        }
+        if (expireAfterWriteNanos >= 0L) {
+            while ((e = writeOrderDeque.peekFirst()) != null &&
+                   now - e.writeTime >= expireAfterWriteNanos)
+                evictEntry(e);
+        }
+    }
+
+    private void expireAfterAccess(AccessOrderDeque<K,V> deque, long now) {
+        Node<K,V> e;
+        while ((e = deque.peekFirst()) != null &&
+               now - e.accessTime >= expireAfterAccessNanos)
+            evictEntry(e);
+    }
+
+    /**
+     * Moves entries overflowing the window into probation as candidates,
+     * then evicts until the cache is within its maximum, choosing
+     * between each candidate and the probation victim by frequency.
+     */
+    final void evictEntries() {
+        Node<K,V> candidate = null, e;
+        while (windowWeightedSize > windowMaximum &&
+               (e = windowDeque.pollFirst()) != null) {
+            windowWeightedSize -= e.policyWeight;
+            e.queueType = PROBATION;
+            probationDeque.linkLast(e);
+            if (candidate == null)
+                candidate = e;
+        }
+        while (weightedSize > maximum) {
+            Node<K,V> victim = probationDeque.peekFirst();
+            if (victim == null || victim == candidate) {
+                if ((victim = protectedDeque.peekFirst()) == null)
+                    victim = windowDeque.peekFirst();
+            }
+            if (candidate == null) {
+                if (victim == null)
+                    break;
+                evictEntry(victim);
+            }
+            else {
+                Node<K,V> next = candidate.nextInAccessOrder;
+                if (victim == null || candidate.policyWeight > maximum ||
+                    !admit(candidate.key, victim.key))
+                    evictEntry(candidate);
+                else
+                    evictEntry(victim);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the candidate should replace the victim.  Warm
+     * candidates that do not exceed the victim's frequency are
+     * occasionally admitted at random, so that an attacker cannot pin the
+     * cache by inflating the frequency of a victim through hash
+     * collisions.
+     */
+    final boolean admit(K candidateKey, K victimKey) {
+        int victimFreq = sketch.frequency(victimKey);
+        int candidateFreq = sketch.frequency(candidateKey);
+        if (candidateFreq > victimFreq)
+            return true;
+        if (candidateFreq < ADMIT_HASHDOS_THRESHOLD)
+            return false;
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no unexpired mapping for the
+     * key.  This method never blocks.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the cached value, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> e = data.get(key);
+        if (e != null) {
+            long now = now();
+            if (!hasExpired(e, now)) {
+                V v = e.value;
+                afterRead(e, now);
+                hitCount.increment();
+                return v;
+            }
+            scheduleDrain();
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, computing
+     * it with the given mapping function and entering it into this cache
+     * if there is no unexpired mapping.  As with {@link
+     * ConcurrentHashMap#computeIfAbsent}, the function is invoked at most
+     * once per absent key, while other updates to the same bin of the
+     * backing map are blocked, so it should be short and simple.
+     *
+     * @param key key with which the value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the key, or null if the computed value is null
+     * @throws NullPointerException if the specified key or
+     *         mappingFunction is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight for the computed value
+     * @throws RuntimeException or Error if the mappingFunction does so,
+     *         in which case the mapping is left unestablished
+     */
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null || mappingFunction == null)
+            throw new NullPointerException();
+        boolean missed = false;
+        for (;;) {
+            Node<K,V> e = data.get(key);
+            long now = now();
+            if (e != null) {
+                if (!hasExpired(e, now)) {
+                    V v = e.value;
+                    afterRead(e, now);
+                    if (!missed)
+                        hitCount.increment();
+                    return v;
+                }
+                removeNode(e, true);
+            }
+            if (!missed) {
+                missCount.increment();
+                missed = true;
+            }
+            @SuppressWarnings("unchecked")
+            Node<K,V>[] created = (Node<K,V>[])new Node<?,?>[1];
+            e = data.computeIfAbsent(key, k -> {
+                V v = mappingFunction.apply(k);
+                return (v == null) ? null :
+                    (created[0] = new Node<K,V>(k, v, weigh(k, v), now));
+            });
+            if (e == null)
+                return null;
+            if (e == created[0]) {
+                afterWrite(new AddTask(e));
+                return e.value;
+            }
+            // another thread's entry was established concurrently; retry
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value in this cache,
+     * replacing any existing mapping.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous unexpired value associated with {@code key},
+     *         or {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key has no unexpired mapping, maps it to the given
+     * value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the current unexpired value associated with {@code key},
+     *         or {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the weigher returns a negative
+     *         weight
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int weight = weigh(key, value);
+        long now = now();
+        Node<K,V> node = null;
+        for (;;) {
+            Node<K,V> prior = data.get(key);
+            if (prior == null) {
+                if (node == null)
+                    node = new Node<K,V>(key, value, weight, now);
+                if ((prior = data.putIfAbsent(key, node)) == null) {
+                    afterWrite(new AddTask(node));
+                    return null;
+                }
+            }
+            V oldValue;
+            boolean expired;
+            synchronized (prior) {
+                if (!prior.isAlive())
+                    continue;
+                oldValue = prior.value;
+                expired = hasExpired(prior, now);
+                if (!onlyIfAbsent || expired) {
+                    prior.value = value;
+                    prior.weight = weight;
+                    prior.writeTime = now;
+                    prior.accessTime = now;
+                }
+            }
+            if (onlyIfAbsent && !expired) {
+                afterRead(prior, now);
+                return oldValue;
+            }
+            afterWrite(new UpdateTask(prior));
+            return expired ? null : oldValue;
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @param key key whose mapping is to be removed from the cache
+     * @return the previous unexpired value associated with {@code key},
+     *         or {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> e;
+        while ((e = data.get(key)) != null) {
+            V v = e.value;
+            boolean expired = hasExpired(e, now());
+            if (removeNode(e, expired))
+                return expired ? null : v;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given node from the map if it is still mapped,
+     * recording the removal for the policy.
+     *
+     * @param expired whether to count the removal as an eviction
+     * @return true if the node was removed by this call
+     */
+    final boolean removeNode(Node<K,V> e, boolean expired) {
+        synchronized (e) {
+            if (!e.isAlive())
+                return false;
+            data.remove(e.key, e);
+            e.state = RETIRED;
+        }
+        if (expired)
+            evictionCount.increment();
+        afterWrite(new RemovalTask(e));
+        return true;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        for (Node<K,V> e : data.values())
+            removeNode(e, false);
+    }
+
+    /**
+     * Returns the approximate number of mappings in this cache, which
+     * may include entries that have expired but not yet been removed.
+     *
+     * @return the number of mappings
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Performs any pending maintenance: applies recorded reads and
+     * writes to the eviction policy, removes expired entries, and evicts
+     * entries exceeding the maximum.  Maintenance is otherwise performed
+     * as a side effect of other operations, so this method need only be
+     * called to reclaim space promptly when the cache is idle.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times a retrieval found an unexpired mapping.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of times a retrieval found no unexpired mapping.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of mappings removed because they exceeded the
+     * maximum or expired.
+     *
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /* ---------------- Policy tasks -------------- */
+
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() { onAdd(node); }
+    }
+
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() { onUpdate(node); }
+    }
+
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() { onRemove(node); }
+    }
+
+    /* ---------------- Builder -------------- */
+
+    /**
+     * A builder of {@link ConcurrentCache} instances.  By default a cache
+     * is unbounded, its entries never expire, and read-triggered
+     * maintenance runs in the {@link ForkJoinPool#commonPool()}.
+     *
+     * @param <K> the type of keys maintained by the cache
+     * @param <V> the type of cached values
+     */
+    public static final class Builder<K,V> {
+        int initialCapacity = 16;
+        long maximum = -1L;
+        boolean weighted;
+        ToIntBiFunction<? super K, ? super V> weigher;
+        long expireAfterWriteNanos = -1L;
+        long expireAfterAccessNanos = -1L;
+        Executor executor = ForkJoinPool.commonPool();
+
+        Builder() {}
+
+        /**
+         * Sets the initial capacity of the backing map.
+         *
+         * @param initialCapacity the initial capacity
+         * @return this builder
+         * @throws IllegalArgumentException if the initial capacity is negative
+         */
+        public Builder<K,V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException();
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of entries the cache may contain.
+         *
+         * @param maximumSize the maximum number of entries
+         * @return this builder
+         * @throws IllegalArgumentException if the size is negative
+         * @throws IllegalStateException if a maximum was already set
+         */
+        public Builder<K,V> maximumSize(long maximumSize) {
+            if (maximumSize < 0L)
+                throw new IllegalArgumentException();
+            if (maximum >= 0L)
+                throw new IllegalStateException("maximum already set");
+            this.maximum = maximumSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total weight of the entries the cache may
+         * contain, as reported by the {@linkplain #weigher weigher}.
+         *
+         * @param maximumWeight the maximum total weight
+         * @return this builder
+         * @throws IllegalArgumentException if the weight is negative
+         * @throws IllegalStateException if a maximum was already set
+         */
+        public Builder<K,V> maximumWeight(long maximumWeight) {
+            if (maximumWeight < 0L)
+                throw new IllegalArgumentException();
+            if (maximum >= 0L)
+                throw new IllegalStateException("maximum already set");
+            this.maximum = maximumWeight;
+            this.weighted = true;
+            return this;
+        }
+
+        /**
+         * Sets the function computing the weight of each entry when it
+         * is written.  Weights must not be negative.
+         *
+         * @param weigher the weigher
+         * @return this builder
+         * @throws NullPointerException if the weigher is null
+         */
+        public Builder<K,V> weigher(ToIntBiFunction<? super K, ? super V> weigher) {
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * Specifies that entries expire once the given duration has
+         * elapsed since they were created or their value last replaced.
+         *
+         * @param duration the duration
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is negative
+         */
+        public Builder<K,V> expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0L)
+                throw new IllegalArgumentException();
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Specifies that entries expire once the given duration has
+         * elapsed since they were created, read or their value last
+         * replaced.
+         *
+         * @param duration the duration
+         * @param unit the unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is negative
+         */
+        public Builder<K,V> expireAfterAccess(long duration, TimeUnit unit) {
+            if (duration < 0L)
+                throw new IllegalArgumentException();
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the executor used for maintenance triggered by reads.
+         *
+         * @param executor the executor
+         * @return this builder
+         * @throws NullPointerException if the executor is null
+         */
+        public Builder<K,V> executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * Returns a new cache with the settings of this builder.
+         *
+         * @return a new cache
+         * @throws IllegalStateException if a weigher was supplied without
+         *         a maximum weight, or a maximum weight without a weigher
+         */
+        public ConcurrentCache<K,V> build() {
+            if ((weigher != null) != weighted)
+                throw new IllegalStateException(weighted ?
+                    "maximumWeight requires a weigher" :
+                    "weigher requires maximumWeight");
+            if (weigher == null)
+                weigher = (k, v) -> 1;
+            return new ConcurrentCache<K,V>(this);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link ExecutorService} running large numbers of short-lived,
+ * possibly blocking tasks, called <em>fibers</em>, on a bounded set of
+ * carrier threads of a {@link ForkJoinPool}.  At most {@code
+ * parallelism} fibers are normally <em>runnable</em> at once; others
+ * wait in a FIFO ready queue until they are <em>mounted</em> on a
+ * carrier.  When a mounted fiber blocks through {@link
+ * #managedBlock managedBlock}, it stops counting against the parallelism
+ * and another ready fiber is mounted on a further carrier, up to {@code
+ * maxCarriers}.  When it resumes it counts again, so the number of
+ * runnable fibers briefly exceeds the parallelism until fibers complete.
+ * Thus fibers that block do not starve others of processors, while
+ * fibers that compute are not oversubscribed.
+ *
+ * <p>A blocked fiber continues to occupy its carrier thread: the stack
+ * of a blocked fiber cannot be saved and its carrier reused without
+ * support from the virtual machine.  The number of fibers blocked at
+ * once is therefore bounded by {@code maxCarriers}, and further fibers
+ * remain queued until blocked ones complete.  Carriers are created
+ * lazily, and terminate after a period of disuse, as with any {@code
+ * ForkJoinPool}.
+ *
+ * <p>Blocking is reported by the fiber itself, in the same way as by
+ * tasks running in a {@code ForkJoinPool}: {@link #managedBlock
+ * managedBlock} accepts a {@link ForkJoinPool.ManagedBlocker}, and
+ * releases the fiber's place for as long as the blocker blocks.  A fiber
+ * that blocks by other means, for example by acquiring a lock directly,
+ * keeps counting against the parallelism while it waits.
+ *
+ * <p>Fibers are run to completion in the order they were submitted,
+ * but may complete in any order.  Memory consistency effects: Actions
+ * in a thread prior to submitting a task happen-before the task
+ * begins.
+ *
+ * @author zohar
+ */
+public class FiberExecutor extends AbstractExecutorService {
+
+    /*
+     * Overview:
+     *
+     * Each submitted task is wrapped in a Fiber and placed on the
+     * ready queue.  Mounting a fiber requires a permit, counted by
+     * "runnable", of which there are parallelism; dispatch() moves
+     * fibers from the ready queue to the pool while permits are
+     * available.  A fiber holds its permit while its "counted" field
+     * is COUNTED, and returns it on completion.  managedBlock finds
+     * the fiber of the calling carrier through a thread local set
+     * while the fiber runs, returns its permit (dispatching another
+     * fiber) before blocking, and takes it again afterwards.  Permit
+     * transfers use CAS on "counted", and completion sets it to DONE,
+     * so that a permit is never returned twice or re-acquired by a
+     * completed fiber.
+     *
+     * Lost dispatches are avoided by rechecking: threads that add to
+     * the ready queue, and threads that release permits, both
+     * dispatch afterwards, and dispatch rechecks both conditions.
+     *
+     * Termination follows ThreadPoolExecutor: "active" counts fibers
+     * submitted but not yet completed, and the executor terminates
+     * when it is shut down and active reaches zero.  shutdownNow
+     * removes both the fibers still in the ready queue and those
+     * dispatched to the carrier pool but not yet started, the latter
+     * by draining the pool's queues; a fiber that starts after STOP
+     * runs with its carrier interrupted, as in ThreadPoolExecutor.
+     * execute rechecks the run state after enqueuing, and removes and
+     * rejects the fiber if the executor was shut down meanwhile, so a
+     * fiber offered after shutdownNow drained the queue is not lost.
+     */
+
+    /** The maximum number of carriers, bounded as in ForkJoinPool. */
+    static final int MAX_CARRIERS = 0x7fff;
+
+    /** The fiber running on the current carrier, if any. */
+    static final ThreadLocal<Fiber> currentFiber = new ThreadLocal<Fiber>();
+
+    /* Values of Fiber.counted */
+    static final int UNCOUNTED = 0;
+    static final int COUNTED   = 1;
+    static final int DONE      = 2;
+
+    /* Run states */
+    static final int RUNNING    = 0;
+    static final int SHUTDOWN   = 1;
+    static final int STOP       = 2;
+    static final int TERMINATED = 3;
+
+    /**
+     * A submitted task and the state of its permit.
+     */
+    final class Fiber implements Runnable {
+        final Runnable task;
+        volatile Thread carrier;
+        volatile int counted;
+
+        Fiber(Runnable task) {
+            this.task = task;
+        }
+
+        public void run() {
+            Thread t = Thread.currentThread();
+            carrier = t;
+            mounted.add(this);
+            currentFiber.set(this);
+            // interrupt if stopping, else clear stale interrupts
+            if (runState >= STOP)
+                t.interrupt();
+            else if (Thread.interrupted() && runState >= STOP)
+                t.interrupt();
+            try {
+                task.run();
+            } finally {
+                currentFiber.remove();
+                mounted.remove(this);
+                carrier = null;
+                complete();
+            }
+        }
+
+        /** Returns the permit, if held, and accounts for completion. */
+        final void complete() {
+            if (COUNTED_UPDATER.getAndSet(this, DONE) == COUNTED)
+                runnable.decrementAndGet();
+            dispatch();
+            if (active.decrementAndGet() == 0 && runState != RUNNING)
+                tryTerminate();
+        }
+
+        /**
+         * Blocks with the permit returned; see managedBlock.
+         */
+        final void block(ForkJoinPool.ManagedBlocker blocker)
+            throws InterruptedException {
+            boolean released =
+                COUNTED_UPDATER.compareAndSet(this, COUNTED, UNCOUNTED);
+            if (released) {
+                runnable.decrementAndGet();
+                dispatch();
+            }
+            try {
+                do {} while (!blocker.isReleasable() && !blocker.block());
+            } finally {
+                if (released &&
+                    COUNTED_UPDATER.compareAndSet(this, UNCOUNTED, COUNTED))
+                    runnable.incrementAndGet();
+            }
+        }
+    }
+
+    static final AtomicIntegerFieldUpdater<Fiber> COUNTED_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(Fiber.class, "counted");
+
+    final ForkJoinPool carriers;
+    final int parallelism;
+    final ConcurrentLinkedQueue<Fiber> readyQueue =
+        new ConcurrentLinkedQueue<Fiber>();
+    final Set<Fiber> mounted = ConcurrentHashMap.newKeySet();
+    final AtomicInteger runnable = new AtomicInteger();
+    final AtomicInteger active = new AtomicInteger();
+    volatile int runState;
+
+    private final ReentrantLock mainLock = new ReentrantLock();
+    private final Condition termination = mainLock.newCondition();
+
+    /**
+     * Creates a {@code FiberExecutor} with parallelism equal to {@link
+     * java.lang.Runtime#availableProcessors}, and at most 256 carriers.
+     */
+    public FiberExecutor() {
+        this(Runtime.getRuntime().availableProcessors(), 256);
+    }
+
+    /**
+     * Creates a {@code FiberExecutor} with the given parallelism and
+     * maximum number of carrier threads.
+     *
+     * @param parallelism the number of fibers that may normally be
+     *        runnable at once
+     * @param maxCarriers the maximum number of fibers that may be
+     *        mounted at once, running or blocked
+     * @throws IllegalArgumentException if parallelism is less than or
+     *         equal to zero, or maxCarriers is less than parallelism or
+     *         greater than the implementation limit
+     */
+    public FiberExecutor(int parallelism, int maxCarriers) {
+        if (parallelism <= 0 || maxCarriers < parallelism ||
+            maxCarriers > MAX_CARRIERS)
+            throw new IllegalArgumentException();
+        this.parallelism = parallelism;
+        this.carriers = new ForkJoinPool
+            (maxCarriers, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+             null, true);
+    }
+
+    /**
+     * Blocks in accordance with the given blocker, as by {@link
+     * ForkJoinPool#managedBlock}.  If called from a fiber, the fiber
+     * stops counting against the parallelism of its executor until the
+     * blocker is released, so that another fiber may be mounted
+     * meanwhile.  If called from any other thread, this method behaves
+     * as {@code ForkJoinPool.managedBlock}.
+     *
+     * @param blocker the blocker task
+     * @throws InterruptedException if {@code blocker.block()} did so
+     */
+    public static void managedBlock(ForkJoinPool.ManagedBlocker blocker)
+        throws InterruptedException {
+        Fiber f = currentFiber.get();
+        if (f == null)
+            ForkJoinPool.managedBlock(blocker);
+        else if (!blocker.isReleasable())
+            f.block(blocker);
+    }
+
+    /**
+     * Mounts ready fibers while permits are available.
+     */
+    final void dispatch() {
+        for (int c;;) {
+            if ((c = runnable.get()) >= parallelism || readyQueue.isEmpty())
+                return;
+            if (runState >= STOP)
+                return;
+            if (runnable.compareAndSet(c, c + 1)) {
+                Fiber f = readyQueue.poll();
+                if (f == null)
+                    runnable.decrementAndGet(); // recheck in next iteration
+                else {
+                    f.counted = COUNTED;
+                    carriers.execute(f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transitions to TERMINATED if shut down and no fibers remain.
+     */
+    final void tryTerminate() {
+        if (runState == RUNNING || runState == TERMINATED ||
+            active.get() != 0)
+            return;
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState != TERMINATED && active.get() == 0) {
+                runState = TERMINATED;
+                carriers.shutdown();
+                termination.signalAll();
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Executes the given task as a fiber sometime in the future.
+     *
+     * @param command the task to execute
+     * @throws RejectedExecutionException if this executor has been shut
+     *         down
+     * @throws NullPointerException if {@code command} is null
+     */
+    public void execute(Runnable command) {
+        if (command == null)
+            throw new NullPointerException();
+        active.incrementAndGet();
+        if (runState != RUNNING) {
+            if (active.decrementAndGet() == 0)
+                tryTerminate();
+            throw new RejectedExecutionException("Task " + command.toString() +
+                                                 " rejected from " +
+                                                 toString());
+        }
+        Fiber f = new Fiber(command);
+        readyQueue.offer(f);
+        // Recheck as ThreadPoolExecutor does: shutdownNow may have
+        // drained the ready queue before the offer
+        if (runState != RUNNING && readyQueue.remove(f)) {
+            if (active.decrementAndGet() == 0)
+                tryTerminate();
+            throw new RejectedExecutionException("Task " + command.toString() +
+                                                 " rejected from " +
+                                                 toString());
+        }
+        dispatch();
+    }
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * fibers are executed, but no new tasks will be accepted.
+     * Invocation has no additional effect if already shut down.
+     */
+    public void shutdown() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+    }
+
+    /**
+     * Attempts to stop all mounted fibers by interrupting their
+     * carriers, and returns the tasks of the fibers that were never
+     * mounted, whether still waiting in the ready queue or already
+     * handed to a carrier that had not yet started them.
+     *
+     * @return list of tasks that never commenced execution
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState < STOP)
+                runState = STOP;
+        } finally {
+            mainLock.unlock();
+        }
+        Fiber f;
+        while ((f = readyQueue.poll()) != null) {
+            tasks.add(f.task);
+            active.decrementAndGet();
+        }
+        ArrayList<ForkJoinTask<?>> dispatched = new ArrayList<ForkJoinTask<?>>();
+        carriers.drainTasksTo(dispatched);
+        for (ForkJoinTask<?> t : dispatched) {
+            Runnable r;
+            if (t instanceof ForkJoinTask.RunnableExecuteAction &&
+                (r = ((ForkJoinTask.RunnableExecuteAction)t).runnable)
+                instanceof Fiber) {
+                f = (Fiber)r;
+                tasks.add(f.task);
+                f.complete();
+            }
+        }
+        for (Fiber m : mounted) {
+            Thread t = m.carrier;
+            if (t != null)
+                t.interrupt();
+        }
+        tryTerminate();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            for (;;) {
+                if (runState == TERMINATED)
+                    return true;
+                if (nanos <= 0)
+                    return false;
+                nanos = termination.awaitNanos(nanos);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of fibers that may normally be runnable at
+     * once.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the number of fibers currently mounted on carriers,
+     * whether running or blocked.
+     *
+     * @return the number of mounted fibers
+     */
+    public int getMountedCount() {
+        return mounted.size();
+    }
+
+    /**
+     * Returns an estimate of the number of fibers waiting to be
+     * mounted.
+     *
+     * @return the number of queued fibers
+     */
+    public int getQueuedCount() {
+        return readyQueue.size();
+    }
+
+    /**
+     * Returns a string identifying this executor, as well as its state.
+     *
+     * @return a string identifying this executor, as well as its state
+     */
+    public String toString() {
+        int rs = runState;
+        String state = (rs == RUNNING ? "Running" :
+                        rs == TERMINATED ? "Terminated" : "Shutting down");
+        return super.toString() +
+            "[" + state +
+            ", parallelism = " + parallelism +
+            ", mounted = " + mounted.size() +
+            ", runnable = " + runnable.get() +
+            ", queued = " + readyQueue.size() + "]";
+    }
+}
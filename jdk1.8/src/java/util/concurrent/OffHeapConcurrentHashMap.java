@@ -0,0 +1,1556 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A hash table supporting full concurrency of retrievals and high
+ * expected concurrency for updates, whose keys and values are stored
+ * outside the Java heap.  Each mapping is serialized, using the
+ * {@link Serializer}s supplied at construction, into memory carved from
+ * direct {@link ByteBuffer} segments, so that a map holding very many
+ * mappings contributes only its bin table and a few bookkeeping objects
+ * to garbage collection work.  Keys and values are deserialized anew on
+ * each retrieval; callers never observe the stored objects themselves.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does not allow
+ * {@code null} to be used as a key or value, its table is resized
+ * cooperatively by all threads that update it while a resize is in
+ * progress, and its iterators are weakly consistent.  Unlike
+ * {@code ConcurrentHashMap}, each bin is guarded by one of a fixed set of
+ * lock stripes, held in read mode by retrievals and in write mode by
+ * updates, since memory released by a removal may be reused at once.
+ *
+ * <p>Two keys are considered equal if their serialized forms are equal,
+ * and a key's bin is selected by its {@link Object#hashCode}.  Key
+ * serializers must therefore produce identical bytes for keys that are
+ * {@code equals}, and key classes must have {@code hashCode} methods
+ * consistent with {@code equals}.  Value comparisons, as in
+ * {@link #remove(Object, Object)}, likewise compare serialized forms.
+ *
+ * <p>Off-heap memory is reserved in segments, and memory released by
+ * removals is retained for reuse by later insertions; the totals are
+ * reported by {@link #reservedMemory} and {@link #usedMemory}.  All of
+ * it is released when the map is {@linkplain #close closed}, without
+ * waiting for the garbage collector to reclaim the segments.  Closing
+ * waits for operations already in progress in other threads to
+ * complete, and every subsequent operation on a closed map other than
+ * {@link #size}, {@link #isEmpty} and {@link #close} throws
+ * {@link IllegalStateException}.
+ *
+ * @author zohar
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapConcurrentHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V>, AutoCloseable {
+
+    /*
+     * Overview:
+     *
+     * The table is a long[] of entry addresses rather than an array
+     * of Nodes.  An address combines a segment index (high 32 bits)
+     * and an offset within that segment (low 32 bits); zero is the
+     * null address since segment 0 is never used.  Entries are laid
+     * out as
+     *
+     *   [next address: 8][hash: 4][key length: 4][value length: 4]
+     *   [key bytes][value bytes]
+     *
+     * and chained through their next fields as in the lists of
+     * ConcurrentHashMap.
+     *
+     * Because an entry may be freed and its memory reused as soon as
+     * it is unlinked, readers cannot traverse bins without locking as
+     * they can in ConcurrentHashMap.  Instead bins are guarded by a
+     * fixed power-of-two array of StampedLocks, bin i by lock
+     * (i & (locks.length - 1)).  All tables are at least as long as
+     * the lock array, so when a table of length n is doubled, bins i
+     * and i + n of the new table share the lock of bin i of the old
+     * one.  This lets a bin be transferred, and its forwarding marker
+     * (MOVED) installed, while holding a single lock, after which
+     * readers and writers encountering the marker retry on the next
+     * table under the same lock.  Bin array elements are only ever
+     * accessed under their lock, so need no volatile access.
+     *
+     * Resizing otherwise follows ConcurrentHashMap: sizeCtl holds the
+     * resize stamp and count of resizers, and threads claim strides
+     * of bins via transferIndex.  Element count is maintained in a
+     * LongAdder.
+     *
+     * Memory is managed by an Arena using size classes in the style
+     * of slab allocators: each class takes whole segments and carves
+     * them into chunks of its size, keeping freed chunks on a free
+     * list threaded through their first eight bytes.  Entries larger
+     * than a segment get a dedicated segment, released on removal.
+     *
+     * Every operation that touches entry memory, including the
+     * allocation of new entries before a bin is locked and the release
+     * of replaced ones after it is unlocked, runs between enter() and
+     * exit(), which count it in one of a few padded slots of array
+     * active chosen by thread probe, as in LongAdder.  close() sets
+     * closed and then waits for all slots to drain before releasing
+     * the arena, parking until the last operation to exit unparks it.
+     * An operation increments its slot before reading closed, and
+     * close() writes closed before reading the slots, so either the
+     * operation sees closed and backs out, or close() sees it and
+     * waits.  Operations already in progress when the map is closed
+     * thus complete normally; they need no further checks.
+     */
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The largest possible table capacity.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The default initial table capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The default number of lock stripes.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 256;
+
+    /**
+     * The largest possible number of lock stripes.
+     */
+    private static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
+    /**
+     * The default size of memory segments, in bytes.
+     */
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+    /**
+     * The smallest permitted segment size, in bytes.
+     */
+    private static final int MIN_SEGMENT_SIZE = 1 << 12;
+
+    /**
+     * The distance, in ints, between slots of the active array, so
+     * that each slot is on its own cache line.
+     */
+    private static final int ACTIVE_STRIDE = 16;
+
+    /**
+     * Minimum number of rebinnings per transfer step.
+     */
+    private static final int MIN_TRANSFER_STRIDE = 16;
+
+    /**
+     * The number of bits used for generation stamp in sizeCtl.
+     */
+    private static final int RESIZE_STAMP_BITS = 16;
+
+    /**
+     * The maximum number of threads that can help resize.
+     */
+    private static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
+
+    /**
+     * The bit shift for recording size stamp in sizeCtl.
+     */
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Bin marker for forwarded bins */
+    static final long MOVED = -1L;
+
+    static final int HASH_BITS = 0x7fffffff; // usable bits of normal node hash
+
+    // Entry layout
+    static final int NEXT   = 0;
+    static final int HASH   = 8;
+    static final int KLEN   = 12;
+    static final int VLEN   = 16;
+    static final int HEADER = 20;
+
+    /* ---------------- Serializers -------------- */
+
+    /**
+     * Converts keys or values to and from the bytes stored off-heap.
+     * Implementations must be thread-safe, and
+     * {@link #serialize serialize} must write exactly
+     * {@link #serializedSize serializedSize} bytes.
+     *
+     * @param <T> the type of serialized objects
+     */
+    public interface Serializer<T> {
+        /**
+         * Returns the number of bytes needed to serialize the given object.
+         *
+         * @param t the object
+         * @return the serialized size, in bytes
+         */
+        int serializedSize(T t);
+
+        /**
+         * Writes the given object to the buffer, starting at its current
+         * position.
+         *
+         * @param t the object
+         * @param dst the destination buffer
+         */
+        void serialize(T t, ByteBuffer dst);
+
+        /**
+         * Reads an object from the given buffer, whose position and limit
+         * span exactly the bytes previously written by
+         * {@link #serialize serialize}.
+         *
+         * @param src the source buffer
+         * @return the object
+         */
+        T deserialize(ByteBuffer src);
+    }
+
+    /**
+     * Returns a serializer storing strings as their UTF-16 code units.
+     *
+     * @return a serializer for strings
+     */
+    public static Serializer<String> stringSerializer() {
+        return StringSerializer.INSTANCE;
+    }
+
+    /**
+     * Returns a serializer storing byte arrays verbatim.  Since arrays
+     * use identity-based {@code hashCode}, it is suitable only for values.
+     *
+     * @return a serializer for byte arrays
+     */
+    public static Serializer<byte[]> byteArraySerializer() {
+        return ByteArraySerializer.INSTANCE;
+    }
+
+    static final class StringSerializer implements Serializer<String> {
+        static final StringSerializer INSTANCE = new StringSerializer();
+        public int serializedSize(String s) { return s.length() << 1; }
+        public void serialize(String s, ByteBuffer dst) {
+            for (int i = 0, n = s.length(); i < n; ++i)
+                dst.putChar(s.charAt(i));
+        }
+        public String deserialize(ByteBuffer src) {
+            char[] cs = new char[src.remaining() >>> 1];
+            src.asCharBuffer().get(cs);
+            return new String(cs);
+        }
+    }
+
+    static final class ByteArraySerializer implements Serializer<byte[]> {
+        static final ByteArraySerializer INSTANCE = new ByteArraySerializer();
+        public int serializedSize(byte[] b) { return b.length; }
+        public void serialize(byte[] b, ByteBuffer dst) { dst.put(b); }
+        public byte[] deserialize(ByteBuffer src) {
+            byte[] b = new byte[src.remaining()];
+            src.get(b);
+            return b;
+        }
+    }
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The array of bins. Lazily initialized upon first insertion.
+     * Size is always a power of two, and at least locks.length.
+     */
+    transient volatile long[] table;
+
+    /**
+     * The next table to use; non-null only while resizing.
+     */
+    private transient volatile long[] nextTable;
+
+    /**
+     * Table initialization and resizing control, as in
+     * ConcurrentHashMap.
+     */
+    private transient volatile int sizeCtl;
+
+    /**
+     * The next table index (plus one) to split while resizing.
+     */
+    private transient volatile int transferIndex;
+
+    /**
+     * Set when closed; checked by enter().
+     */
+    private transient volatile boolean closed;
+
+    /**
+     * The thread closing this map, set before closed.
+     */
+    private transient volatile Thread closer;
+
+    /**
+     * Counts of operations in progress, in slots ACTIVE_STRIDE apart.
+     */
+    private final int[] active;
+
+    /** Bin lock stripes */
+    private final StampedLock[] locks;
+
+    /** Mapping count */
+    private final LongAdder count;
+
+    /** Off-heap memory */
+    private final Arena arena;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+    // views
+    private transient EntrySetView<K,V> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the default initial table size (16),
+     * concurrency level (256) and segment size (1 MiB).
+     *
+     * @param keySerializer the key serializer
+     * @param valueSerializer the value serializer
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapConcurrentHashMap(Serializer<K> keySerializer,
+                                    Serializer<V> valueSerializer) {
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, DEFAULT_SEGMENT_SIZE,
+             keySerializer, valueSerializer);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size accommodating
+     * the specified number of elements, the specified number of lock
+     * stripes, and the specified size of off-heap memory segments.
+     *
+     * @param initialCapacity the initial capacity
+     * @param concurrencyLevel the estimated number of concurrently
+     * updating threads; rounded up to a power of two lock stripes
+     * @param segmentSize the size in bytes of each memory segment
+     * reserved for entries not larger than it
+     * @param keySerializer the key serializer
+     * @param valueSerializer the value serializer
+     * @throws IllegalArgumentException if the initial capacity is
+     * negative, the concurrency level is nonpositive, or the segment
+     * size is less than 4096 bytes or not a power of two
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapConcurrentHashMap(int initialCapacity,
+                                    int concurrencyLevel,
+                                    int segmentSize,
+                                    Serializer<K> keySerializer,
+                                    Serializer<V> valueSerializer) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0 ||
+            segmentSize < MIN_SEGMENT_SIZE ||
+            (segmentSize & (segmentSize - 1)) != 0)
+            throw new IllegalArgumentException();
+        if (keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        int nlocks = tableSizeFor(Math.min(concurrencyLevel,
+                                           MAX_CONCURRENCY_LEVEL));
+        StampedLock[] ls = new StampedLock[nlocks];
+        for (int i = 0; i < nlocks; ++i)
+            ls[i] = new StampedLock();
+        long size = (long)(1.0 + (long)initialCapacity / 0.75f);
+        int cap = (size >= (long)MAXIMUM_CAPACITY) ?
+            MAXIMUM_CAPACITY : tableSizeFor((int)size);
+        this.sizeCtl = Math.max(cap, nlocks);
+        this.locks = ls;
+        this.active = new int[Math.min(nlocks, tableSizeFor(NCPU << 1)) *
+                              ACTIVE_STRIDE];
+        this.count = new LongAdder();
+        this.arena = new Arena(segmentSize);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        long n = count.sum();
+        return ((n < 0L) ? 0 :
+                (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int)n);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        return count.sum() <= 0L; // ignore transient negative values
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because a map may contain more mappings
+     * than can be represented as an int.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = count.sum();
+        return (n < 0L) ? 0L : n; // ignore transient negative values
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory currently reserved
+     * by this map, including memory freed by removals and retained for
+     * reuse.
+     *
+     * @return the reserved off-heap memory, in bytes
+     */
+    public long reservedMemory() {
+        return arena.reserved;
+    }
+
+    /**
+     * Returns the number of bytes of off-heap memory currently occupied
+     * by mappings, including per-entry headers and size-class rounding.
+     *
+     * @return the used off-heap memory, in bytes
+     */
+    public long usedMemory() {
+        return arena.used.sum();
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws ClassCastException if the key is not of the type handled
+     *         by the key serializer
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V get(Object key) {
+        @SuppressWarnings("unchecked") K k = (K)key;
+        byte[] kb = serialize(keySerializer, k);
+        int h = spread(key.hashCode());
+        int a = enter();
+        try {
+            long[] tab = table;
+            while (tab != null) {
+                int i = (tab.length - 1) & h;
+                StampedLock lock = lockFor(i);
+                long stamp = lock.readLock();
+                try {
+                    long f = tab[i];
+                    if (f != MOVED) {
+                        long e = find(f, h, kb);
+                        return (e == 0L) ? null :
+                            read(valueSerializer, e, HEADER + kb.length,
+                                 vlen(e));
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+                tab = forwardTable(tab);
+            }
+            return null;
+        } finally {
+            exit(a);
+        }
+    }
+
+    /**
+     * Tests if the specified object is a key in this table.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this table
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean containsKey(Object key) {
+        @SuppressWarnings("unchecked") K k = (K)key;
+        byte[] kb = serialize(keySerializer, k);
+        int h = spread(key.hashCode());
+        int a = enter();
+        try {
+            long[] tab = table;
+            while (tab != null) {
+                int i = (tab.length - 1) & h;
+                StampedLock lock = lockFor(i);
+                long stamp = lock.readLock();
+                try {
+                    long f = tab[i];
+                    if (f != MOVED)
+                        return find(f, h, kb) != 0L;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+                tab = forwardTable(tab);
+            }
+            return false;
+        } finally {
+            exit(a);
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * Neither the key nor the value can be null.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /** Implementation for put and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) throw new NullPointerException();
+        byte[] kb = serialize(keySerializer, key);
+        byte[] vb = serialize(valueSerializer, value);
+        int h = spread(key.hashCode());
+        int a = enter();
+        try {
+            long node = newEntry(h, kb, vb), garbage = 0L;
+            V oldVal = null;
+            long[] tab = table;
+            for (;;) {
+                int n, i;
+                if (tab == null || (n = tab.length) == 0) {
+                    tab = initTable();
+                    continue;
+                }
+                StampedLock lock = lockFor(i = (n - 1) & h);
+                long stamp = lock.writeLock();
+                long f;
+                try {
+                    if ((f = tab[i]) != MOVED) {
+                        long pred = 0L, e = f;
+                        while (e != 0L && !matches(e, h, kb)) {
+                            pred = e;
+                            e = next(e);
+                        }
+                        if (e == 0L) {
+                            setNext(node, f);
+                            tab[i] = node;
+                        }
+                        else {
+                            oldVal = read(valueSerializer, e,
+                                          HEADER + kb.length, vlen(e));
+                            if (onlyIfAbsent)
+                                garbage = node;
+                            else {
+                                setNext(node, next(e));
+                                if (pred == 0L)
+                                    tab[i] = node;
+                                else
+                                    setNext(pred, node);
+                                garbage = e;
+                            }
+                        }
+                    }
+                } catch (Throwable ex) {
+                    arena.free(node, entrySize(node));
+                    throw ex;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                if (f == MOVED)
+                    tab = helpTransfer(tab);
+                else
+                    break;
+            }
+            if (garbage != 0L)
+                arena.free(garbage, entrySize(garbage));
+            if (oldVal == null)
+                addCount(1L, true);
+            return oldVal;
+        } finally {
+            exit(a);
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V remove(Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if this map has been closed
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(key, value, null);
+    }
+
+    /**
+     * Implementation for the four public remove/replace methods:
+     * Replaces node value with v, conditional upon match of cv if
+     * non-null.  If resulting value is null, delete.
+     */
+    final V replaceNode(Object key, V value, Object cv) {
+        @SuppressWarnings("unchecked") K k = (K)key;
+        byte[] kb = serialize(keySerializer, k);
+        byte[] cb = null;
+        if (cv != null) {
+            @SuppressWarnings("unchecked") V c = (V)cv;
+            cb = serialize(valueSerializer, c);
+        }
+        byte[] vb = (value == null) ? null : serialize(valueSerializer, value);
+        int h = spread(key.hashCode());
+        int a = enter();
+        try {
+            long node = (vb == null) ? 0L : newEntry(h, kb, vb);
+            long garbage = 0L;
+            V oldVal = null;
+            long[] tab = table;
+            while (tab != null) {
+                int i = (tab.length - 1) & h;
+                StampedLock lock = lockFor(i);
+                long stamp = lock.writeLock();
+                long f;
+                try {
+                    if ((f = tab[i]) != MOVED) {
+                        long pred = 0L, e = f;
+                        while (e != 0L && !matches(e, h, kb)) {
+                            pred = e;
+                            e = next(e);
+                        }
+                        if (e != 0L &&
+                            (cb == null ||
+                             valueEquals(e, HEADER + kb.length, cb))) {
+                            oldVal = read(valueSerializer, e,
+                                          HEADER + kb.length, vlen(e));
+                            long succ = next(e);
+                            if (node != 0L) {
+                                setNext(node, succ);
+                                succ = node;
+                                node = 0L;
+                            }
+                            if (pred == 0L)
+                                tab[i] = succ;
+                            else
+                                setNext(pred, succ);
+                            garbage = e;
+                        }
+                    }
+                } catch (Throwable ex) {
+                    if (node != 0L)
+                        arena.free(node, entrySize(node));
+                    throw ex;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                if (f == MOVED)
+                    tab = helpTransfer(tab);
+                else
+                    break;
+            }
+            if (node != 0L)
+                arena.free(node, entrySize(node));
+            if (garbage != 0L) {
+                arena.free(garbage, entrySize(garbage));
+                if (value == null)
+                    addCount(-1L, false);
+            }
+            return oldVal;
+        } finally {
+            exit(a);
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map, releasing their memory
+     * for reuse.
+     *
+     * @throws IllegalStateException if this map has been closed
+     */
+    public void clear() {
+        int a = enter();
+        try {
+            long delta = 0L;
+            long[] tab = table;
+            if (tab != null)
+                delta = clearBins(tab);
+            if (delta != 0L)
+                addCount(-delta, false);
+        } finally {
+            exit(a);
+        }
+    }
+
+    /**
+     * Clears all bins of tab, following forwarded bins.
+     *
+     * @return the number of mappings removed
+     */
+    private long clearBins(long[] tab) {
+        long delta = 0L;
+        int n = tab.length;
+        for (int i = 0; i < n; ++i) {
+            StampedLock lock = lockFor(i);
+            long stamp = lock.writeLock();
+            long f;
+            try {
+                if ((f = tab[i]) != MOVED) {
+                    tab[i] = 0L;
+                    for (long e = f, nx; e != 0L; e = nx) {
+                        nx = next(e);
+                        arena.free(e, entrySize(e));
+                        ++delta;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (f == MOVED)
+                return delta + clearBins(helpTransfer(tab));
+        }
+        return delta;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, but its iterators return entries
+     * holding copies of keys and values deserialized when the iterator
+     * reaches their bin.  The iterators are weakly consistent, and
+     * {@link Map.Entry#setValue} writes through to the map.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es;
+        return (es = entrySet) != null ? es :
+            (entrySet = new EntrySetView<K,V>(this));
+    }
+
+    /**
+     * Releases all off-heap memory held by this map.  Operations in
+     * progress in other threads are allowed to complete first, and this
+     * method waits for them to do so.  After this call the map is empty
+     * and every subsequent operation other than {@link #size},
+     * {@link #isEmpty} and {@code close} throws
+     * {@link IllegalStateException}.  Closing a closed map has no effect;
+     * if several threads close a map at once, one of them waits for and
+     * performs the release while the others return immediately.  This
+     * method must not be called by a {@link Serializer} of this map.
+     */
+    public void close() {
+        Thread t = Thread.currentThread();
+        if (closed || !U.compareAndSwapObject(this, CLOSER, null, t))
+            return;
+        closed = true;
+        boolean interrupted = false;
+        int[] as = active;
+        for (int i = 0; i < as.length; i += ACTIVE_STRIDE) {
+            while (U.getIntVolatile(as, activeOffset(i)) != 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                    interrupted = true;
+            }
+        }
+        table = null;
+        nextTable = null;
+        count.reset();
+        arena.release();
+        if (interrupted)
+            t.interrupt();
+    }
+
+    /* ---------------- Static utilities -------------- */
+
+    /**
+     * Spreads (XORs) higher bits of hash to lower and also forces top
+     * bit to 0, as in ConcurrentHashMap.
+     */
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    /**
+     * Returns a power of two table size for the given desired capacity.
+     */
+    private static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * Returns the stamp bits for resizing a table of size n.
+     * Must be negative when shifted left by RESIZE_STAMP_SHIFT.
+     */
+    static final int resizeStamp(int n) {
+        return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+    }
+
+    static <T> byte[] serialize(Serializer<T> s, T t) {
+        byte[] b = new byte[s.serializedSize(t)];
+        ByteBuffer buf = ByteBuffer.wrap(b);
+        s.serialize(t, buf);
+        if (buf.hasRemaining())
+            throw new IllegalStateException("Serializer wrote " +
+                                            buf.position() + " of " +
+                                            b.length + " bytes");
+        return b;
+    }
+
+    /* ---------------- Entry access -------------- */
+
+    private StampedLock lockFor(int i) {
+        return locks[i & (locks.length - 1)];
+    }
+
+    private static long activeOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Registers an operation that may touch entry memory, throwing
+     * IllegalStateException if the map is closed.
+     *
+     * @return the slot to pass to exit
+     */
+    private int enter() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit(); // force initialization
+            h = ThreadLocalRandom.getProbe();
+        }
+        int[] as = active;
+        int i = (h & (as.length / ACTIVE_STRIDE - 1)) * ACTIVE_STRIDE;
+        U.getAndAddInt(as, activeOffset(i), 1);
+        if (closed) {
+            exit(i);
+            throw new IllegalStateException("Map is closed");
+        }
+        return i;
+    }
+
+    /**
+     * Ends an operation registered by enter, waking up a closing
+     * thread if it was the last one in its slot.
+     */
+    private void exit(int i) {
+        Thread w;
+        if (U.getAndAddInt(active, activeOffset(i), -1) == 1 && closed &&
+            (w = closer) != null)
+            LockSupport.unpark(w);
+    }
+
+    final long next(long e) { return arena.getLong(e, NEXT); }
+    final void setNext(long e, long nx) { arena.putLong(e, NEXT, nx); }
+    final int hash(long e) { return arena.getInt(e, HASH); }
+    final int klen(long e) { return arena.getInt(e, KLEN); }
+    final int vlen(long e) { return arena.getInt(e, VLEN); }
+
+    final int entrySize(long e) {
+        return HEADER + klen(e) + vlen(e);
+    }
+
+    /**
+     * Allocates and fills in an unlinked entry.
+     */
+    final long newEntry(int h, byte[] kb, byte[] vb) {
+        long e = arena.allocate(HEADER + kb.length + vb.length);
+        arena.putLong(e, NEXT, 0L);
+        arena.putInt(e, HASH, h);
+        arena.putInt(e, KLEN, kb.length);
+        arena.putInt(e, VLEN, vb.length);
+        arena.put(e, HEADER, kb);
+        arena.put(e, HEADER + kb.length, vb);
+        return e;
+    }
+
+    /**
+     * Returns true if entry e has the given hash and serialized key.
+     */
+    final boolean matches(long e, int h, byte[] kb) {
+        return hash(e) == h && klen(e) == kb.length &&
+            arena.regionEquals(e, HEADER, kb);
+    }
+
+    final boolean valueEquals(long e, int off, byte[] vb) {
+        return vlen(e) == vb.length && arena.regionEquals(e, off, vb);
+    }
+
+    /**
+     * Returns the entry in list f matching h and kb, or zero.
+     */
+    final long find(long f, int h, byte[] kb) {
+        for (long e = f; e != 0L; e = next(e)) {
+            if (matches(e, h, kb))
+                return e;
+        }
+        return 0L;
+    }
+
+    final <T> T read(Serializer<T> s, long e, int off, int len) {
+        return s.deserialize(arena.slice(e, off, len));
+    }
+
+    /* ---------------- Table Initialization and Resizing -------------- */
+
+    /**
+     * Initializes table, using the size recorded in sizeCtl.
+     */
+    private final long[] initTable() {
+        long[] tab; int sc;
+        while ((tab = table) == null || tab.length == 0) {
+            if ((sc = sizeCtl) < 0)
+                Thread.yield(); // lost initialization race; just spin
+            else if (U.compareAndSwapInt(this, SIZECTL, sc, -1)) {
+                try {
+                    if ((tab = table) == null || tab.length == 0) {
+                        int n = (sc > 0) ? sc : DEFAULT_CAPACITY;
+                        table = tab = new long[n];
+                        sc = n - (n >>> 2);
+                    }
+                } finally {
+                    sizeCtl = sc;
+                }
+                break;
+            }
+        }
+        return tab;
+    }
+
+    /**
+     * Returns the table holding the contents of a forwarded bin of tab:
+     * the current table if tab has since been replaced, else the table
+     * being transferred to.
+     */
+    private long[] forwardTable(long[] tab) {
+        for (;;) {
+            long[] t, nt;
+            if ((t = table) != tab)
+                return t;
+            if ((nt = nextTable) != null && table == tab)
+                return nt;
+            Thread.yield(); // transfer is being committed
+        }
+    }
+
+    /**
+     * Adds to count, and if table is too small and not already
+     * resizing, initiates transfer. If already resizing, helps
+     * perform transfer if work is available.
+     *
+     * @param x the count to add
+     * @param check whether to check for resizing
+     */
+    private final void addCount(long x, boolean check) {
+        count.add(x);
+        if (check) {
+            long s = count.sum();
+            long[] tab, nt; int n, sc;
+            while (s >= (long)(sc = sizeCtl) && (tab = table) != null &&
+                   (n = tab.length) < MAXIMUM_CAPACITY) {
+                int rs = resizeStamp(n) << RESIZE_STAMP_SHIFT;
+                if (sc < 0) {
+                    if ((sc & ~MAX_RESIZERS) != rs || sc == rs + 1 ||
+                        sc == rs + MAX_RESIZERS || (nt = nextTable) == null ||
+                        transferIndex <= 0)
+                        break;
+                    if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1))
+                        transfer(tab, nt);
+                }
+                else if (U.compareAndSwapInt(this, SIZECTL, sc, rs + 2))
+                    transfer(tab, null);
+                s = count.sum();
+            }
+        }
+    }
+
+    /**
+     * Helps transfer if a resize of tab is in progress, and returns
+     * the table to retry on.
+     */
+    final long[] helpTransfer(long[] tab) {
+        long[] nextTab; int sc;
+        if ((nextTab = nextTable) != null && table == tab) {
+            int rs = resizeStamp(tab.length) << RESIZE_STAMP_SHIFT;
+            while (nextTab == nextTable && table == tab &&
+                   (sc = sizeCtl) < 0) {
+                if ((sc & ~MAX_RESIZERS) != rs || sc == rs + 1 ||
+                    sc == rs + MAX_RESIZERS || transferIndex <= 0)
+                    break;
+                if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {
+                    transfer(tab, nextTab);
+                    break;
+                }
+            }
+        }
+        return forwardTable(tab);
+    }
+
+    /**
+     * Moves and/or copies the entries in each bin to new table,
+     * relinking them in place.  See ConcurrentHashMap.transfer for the
+     * claiming and completion protocol.
+     */
+    private final void transfer(long[] tab, long[] nextTab) {
+        int n = tab.length, stride;
+        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE; // subdivide range
+        if (nextTab == null) {            // initiating
+            try {
+                nextTab = new long[n << 1];
+            } catch (Throwable ex) {      // try to cope with OOME
+                sizeCtl = Integer.MAX_VALUE;
+                return;
+            }
+            nextTable = nextTab;
+            transferIndex = n;
+        }
+        int nextn = nextTab.length;
+        boolean advance = true;
+        boolean finishing = false; // to ensure sweep before committing nextTab
+        for (int i = 0, bound = 0;;) {
+            while (advance) {
+                int nextIndex, nextBound;
+                if (--i >= bound || finishing)
+                    advance = false;
+                else if ((nextIndex = transferIndex) <= 0) {
+                    i = -1;
+                    advance = false;
+                }
+                else if (U.compareAndSwapInt
+                         (this, TRANSFERINDEX, nextIndex,
+                          nextBound = (nextIndex > stride ?
+                                       nextIndex - stride : 0))) {
+                    bound = nextBound;
+                    i = nextIndex - 1;
+                    advance = false;
+                }
+            }
+            if (i < 0 || i >= n || i + n >= nextn) {
+                int sc;
+                if (finishing) {
+                    nextTable = null;
+                    table = nextTab;
+                    sizeCtl = (n << 1) - (n >>> 1);
+                    return;
+                }
+                if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                        return;
+                    finishing = advance = true;
+                    i = n; // recheck before commit
+                }
+            }
+            else {
+                StampedLock lock = lockFor(i);
+                long stamp = lock.writeLock();
+                try {
+                    long f;
+                    if ((f = tab[i]) != MOVED) {
+                        long ln = 0L, hn = 0L;
+                        for (long e = f, nx; e != 0L; e = nx) {
+                            nx = next(e);
+                            if ((hash(e) & n) == 0) {
+                                setNext(e, ln);
+                                ln = e;
+                            }
+                            else {
+                                setNext(e, hn);
+                                hn = e;
+                            }
+                        }
+                        nextTab[i] = ln;
+                        nextTab[i + n] = hn;
+                        tab[i] = MOVED;
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                advance = true;
+            }
+        }
+    }
+
+    /* ---------------- Off-heap memory -------------- */
+
+    /**
+     * Allocator of entry memory from direct buffer segments.  Each size
+     * class takes whole segments, carving them lazily into chunks, and
+     * keeps freed chunks on a list linked through their first word.
+     * Requests larger than a segment are given a segment of their own,
+     * released when freed.
+     */
+    static final class Arena {
+        /** Smallest chunk size; must hold an entry header */
+        static final int MIN_CHUNK = 32;
+
+        final int segmentSize;
+        final int[] chunkSizes;       // size of each class, ascending
+        final Object[] classLocks;    // guard the following per-class state
+        final long[] freeLists;       // head of free chunk list
+        final long[] carveNext;       // next never-used chunk
+        final int[] carveLeft;        // number of never-used chunks left
+
+        /** Segments, indexed by the high word of addresses */
+        volatile ByteBuffer[] segments;
+        int segmentCount;             // guarded by this; slot 0 unused
+        int[] freeSlots;              // slots of released large segments
+        int freeSlotCount;
+        volatile long reserved;
+        final LongAdder used = new LongAdder();
+
+        Arena(int segmentSize) {
+            this.segmentSize = segmentSize;
+            int[] sizes = new int[64];
+            int n = 0;
+            for (int s = MIN_CHUNK; s < segmentSize; s = ((s + (s >>> 2)) + 7) & ~7) {
+                if (n == sizes.length)
+                    sizes = Arrays.copyOf(sizes, n << 1);
+                sizes[n++] = s;
+            }
+            if (n == sizes.length)
+                sizes = Arrays.copyOf(sizes, n + 1);
+            sizes[n++] = segmentSize;
+            this.chunkSizes = Arrays.copyOf(sizes, n);
+            this.classLocks = new Object[n];
+            for (int i = 0; i < n; ++i)
+                classLocks[i] = new Object();
+            this.freeLists = new long[n];
+            this.carveNext = new long[n];
+            this.carveLeft = new int[n];
+            this.segments = new ByteBuffer[16];
+            this.segmentCount = 1;
+            this.freeSlots = new int[4];
+        }
+
+        /**
+         * Returns the size class for the given request, or -1 if
+         * larger than a segment.
+         */
+        final int classFor(int size) {
+            if (size > segmentSize)
+                return -1;
+            int c = Arrays.binarySearch(chunkSizes, size);
+            return (c >= 0) ? c : -(c + 1);
+        }
+
+        final long allocate(int size) {
+            int c = classFor(size);
+            if (c < 0)
+                return (long)newSegment(size) << 32;
+            synchronized (classLocks[c]) {
+                long a = freeLists[c];
+                if (a != 0L)
+                    freeLists[c] = getLong(a, 0);
+                else {
+                    if (carveLeft[c] == 0) {
+                        carveNext[c] = (long)newSegment(segmentSize) << 32;
+                        carveLeft[c] = segmentSize / chunkSizes[c];
+                    }
+                    a = carveNext[c];
+                    carveNext[c] = a + chunkSizes[c];
+                    --carveLeft[c];
+                }
+                used.add(chunkSizes[c]);
+                return a;
+            }
+        }
+
+        final void free(long a, int size) {
+            int c = classFor(size);
+            if (segments == null)
+                return; // released by close
+            if (c < 0) {
+                releaseSegment((int)(a >>> 32));
+                used.add(-size);
+            }
+            else {
+                synchronized (classLocks[c]) {
+                    putLong(a, 0, freeLists[c]);
+                    freeLists[c] = a;
+                    used.add(-chunkSizes[c]);
+                }
+            }
+        }
+
+        /**
+         * Reserves a new direct segment, returning its index.
+         */
+        final synchronized int newSegment(int size) {
+            if (segments == null)
+                throw new IllegalStateException("Map is closed");
+            ByteBuffer seg = ByteBuffer.allocateDirect(size)
+                .order(ByteOrder.nativeOrder());
+            int idx;
+            if (freeSlotCount > 0)
+                idx = freeSlots[--freeSlotCount];
+            else {
+                ByteBuffer[] segs = segments;
+                if ((idx = segmentCount++) == segs.length)
+                    segments = segs = Arrays.copyOf(segs, idx << 1);
+            }
+            segments[idx] = seg;
+            if (size > segmentSize)
+                used.add(size);
+            reserved += size;
+            return idx;
+        }
+
+        final synchronized void releaseSegment(int idx) {
+            ByteBuffer[] segs; ByteBuffer seg;
+            if ((segs = segments) != null && (seg = segs[idx]) != null) {
+                segs[idx] = null;
+                reserved -= seg.capacity();
+                if (freeSlotCount == freeSlots.length)
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+                freeSlots[freeSlotCount++] = idx;
+                clean(seg);
+            }
+        }
+
+        /**
+         * Releases all segments.
+         */
+        final synchronized void release() {
+            ByteBuffer[] segs = segments;
+            segments = null;
+            if (segs != null) {
+                for (ByteBuffer seg : segs) {
+                    if (seg != null)
+                        clean(seg);
+                }
+            }
+            reserved = 0L;
+            used.reset();
+        }
+
+        static void clean(ByteBuffer seg) {
+            sun.misc.Cleaner c = ((DirectBuffer)seg).cleaner();
+            if (c != null)
+                c.clean();
+        }
+
+        final ByteBuffer segment(long a) {
+            ByteBuffer[] segs; ByteBuffer seg;
+            if ((segs = segments) == null ||
+                (seg = segs[(int)(a >>> 32)]) == null)
+                throw new IllegalStateException("Map is closed");
+            return seg;
+        }
+
+        final long getLong(long a, int off) {
+            return segment(a).getLong((int)a + off);
+        }
+
+        final void putLong(long a, int off, long x) {
+            segment(a).putLong((int)a + off, x);
+        }
+
+        final int getInt(long a, int off) {
+            return segment(a).getInt((int)a + off);
+        }
+
+        final void putInt(long a, int off, int x) {
+            segment(a).putInt((int)a + off, x);
+        }
+
+        final void put(long a, int off, byte[] b) {
+            ByteBuffer dst = segment(a).duplicate();
+            dst.position((int)a + off);
+            dst.put(b);
+        }
+
+        final boolean regionEquals(long a, int off, byte[] b) {
+            ByteBuffer seg = segment(a);
+            for (int i = 0, p = (int)a + off; i < b.length; ++i) {
+                if (seg.get(p + i) != b[i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns a read-only big-endian view of the given region.
+         */
+        final ByteBuffer slice(long a, int off, int len) {
+            ByteBuffer src = segment(a).asReadOnlyBuffer();
+            int p = (int)a + off;
+            src.limit(p + len).position(p);
+            return src.slice();
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Entry returned by iterators; a snapshot of one mapping whose
+     * setValue writes through to the map.
+     */
+    static final class MapEntry<K,V> implements Map.Entry<K,V> {
+        final K key;
+        V val;
+        final OffHeapConcurrentHashMap<K,V> map;
+        MapEntry(K key, V val, OffHeapConcurrentHashMap<K,V> map) {
+            this.key = key;
+            this.val = val;
+            this.map = map;
+        }
+        public K getKey()        { return key; }
+        public V getValue()      { return val; }
+        public int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public String toString() { return key + "=" + val; }
+
+        public boolean equals(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == val || v.equals(val)));
+        }
+
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = val;
+            val = value;
+            map.put(key, value);
+            return v;
+        }
+    }
+
+    /**
+     * Collects the mappings of bin i of tab into list, following
+     * forwarded bins to the tables they were transferred to.
+     */
+    final void collectBin(long[] tab, int i, ArrayList<MapEntry<K,V>> list) {
+        int a = enter();
+        try {
+            collectBin0(tab, i, list);
+        } finally {
+            exit(a);
+        }
+    }
+
+    private void collectBin0(long[] tab, int i,
+                             ArrayList<MapEntry<K,V>> list) {
+        StampedLock lock = lockFor(i);
+        long stamp = lock.readLock();
+        long f;
+        try {
+            if ((f = tab[i]) != MOVED) {
+                for (long e = f; e != 0L; e = next(e)) {
+                    int kl = klen(e);
+                    K k = read(keySerializer, e, HEADER, kl);
+                    V v = read(valueSerializer, e, HEADER + kl, vlen(e));
+                    list.add(new MapEntry<K,V>(k, v, this));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (f == MOVED) {
+            long[] nt = forwardTable(tab);
+            int n = tab.length;
+            collectBin0(nt, i, list);
+            collectBin0(nt, i + n, list);
+        }
+    }
+
+    static final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        final long[] tab;
+        final ArrayList<MapEntry<K,V>> batch = new ArrayList<MapEntry<K,V>>();
+        int index;          // next bin of tab
+        int pos;            // next element of batch
+        MapEntry<K,V> lastReturned;
+
+        EntryIterator(OffHeapConcurrentHashMap<K,V> map) {
+            this.map = map;
+            this.tab = map.table;
+            advance();
+        }
+
+        private void advance() {
+            long[] t = tab;
+            while (pos >= batch.size() && t != null && index < t.length) {
+                batch.clear();
+                pos = 0;
+                map.collectBin(t, index++, batch);
+            }
+        }
+
+        public boolean hasNext() {
+            return pos < batch.size();
+        }
+
+        public Map.Entry<K,V> next() {
+            if (pos >= batch.size())
+                throw new NoSuchElementException();
+            MapEntry<K,V> e = lastReturned = batch.get(pos++);
+            if (pos >= batch.size())
+                advance();
+            return e;
+        }
+
+        public void remove() {
+            MapEntry<K,V> e;
+            if ((e = lastReturned) == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            map.remove(e.key);
+        }
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        EntrySetView(OffHeapConcurrentHashMap<K,V> map) { this.map = map; }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<K,V>(map);
+        }
+        public int size() { return map.size(); }
+        public boolean isEmpty() { return map.isEmpty(); }
+        public void clear() { map.clear(); }
+
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = map.get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    map.remove(k, v));
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long SIZECTL;
+    private static final long TRANSFERINDEX;
+    private static final long CLOSER;
+    private static final long ABASE;
+    private static final int ASHIFT;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = OffHeapConcurrentHashMap.class;
+            SIZECTL = U.objectFieldOffset
+                (k.getDeclaredField("sizeCtl"));
+            TRANSFERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("transferIndex"));
+            CLOSER = U.objectFieldOffset
+                (k.getDeclaredField("closer"));
+            ABASE = U.arrayBaseOffset(int[].class);
+            int scale = U.arrayIndexScale(int[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
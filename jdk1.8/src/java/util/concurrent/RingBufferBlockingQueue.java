@@ -0,0 +1,813 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free {@linkplain BlockingQueue blocking queue} backed
+ * by a preallocated array.  This queue orders elements FIFO
+ * (first-in-first-out).  Like {@link ArrayBlockingQueue}, it is a
+ * &quot;bounded buffer&quot; whose capacity is fixed at construction,
+ * but rather than guarding the array with a lock, producers and
+ * consumers each claim slots by advancing a counter, and each slot
+ * carries a sequence number indicating whether it is ready to be
+ * written or read.  Producers thus contend only with producers, and
+ * consumers only with consumers, each with a single CAS per operation,
+ * and no node is allocated per element.
+ *
+ * <p>Threads blocked in {@link #put} or {@link #take} and their timed
+ * forms spin briefly before parking, and are woken by operations of the
+ * other kind.  Waiting is arranged only when the queue is full or
+ * empty, so that operations that can proceed never take a lock.
+ *
+ * <p>The {@link #offerAll} and {@link #drainTo(Collection, int)
+ * drainTo} methods transfer batches of elements, claiming all of the
+ * slots they use with a single update of the counter.
+ *
+ * <p>Queues that will only ever be used by one producing thread at a
+ * time, or one producing and one consuming thread, may be created using
+ * {@link #newMultiProducerSingleConsumerQueue} and {@link
+ * #newSingleProducerSingleConsumerQueue}; such queues advance the
+ * counters of the single side with ordered writes rather than CAS.
+ *
+ * <p>The capacity is rounded up to a power of two, and is at least
+ * two.  Removal of an element other than at the head, by {@link
+ * #remove(Object)}, scans the queue and shifts the elements ahead of
+ * the removed one, holding off consumers while it does so; it is
+ * intended for occasional use such as cancellation.  Iterators and
+ * spliterators operate on a snapshot of the elements present when
+ * they are created, and do not support removal.
+ *
+ * <p>Memory consistency effects: As with other concurrent collections,
+ * actions in a thread prior to placing an object into a
+ * {@code RingBufferBlockingQueue} <a
+ * href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from the
+ * {@code RingBufferBlockingQueue} in another thread.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @author zohar
+ * @param <E> the type of elements held in this collection
+ */
+public class RingBufferBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * The algorithm is that of Vyukov's bounded MPMC queue.  Slot i
+     * of the array holds sequence number i initially.  A producer
+     * reading tail position p may write slot p & mask when its
+     * sequence equals p, claiming it by CAS of tail from p to p+1,
+     * and publishes the element by setting the sequence to p+1.  A
+     * consumer reading head position p may read the slot when its
+     * sequence equals p+1, claiming it by CAS of head, and releases it
+     * to the producer of the next lap by setting the sequence to
+     * p+capacity.  A sequence less than expected means the queue is
+     * full (for producers) or empty (for consumers); a greater one
+     * means another thread has claimed the position, so the counter
+     * is reread.
+     *
+     * Batches claim a run of consecutive positions whose slots are
+     * all ready, with a single CAS.
+     *
+     * The head and tail counters are each held in a Counter padded
+     * via @sun.misc.Contended, as with Striped64.Cell, since they are
+     * written by different sets of threads.
+     *
+     * Blocked threads wait in one of two FIFO queues of threads.
+     * After a successful operation, the other side's waiters are
+     * checked with a single read, and one is unparked if present.  To
+     * avoid lost wakeups, a waiter enqueues itself and then retries
+     * before parking; a waiter that succeeds on retry leaves its
+     * signal to others by propagating a wakeup if the queue still
+     * permits further operations of its kind.  Slot sequences are
+     * published with ordered writes, which may be reordered with the
+     * subsequent read of the waiter queue, so signal issues a full
+     * fence first.  Otherwise a waiter could enqueue and find the slot
+     * not yet published, while the publisher finds no waiter.
+     *
+     * Interior removal excludes consumers by setting the REMOVING bit
+     * of the head counter, so that their CAS of the head fails and they
+     * reread it until the bit is cleared.  Under this claim the slots
+     * from the head up to the removed element are all filled and owned
+     * by no other thread, so the elements before it are shifted one
+     * slot towards it, and the head slot is released to producers as
+     * if by poll.
+     */
+
+    /** Number of CPUS, to determine spinning. */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times to retry before parking when the queue is
+     * full or empty.  Spinning is useless on uniprocessors.
+     */
+    static final int MAX_SPINS = (NCPU < 2) ? 0 : 128;
+
+    /** The maximum capacity, a power of two. */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** Bit of the head counter set while an interior removal is in progress */
+    static final long REMOVING = 1L << 63;
+
+    /**
+     * A padded counter supporting only raw accesses, ordered writes
+     * and CAS.
+     */
+    @sun.misc.Contended static final class Counter {
+        volatile long value;
+        final boolean cas(long cmp, long val) {
+            return UNSAFE.compareAndSwapLong(this, valueOffset, cmp, val);
+        }
+        final void lazySet(long val) {
+            UNSAFE.putOrderedLong(this, valueOffset, val);
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> ak = Counter.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** The queued items */
+    final Object[] items;
+
+    /** The sequence numbers of the slots */
+    final long[] sequences;
+
+    /** items.length - 1 */
+    final int mask;
+
+    /** The position of the next element to take */
+    final Counter head = new Counter();
+
+    /** The position of the next element to put */
+    final Counter tail = new Counter();
+
+    /** Whether at most one thread at a time may insert */
+    final boolean singleProducer;
+
+    /** Whether at most one thread at a time may remove */
+    final boolean singleConsumer;
+
+    /** Threads waiting for the queue to become non-empty */
+    final ConcurrentLinkedQueue<Thread> consumerWaiters =
+        new ConcurrentLinkedQueue<Thread>();
+
+    /** Threads waiting for the queue to become non-full */
+    final ConcurrentLinkedQueue<Thread> producerWaiters =
+        new ConcurrentLinkedQueue<Thread>();
+
+    /**
+     * Creates a {@code RingBufferBlockingQueue} that may be used by
+     * any number of producing and consuming threads, with at least the
+     * given capacity.
+     *
+     * @param capacity the minimum capacity of this queue, rounded up to
+     *        a power of two
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         capacity exceeds 2<sup>30</sup>
+     */
+    public RingBufferBlockingQueue(int capacity) {
+        this(capacity, false, false);
+    }
+
+    /**
+     * Creates a {@code RingBufferBlockingQueue} with at least the given
+     * capacity, initially containing the elements of the given
+     * collection, added in traversal order of the collection's
+     * iterator.
+     *
+     * @param capacity the minimum capacity of this queue, rounded up to
+     *        a power of two
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity} is less than
+     *         {@code c.size()}, or less than 1, or exceeds 2<sup>30</sup>
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public RingBufferBlockingQueue(int capacity, Collection<? extends E> c) {
+        this(capacity, false, false);
+        if (offerAll(c) != c.size())
+            throw new IllegalArgumentException();
+    }
+
+    RingBufferBlockingQueue(int capacity, boolean singleProducer,
+                            boolean singleConsumer) {
+        if (capacity < 1 || capacity > MAXIMUM_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = 2;  // with one slot, published and released sequences coincide
+        while (n < capacity)
+            n <<= 1;
+        this.items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = i;
+        this.sequences = seqs;
+        this.mask = n - 1;
+        this.singleProducer = singleProducer;
+        this.singleConsumer = singleConsumer;
+    }
+
+    /**
+     * Creates a queue with at least the given capacity, that may be
+     * used by any number of producing threads but by at most one
+     * consuming thread at a time.  Consuming methods are {@code poll},
+     * {@code take}, {@code remove}, {@code drainTo} and {@code
+     * clear}.
+     *
+     * @param capacity the minimum capacity of the queue
+     * @param <E> the type of elements held in the queue
+     * @return the new queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         capacity exceeds 2<sup>30</sup>
+     */
+    public static <E> RingBufferBlockingQueue<E>
+        newMultiProducerSingleConsumerQueue(int capacity) {
+        return new RingBufferBlockingQueue<E>(capacity, false, true);
+    }
+
+    /**
+     * Creates a queue with at least the given capacity, that may be
+     * used by at most one producing and one consuming thread at a time.
+     *
+     * @param capacity the minimum capacity of the queue
+     * @param <E> the type of elements held in the queue
+     * @return the new queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         capacity exceeds 2<sup>30</sup>
+     */
+    public static <E> RingBufferBlockingQueue<E>
+        newSingleProducerSingleConsumerQueue(int capacity) {
+        return new RingBufferBlockingQueue<E>(capacity, true, true);
+    }
+
+    /* ---------------- Slot access -------------- */
+
+    final long sequenceAt(int i) {
+        return U.getLongVolatile(sequences, ((long)i << LSHIFT) + LBASE);
+    }
+
+    final void setSequenceAt(int i, long s) {
+        U.putOrderedLong(sequences, ((long)i << LSHIFT) + LBASE, s);
+    }
+
+    /** Advances the tail from p to p + n, returning false if lost. */
+    final boolean claimTail(long p, long n) {
+        if (singleProducer) {
+            tail.lazySet(p + n);
+            return true;
+        }
+        return tail.cas(p, p + n);
+    }
+
+    /**
+     * Returns the head position, waiting for any interior removal in
+     * progress to complete.
+     */
+    final long headPosition() {
+        long p;
+        while ((p = head.value) < 0L)
+            Thread.yield();
+        return p;
+    }
+
+    /** Advances the head from p to p + n, returning false if lost. */
+    final boolean claimHead(long p, long n) {
+        if (singleConsumer) {
+            head.lazySet(p + n);
+            return true;
+        }
+        return head.cas(p, p + n);
+    }
+
+    /**
+     * Claims up to max consecutive free slots, storing the position of
+     * the first in pos[0].  Returns the number claimed, or zero if the
+     * queue is full.
+     */
+    private int claimForInsert(int max, long[] pos) {
+        final int mask = this.mask;
+        long p = tail.value;
+        for (;;) {
+            long dif = sequenceAt((int)p & mask) - p;
+            if (dif == 0L) {
+                int n = 1;
+                while (n < max && sequenceAt((int)(p + n) & mask) == p + n)
+                    ++n;
+                if (claimTail(p, n)) {
+                    pos[0] = p;
+                    return n;
+                }
+                p = tail.value;
+            }
+            else if (dif < 0L)
+                return 0;
+            else
+                p = tail.value;
+        }
+    }
+
+    /**
+     * Claims up to max consecutive filled slots, storing the position of
+     * the first in pos[0].  Returns the number claimed, or zero if the
+     * queue is empty.
+     */
+    private int claimForRemove(int max, long[] pos) {
+        final int mask = this.mask;
+        long p = headPosition();
+        for (;;) {
+            long dif = sequenceAt((int)p & mask) - (p + 1L);
+            if (dif == 0L) {
+                int n = 1;
+                while (n < max &&
+                       sequenceAt((int)(p + n) & mask) == p + n + 1L)
+                    ++n;
+                if (claimHead(p, n)) {
+                    pos[0] = p;
+                    return n;
+                }
+                p = headPosition();
+            }
+            else if (dif < 0L)
+                return 0;
+            else
+                p = headPosition();
+        }
+    }
+
+    /* ---------------- Waiting -------------- */
+
+    /**
+     * Unparks up to n waiting threads in the given queue.
+     */
+    static void signal(ConcurrentLinkedQueue<Thread> waiters, int n) {
+        U.fullFence(); // order prior ordered writes before isEmpty
+        Thread w;
+        while (n-- > 0 && !waiters.isEmpty() && (w = waiters.poll()) != null)
+            LockSupport.unpark(w);
+    }
+
+    /* ---------------- Queue operations -------------- */
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.  This method is generally preferable to
+     * method {@link #add}, which can fail to insert an element only by
+     * throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        final int mask = this.mask;
+        long p = tail.value;
+        for (;;) {
+            int i = (int)p & mask;
+            long dif = sequenceAt(i) - p;
+            if (dif == 0L) {
+                if (claimTail(p, 1L)) {
+                    items[i] = e;
+                    setSequenceAt(i, p + 1L);
+                    signal(consumerWaiters, 1);
+                    return true;
+                }
+                p = tail.value;
+            }
+            else if (dif < 0L)
+                return false;
+            else
+                p = tail.value;
+        }
+    }
+
+    public E poll() {
+        final int mask = this.mask;
+        long p = headPosition();
+        for (;;) {
+            int i = (int)p & mask;
+            long dif = sequenceAt(i) - (p + 1L);
+            if (dif == 0L) {
+                if (claimHead(p, 1L)) {
+                    @SuppressWarnings("unchecked") E e = (E)items[i];
+                    items[i] = null;
+                    setSequenceAt(i, p + mask + 1L);
+                    signal(producerWaiters, 1);
+                    return e;
+                }
+                p = headPosition();
+            }
+            else if (dif < 0L)
+                return null;
+            else
+                p = headPosition();
+        }
+    }
+
+    /**
+     * Inserts as many of the elements of the given collection as
+     * possible without exceeding the queue's capacity, in the order
+     * returned by its iterator, claiming their slots with a single
+     * update.  Elements are inserted contiguously unless other
+     * producers act concurrently, in which case the batch may be
+     * interleaved with theirs.
+     *
+     * @param c the collection of elements to insert
+     * @return the number of elements inserted, which are those at the
+     *         start of the collection's iteration order
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public int offerAll(Collection<? extends E> c) {
+        Object[] es = c.toArray();
+        for (Object e : es) {
+            if (e == null)
+                throw new NullPointerException();
+        }
+        final int mask = this.mask;
+        long[] pos = new long[1];
+        int count = 0;
+        while (count < es.length) {
+            int n = claimForInsert(es.length - count, pos);
+            if (n == 0)
+                break;
+            long p = pos[0];
+            for (int k = 0; k < n; ++k)
+                items[(int)(p + k) & mask] = es[count + k];
+            for (int k = 0; k < n; ++k)
+                setSequenceAt((int)(p + k) & mask, p + k + 1L);
+            count += n;
+            signal(consumerWaiters, n);
+        }
+        return count;
+    }
+
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection, claiming batches of
+     * consecutive elements with a single update.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        final int mask = this.mask;
+        final Object[] items = this.items;
+        long[] pos = new long[1];
+        Object[] batch = null;
+        int count = 0;
+        while (count < maxElements) {
+            int n = claimForRemove(Math.min(maxElements - count, mask + 1), pos);
+            if (n == 0)
+                break;
+            if (batch == null || batch.length < n)
+                batch = new Object[n];
+            // release claimed slots before calling add, which may throw
+            long p = pos[0];
+            for (int k = 0; k < n; ++k) {
+                int i = (int)(p + k) & mask;
+                batch[k] = items[i];
+                items[i] = null;
+                setSequenceAt(i, p + k + mask + 1L);
+            }
+            signal(producerWaiters, n);
+            count += n;
+            for (int k = 0; k < n; ++k) {
+                @SuppressWarnings("unchecked") E e = (E)batch[k];
+                batch[k] = null;
+                c.add(e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        awaitOffer(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        return awaitOffer(e, true, unit.toNanos(timeout));
+    }
+
+    public E take() throws InterruptedException {
+        return awaitPoll(false, 0L);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitPoll(true, unit.toNanos(timeout));
+    }
+
+    private boolean awaitOffer(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Thread t = Thread.currentThread();
+        int spins = MAX_SPINS;
+        for (;;) {
+            if (offer(e))
+                return true;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return false;
+            producerWaiters.offer(t);
+            if (offer(e)) {
+                producerWaiters.remove(t);
+                if (remainingCapacity() > 0)
+                    signal(producerWaiters, 1);
+                return true;
+            }
+            if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+            producerWaiters.remove(t);
+        }
+    }
+
+    private E awaitPoll(boolean timed, long nanos)
+        throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        Thread t = Thread.currentThread();
+        int spins = MAX_SPINS;
+        E e;
+        for (;;) {
+            if ((e = poll()) != null)
+                return e;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            if (timed && (nanos = deadline - System.nanoTime()) <= 0L)
+                return null;
+            consumerWaiters.offer(t);
+            if ((e = poll()) != null) {
+                consumerWaiters.remove(t);
+                if (!isEmpty())
+                    signal(consumerWaiters, 1);
+                return e;
+            }
+            if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+            consumerWaiters.remove(t);
+        }
+    }
+
+    public E peek() {
+        final int mask = this.mask;
+        for (;;) {
+            long p = headPosition();
+            int i = (int)p & mask;
+            long dif = sequenceAt(i) - (p + 1L);
+            if (dif < 0L)
+                return null;
+            if (dif == 0L) {
+                @SuppressWarnings("unchecked") E e = (E)items[i];
+                if (e != null && head.value == p)
+                    return e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue.  The result is
+     * exact only in the absence of concurrent updates.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long after = headPosition();
+        for (;;) {
+            long before = after;
+            long t = tail.value;
+            after = headPosition();
+            if (before == after) {
+                long n = t - after;
+                return (n < 0L) ? 0 : (n > mask + 1L) ? mask + 1 : (int)n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return tail.value == headPosition();
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking.  This is always equal to the capacity of this
+     * queue less the current {@code size} of this queue.
+     */
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * <p>Removal of interior elements takes time proportional to their
+     * distance from the head, during which consumers wait.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        final int mask = this.mask;
+        final Object[] items = this.items;
+        long p;
+        do {} while (!head.cas(p = headPosition(), p | REMOVING));
+        boolean removed = false;
+        try {
+            for (long q = p, t = tail.value; q < t; ++q) {
+                int i = (int)q & mask;
+                if (sequenceAt(i) != q + 1L)
+                    break; // not yet published
+                if (o.equals(items[i])) {
+                    for (; q > p; --q)
+                        items[(int)q & mask] = items[(int)(q - 1L) & mask];
+                    i = (int)p & mask;
+                    items[i] = null;
+                    setSequenceAt(i, p + mask + 1L);
+                    removed = true;
+                    break;
+                }
+            }
+        } finally {
+            head.value = removed ? p + 1L : p;
+        }
+        if (removed)
+            signal(producerWaiters, 1);
+        return removed;
+    }
+
+    /**
+     * Atomically removes all of the elements from this queue, as if by
+     * {@link #poll} until empty.
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+
+    /**
+     * Returns an array containing the elements present in this queue
+     * at some point during the call, in proper sequence.
+     */
+    public Object[] toArray() {
+        final int mask = this.mask;
+        ArrayList<Object> list = new ArrayList<Object>();
+        long p = headPosition(), t = tail.value;
+        for (; p < t; ++p) {
+            int i = (int)p & mask;
+            Object e = items[i];
+            if (sequenceAt(i) == p + 1L && e != null)
+                list.add(e);
+        }
+        return list.toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] es = toArray();
+        int n = es.length;
+        if (a.length < n)
+            return (T[])Arrays.copyOf(es, n, a.getClass());
+        System.arraycopy(es, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, in proper sequence.  The iterator does not support the
+     * {@code remove} method.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        return (Iterator<E>)Arrays.asList(toArray()).iterator();
+    }
+
+    /**
+     * Returns a {@link Spliterator} over a snapshot of the elements in
+     * this queue.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#ORDERED},
+     * {@link Spliterator#NONNULL} and {@link Spliterator#IMMUTABLE}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (toArray(), Spliterator.ORDERED | Spliterator.NONNULL |
+             Spliterator.IMMUTABLE);
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            LBASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,1312 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import static java.util.concurrent.Flow.Publisher;
+import static java.util.concurrent.Flow.Subscriber;
+import static java.util.concurrent.Flow.Subscription;
+
+/**
+ * A {@link Flow.Publisher} that asynchronously issues submitted
+ * (non-null) items to current subscribers until it is closed.  Each
+ * current subscriber receives newly submitted items in the same order
+ * unless drops or exceptions are encountered.  Using a
+ * SubmissionPublisher allows item generators to act as compliant <a
+ * href="http://www.reactive-streams.org/"> reactive-streams</a>
+ * Publishers relying on drop handling and/or blocking for flow
+ * control.
+ *
+ * <p>A SubmissionPublisher uses the {@link Executor} supplied in its
+ * constructor for delivery to subscribers. The best choice of
+ * Executor depends on expected usage. If the generator(s) of
+ * submitted items run in separate threads, and the number of
+ * subscribers can be estimated, consider using a {@link
+ * Executors#newFixedThreadPool}. Otherwise consider using the
+ * default, normally the {@link ForkJoinPool#commonPool}.
+ *
+ * <p>Buffering allows producers and consumers to transiently operate
+ * at different rates.  Each subscriber uses an independent buffer.
+ * Buffers are created upon first use and expanded as needed up to
+ * the given maximum. (The enforced capacity may be rounded up to the
+ * nearest power of two.)  Invocations of {@link
+ * Flow.Subscription#request(long) request} do not directly result in
+ * buffer expansion, but risk saturation if unfilled requests exceed
+ * the maximum capacity.  The default value of {@link
+ * Flow#defaultBufferSize()} may provide a useful starting point for
+ * choosing a capacity based on expected rates, resources, and usages.
+ *
+ * <p>Publication methods support different policies about what to do
+ * when buffers are saturated. Method {@link #submit(Object) submit}
+ * blocks until resources are available. This is simplest, but least
+ * responsive.  The {@code offer} methods may drop items (either
+ * immediately or with bounded timeout), but provide an opportunity
+ * to interpose a handler and then retry.
+ *
+ * <p>If any Subscriber method throws an exception, its subscription
+ * is cancelled.  If a handler is supplied as a constructor argument,
+ * it is invoked before cancellation upon an exception in method
+ * {@link Flow.Subscriber#onNext onNext}, but exceptions in methods
+ * {@link Flow.Subscriber#onSubscribe onSubscribe},
+ * {@link Flow.Subscriber#onError(Throwable) onError} and
+ * {@link Flow.Subscriber#onComplete() onComplete} are not recorded or
+ * handled before cancellation.  If the supplied Executor throws
+ * {@link RejectedExecutionException} (or any other RuntimeException
+ * or Error) when attempting to execute a task, or a drop handler
+ * throws an exception when processing a dropped item, then the
+ * exception is rethrown.  In these cases, not all subscribers will
+ * have been issued the published item. It is usually good practice to
+ * {@link #closeExceptionally closeExceptionally} in these cases.
+ *
+ * <p>Method {@link #consume(Consumer)} simplifies support for a
+ * common case in which the only action of a subscriber is to request
+ * and process all items using a supplied function.
+ *
+ * <p>This class may also serve as a convenient base for subclasses
+ * that generate items, and use the methods in this class to publish
+ * them.  For example here is a class that periodically publishes the
+ * items generated from a supplier. (In practice you might add methods
+ * to independently start and stop generation, to share Executors
+ * among publishers, and so on, or use a SubmissionPublisher as a
+ * component rather than a superclass.)
+ *
+ * <pre> {@code
+ * class PeriodicPublisher<T> extends SubmissionPublisher<T> {
+ *   final ScheduledFuture<?> periodicTask;
+ *   final ScheduledExecutorService scheduler;
+ *   PeriodicPublisher(Executor executor, int maxBufferCapacity,
+ *                     Supplier<? extends T> supplier,
+ *                     long period, TimeUnit unit) {
+ *     super(executor, maxBufferCapacity);
+ *     scheduler = new ScheduledThreadPoolExecutor(1);
+ *     periodicTask = scheduler.scheduleAtFixedRate(
+ *       () -> submit(supplier.get()), 0, period, unit);
+ *   }
+ *   public void close() {
+ *     periodicTask.cancel(false);
+ *     scheduler.shutdown();
+ *     super.close();
+ *   }
+ * }}</pre>
+ *
+ * <p>Items are delivered to each subscriber by a task of its own,
+ * which is started whenever items or demand arrive while it is not
+ * running, and which issues as many items as the current demand
+ * allows before returning, so that a subscriber requesting in bulk
+ * receives its items in batches rather than one task per item.
+ *
+ * @param <T> the published item type
+ * @author zohar
+ */
+public class SubmissionPublisher<T> implements Publisher<T>,
+                                               AutoCloseable {
+    /*
+     * Most mechanics are handled by BufferedSubscription. This class
+     * mainly tracks subscribers and ensures sequentiality, by using
+     * built-in synchronization locks across public methods. Using
+     * built-in locks works well in the most typical case in which
+     * only one thread submits items.
+     *
+     * Offers to all subscribers are made while holding the lock, so
+     * that subscribers receive items in the same order.  Subscribers
+     * whose buffers are full are collected, and the blocking or
+     * timed retries for them are performed after releasing the lock,
+     * holding only the producer lock of each such subscription.
+     */
+
+    /** The largest possible power of two array size. */
+    static final int BUFFER_CAPACITY_LIMIT = 1 << 30;
+
+    /** Initial buffer capacity, expanded as needed up to the maximum. */
+    static final int INITIAL_CAPACITY = 32;
+
+    /** Round capacity to power of 2, most efficient for indexing */
+    static final int roundCapacity(int cap) {
+        int n = cap - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n <= 0) ? 1 : // at least 1
+            (n >= BUFFER_CAPACITY_LIMIT) ? BUFFER_CAPACITY_LIMIT : n + 1;
+    }
+
+    /**
+     * Clients (BufferedSubscriptions) are maintained in a linked list
+     * (via their "next" fields). This works well for publish loops.
+     * It requires O(n) traversal to check for duplicate subscribers,
+     * but we expect that subscribing is much less common than
+     * publishing. Unsubscribing occurs only during traversal loops,
+     * when BufferedSubscription methods return negative values
+     * signifying that they have been closed.
+     */
+    BufferedSubscription<T> clients;
+
+    /** Run status, updated only within locks */
+    volatile boolean closed;
+    /** If non-null, the exception in closeExceptionally */
+    volatile Throwable closedException;
+
+    // Parameters for constructing BufferedSubscriptions
+    final Executor executor;
+    final BiConsumer<? super Subscriber<? super T>, ? super Throwable> onNextHandler;
+    final int maxBufferCapacity;
+
+    /**
+     * Creates a new SubmissionPublisher using the given Executor for
+     * async delivery to subscribers, with the given maximum buffer size
+     * for each subscriber, and, if non-null, the given handler invoked
+     * when any Subscriber throws an exception in method {@link
+     * Flow.Subscriber#onNext(Object) onNext}.
+     *
+     * @param executor the executor to use for async delivery,
+     * supporting creation of at least one independent thread
+     * @param maxBufferCapacity the maximum capacity for each
+     * subscriber's buffer (the enforced capacity may be rounded up to
+     * the nearest power of two and/or bounded by the largest value
+     * supported by this implementation; method {@link #getMaxBufferCapacity}
+     * returns the actual value)
+     * @param handler if non-null, procedure to invoke upon exception
+     * thrown in method {@code onNext}
+     * @throws NullPointerException if executor is null
+     * @throws IllegalArgumentException if maxBufferCapacity not
+     * positive
+     */
+    public SubmissionPublisher(Executor executor, int maxBufferCapacity,
+                               BiConsumer<? super Subscriber<? super T>, ? super Throwable> handler) {
+        if (executor == null)
+            throw new NullPointerException();
+        if (maxBufferCapacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.executor = executor;
+        this.onNextHandler = handler;
+        this.maxBufferCapacity = roundCapacity(maxBufferCapacity);
+    }
+
+    /**
+     * Creates a new SubmissionPublisher using the given Executor for
+     * async delivery to subscribers, with the given maximum buffer size
+     * for each subscriber, and no handler for Subscriber exceptions in
+     * method {@link Flow.Subscriber#onNext(Object) onNext}.
+     *
+     * @param executor the executor to use for async delivery,
+     * supporting creation of at least one independent thread
+     * @param maxBufferCapacity the maximum capacity for each
+     * subscriber's buffer (the enforced capacity may be rounded up to
+     * the nearest power of two and/or bounded by the largest value
+     * supported by this implementation; method {@link #getMaxBufferCapacity}
+     * returns the actual value)
+     * @throws NullPointerException if executor is null
+     * @throws IllegalArgumentException if maxBufferCapacity not
+     * positive
+     */
+    public SubmissionPublisher(Executor executor, int maxBufferCapacity) {
+        this(executor, maxBufferCapacity, null);
+    }
+
+    /**
+     * Creates a new SubmissionPublisher using the {@link
+     * ForkJoinPool#commonPool()} for async delivery to subscribers
+     * (unless it does not support a parallelism level of at least two,
+     * in which case, a new Thread is created to run each task), with
+     * maximum buffer capacity of {@link Flow#defaultBufferSize}, and no
+     * handler for Subscriber exceptions in method {@link
+     * Flow.Subscriber#onNext(Object) onNext}.
+     */
+    public SubmissionPublisher() {
+        this(ASYNC_POOL, Flow.defaultBufferSize(), null);
+    }
+
+    /**
+     * Adds the given Subscriber unless already subscribed.  If already
+     * subscribed, the Subscriber's {@link
+     * Flow.Subscriber#onError(Throwable) onError} method is invoked on
+     * the existing subscription with an {@link IllegalStateException}.
+     * Otherwise, upon success, the Subscriber's {@link
+     * Flow.Subscriber#onSubscribe onSubscribe} method is invoked
+     * asynchronously with a new {@link Flow.Subscription}.  If {@link
+     * Flow.Subscriber#onSubscribe onSubscribe} throws an exception, the
+     * subscription is cancelled. Otherwise, if this SubmissionPublisher
+     * was closed exceptionally, then the subscriber's {@link
+     * Flow.Subscriber#onError onError} method is invoked with the
+     * corresponding exception, or if closed without exception, the
+     * subscriber's {@link Flow.Subscriber#onComplete() onComplete}
+     * method is invoked.  Subscribers may enable receiving items by
+     * invoking the {@link Flow.Subscription#request(long) request}
+     * method of the new Subscription, and may unsubscribe by invoking
+     * its {@link Flow.Subscription#cancel() cancel} method.
+     *
+     * @param subscriber the subscriber
+     * @throws NullPointerException if subscriber is null
+     */
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) throw new NullPointerException();
+        BufferedSubscription<T> subscription =
+            new BufferedSubscription<T>(subscriber, executor,
+                                        onNextHandler, maxBufferCapacity);
+        synchronized (this) {
+            for (BufferedSubscription<T> b = clients, pred = null;;) {
+                if (b == null) {
+                    Throwable ex;
+                    if ((ex = closedException) != null)
+                        subscription.onError(ex);
+                    else if (closed)
+                        subscription.onComplete();
+                    else if (pred == null)
+                        clients = subscription;
+                    else
+                        pred.next = subscription;
+                    subscription.signal(); // start, to invoke onSubscribe
+                    break;
+                }
+                BufferedSubscription<T> next = b.next;
+                if (b.isClosed()) {   // remove
+                    b.next = null;    // detach
+                    if (pred == null)
+                        clients = next;
+                    else
+                        pred.next = next;
+                }
+                else if (subscriber.equals(b.subscriber)) {
+                    b.onError(new IllegalStateException("Duplicate subscribe"));
+                    break;
+                }
+                else
+                    pred = b;
+                b = next;
+            }
+        }
+    }
+
+    /**
+     * Common implementation for all three forms of submit and offer.
+     * Acts as submit if nanos == Long.MAX_VALUE, else offer.
+     */
+    private int doOffer(T item, long nanos,
+                        BiPredicate<Subscriber<? super T>, ? super T> onDrop) {
+        if (item == null) throw new NullPointerException();
+        int lag = 0;
+        boolean complete;
+        List<BufferedSubscription<T>> retries = null;
+        synchronized (this) {
+            BufferedSubscription<T> b = clients;
+            if (!(complete = closed)) {
+                for (BufferedSubscription<T> pred = null; b != null;) {
+                    BufferedSubscription<T> next = b.next;
+                    int stat = b.offer(item);
+                    if (stat < 0) {   // closed, remove
+                        b.next = null;
+                        if (pred == null)
+                            clients = next;
+                        else
+                            pred.next = next;
+                    }
+                    else {
+                        if (stat == 0) {   // saturated, retry after unlocking
+                            if (retries == null)
+                                retries = new ArrayList<BufferedSubscription<T>>();
+                            retries.add(b);
+                        }
+                        else if (stat > lag)
+                            lag = stat;
+                        pred = b;
+                    }
+                    b = next;
+                }
+            }
+        }
+        if (complete)
+            throw new IllegalStateException("Closed");
+        return (retries == null) ? lag : retryOffer(item, nanos, onDrop, retries, lag);
+    }
+
+    /**
+     * Helps, (timed) waits for, and/or drops buffers on the given
+     * list; returns lag or negative drops (for use in offer).
+     */
+    private int retryOffer(T item, long nanos,
+                           BiPredicate<Subscriber<? super T>, ? super T> onDrop,
+                           List<BufferedSubscription<T>> retries, int lag) {
+        int drops = 0;
+        for (BufferedSubscription<T> r : retries) {
+            int stat = (nanos > 0L) ? r.awaitOffer(item, nanos) : r.offer(item);
+            if (stat == 0 && onDrop != null && onDrop.test(r.subscriber, item))
+                stat = r.offer(item);
+            if (stat == 0)
+                ++drops;
+            else if (stat > lag)
+                lag = stat;
+        }
+        return (drops > 0) ? -drops : lag;
+    }
+
+    /**
+     * Publishes the given item to each current subscriber by
+     * asynchronously invoking its {@link Flow.Subscriber#onNext(Object)
+     * onNext} method, blocking uninterruptibly while resources for any
+     * subscriber are unavailable. This method returns an estimate of
+     * the maximum lag (number of items submitted but not yet consumed)
+     * among all current subscribers. This value is at least one
+     * (accounting for this submitted item) if there are any
+     * subscribers, else zero.
+     *
+     * <p>If the Executor for this publisher throws a
+     * RejectedExecutionException (or any other RuntimeException or
+     * Error) when attempting to asynchronously notify subscribers,
+     * then this exception is rethrown, in which case not all
+     * subscribers will have been issued this item.
+     *
+     * @param item the (non-null) item to publish
+     * @return the estimated maximum lag among subscribers
+     * @throws IllegalStateException if closed
+     * @throws NullPointerException if item is null
+     * @throws RejectedExecutionException if thrown by Executor
+     */
+    public int submit(T item) {
+        return doOffer(item, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Publishes the given item, if possible, to each current subscriber
+     * by asynchronously invoking its {@link
+     * Flow.Subscriber#onNext(Object) onNext} method. The item may be
+     * dropped by one or more subscribers if resource limits are
+     * exceeded, in which case the given handler (if non-null) is
+     * invoked, and if it returns true, retried once.  Other calls to
+     * methods in this class by other threads are blocked while the
+     * handler is invoked.  Unless recovery is assured, options are
+     * usually limited to logging the error and/or issuing an {@link
+     * Flow.Subscriber#onError(Throwable) onError} signal to the
+     * subscriber.
+     *
+     * <p>This method returns a status indicator: If negative, it
+     * represents the (negative) number of drops (failed attempts to
+     * issue the item to a subscriber). Otherwise it is an estimate of
+     * the maximum lag (number of items submitted but not yet
+     * consumed) among all current subscribers. This value is at least
+     * one (accounting for this submitted item) if there are any
+     * subscribers, else zero.
+     *
+     * <p>If the Executor for this publisher throws a
+     * RejectedExecutionException (or any other RuntimeException or
+     * Error) when attempting to asynchronously notify subscribers, or
+     * the drop handler throws an exception when processing a dropped
+     * item, then this exception is rethrown.
+     *
+     * @param item the (non-null) item to publish
+     * @param onDrop if non-null, the handler invoked upon a drop to a
+     * subscriber, with arguments of the subscriber and item; if it
+     * returns true, an offer is re-attempted (once)
+     * @return if negative, the (negative) number of drops; otherwise
+     * an estimate of maximum lag
+     * @throws IllegalStateException if closed
+     * @throws NullPointerException if item is null
+     * @throws RejectedExecutionException if thrown by Executor
+     */
+    public int offer(T item,
+                     BiPredicate<Subscriber<? super T>, ? super T> onDrop) {
+        return doOffer(item, 0L, onDrop);
+    }
+
+    /**
+     * Publishes the given item, if possible, to each current subscriber
+     * by asynchronously invoking its {@link
+     * Flow.Subscriber#onNext(Object) onNext} method, blocking while
+     * resources for any subscription are unavailable, up to the
+     * specified timeout or until the caller thread is interrupted, at
+     * which point the given handler (if non-null) is invoked, and if it
+     * returns true, retried once. (The drop handler may distinguish
+     * timeouts from interrupts by checking whether the current thread
+     * is interrupted.)  Other calls to methods in this class by other
+     * threads are blocked while the handler is invoked.  Unless
+     * recovery is assured, options are usually limited to logging the
+     * error and/or issuing an {@link Flow.Subscriber#onError(Throwable)
+     * onError} signal to the subscriber.
+     *
+     * <p>This method returns a status indicator: If negative, it
+     * represents the (negative) number of drops (failed attempts to
+     * issue the item to a subscriber). Otherwise it is an estimate of
+     * the maximum lag (number of items submitted but not yet
+     * consumed) among all current subscribers. This value is at least
+     * one (accounting for this submitted item) if there are any
+     * subscribers, else zero.
+     *
+     * <p>If the Executor for this publisher throws a
+     * RejectedExecutionException (or any other RuntimeException or
+     * Error) when attempting to asynchronously notify subscribers, or
+     * the drop handler throws an exception when processing a dropped
+     * item, then this exception is rethrown.
+     *
+     * @param item the (non-null) item to publish
+     * @param timeout how long to wait for resources for any subscriber
+     * before giving up, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     * {@code timeout} parameter
+     * @param onDrop if non-null, the handler invoked upon a drop to a
+     * subscriber, with arguments of the subscriber and item; if it
+     * returns true, an offer is re-attempted (once)
+     * @return if negative, the (negative) number of drops; otherwise
+     * an estimate of maximum lag
+     * @throws IllegalStateException if closed
+     * @throws NullPointerException if item is null
+     * @throws RejectedExecutionException if thrown by Executor
+     */
+    public int offer(T item, long timeout, TimeUnit unit,
+                     BiPredicate<Subscriber<? super T>, ? super T> onDrop) {
+        long nanos = unit.toNanos(timeout);
+        // distinguishes from untimed (only wrt interrupt policy)
+        if (nanos == Long.MAX_VALUE) --nanos;
+        return doOffer(item, nanos, onDrop);
+    }
+
+    /**
+     * Unless already closed, issues {@link
+     * Flow.Subscriber#onComplete() onComplete} signals to current
+     * subscribers, and disallows subsequent attempts to publish.
+     * Upon return, this method does <em>NOT</em> guarantee that all
+     * subscribers have yet completed.
+     */
+    public void close() {
+        if (!closed) {
+            BufferedSubscription<T> b;
+            synchronized (this) {
+                // no need to re-check closed here
+                b = clients;
+                clients = null;
+                closed = true;
+            }
+            while (b != null) {
+                BufferedSubscription<T> next = b.next;
+                b.next = null;
+                b.onComplete();
+                b = next;
+            }
+        }
+    }
+
+    /**
+     * Unless already closed, issues {@link
+     * Flow.Subscriber#onError(Throwable) onError} signals to current
+     * subscribers with the given error, and disallows subsequent
+     * attempts to publish.  Future subscribers also receive the given
+     * error. Upon return, this method does <em>NOT</em> guarantee
+     * that all subscribers have yet completed.
+     *
+     * @param error the {@code onError} argument sent to subscribers
+     * @throws NullPointerException if error is null
+     */
+    public void closeExceptionally(Throwable error) {
+        if (error == null)
+            throw new NullPointerException();
+        if (!closed) {
+            BufferedSubscription<T> b;
+            synchronized (this) {
+                b = clients;
+                if (!closed) {  // don't clobber racing close
+                    closedException = error;
+                    clients = null;
+                    closed = true;
+                }
+            }
+            while (b != null) {
+                BufferedSubscription<T> next = b.next;
+                b.next = null;
+                b.onError(error);
+                b = next;
+            }
+        }
+    }
+
+    /**
+     * Returns true if this publisher is not accepting submissions.
+     *
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the exception associated with {@link
+     * #closeExceptionally(Throwable) closeExceptionally}, or null if
+     * not closed or if closed normally.
+     *
+     * @return the exception, or null if none
+     */
+    public Throwable getClosedException() {
+        return closedException;
+    }
+
+    /**
+     * Returns true if this publisher has any subscribers.
+     *
+     * @return true if this publisher has any subscribers
+     */
+    public boolean hasSubscribers() {
+        boolean nonEmpty = false;
+        synchronized (this) {
+            for (BufferedSubscription<T> b = clients; b != null;) {
+                BufferedSubscription<T> next = b.next;
+                if (b.isClosed()) {
+                    b.next = null;
+                    b = clients = next;
+                }
+                else {
+                    nonEmpty = true;
+                    break;
+                }
+            }
+        }
+        return nonEmpty;
+    }
+
+    /**
+     * Returns the number of current subscribers.
+     *
+     * @return the number of current subscribers
+     */
+    public int getNumberOfSubscribers() {
+        synchronized (this) {
+            return cleanAndCount();
+        }
+    }
+
+    /**
+     * Returns the Executor used for asynchronous delivery.
+     *
+     * @return the Executor used for asynchronous delivery
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the maximum per-subscriber buffer capacity.
+     *
+     * @return the maximum per-subscriber buffer capacity
+     */
+    public int getMaxBufferCapacity() {
+        return maxBufferCapacity;
+    }
+
+    /**
+     * Returns a list of current subscribers for monitoring and
+     * tracking purposes, not for invoking {@link Flow.Subscriber}
+     * methods on the subscribers.
+     *
+     * @return list of current subscribers
+     */
+    public List<Subscriber<? super T>> getSubscribers() {
+        ArrayList<Subscriber<? super T>> subs = new ArrayList<>();
+        synchronized (this) {
+            BufferedSubscription<T> pred = null, next;
+            for (BufferedSubscription<T> b = clients; b != null; b = next) {
+                next = b.next;
+                if (b.isClosed()) {
+                    b.next = null;
+                    if (pred == null)
+                        clients = next;
+                    else
+                        pred.next = next;
+                }
+                else {
+                    subs.add(b.subscriber);
+                    pred = b;
+                }
+            }
+        }
+        return subs;
+    }
+
+    /**
+     * Returns true if the given Subscriber is currently subscribed.
+     *
+     * @param subscriber the subscriber
+     * @return true if currently subscribed
+     * @throws NullPointerException if subscriber is null
+     */
+    public boolean isSubscribed(Subscriber<? super T> subscriber) {
+        if (subscriber == null) throw new NullPointerException();
+        if (!closed) {
+            synchronized (this) {
+                BufferedSubscription<T> pred = null, next;
+                for (BufferedSubscription<T> b = clients; b != null; b = next) {
+                    next = b.next;
+                    if (b.isClosed()) {
+                        b.next = null;
+                        if (pred == null)
+                            clients = next;
+                        else
+                            pred.next = next;
+                    }
+                    else if (subscriber.equals(b.subscriber))
+                        return true;
+                    else
+                        pred = b;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an estimate of the minimum number of items requested
+     * (via {@link Flow.Subscription#request(long) request}) but not
+     * yet produced, among all current subscribers.
+     *
+     * @return the estimate, or zero if no subscribers
+     */
+    public long estimateMinimumDemand() {
+        long min = Long.MAX_VALUE;
+        boolean nonEmpty = false;
+        synchronized (this) {
+            BufferedSubscription<T> pred = null, next;
+            for (BufferedSubscription<T> b = clients; b != null; b = next) {
+                int n; long d;
+                next = b.next;
+                if ((n = b.estimateLag()) < 0) {
+                    b.next = null;
+                    if (pred == null)
+                        clients = next;
+                    else
+                        pred.next = next;
+                }
+                else {
+                    if ((d = b.demand - n) < min)
+                        min = d;
+                    nonEmpty = true;
+                    pred = b;
+                }
+            }
+        }
+        return nonEmpty ? min : 0;
+    }
+
+    /**
+     * Returns an estimate of the maximum number of items produced but
+     * not yet consumed among all current subscribers.
+     *
+     * @return the estimate
+     */
+    public int estimateMaximumLag() {
+        int max = 0;
+        synchronized (this) {
+            BufferedSubscription<T> pred = null, next;
+            for (BufferedSubscription<T> b = clients; b != null; b = next) {
+                int n;
+                next = b.next;
+                if ((n = b.estimateLag()) < 0) {
+                    b.next = null;
+                    if (pred == null)
+                        clients = next;
+                    else
+                        pred.next = next;
+                }
+                else {
+                    if (n > max)
+                        max = n;
+                    pred = b;
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Processes all published items using the given Consumer function.
+     * Returns a CompletableFuture that is completed normally when this
+     * publisher signals {@link Flow.Subscriber#onComplete()
+     * onComplete}, or completed exceptionally upon any error, or an
+     * exception is thrown by the Consumer, or the returned
+     * CompletableFuture is cancelled, in which case no further items
+     * are processed.
+     *
+     * @param consumer the function applied to each onNext item
+     * @return a CompletableFuture that is completed normally
+     * when the publisher signals onComplete, and exceptionally
+     * upon any error or cancellation
+     * @throws NullPointerException if consumer is null
+     */
+    public CompletableFuture<Void> consume(Consumer<? super T> consumer) {
+        if (consumer == null)
+            throw new NullPointerException();
+        CompletableFuture<Void> status = new CompletableFuture<>();
+        subscribe(new ConsumerSubscriber<T>(status, consumer));
+        return status;
+    }
+
+    /**
+     * Removes closed subscriptions and returns the number of open
+     * ones; must be called while holding the lock.
+     */
+    private int cleanAndCount() {
+        int count = 0;
+        BufferedSubscription<T> pred = null, next;
+        for (BufferedSubscription<T> b = clients; b != null; b = next) {
+            next = b.next;
+            if (b.isClosed()) {
+                b.next = null;
+                if (pred == null)
+                    clients = next;
+                else
+                    pred.next = next;
+            }
+            else {
+                pred = b;
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /** Subscriber for method consume */
+    static final class ConsumerSubscriber<T> implements Subscriber<T> {
+        final CompletableFuture<Void> status;
+        final Consumer<? super T> consumer;
+        Subscription subscription;
+        ConsumerSubscriber(CompletableFuture<Void> status,
+                           Consumer<? super T> consumer) {
+            this.status = status; this.consumer = consumer;
+        }
+        public final void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            status.whenComplete((v, e) -> subscription.cancel());
+            if (!status.isDone())
+                subscription.request(Long.MAX_VALUE);
+        }
+        public final void onError(Throwable ex) {
+            status.completeExceptionally(ex);
+        }
+        public final void onComplete() {
+            status.complete(null);
+        }
+        public final void onNext(T item) {
+            try {
+                consumer.accept(item);
+            } catch (Throwable ex) {
+                subscription.cancel();
+                status.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Default executor, as in CompletableFuture: the common pool
+     * unless it cannot support parallelism.
+     */
+    private static final Executor ASYNC_POOL =
+        (ForkJoinPool.getCommonPoolParallelism() > 1) ?
+        ForkJoinPool.commonPool() : new CompletableFuture.ThreadPerTaskExecutor();
+
+    /**
+     * A task for consuming buffer items and signals, created and
+     * executed whenever they become available.  A task consumes as
+     * many items/signals as possible before terminating, at which
+     * point another task is created when needed.  The dual Runnable
+     * and ForkJoinTask declaration saves overhead when executed by
+     * ForkJoinPools, without impacting other kinds of Executors.
+     */
+    @SuppressWarnings("serial")
+    static final class ConsumerTask<T> extends ForkJoinTask<Void>
+        implements Runnable, CompletableFuture.AsynchronousCompletionTask {
+        final BufferedSubscription<T> consumer;
+        ConsumerTask(BufferedSubscription<T> consumer) {
+            this.consumer = consumer;
+        }
+        public final Void getRawResult() { return null; }
+        public final void setRawResult(Void v) {}
+        public final boolean exec() { consumer.consume(); return false; }
+        public final void run() { consumer.consume(); }
+    }
+
+    /**
+     * A bounded (ring) buffer with integrated control to start a
+     * consumer task whenever items are available.  The buffer
+     * algorithm is specialized for the case of at most one concurrent
+     * producer and consumer: offers are made while holding the
+     * producer lock (the monitor of this subscription), and takes are
+     * made only by the consumer task, of which at most one is active
+     * at a time.
+     *
+     * Items are indexed by their position in the stream of offers,
+     * masked by the array length, with head (next take) and tail (next
+     * put) positions wrapping around as ints.  The array grows by
+     * doubling up to the maximum capacity while holding the producer
+     * lock.  Both the consumer and a growing producer take items out of
+     * the old array by CASing their slots to null, so each item ends up
+     * either consumed or moved to the same position in the new array,
+     * and the new array never holds a reference to a consumed item.  A
+     * consumer that finds its slot already emptied re-reads the array.
+     *
+     * The consumer task is controlled by bits of field ctl: ACTIVE is
+     * set while a task is scheduled or running, and RESCAN when
+     * something changed while it was, so that it re-checks the buffer
+     * before clearing ACTIVE.  Any change (an offer, a request, a
+     * signal from the publisher) is followed by a call to signal(),
+     * which either sets RESCAN or starts a new task, so that no
+     * change goes unnoticed.
+     *
+     * A producer waiting for space adds an OfferWaiter to queue
+     * waiters before re-checking space and parking, and the consumer
+     * unparks all waiters after each take.  Waiting is done without
+     * holding the monitor, so that other producers (and the publisher,
+     * which offers while holding its own lock) are never stuck behind
+     * a blocked one.
+     */
+    static final class BufferedSubscription<T> implements Subscription {
+        volatile int head;                // next position to take
+        volatile int tail;                // next position to put
+        volatile Object[] array;          // buffer, allocated on first offer
+        final int maxCapacity;            // max buffer size
+        volatile int ctl;                 // atomic run state flags
+        volatile long demand;             // # unfilled requests
+        final ConcurrentLinkedQueue<OfferWaiter> waiters =
+            new ConcurrentLinkedQueue<OfferWaiter>(); // blocked producers
+        Throwable pendingError;           // holds until onError issued
+        final Executor executor;          // null on error
+        Subscriber<? super T> subscriber; // null if closed
+        final BiConsumer<? super Subscriber<? super T>, ? super Throwable> onNextHandler;
+        BufferedSubscription<T> next;     // used only by publisher
+
+        // ctl bit values
+        static final int ACTIVE     = 0x01; // consumer task scheduled or running
+        static final int RESCAN     = 0x02; // something changed while active
+        static final int SUBSCRIBED = 0x04; // onSubscribe has been invoked
+        static final int ERROR      = 0x08; // onError pending
+        static final int COMPLETE   = 0x10; // onComplete pending after buffered items
+        static final int CLOSED     = 0x20; // cancelled or terminal signal issued
+
+        BufferedSubscription(Subscriber<? super T> subscriber,
+                             Executor executor,
+                             BiConsumer<? super Subscriber<? super T>,
+                             ? super Throwable> onNextHandler,
+                             int maxBufferCapacity) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.onNextHandler = onNextHandler;
+            this.maxCapacity = maxBufferCapacity;
+        }
+
+        final boolean isClosed() {
+            return (ctl & CLOSED) != 0;
+        }
+
+        /**
+         * Returns estimated number of buffered items, or -1 if
+         * closed.
+         */
+        final int estimateLag() {
+            int n = tail - head;
+            return isClosed() ? -1 : (n < 0) ? 0 : n;
+        }
+
+        // Producer methods
+
+        /**
+         * Tries to add item; returns the lag (> 0) on success, 0 if
+         * the buffer is full, or -1 if closed.  Starts the consumer
+         * task if needed.
+         */
+        final synchronized int offer(T item) {
+            if ((ctl & (CLOSED | ERROR)) != 0)
+                return -1;
+            Object[] a = array;
+            int t = tail, size = t - head, n;
+            if (a == null)
+                array = a = new Object[Math.min(INITIAL_CAPACITY, maxCapacity)];
+            else if (size >= (n = a.length)) {
+                if (n >= maxCapacity)
+                    return 0;
+                a = growArray(a, n << 1, t);
+            }
+            a[t & (a.length - 1)] = item;
+            tail = t + 1;
+            signal();
+            return size + 1;
+        }
+
+        /**
+         * Moves the buffered items to a new array of the given
+         * capacity, at the same positions.  Items are CASed out of the
+         * old array, so an item the consumer takes concurrently is
+         * not copied.
+         */
+        private Object[] growArray(Object[] a, int capacity, int t) {
+            Object[] b = new Object[capacity];
+            int oldMask = a.length - 1, newMask = capacity - 1;
+            for (int k = head; k != t; ++k) {
+                long off = ((long)(k & oldMask) << ASHIFT) + ABASE;
+                Object x = U.getObjectVolatile(a, off);
+                if (x != null && U.compareAndSwapObject(a, off, x, null))
+                    b[k & newMask] = x;
+            }
+            array = b;
+            return b;
+        }
+
+        /**
+         * Waits for space, up to the given nanos or uninterruptibly
+         * if Long.MAX_VALUE, and then tries to add item.  Returns as
+         * offer, 0 if timed out or interrupted while timed.  The
+         * monitor is held only while offering, never while blocked.
+         */
+        final int awaitOffer(T item, long nanos) {
+            int stat;
+            boolean interrupted = false;
+            long deadline = (nanos == Long.MAX_VALUE) ? 0L :
+                System.nanoTime() + nanos;
+            OfferWaiter w = null;
+            try {
+                while ((stat = offer(item)) == 0) {
+                    if (deadline != 0L && deadline - System.nanoTime() <= 0L)
+                        break;
+                    if (w == null) { // register, then re-check before blocking
+                        waiters.add(w = new OfferWaiter(this, deadline));
+                        continue;
+                    }
+                    try {
+                        ForkJoinPool.managedBlock(w);
+                    } catch (InterruptedException ie) {
+                        if (deadline != 0L) { // timed: give up, keep status
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (w != null)
+                    waiters.remove(w);
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            return stat;
+        }
+
+        /**
+         * Returns true if there is space for another item, or if
+         * closed.
+         */
+        final boolean hasSpace() {
+            Object[] a = array;
+            return ((ctl & (CLOSED | ERROR)) != 0 ||
+                    a == null || tail - head < a.length);
+        }
+
+        // Signals from the publisher
+
+        /**
+         * Issues error signal, asynchronously if a task is running,
+         * else synchronously.
+         */
+        final void onError(Throwable ex) {
+            for (int c;;) {
+                if (((c = ctl) & (ERROR | CLOSED)) != 0)
+                    break;
+                else if (pendingError == null)
+                    pendingError = ex;  // written before setting ERROR
+                else if (casCtl(c, c | ERROR)) {
+                    signal();
+                    wakeWaiters();
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Issues completion signal, after any buffered items.
+         */
+        final void onComplete() {
+            setCtlBits(COMPLETE);
+            signal();
+        }
+
+        // Subscription methods
+
+        public void cancel() {
+            setCtlBits(CLOSED);
+            wakeWaiters();
+        }
+
+        public void request(long n) {
+            if (n > 0L) {
+                for (;;) {
+                    long prev = demand, d;
+                    if ((d = prev + n) < prev) // saturate
+                        d = Long.MAX_VALUE;
+                    if (U.compareAndSwapLong(this, DEMAND, prev, d))
+                        break;
+                }
+                signal();
+            }
+            else
+                onError(new IllegalArgumentException(
+                            "non-positive subscription request"));
+        }
+
+        // Consumer task control
+
+        /**
+         * Starts a consumer task unless one is already active, in
+         * which case it is told to re-check the buffer and ctl.
+         */
+        final void signal() {
+            for (int c;;) {
+                if (((c = ctl) & CLOSED) != 0)
+                    break;
+                else if ((c & ACTIVE) != 0) {
+                    if ((c & RESCAN) != 0 || casCtl(c, c | RESCAN))
+                        break;
+                }
+                else if (casCtl(c, c | ACTIVE)) {
+                    startConsumer();
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Executes a consumer task; upon failure, closes the
+         * subscription and rethrows.
+         */
+        final void startConsumer() {
+            try {
+                executor.execute(new ConsumerTask<T>(this));
+            } catch (RuntimeException | Error ex) {
+                Subscriber<? super T> s = subscriber;
+                if (s != null)
+                    closeOnError(s, ex);
+                throw ex;
+            }
+        }
+
+        /**
+         * Consumer loop, called from ConsumerTask: issues onSubscribe
+         * once, then buffered items as demand allows, and terminal
+         * signals, until there is nothing more to do.
+         */
+        final void consume() {
+            Subscriber<? super T> s = subscriber;
+            if (s == null)
+                return;
+            if ((ctl & SUBSCRIBED) == 0) {
+                try {
+                    s.onSubscribe(this);
+                } catch (Throwable ex) {
+                    closeOnError(s, ex);
+                    return;
+                }
+                setCtlBits(SUBSCRIBED);
+            }
+            for (int c;;) {
+                if (((c = ctl) & RESCAN) != 0 && !casCtl(c, c & ~RESCAN))
+                    continue;
+                if (!drain(s))
+                    break;
+                if (((c = ctl) & RESCAN) == 0 && casCtl(c, c & ~ACTIVE))
+                    break;
+            }
+        }
+
+        /**
+         * Issues buffered items while there is demand, and pending
+         * terminal signals.  Returns false once closed.
+         */
+        private boolean drain(Subscriber<? super T> s) {
+            for (int c;;) {
+                if (((c = ctl) & CLOSED) != 0)
+                    return false;
+                else if ((c & ERROR) != 0) {
+                    closeOnError(s, pendingError);
+                    return false;
+                }
+                int h = head;
+                if (h != tail) {
+                    long d = demand;
+                    if (d == 0L)
+                        return true;
+                    Object[] a = array;
+                    long off = ((long)(h & (a.length - 1)) << ASHIFT) + ABASE;
+                    @SuppressWarnings("unchecked")
+                    T x = (T) U.getObjectVolatile(a, off);
+                    if (x == null || !U.compareAndSwapObject(a, off, x, null))
+                        continue; // moved by a growing producer; re-read array
+                    head = h + 1;
+                    if (d != Long.MAX_VALUE)
+                        U.getAndAddLong(this, DEMAND, -1L);
+                    wakeWaiters();
+                    try {
+                        s.onNext(x);
+                    } catch (Throwable ex) {
+                        handleOnNext(s, ex);
+                        return false;
+                    }
+                }
+                else if ((c & COMPLETE) != 0) {
+                    closeOnComplete(s);
+                    return false;
+                }
+                else
+                    return true;
+            }
+        }
+
+        /**
+         * Processes exception in Subscriber.onNext.
+         */
+        final void handleOnNext(Subscriber<? super T> s, Throwable ex) {
+            BiConsumer<? super Subscriber<? super T>, ? super Throwable> h;
+            try {
+                if ((h = onNextHandler) != null)
+                    h.accept(s, ex);
+            } catch (Throwable ignore) {
+            }
+            closeOnError(s, null);
+        }
+
+        /**
+         * Issues subscriber.onComplete unless already closed.
+         */
+        final void closeOnComplete(Subscriber<? super T> s) {
+            if (close()) {
+                try {
+                    s.onComplete();
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+
+        /**
+         * Issues subscriber.onError, and unblocks producer if needed,
+         * unless already closed.  A null exception closes without
+         * issuing onError.
+         */
+        final void closeOnError(Subscriber<? super T> s, Throwable ex) {
+            if (close() && ex != null) {
+                try {
+                    s.onError(ex);
+                } catch (Throwable ignore) {
+                }
+            }
+        }
+
+        /**
+         * Sets CLOSED, releasing the buffer and the subscriber;
+         * returns false if already closed.
+         */
+        private boolean close() {
+            for (int c;;) {
+                if (((c = ctl) & CLOSED) != 0)
+                    return false;
+                if (casCtl(c, c | CLOSED))
+                    break;
+            }
+            wakeWaiters();
+            subscriber = null;
+            pendingError = null;
+            return true;
+        }
+
+        private void wakeWaiters() {
+            if (!waiters.isEmpty()) {
+                for (OfferWaiter w : waiters)
+                    LockSupport.unpark(w.thread);
+            }
+        }
+
+        private boolean casCtl(int c, int v) {
+            return U.compareAndSwapInt(this, CTL, c, v);
+        }
+
+        private void setCtlBits(int bits) {
+            for (int c;;) {
+                if (((c = ctl) & bits) == bits || casCtl(c, c | bits))
+                    break;
+            }
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe U;
+        private static final long CTL;
+        private static final long DEMAND;
+        private static final int ABASE;
+        private static final int ASHIFT;
+        static {
+            try {
+                U = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = BufferedSubscription.class;
+                CTL = U.objectFieldOffset(k.getDeclaredField("ctl"));
+                DEMAND = U.objectFieldOffset(k.getDeclaredField("demand"));
+                ABASE = U.arrayBaseOffset(Object[].class);
+                int scale = U.arrayIndexScale(Object[].class);
+                if ((scale & (scale - 1)) != 0)
+                    throw new Error("data type scale not a power of two");
+                ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * A producer blocked in BufferedSubscription.awaitOffer, waiting
+     * for space, closure, or its deadline (0 if untimed).
+     */
+    static final class OfferWaiter implements ForkJoinPool.ManagedBlocker {
+        final BufferedSubscription<?> subscription;
+        final Thread thread;
+        final long deadline;
+
+        OfferWaiter(BufferedSubscription<?> subscription, long deadline) {
+            this.subscription = subscription;
+            this.thread = Thread.currentThread();
+            this.deadline = deadline;
+        }
+
+        public boolean isReleasable() {
+            return (subscription.hasSpace() ||
+                    (deadline != 0L && deadline - System.nanoTime() <= 0L));
+        }
+
+        public boolean block() throws InterruptedException {
+            while (!isReleasable()) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                if (deadline == 0L)
+                    LockSupport.park(this);
+                else
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+            }
+            return true;
+        }
+    }
+}
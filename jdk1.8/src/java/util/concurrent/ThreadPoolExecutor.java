@@ -40,8 +40,11 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.*;
 
 /**
@@ -198,6 +201,26 @@ import java.util.*;
  *
  * </ol>
  *
+ * <p>When many threads execute short tasks, a single shared queue can
+ * itself become the bottleneck.  Executors constructed with a queue
+ * capacity rather than a queue (see {@link
+ * #ThreadPoolExecutor(int, int, long, TimeUnit, int, ThreadFactory,
+ * RejectedExecutionHandler)}) operate in <em>work-stealing mode</em>:
+ * tasks are held in a set of queues striped by thread, each submitting
+ * thread and worker normally using the one its thread hashes to, and
+ * workers finding it empty steal from the others.  The queues are not
+ * owned by particular workers, so several threads may share one.  Tasks
+ * are then only approximately executed in order of submission.  In this
+ * mode the executor may also size itself adaptively: when a {@linkplain
+ * #setTargetQueueLatency target queue latency} is set, a new thread (up
+ * to maximumPoolSize) is started whenever the smoothed time tasks spend
+ * queued exceeds the target, rather than only when the queue is full.
+ * The smoothed time decays while no tasks are taken from the queue, so
+ * an idle executor does not keep growing on the strength of old
+ * measurements.  Idle workers are woken in last-in-first-out order, so
+ * that threads made surplus when the load subsides remain idle and
+ * terminate after the keep-alive time.
+ *
  * </dd>
  *
  * <dt>Rejected tasks</dt>
@@ -544,6 +567,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     private volatile int maximumPoolSize;
 
+    /**
+     * Target queue latency in nanoseconds for adaptive sizing in
+     * work-stealing mode, or zero if adaptive sizing is disabled.
+     */
+    private volatile long targetQueueLatency;
+
+    /**
+     * The time at which a thread was last started because queue latency
+     * exceeded its target; growth is paced to one thread per target
+     * interval, giving new threads time to affect the measurement.
+     */
+    private final AtomicLong lastLatencyGrowth = new AtomicLong();
+
     /**
      * The default rejected execution handler
      */
@@ -1325,6 +1361,48 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         this.handler = handler;
     }
 
+    /**
+     * Creates a new {@code ThreadPoolExecutor} in work-stealing mode
+     * with the given initial parameters.  Submitted tasks are held in
+     * an internal queue with the given total capacity, striped by thread
+     * so that submitters and workers rarely contend, from which idle
+     * workers steal.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity the maximum number of tasks held before they
+     *        are executed, or {@code Integer.MAX_VALUE} for no bound
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code threadFactory} or
+     *         {@code handler} is null
+     */
+    public ThreadPoolExecutor(int corePoolSize,
+                              int maximumPoolSize,
+                              long keepAliveTime,
+                              TimeUnit unit,
+                              int queueCapacity,
+                              ThreadFactory threadFactory,
+                              RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+             new StripedWorkQueue(maximumPoolSize, queueCapacity),
+             threadFactory, handler);
+    }
+
     /**
      * Executes the given task sometime in the future.  The task
      * may execute in a new thread or in an existing pooled thread.
@@ -1374,11 +1452,29 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 reject(command);
             else if (workerCountOf(recheck) == 0)
                 addWorker(null, false);
+            else if (targetQueueLatency != 0L)
+                addWorkerIfLagging(recheck);
         }
         else if (!addWorker(command, false))
             reject(command);
     }
 
+    /**
+     * In work-stealing mode with adaptive sizing, starts a new thread if
+     * the smoothed queue latency exceeds its target and no thread has
+     * been started for that reason within the last target interval.
+     */
+    private void addWorkerIfLagging(int c) {
+        long target = targetQueueLatency;
+        if (target != 0L && workerCountOf(c) < maximumPoolSize) {
+            long now = System.nanoTime(), last = lastLatencyGrowth.get();
+            if (((StripedWorkQueue)workQueue).latency(now) > target &&
+                now - last >= target &&
+                lastLatencyGrowth.compareAndSet(last, now))
+                addWorker(null, false);
+        }
+    }
+
     /**
      * Initiates an orderly shutdown in which previously submitted
      * tasks are executed, but no new tasks will be accepted.
@@ -1732,6 +1828,44 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         return unit.convert(keepAliveTime, TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Sets the target queue latency of an executor in work-stealing
+     * mode, enabling adaptive sizing.  While it is nonzero, a new thread
+     * is started, up to the maximum pool size, whenever the smoothed
+     * time that tasks spend queued exceeds the target, pacing growth to
+     * at most one thread per target interval.  Threads in excess of the
+     * core pool size terminate after the keep-alive time as usual.  A
+     * value of zero disables adaptive sizing, which is the default.
+     *
+     * @param latency the target queue latency
+     * @param unit the time unit of the {@code latency} argument
+     * @throws IllegalArgumentException if {@code latency} is negative
+     * @throws IllegalStateException if this executor was not constructed
+     *         in work-stealing mode
+     * @see #getTargetQueueLatency(TimeUnit)
+     */
+    public void setTargetQueueLatency(long latency, TimeUnit unit) {
+        if (latency < 0)
+            throw new IllegalArgumentException();
+        if (!(workQueue instanceof StripedWorkQueue))
+            throw new IllegalStateException("not in work-stealing mode");
+        long nanos = unit.toNanos(latency);
+        ((StripedWorkQueue)workQueue).halfLife = nanos;
+        this.targetQueueLatency = nanos;
+    }
+
+    /**
+     * Returns the target queue latency used for adaptive sizing, or
+     * zero if adaptive sizing is disabled.
+     *
+     * @param unit the desired time unit of the result
+     * @return the target queue latency
+     * @see #setTargetQueueLatency(long, TimeUnit)
+     */
+    public long getTargetQueueLatency(TimeUnit unit) {
+        return unit.convert(targetQueueLatency, TimeUnit.NANOSECONDS);
+    }
+
     /* User-level queue utilities */
 
     /**
@@ -2012,6 +2146,429 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     protected void terminated() { }
 
+    /* Work-stealing mode */
+
+    /**
+     * The work queue of executors in work-stealing mode.  Tasks are held
+     * in an array of ConcurrentLinkedQueues, with each thread offering
+     * to and polling from the stripe selected by its ThreadLocalRandom
+     * probe, and scanning the other stripes in turn when its own is
+     * empty.  Stripes are shared by all threads hashing to them rather
+     * than owned by workers, which keeps the queue usable through the
+     * plain BlockingQueue interface the rest of the executor relies on.
+     *
+     * Waiting takers are kept in a LIFO stack of Waiter nodes; an offer
+     * pops nodes until it claims one by clearing its thread, and
+     * unparks that thread.  To avoid lost wakeups, a taker pushes its
+     * node and then rechecks the stripes before parking, while an
+     * offerer enqueues before popping a waiter (both steps are CASes,
+     * so each side sees the other's write).  A taker leaving the wait
+     * clears its own thread unless it was claimed first; claimed nodes
+     * are already off the stack, and cancelled ones are discarded by
+     * later pops, so no waiter is ever searched for.  A taker that was
+     * claimed but does not consume the wakeup (because it found a task
+     * on its recheck, or was interrupted) passes it on, as does one
+     * leaving tasks behind in its stripe.
+     *
+     * When the capacity is bounded, it is split evenly between the
+     * stripes, and each stripe keeps its own count of queued tasks, so
+     * that producers and takers using different stripes do not CAS a
+     * shared counter.  An offer reserves space in its own stripe,
+     * moving on to the next stripes only when that one is full, and
+     * fails only if all are, so the total capacity is still honored
+     * exactly.  A task is counted against the stripe it was queued in,
+     * and its count is decremented by whoever removes it.  Producers
+     * waiting for space in put and timed offer use a second stack in
+     * the same way as takers, signalled whenever a task is removed.
+     *
+     * When timing is enabled, each entry records the time it was
+     * enqueued, and takers maintain an exponentially weighted moving
+     * average of the time entries spend queued, along with the time it
+     * was last updated.  Readers halve the average for every target
+     * interval elapsed since then, so it decays while no tasks are taken.
+     */
+    static final class StripedWorkQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /** The maximum number of stripes. */
+        static final int MAX_STRIPES = 64;
+
+        /** A thread waiting for a task or for space. */
+        static final class Waiter {
+            volatile Thread thread;
+            Waiter(Thread thread) { this.thread = thread; }
+
+            /**
+             * Clears the thread unless a signaller claimed it first.
+             *
+             * @return true if this waiter was not signalled
+             */
+            boolean cancel() {
+                Thread t = thread;
+                return t != null && THREAD.compareAndSet(this, t, null);
+            }
+
+            static final AtomicReferenceFieldUpdater<Waiter,Thread> THREAD =
+                AtomicReferenceFieldUpdater.newUpdater(Waiter.class,
+                                                       Thread.class,
+                                                       "thread");
+        }
+
+        /** A queued task and the time it was enqueued. */
+        static final class Entry {
+            final Runnable task;
+            final long enqueueTime;
+            Entry(Runnable task, long enqueueTime) {
+                this.task = task;
+                this.enqueueTime = enqueueTime;
+            }
+        }
+
+        final ConcurrentLinkedQueue<Entry>[] stripes;
+        final int capacity;
+        final AtomicInteger[] counts; // per stripe; null if unbounded
+        final int[] bounds;           // per stripe; null if unbounded
+        final ConcurrentLinkedDeque<Waiter> takers =
+            new ConcurrentLinkedDeque<Waiter>();
+        final ConcurrentLinkedDeque<Waiter> putters; // null if unbounded
+
+        /**
+         * The interval over which the smoothed latency halves while no
+         * entries are taken; entries are timestamped only if nonzero.
+         */
+        volatile long halfLife;
+
+        /** Smoothed queue latency in nanoseconds, as of latencyTime. */
+        volatile long latency;
+
+        /** The time latency was last updated. */
+        volatile long latencyTime;
+
+        @SuppressWarnings("unchecked")
+        StripedWorkQueue(int parallelism, int capacity) {
+            if (capacity <= 0)
+                throw new IllegalArgumentException();
+            int p = Math.max(1, Math.min(parallelism,
+                                         Runtime.getRuntime().availableProcessors()));
+            int n = 1;
+            while (n < p && n < MAX_STRIPES)
+                n <<= 1;
+            ConcurrentLinkedQueue<Entry>[] qs =
+                (ConcurrentLinkedQueue<Entry>[])new ConcurrentLinkedQueue<?>[n];
+            for (int i = 0; i < n; ++i)
+                qs[i] = new ConcurrentLinkedQueue<Entry>();
+            this.stripes = qs;
+            this.capacity = capacity;
+            if (capacity != Integer.MAX_VALUE) {
+                AtomicInteger[] cs = new AtomicInteger[n];
+                int[] bs = new int[n];
+                for (int i = 0; i < n; ++i) {
+                    cs[i] = new AtomicInteger();
+                    bs[i] = capacity / n + ((i < capacity % n) ? 1 : 0);
+                }
+                this.counts = cs;
+                this.bounds = bs;
+                this.putters = new ConcurrentLinkedDeque<Waiter>();
+            } else {
+                this.counts = null;
+                this.bounds = null;
+                this.putters = null;
+            }
+        }
+
+        static int probe() {
+            int h;
+            if ((h = ThreadLocalRandom.getProbe()) == 0) {
+                ThreadLocalRandom.localInit();
+                h = ThreadLocalRandom.getProbe();
+            }
+            return h;
+        }
+
+        /**
+         * Unparks the most recently arrived waiter on the given stack
+         * that has not cancelled, if any.
+         */
+        static void signal(ConcurrentLinkedDeque<Waiter> waiters) {
+            Waiter w; Thread t;
+            while (!waiters.isEmpty() && (w = waiters.pollFirst()) != null) {
+                if ((t = w.thread) != null &&
+                    Waiter.THREAD.compareAndSet(w, t, null)) {
+                    LockSupport.unpark(t);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the smoothed queue latency at time now, halved for
+         * every halfLife elapsed since it was last updated.
+         */
+        final long latency(long now) {
+            long l = latency, h = halfLife, halvings;
+            if (h > 0L && (halvings = (now - latencyTime) / h) > 0L)
+                l = (halvings >= 63L) ? 0L : l >>> halvings;
+            return l;
+        }
+
+        public boolean offer(Runnable e) {
+            if (e == null)
+                throw new NullPointerException();
+            int m = stripes.length - 1, i = probe() & m;
+            AtomicInteger[] cs = counts;
+            if (cs != null) {
+                for (int k = 0;;) {
+                    AtomicInteger cnt = cs[i];
+                    int c = cnt.get();
+                    if (c < bounds[i]) {
+                        if (cnt.compareAndSet(c, c + 1))
+                            break;
+                    } else if (++k > m)
+                        return false;
+                    else
+                        i = (i + 1) & m;
+                }
+            }
+            Entry x = new Entry(e, (halfLife != 0L) ? System.nanoTime() : 0L);
+            stripes[i].offer(x);
+            signal(takers);
+            return true;
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit)
+            throws InterruptedException {
+            return awaitSpace(e, true, unit.toNanos(timeout));
+        }
+
+        public void put(Runnable e) throws InterruptedException {
+            awaitSpace(e, false, 0L);
+        }
+
+        /**
+         * Offers e, waiting if necessary for space to become available.
+         *
+         * @return false if timed out
+         */
+        private boolean awaitSpace(Runnable e, boolean timed, long nanos)
+            throws InterruptedException {
+            final long deadline = timed ? System.nanoTime() + nanos : 0L;
+            Thread t = Thread.currentThread();
+            for (;;) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                if (offer(e))
+                    return true;
+                if (timed && nanos <= 0L)
+                    return false;
+                Waiter w = new Waiter(t);
+                putters.offerFirst(w);
+                boolean added;
+                if (!(added = offer(e))) {
+                    if (timed)
+                        LockSupport.parkNanos(this, nanos);
+                    else
+                        LockSupport.park(this);
+                }
+                if (!w.cancel() && (added || t.isInterrupted()))
+                    signal(putters);
+                if (added)
+                    return true;
+                if (timed)
+                    nanos = deadline - System.nanoTime();
+            }
+        }
+
+        /** Bookkeeping after an entry is removed from stripe i. */
+        final void removed(int i) {
+            AtomicInteger[] cs = counts;
+            if (cs != null) {
+                cs[i].decrementAndGet();
+                signal(putters);
+            }
+        }
+
+        public Runnable poll() {
+            ConcurrentLinkedQueue<Entry>[] qs = stripes;
+            int m = qs.length - 1, h = probe();
+            for (int i = 0; i <= m; ++i) {
+                int j = (h + i) & m;
+                ConcurrentLinkedQueue<Entry> q = qs[j];
+                Entry x = q.poll();
+                if (x != null) {
+                    removed(j);
+                    long t;
+                    if ((t = x.enqueueTime) != 0L && halfLife != 0L) {
+                        long now = System.nanoTime();
+                        long l = latency(now);
+                        latency = l + ((now - t - l) >> 3);
+                        latencyTime = now;
+                    }
+                    if (!q.isEmpty())
+                        signal(takers);
+                    return x.task;
+                }
+            }
+            return null;
+        }
+
+        public Runnable take() throws InterruptedException {
+            return awaitTask(false, 0L);
+        }
+
+        public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            return awaitTask(true, unit.toNanos(timeout));
+        }
+
+        private Runnable awaitTask(boolean timed, long nanos)
+            throws InterruptedException {
+            final long deadline = timed ? System.nanoTime() + nanos : 0L;
+            Thread t = Thread.currentThread();
+            for (;;) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                Runnable r;
+                if ((r = poll()) != null)
+                    return r;
+                if (timed && nanos <= 0L)
+                    return null;
+                Waiter w = new Waiter(t);
+                takers.offerFirst(w);
+                if ((r = poll()) == null) {
+                    if (timed)
+                        LockSupport.parkNanos(this, nanos);
+                    else
+                        LockSupport.park(this);
+                }
+                if (!w.cancel() && (r != null || t.isInterrupted()))
+                    signal(takers);
+                if (r != null)
+                    return r;
+                if (timed)
+                    nanos = deadline - System.nanoTime();
+            }
+        }
+
+        public Runnable peek() {
+            for (ConcurrentLinkedQueue<Entry> q : stripes) {
+                Entry x = q.peek();
+                if (x != null)
+                    return x.task;
+            }
+            return null;
+        }
+
+        public boolean isEmpty() {
+            for (ConcurrentLinkedQueue<Entry> q : stripes) {
+                if (!q.isEmpty())
+                    return false;
+            }
+            return true;
+        }
+
+        public int size() {
+            AtomicInteger[] cs = counts;
+            long n = 0L;
+            if (cs != null) {
+                for (AtomicInteger cnt : cs)
+                    n += cnt.get();
+            } else {
+                for (ConcurrentLinkedQueue<Entry> q : stripes)
+                    n += q.size();
+            }
+            return (int)Math.min(n, Integer.MAX_VALUE);
+        }
+
+        public int remainingCapacity() {
+            return (counts == null) ? Integer.MAX_VALUE : capacity - size();
+        }
+
+        public boolean remove(Object o) {
+            if (o != null) {
+                for (int i = 0; i < stripes.length; ++i) {
+                    ConcurrentLinkedQueue<Entry> q = stripes[i];
+                    for (Entry x : q) {
+                        if (o.equals(x.task) && q.remove(x)) {
+                            removed(i);
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            int n = 0;
+            Runnable r;
+            while (n < maxElements && (r = poll()) != null) {
+                c.add(r);
+                ++n;
+            }
+            return n;
+        }
+
+        /**
+         * Returns a weakly consistent iterator over the tasks in this
+         * queue, stripe by stripe.
+         */
+        public Iterator<Runnable> iterator() {
+            return new Itr();
+        }
+
+        final class Itr implements Iterator<Runnable> {
+            int index;
+            Iterator<Entry> it;
+            int lastIndex;
+            Entry next, lastRet;
+
+            Itr() { advance(); }
+
+            private void advance() {
+                for (;;) {
+                    if (it != null && it.hasNext()) {
+                        next = it.next();
+                        return;
+                    }
+                    if (index >= stripes.length) {
+                        next = null;
+                        return;
+                    }
+                    it = stripes[index++].iterator();
+                }
+            }
+
+            public boolean hasNext() { return next != null; }
+
+            public Runnable next() {
+                Entry x = next;
+                if (x == null)
+                    throw new NoSuchElementException();
+                lastIndex = index - 1;
+                lastRet = x;
+                advance();
+                return x.task;
+            }
+
+            public void remove() {
+                Entry x = lastRet;
+                if (x == null)
+                    throw new IllegalStateException();
+                lastRet = null;
+                if (stripes[lastIndex].remove(x))
+                    removed(lastIndex);
+            }
+        }
+    }
+
     /* Predefined RejectedExecutionHandlers */
 
     /**
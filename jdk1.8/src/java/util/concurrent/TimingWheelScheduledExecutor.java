@@ -0,0 +1,949 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in
+ * hierarchical timing wheels rather than in a priority queue, suited
+ * to large numbers of timeouts that are usually cancelled before they
+ * expire, such as connection idle timers and request deadlines.
+ *
+ * <p>Time is divided into <em>ticks</em> of a duration given at
+ * construction.  A task is placed in the bucket of the tick at which
+ * it expires, in the first of a series of wheels of {@code wheelSize}
+ * buckets each that spans its delay, each wheel covering {@code
+ * wheelSize} times the span of the previous one.  Tasks in outer
+ * wheels are moved inward as their time approaches.  Scheduling and
+ * cancellation thus take constant time regardless of the number of
+ * pending tasks, in contrast to the logarithmic time of a {@link
+ * ScheduledThreadPoolExecutor}, and cancelled tasks are removed
+ * within about one rotation of the innermost wheel, as if by {@link
+ * ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy
+ * setRemoveOnCancelPolicy(true)}.
+ *
+ * <p>A single timer thread, created using the {@link ThreadFactory}
+ * given at construction, maintains the wheels.  Scheduling threads
+ * never contend with it or with each other for a lock: new tasks and
+ * cancellations are handed to the timer thread through lock-free
+ * queues.  The timer thread sleeps until the next tick holding a task
+ * rather than waking on every tick.
+ *
+ * <p>Tasks are run by the timer thread itself unless an {@link
+ * Executor} is supplied at construction, in which case the timer
+ * thread submits each expired task to it.  Without an executor, tasks
+ * should be short, because they delay the expiration of others.
+ *
+ * <p>Tasks never run before their delay has elapsed, but may run up to
+ * about one tick later, so the tick duration bounds the precision of
+ * delays.  Unlike {@code ScheduledThreadPoolExecutor}, tasks scheduled
+ * for the same tick are not necessarily run in the order in which they
+ * were submitted.  Successive executions of a periodic task never
+ * overlap.
+ *
+ * <p>As with a {@code ScheduledThreadPoolExecutor} with default
+ * policies, after {@link #shutdown}, periodic tasks are cancelled and
+ * delayed tasks still run when due; the executor terminates when none
+ * remain.  Tasks already submitted to a supplied executor do not delay
+ * termination.  Methods returning futures return {@link
+ * RunnableScheduledFuture} instances, which may be replaced by
+ * subclasses through {@link #decorateTask(Runnable,
+ * RunnableScheduledFuture) decorateTask}.
+ *
+ * @author zohar
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+    /*
+     * The wheels are arrays of doubly-linked buckets of
+     * ScheduledTasks, accessed only while holding the main lock.  The
+     * lock is held by the timer thread while it updates the wheels
+     * (but not while running tasks), and is otherwise only used by
+     * shutdown and shutdownNow, so it is normally uncontended.
+     *
+     * A task expiring at tick e, inserted when the next tick to
+     * process is t, goes into wheel (level) i for the smallest i such
+     * that e - t < wheelSize^(i+1), in bucket (e >>> i * shift) & mask.
+     * Whenever tick t has its low i * shift bits zero, the bucket
+     * (t >>> i * shift) & mask of wheel i is cascaded: its tasks are
+     * reinserted, landing in inner wheels, before the bucket t & mask
+     * of wheel 0 is expired.  (This is the classic scheme of the
+     * Linux kernel timers.)  Tasks in wheel 0 always expire within
+     * the current rotation, so between cascade points the timer
+     * thread may skip directly to the next nonempty bucket of wheel 0,
+     * which bounds wakeups by the number of distinct expiration ticks
+     * plus one per rotation while outer wheels are nonempty.
+     *
+     * Newly scheduled tasks (and periodic tasks to run again) are
+     * pushed onto a Treiber stack of pending tasks, and cancelled ones
+     * onto a second stack, linked through field nextCancelled.  The
+     * timer thread takes each stack in a single swap before updating
+     * the wheels.  A scheduling thread wakes the timer only if its
+     * task expires before the tick the timer sleeps until, published
+     * in field wakeTick (zero while the timer is awake).
+     */
+
+    /** Default tick duration, in nanoseconds */
+    private static final long DEFAULT_TICK_NANOS = MILLISECONDS.toNanos(1L);
+
+    /** Default number of buckets per wheel */
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** Largest number of buckets per wheel */
+    private static final int MAX_WHEEL_SIZE = 1 << 16;
+
+    // runState values
+    private static final int RUNNING    = 0;
+    private static final int SHUTDOWN   = 1;
+    private static final int STOP       = 2;
+    private static final int TERMINATED = 3;
+
+    private final long tickNanos;       // tick duration
+    private final int shift;            // log2(wheelSize)
+    private final int mask;             // wheelSize - 1
+    private final long origin;          // nanoTime of tick zero
+    private final Executor executor;    // runs expired tasks; null if timer
+    private final Thread timer;
+
+    private final ReentrantLock mainLock = new ReentrantLock();
+    private final CountDownLatch termination = new CountDownLatch(1);
+    private volatile int runState;
+
+    // The following fields are guarded by mainLock
+    private final ScheduledTask<?>[][] wheels;
+    private final int[] counts;         // number of tasks per wheel
+    private int size;                   // number of tasks in wheels
+    private long tick;                  // next tick to process
+
+    private volatile ScheduledTask<?> pendingTasks;   // to insert
+    private volatile ScheduledTask<?> cancelledTasks; // to remove
+    private volatile long wakeTick;     // tick timer sleeps until
+
+    /**
+     * Creates a new executor with a tick of one millisecond and 512
+     * buckets per wheel, whose timer thread runs tasks itself.
+     */
+    public TimingWheelScheduledExecutor() {
+        this(DEFAULT_TICK_NANOS, NANOSECONDS, DEFAULT_WHEEL_SIZE,
+             Executors.defaultThreadFactory(), null);
+    }
+
+    /**
+     * Creates a new executor with the given tick duration and 512
+     * buckets per wheel, whose timer thread runs tasks itself.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code tickDuration} is not
+     *         positive
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, DEFAULT_WHEEL_SIZE,
+             Executors.defaultThreadFactory(), null);
+    }
+
+    /**
+     * Creates a new executor with the given parameters.
+     *
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param wheelSize the number of buckets per wheel, rounded up to
+     *        a power of two
+     * @param threadFactory the factory used to create the timer thread
+     * @param executor the executor used to run expired tasks, or
+     *        {@code null} to run them in the timer thread
+     * @throws IllegalArgumentException if {@code tickDuration} is not
+     *         positive, or {@code wheelSize} is less than two or
+     *         greater than 65536
+     * @throws NullPointerException if {@code unit} or {@code
+     *         threadFactory} is null, or {@code threadFactory} fails
+     *         to create a thread
+     */
+    public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit,
+                                        int wheelSize,
+                                        ThreadFactory threadFactory,
+                                        Executor executor) {
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(tickDuration);
+        if (nanos <= 0L || wheelSize < 2 || wheelSize > MAX_WHEEL_SIZE)
+            throw new IllegalArgumentException();
+        int s = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        // enough wheels to span any delay, capped at Long.MAX_VALUE >> 1
+        int levels = (63 + s - 1) / s;
+        this.tickNanos = nanos;
+        this.shift = s;
+        this.mask = (1 << s) - 1;
+        this.executor = executor;
+        this.wheels = new ScheduledTask<?>[levels][1 << s];
+        this.counts = new int[levels];
+        this.origin = System.nanoTime();
+        Thread t = threadFactory.newThread(new Runnable() {
+                public void run() { runTimer(); }
+            });
+        if (t == null)
+            throw new NullPointerException();
+        this.timer = t;
+        t.start();
+    }
+
+    /**
+     * Returns current nanosecond time.
+     */
+    final long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    /**
+     * Returns the trigger time of a delayed action, with delays
+     * capped so that tick arithmetic cannot overflow.
+     */
+    long triggerTime(long delay) {
+        return now() + ((delay < (Long.MAX_VALUE >> 1)) ?
+                        delay : (Long.MAX_VALUE >> 1));
+    }
+
+    /**
+     * Returns the last tick at or before the current time.
+     */
+    private long currentTick() {
+        long d = now() - origin;
+        return (d <= 0L) ? 0L : d / tickNanos;
+    }
+
+    /**
+     * Returns the first tick at or after the given nanoTime.
+     */
+    private long tickOf(long time) {
+        long d = time - origin;
+        return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+    }
+
+    private class ScheduledTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** The actual task to be run, as returned by decorateTask */
+        RunnableScheduledFuture<V> outerTask = this;
+
+        /** The expiration tick, computed when scheduled */
+        long expiration;
+
+        // Links in a bucket, or (next) in the pending stack
+        ScheduledTask<?> next, prev;
+        ScheduledTask<?> nextCancelled;
+        int level = -1;                 // wheel, or -1 if in none
+        int index;                      // bucket within wheel
+
+        ScheduledTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+        }
+
+        ScheduledTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - now(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            long diff = (other instanceof ScheduledTask) ?
+                time - ((ScheduledTask<?>)other).time :
+                getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        /**
+         * Returns {@code true} if this is a periodic (not a one-shot) action.
+         *
+         * @return {@code true} if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Sets the next time to run for a periodic task.
+         */
+        private void setNextRunTime() {
+            long p = period;
+            if (p > 0)
+                time += p;
+            else
+                time = triggerTime(-p);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                pushCancelled(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reschedule if periodic.
+         */
+        public void run() {
+            boolean periodic = isPeriodic();
+            if (!canRunInCurrentRunState(periodic))
+                cancel(false);
+            else if (!periodic)
+                ScheduledTask.super.run();
+            else if (ScheduledTask.super.runAndReset()) {
+                setNextRunTime();
+                if (runState == RUNNING)
+                    pushPending(this);
+                else
+                    cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Returns true if can run a task given current run state: delayed
+     * tasks run unless stopped, periodic ones only while running.
+     */
+    boolean canRunInCurrentRunState(boolean periodic) {
+        int rs = runState;
+        return rs == RUNNING || (rs == SHUTDOWN && !periodic);
+    }
+
+    /**
+     * Hands the given task to the timer thread, waking it if the task
+     * expires before the timer would otherwise wake up.
+     */
+    private void pushPending(ScheduledTask<?> task) {
+        long e = task.expiration = tickOf(task.time);
+        ScheduledTask<?> p;
+        do {
+            task.next = p = pendingTasks;
+        } while (!U.compareAndSwapObject(this, PENDING, p, task));
+        if (e < wakeTick)
+            LockSupport.unpark(timer);
+    }
+
+    /**
+     * Hands the given cancelled task to the timer thread for removal.
+     */
+    private void pushCancelled(ScheduledTask<?> task) {
+        ScheduledTask<?> p;
+        do {
+            task.nextCancelled = p = cancelledTasks;
+        } while (!U.compareAndSwapObject(this, CANCELLED, p, task));
+    }
+
+    /**
+     * Main execution method for delayed or periodic tasks.  If the
+     * executor is shut down, rejects the task; if it is shut down
+     * while the task is being added, cancels it.
+     */
+    private void delayedExecute(ScheduledTask<?> task) {
+        if (runState != RUNNING)
+            throw new RejectedExecutionException();
+        pushPending(task);
+        if (runState != RUNNING)
+            task.outerTask.cancel(false);
+    }
+
+    /**
+     * Modifies or replaces the task used to execute a runnable.
+     * This method can be used to override the concrete
+     * class used for managing internal tasks.
+     * The default implementation simply returns the given task.
+     *
+     * @param runnable the submitted Runnable
+     * @param task the task created to execute the runnable
+     * @param <V> the type of the task's result
+     * @return a task that can execute the runnable
+     */
+    protected <V> RunnableScheduledFuture<V> decorateTask(
+        Runnable runnable, RunnableScheduledFuture<V> task) {
+        return task;
+    }
+
+    /**
+     * Modifies or replaces the task used to execute a callable.
+     * This method can be used to override the concrete
+     * class used for managing internal tasks.
+     * The default implementation simply returns the given task.
+     *
+     * @param callable the submitted Callable
+     * @param task the task created to execute the callable
+     * @param <V> the type of the task's result
+     * @return a task that can execute the callable
+     */
+    protected <V> RunnableScheduledFuture<V> decorateTask(
+        Callable<V> callable, RunnableScheduledFuture<V> task) {
+        return task;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        ScheduledTask<Void> st =
+            new ScheduledTask<Void>(command, null,
+                                    triggerTime(delay, unit), 0L);
+        RunnableScheduledFuture<Void> t = decorateTask(command, st);
+        st.outerTask = t;
+        delayedExecute(st);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        ScheduledTask<V> st =
+            new ScheduledTask<V>(callable, triggerTime(delay, unit));
+        RunnableScheduledFuture<V> t = decorateTask(callable, st);
+        st.outerTask = t;
+        delayedExecute(st);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        ScheduledTask<Void> st =
+            new ScheduledTask<Void>(command, null,
+                                    triggerTime(initialDelay, unit),
+                                    unit.toNanos(period));
+        RunnableScheduledFuture<Void> t = decorateTask(command, st);
+        st.outerTask = t;
+        delayedExecute(st);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        ScheduledTask<Void> st =
+            new ScheduledTask<Void>(command, null,
+                                    triggerTime(initialDelay, unit),
+                                    unit.toNanos(-delay));
+        RunnableScheduledFuture<Void> t = decorateTask(command, st);
+        st.outerTask = t;
+        delayedExecute(st);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay, that is, at
+     * the next tick.  This has effect equivalent to
+     * {@link #schedule(Runnable,long,TimeUnit) schedule(command, 0, anyUnit)}.
+     *
+     * @throws RejectedExecutionException if this executor has been
+     *         shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    // Override AbstractExecutorService methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * delayed tasks are run when due, periodic tasks are cancelled,
+     * and no new tasks will be accepted.  Invocation has no
+     * additional effect if already shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     */
+    public void shutdown() {
+        final ReentrantLock mainLock = this.mainLock;
+        List<ScheduledTask<?>> periodic = new ArrayList<ScheduledTask<?>>();
+        mainLock.lock();
+        try {
+            if (runState != RUNNING)
+                return;
+            runState = SHUTDOWN;
+            for (ScheduledTask<?>[] wheel : wheels) {
+                for (ScheduledTask<?> b : wheel) {
+                    for (ScheduledTask<?> t = b; t != null; t = t.next) {
+                        if (t.isPeriodic())
+                            periodic.add(t);
+                    }
+                }
+            }
+            for (ScheduledTask<?> t : periodic)
+                unlink(t);
+        } finally {
+            mainLock.unlock();
+        }
+        for (ScheduledTask<?> t : periodic)
+            t.outerTask.cancel(false);
+        LockSupport.unpark(timer);
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained from
+     * the wheels upon return from this method.
+     *
+     * <p>This method does not wait for actively executing tasks to
+     * terminate.  Use {@link #awaitTermination awaitTermination} to
+     * do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * interrupts the timer thread, so a task running in it that fails
+     * to respond to interrupts may never terminate.  Tasks already
+     * handed to a supplied executor are not affected.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture},
+     *         including those tasks submitted using {@code execute},
+     *         which are for scheduling purposes used as the basis of a
+     *         zero-delay {@code ScheduledFuture}.
+     */
+    public List<Runnable> shutdownNow() {
+        final ReentrantLock mainLock = this.mainLock;
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        mainLock.lock();
+        try {
+            if (runState < STOP)
+                runState = STOP;
+            for (ScheduledTask<?> p = (ScheduledTask<?>)
+                     U.getAndSetObject(this, PENDING, null), next;
+                 p != null; p = next) {
+                next = p.next;
+                p.next = null;
+                if (!p.isDone())
+                    tasks.add(p.outerTask);
+            }
+            for (ScheduledTask<?>[] wheel : wheels) {
+                for (int i = 0; i < wheel.length; ++i) {
+                    ScheduledTask<?> t = wheel[i], next;
+                    wheel[i] = null;
+                    for (; t != null; t = next) {
+                        next = t.next;
+                        t.next = t.prev = null;
+                        t.level = -1;
+                        if (!t.isDone())
+                            tasks.add(t.outerTask);
+                    }
+                }
+            }
+            Arrays.fill(counts, 0);
+            size = 0;
+        } finally {
+            mainLock.unlock();
+        }
+        timer.interrupt();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return termination.await(timeout, unit);
+    }
+
+    /**
+     * Returns the duration of a tick, in the given unit.
+     *
+     * @param unit the time unit of the result
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns an estimate of the number of scheduled tasks that have
+     * not yet expired.  Tasks recently scheduled or cancelled may not
+     * yet be reflected.  This method is designed for use in monitoring
+     * system state, not for synchronization control.
+     *
+     * @return the estimated number of waiting tasks
+     */
+    public int getTaskCount() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            return size;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /* ------------- Timer thread -------------- */
+
+    /**
+     * Main loop of the timer thread.
+     */
+    final void runTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        try {
+            for (;;) {
+                ScheduledTask<?> expired;
+                long wake;
+                mainLock.lock();
+                try {
+                    wakeTick = 0L;
+                    int rs = runState;
+                    if (rs >= STOP)
+                        break;
+                    insertPending(rs);
+                    removeCancelled();
+                    expired = advance(currentTick());
+                    if (expired == null && rs == SHUTDOWN && size == 0 &&
+                        pendingTasks == null)
+                        break;
+                    wakeTick = wake = nextTick();
+                } finally {
+                    mainLock.unlock();
+                }
+                if (expired != null)
+                    runExpired(expired);
+                else if (pendingTasks == null) {
+                    Thread.interrupted(); // don't spin on a stale interrupt
+                    if (wake == Long.MAX_VALUE)
+                        LockSupport.park(this);
+                    else {
+                        long nanos = origin + wake * tickNanos - now();
+                        if (nanos > 0L)
+                            LockSupport.parkNanos(this, nanos);
+                    }
+                }
+            }
+        } finally {
+            runState = TERMINATED;
+            termination.countDown();
+        }
+    }
+
+    /**
+     * Moves pending tasks into the wheels, dropping cancelled ones,
+     * and after shutdown, cancelling periodic ones.
+     */
+    private void insertPending(int rs) {
+        ScheduledTask<?> p = (ScheduledTask<?>)
+            U.getAndSetObject(this, PENDING, null), next;
+        for (; p != null; p = next) {
+            next = p.next;
+            p.next = null;
+            if (p.isCancelled())
+                continue;
+            if (rs != RUNNING && p.isPeriodic())
+                p.outerTask.cancel(false);
+            else
+                insert(p);
+        }
+    }
+
+    /**
+     * Unlinks cancelled tasks from their buckets.
+     */
+    private void removeCancelled() {
+        ScheduledTask<?> c = (ScheduledTask<?>)
+            U.getAndSetObject(this, CANCELLED, null), next;
+        for (; c != null; c = next) {
+            next = c.nextCancelled;
+            c.nextCancelled = null;
+            unlink(c);
+        }
+    }
+
+    /**
+     * Inserts the task into the bucket of its expiration tick, in the
+     * innermost wheel spanning it.
+     */
+    private void insert(ScheduledTask<?> task) {
+        long t = tick;
+        long e = Math.max(task.expiration, t);
+        long delta = e - t;
+        int s = shift, last = wheels.length - 1, level = 0;
+        while (level < last && delta >= (1L << ((level + 1) * s)))
+            ++level;
+        int i = (int)(e >>> (level * s)) & mask;
+        ScheduledTask<?>[] wheel = wheels[level];
+        ScheduledTask<?> h = wheel[i];
+        task.prev = null;
+        if ((task.next = h) != null)
+            h.prev = task;
+        wheel[i] = task;
+        task.level = level;
+        task.index = i;
+        ++counts[level];
+        ++size;
+    }
+
+    /**
+     * Removes the task from its bucket, if in one.
+     */
+    private void unlink(ScheduledTask<?> task) {
+        int level = task.level;
+        if (level >= 0) {
+            ScheduledTask<?> p = task.prev, n = task.next;
+            if (p == null)
+                wheels[level][task.index] = n;
+            else
+                p.next = n;
+            if (n != null)
+                n.prev = p;
+            task.next = task.prev = null;
+            task.level = -1;
+            --counts[level];
+            --size;
+        }
+    }
+
+    /**
+     * Processes ticks up to and including the given one, returning
+     * the expired tasks, linked through field next, in order of
+     * expiration.
+     */
+    private ScheduledTask<?> advance(long now) {
+        ScheduledTask<?> head = null, tail = null;
+        ScheduledTask<?>[] inner = wheels[0];
+        long t = tick;
+        while (t <= now && size > 0) {
+            int i = (int)t & mask;
+            tick = t;           // cascaded tasks are inserted relative to t
+            if (i == 0 && size > counts[0])
+                cascade(t);
+            ScheduledTask<?> b = inner[i], next;
+            if (b != null) {
+                inner[i] = null;
+                for (; b != null; b = next) {
+                    next = b.next;
+                    b.next = b.prev = null;
+                    b.level = -1;
+                    --counts[0];
+                    --size;
+                    if (tail == null)
+                        head = b;
+                    else
+                        tail.next = b;
+                    tail = b;
+                }
+            }
+            tick = t + 1L;
+            t = nextTick();
+        }
+        if (tick <= now)
+            tick = now + 1L;
+        return head;
+    }
+
+    /**
+     * Reinserts the tasks of the outer-wheel buckets that come due at
+     * tick t, whose low bits are zero.
+     */
+    private void cascade(long t) {
+        int s = shift;
+        for (int level = 1; level < wheels.length; ++level) {
+            int i = (int)(t >>> (level * s)) & mask;
+            ScheduledTask<?>[] wheel = wheels[level];
+            ScheduledTask<?> b = wheel[i], next;
+            wheel[i] = null;
+            for (; b != null; b = next) {
+                next = b.next;
+                b.next = b.prev = null;
+                b.level = -1;
+                --counts[level];
+                --size;
+                insert(b);
+            }
+            if (i != 0)
+                break;
+        }
+    }
+
+    /**
+     * Returns the next tick that must be processed: the first nonempty
+     * bucket of the inner wheel, or the next cascade point if outer
+     * wheels are nonempty and it comes first, or Long.MAX_VALUE if
+     * there are no tasks.
+     */
+    private long nextTick() {
+        if (size == 0)
+            return Long.MAX_VALUE;
+        long t = tick, limit;
+        if (size == counts[0])
+            limit = t + mask + 1L;
+        else if ((t & mask) == 0L)
+            return t;           // cascade due now
+        else
+            limit = (t | mask) + 1L;
+        if (counts[0] > 0) {
+            ScheduledTask<?>[] inner = wheels[0];
+            for (long k = t; k < limit; ++k) {
+                if (inner[(int)k & mask] != null)
+                    return k;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Runs or submits expired tasks, cancelling those remaining if
+     * stopped meanwhile.
+     */
+    private void runExpired(ScheduledTask<?> task) {
+        Executor e = executor;
+        for (ScheduledTask<?> next; task != null; task = next) {
+            next = task.next;
+            task.next = null;
+            Runnable r = task.outerTask;
+            if (runState >= STOP)
+                task.outerTask.cancel(false);
+            else if (e == null) {
+                Thread.interrupted(); // clear any interrupt from a task
+                try {
+                    r.run();
+                } catch (Throwable ex) { // only possible if decorated
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+                }
+            }
+            else {
+                try {
+                    e.execute(r);
+                } catch (RejectedExecutionException ex) {
+                    task.outerTask.cancel(false);
+                }
+            }
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long PENDING;
+    private static final long CANCELLED;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = TimingWheelScheduledExecutor.class;
+            PENDING = U.objectFieldOffset
+                (k.getDeclaredField("pendingTasks"));
+            CANCELLED = U.objectFieldOffset
+                (k.getDeclaredField("cancelledTasks"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,657 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A histogram of non-negative {@code long} values, such as latencies
+ * in nanoseconds, that may be recorded concurrently by many threads,
+ * and from which percentiles, the count and the maximum of the
+ * recorded values may be obtained without blocking recording threads.
+ *
+ * <p>Values are counted in log-linear buckets, in the style of HDR
+ * histograms: values less than 2<sup>p</sup> each have their own
+ * bucket, where p is the {@code precision} given on construction,
+ * and every range [2<sup>k</sup>, 2<sup>k+1</sup>) above it is divided
+ * into 2<sup>p</sup> buckets of equal width.  So every value is
+ * reported within a relative error of 2<sup>-p</sup>; for the default
+ * precision 7, less than 1%.  Values greater than the {@code
+ * highestTrackableValue} given on construction are counted in the
+ * bucket of that value; the maximum is always exact.
+ *
+ * <p>Method {@link #record} is wait-free, apart from a bounded retry
+ * when it raises the maximum.  As for {@link LongAdder}, when updates
+ * are contended across threads, the set of bucket arrays maintaining
+ * the counts grows dynamically to reduce contention, each thread
+ * choosing its array using the same per-thread probe as {@code
+ * LongAdder}.  Method {@link #snapshot} combines the arrays into an
+ * immutable {@link Snapshot}.  As for {@link LongAdder#sum}, a
+ * snapshot is not atomic: values recorded while it is taken may or
+ * may not be included.
+ *
+ * <p>Each bucket array holds (64&nbsp;&minus;&nbsp;p)&nbsp;&times;&nbsp;2<sup>p</sup>
+ * counts when {@code highestTrackableValue} is {@code Long.MAX_VALUE},
+ * that is 58KB for the default precision, and fewer for smaller
+ * highest values.  There is at most one array per CPU, created only
+ * under contention.
+ *
+ * <p>This class implements {@link ConcurrentHistogramMXBean}, so an
+ * instance may be registered directly with an MBean server.
+ *
+ * @author zohar
+ */
+public class ConcurrentHistogram
+        implements ConcurrentHistogramMXBean, Serializable {
+    private static final long serialVersionUID = -3349476270599741213L;
+
+    /*
+     * The striping follows Striped64, except that each stripe holds
+     * an array of counts rather than a single value, so stripes are
+     * too large to create speculatively, and an update must not
+     * retry.  An update first CASes its bucket in the stripe indexed
+     * by the thread's probe (or in the base stripe when there is no
+     * table), which succeeds unless contended.  On failure, or if
+     * the slot is empty, method recordContended then creates the
+     * table or the stripe, or doubles the table up to the number of
+     * CPUs, if the spinlock is free, rehashes the thread's probe
+     * after a failed CAS, and completes the update with an
+     * unconditional atomic add, so that no update retries.
+     */
+
+    /** The default number of bits of precision */
+    static final int DEFAULT_PRECISION = 7;
+
+    /**
+     * A stripe: an array of bucket counts plus the maximum value
+     * recorded in it, padded to avoid sharing cache lines with other
+     * stripes' headers.
+     */
+    @sun.misc.Contended static final class Stripe {
+        final long[] counts;
+        volatile long max;
+        Stripe(int buckets) { counts = new long[buckets]; }
+
+        /**
+         * Raises max to at least the given value.
+         */
+        final void updateMax(long value) {
+            long m;
+            while (value > (m = max) &&
+                   !UNSAFE.compareAndSwapLong(this, MAX, m, value))
+                ;
+        }
+    }
+
+    /** The highest value counted in its own bucket */
+    private final long highestTrackableValue;
+
+    /** The number of bits of precision, p */
+    private final int precision;
+
+    /** The number of buckets in each stripe */
+    private final int bucketCount;
+
+    /**
+     * Stripe used when there is no contention, and as a fallback
+     * during table initialization races.
+     */
+    private final transient Stripe base;
+
+    /**
+     * Table of stripes. When non-null, size is a power of 2.
+     */
+    private transient volatile Stripe[] stripes;
+
+    /**
+     * Spinlock (locked via CAS) used when resizing and/or creating
+     * stripes.
+     */
+    private transient volatile int stripesBusy;
+
+    /**
+     * Creates a new histogram tracking all non-negative values with
+     * the default precision, 7 bits.
+     */
+    public ConcurrentHistogram() {
+        this(Long.MAX_VALUE, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new histogram with the given highest trackable value
+     * and precision.
+     *
+     * @param highestTrackableValue the highest value counted in its
+     *        own bucket; greater values are counted in its bucket
+     * @param precision the number of significant bits of each value
+     *        retained, between 1 and 16
+     * @throws IllegalArgumentException if highestTrackableValue is
+     *         less than one or precision is not between 1 and 16
+     */
+    public ConcurrentHistogram(long highestTrackableValue, int precision) {
+        if (highestTrackableValue < 1L || precision < 1 || precision > 16)
+            throw new IllegalArgumentException();
+        this.highestTrackableValue = highestTrackableValue;
+        this.precision = precision;
+        this.bucketCount = bucketIndex(highestTrackableValue, precision) + 1;
+        this.base = new Stripe(bucketCount);
+    }
+
+    /**
+     * Returns the bucket of the given non-negative value.
+     */
+    static int bucketIndex(long value, int p) {
+        int e = 63 - Long.numberOfLeadingZeros(value);
+        if (e < p)              // also covers zero
+            return (int)value;
+        int shift = e - p;
+        return ((shift + 1) << p) + (int)((value >>> shift) - (1L << p));
+    }
+
+    /**
+     * Returns the least value counted in the given bucket.
+     */
+    static long lowestEquivalentValue(int index, int p) {
+        int q = index >>> p;
+        if (q == 0)
+            return index;
+        return ((1L << p) + (index & ((1 << p) - 1))) << (q - 1);
+    }
+
+    /**
+     * Returns the greatest value counted in the given bucket.
+     */
+    static long highestEquivalentValue(int index, int p) {
+        int q = index >>> p;
+        long lowest = lowestEquivalentValue(index, p);
+        return (q == 0) ? lowest : lowest + (1L << (q - 1)) - 1L;
+    }
+
+    private static long byteOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value to record
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0L)
+            throw new IllegalArgumentException();
+        int i = bucketIndex(Math.min(value, highestTrackableValue), precision);
+        long off = byteOffset(i), c;
+        Stripe[] as; Stripe a; int m; long[] cs;
+        if ((as = stripes) == null) {
+            cs = (a = base).counts;
+            if (!UNSAFE.compareAndSwapLong
+                (cs, off, c = UNSAFE.getLongVolatile(cs, off), c + 1L))
+                a = recordContended(off, null, true);
+        }
+        else if ((m = as.length - 1) < 0 ||
+                 (a = as[Striped64.getProbe() & m]) == null)
+            a = recordContended(off, as, false);
+        else if (!UNSAFE.compareAndSwapLong
+                 (cs = a.counts, off,
+                  c = UNSAFE.getLongVolatile(cs, off), c + 1L))
+            a = recordContended(off, as, true);
+        if (value > a.max)
+            a.updateMax(value);
+    }
+
+    /**
+     * Handles updates when the table is absent or empty at the
+     * thread's slot, or a CAS failed; see above for explanation.
+     * Always adds one to the count at the given offset, in the
+     * stripe returned.
+     *
+     * @param off the offset of the bucket count
+     * @param as the table read by the caller
+     * @param collided true if a CAS failed
+     * @return the stripe updated
+     */
+    private Stripe recordContended(long off, Stripe[] as, boolean collided) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = Striped64.getProbe();
+        }
+        Stripe a = null;
+        if (stripesBusy == 0 &&
+            UNSAFE.compareAndSwapInt(this, STRIPESBUSY, 0, 1)) {
+            try {
+                Stripe[] rs = stripes; int n;
+                if (rs == null)                 // Initialize table
+                    stripes = rs = new Stripe[2];
+                else if (collided && rs == as &&
+                         (n = rs.length) < Striped64.NCPU) {
+                    Stripe[] ns = new Stripe[n << 1];
+                    for (int i = 0; i < n; ++i) // Expand table
+                        ns[i] = rs[i];
+                    stripes = rs = ns;
+                }
+                int j = (rs.length - 1) & h;
+                if ((a = rs[j]) == null)
+                    rs[j] = a = new Stripe(bucketCount);
+            } finally {
+                stripesBusy = 0;
+            }
+        }
+        else {                                  // Use existing slot or base
+            Stripe[] rs = stripes; int m;
+            if (rs == null || (m = rs.length - 1) < 0 ||
+                (a = rs[m & h]) == null)
+                a = base;
+        }
+        if (collided)
+            Striped64.advanceProbe(h);
+        UNSAFE.getAndAddLong(a.counts, off, 1L);
+        return a;
+    }
+
+    /**
+     * Returns a snapshot of the values recorded so far.  The returned
+     * snapshot is <em>NOT</em> atomic; invocation in the absence of
+     * concurrent updates returns an accurate result, but concurrent
+     * updates that occur while the snapshot is being taken might not
+     * be incorporated.
+     *
+     * @return a snapshot of the recorded values
+     */
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Equivalent in effect to {@link #snapshot} followed by {@link
+     * #reset}, except that each count is atomically read and cleared,
+     * so that every value recorded concurrently is included in either
+     * this snapshot or a later one.  This method may apply for example
+     * when reporting the values recorded in successive intervals.  The
+     * maximum of a value recorded concurrently with this method may be
+     * attributed to the wrong interval.
+     *
+     * @return a snapshot of the recorded values
+     */
+    public Snapshot snapshotThenReset() {
+        return collect(true);
+    }
+
+    /**
+     * Resets the histogram to record no values.  This method may be a
+     * useful alternative to creating a new histogram, but is only
+     * effective if there are no concurrent updates.
+     */
+    public void reset() {
+        Stripe[] as = stripes; Stripe a;
+        clear(base);
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    clear(a);
+            }
+        }
+    }
+
+    private static void clear(Stripe a) {
+        long[] cs = a.counts;
+        for (int i = 0; i < cs.length; ++i)
+            cs[i] = 0L;
+        a.max = 0L;
+    }
+
+    private Snapshot collect(boolean reset) {
+        long[] sum = new long[bucketCount];
+        long max = merge(base, sum, reset);
+        Stripe[] as = stripes; Stripe a;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    max = Math.max(max, merge(a, sum, reset));
+            }
+        }
+        return new Snapshot(sum, max, precision);
+    }
+
+    /**
+     * Adds the counts of the given stripe to sum, optionally clearing
+     * them, and returns its maximum.
+     */
+    private static long merge(Stripe a, long[] sum, boolean reset) {
+        long[] cs = a.counts;
+        if (reset) {
+            long max = UNSAFE.getAndSetLong(a, MAX, 0L);
+            for (int i = 0; i < cs.length; ++i) {
+                if (UNSAFE.getLongVolatile(cs, byteOffset(i)) != 0L)
+                    sum[i] += UNSAFE.getAndSetLong(cs, byteOffset(i), 0L);
+            }
+            return max;
+        }
+        for (int i = 0; i < cs.length; ++i)
+            sum[i] += UNSAFE.getLongVolatile(cs, byteOffset(i));
+        return a.max;
+    }
+
+    /**
+     * Returns the highest value counted in its own bucket.
+     *
+     * @return the highest trackable value
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns the number of significant bits retained of each value.
+     *
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    // ConcurrentHistogramMXBean methods, each from a new snapshot
+
+    public long getCount() {
+        return snapshot().getCount();
+    }
+
+    public long getMax() {
+        return snapshot().getMax();
+    }
+
+    public double getMean() {
+        return snapshot().getMean();
+    }
+
+    public long get50thPercentile() {
+        return snapshot().valueAtPercentile(50.0);
+    }
+
+    public long get90thPercentile() {
+        return snapshot().valueAtPercentile(90.0);
+    }
+
+    public long get99thPercentile() {
+        return snapshot().valueAtPercentile(99.0);
+    }
+
+    public long get999thPercentile() {
+        return snapshot().valueAtPercentile(99.9);
+    }
+
+    public long valueAtPercentile(double percentile) {
+        return snapshot().valueAtPercentile(percentile);
+    }
+
+    /**
+     * Returns the String representation of a {@link #snapshot}.
+     * @return the String representation of a {@link #snapshot}
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable set of bucket counts taken from a {@link
+     * ConcurrentHistogram}.  All values are approximate within the
+     * precision of the histogram, except for the count and maximum.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+        private final int precision;
+
+        Snapshot(long[] counts, long max, int precision) {
+            long n = 0L;
+            for (long c : counts)
+                n += c;
+            this.counts = counts;
+            this.count = n;
+            this.max = (n == 0L) ? 0L : max;
+            this.precision = precision;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the largest recorded value, or zero if none.
+         *
+         * @return the largest recorded value
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the least recorded value, to within the precision
+         * of the histogram, or zero if none.
+         *
+         * @return the approximate least recorded value
+         */
+        public long getMin() {
+            long[] cs = counts;
+            for (int i = 0; i < cs.length; ++i) {
+                if (cs[i] != 0L)
+                    return lowestEquivalentValue(i, precision);
+            }
+            return 0L;
+        }
+
+        /**
+         * Returns the mean of the recorded values, computed using the
+         * midpoint of the bucket of each value, or zero if none.
+         *
+         * @return the approximate mean
+         */
+        public double getMean() {
+            if (count == 0L)
+                return 0.0;
+            long[] cs = counts;
+            int p = precision;
+            double total = 0.0;
+            for (int i = 0; i < cs.length; ++i) {
+                long c = cs[i];
+                if (c != 0L) {
+                    double lo = lowestEquivalentValue(i, p);
+                    double hi = Math.min(highestEquivalentValue(i, p), max);
+                    total += c * ((lo + hi) * 0.5);
+                }
+            }
+            return total / count;
+        }
+
+        /**
+         * Returns the value at or below which the given percentage of
+         * the recorded values lie: the highest value in the bucket
+         * holding the value of that rank, or the maximum if less, or
+         * if that bucket is the last, which also counts all values
+         * above the highest trackable value.
+         *
+         * @param percentile the percentile, between 0.0 and 100.0
+         * @return the value at the given percentile, or zero if no
+         *         values were recorded
+         * @throws IllegalArgumentException if percentile is not
+         *         between 0.0 and 100.0
+         */
+        public long valueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0 && percentile <= 100.0))
+                throw new IllegalArgumentException();
+            if (count == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long)Math.ceil(percentile / 100.0 * count));
+            long[] cs = counts;
+            long seen = 0L;
+            for (int i = 0, last = cs.length - 1; i < last; ++i) {
+                if ((seen += cs[i]) >= rank)
+                    return Math.min(highestEquivalentValue(i, precision), max);
+            }
+            return max;
+        }
+
+        /**
+         * Returns the number of recorded values equivalent to the given
+         * value, that is, counted in the same bucket.
+         *
+         * @param value the value
+         * @return the number of recorded values in its bucket
+         */
+        public long getCountAtValue(long value) {
+            if (value < 0L)
+                return 0L;
+            int i = bucketIndex(value, precision);
+            return (i < counts.length) ? counts[i] : 0L;
+        }
+
+        /**
+         * Returns a string summarizing the count, maximum and common
+         * percentiles.
+         *
+         * @return a string summarizing this snapshot
+         */
+        public String toString() {
+            return "[count=" + count +
+                ", p50=" + valueAtPercentile(50.0) +
+                ", p90=" + valueAtPercentile(90.0) +
+                ", p99=" + valueAtPercentile(99.0) +
+                ", p99.9=" + valueAtPercentile(99.9) +
+                ", max=" + max + "]";
+        }
+    }
+
+    /**
+     * Serialization proxy, holding the combined counts rather than
+     * the stripes.
+     * @serial include
+     */
+    private static class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = -3349476270599741213L;
+
+        /**
+         * The highest trackable value.
+         * @serial
+         */
+        private final long highestTrackableValue;
+
+        /**
+         * The precision.
+         * @serial
+         */
+        private final int precision;
+
+        /**
+         * The combined bucket counts.
+         * @serial
+         */
+        private final long[] counts;
+
+        /**
+         * The maximum recorded value.
+         * @serial
+         */
+        private final long max;
+
+        SerializationProxy(ConcurrentHistogram a) {
+            Snapshot s = a.snapshot();
+            highestTrackableValue = a.highestTrackableValue;
+            precision = a.precision;
+            counts = s.counts;
+            max = s.max;
+        }
+
+        /**
+         * Return a {@code ConcurrentHistogram} object with initial state
+         * held by this proxy.
+         *
+         * @return a {@code ConcurrentHistogram} object with initial state
+         * held by this proxy.
+         */
+        private Object readResolve() {
+            ConcurrentHistogram a =
+                new ConcurrentHistogram(highestTrackableValue, precision);
+            long[] cs = a.base.counts;
+            System.arraycopy(counts, 0, cs, 0, Math.min(counts.length, cs.length));
+            a.base.max = max;
+            return a;
+        }
+    }
+
+    /**
+     * Returns a
+     * <a href="../../../../serialized-form.html#java.util.concurrent.atomic.ConcurrentHistogram.SerializationProxy">
+     * SerializationProxy</a>
+     * representing the state of this instance.
+     *
+     * @return a {@link SerializationProxy}
+     * representing the state of this instance
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    /**
+     * @param s the stream
+     * @throws java.io.InvalidObjectException always
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long STRIPESBUSY;
+    private static final long MAX;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentHistogram.class;
+            STRIPESBUSY = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("stripesBusy"));
+            MAX = UNSAFE.objectFieldOffset
+                (Stripe.class.getDeclaredField("max"));
+            Class<?> ak = long[].class;
+            ABASE = UNSAFE.arrayBaseOffset(ak);
+            int scale = UNSAFE.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
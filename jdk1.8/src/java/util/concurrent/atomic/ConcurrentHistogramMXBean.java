@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+
+/**
+ * The management interface of a {@link ConcurrentHistogram}, allowing
+ * it to be registered with a {@code javax.management.MBeanServer} as an
+ * MXBean, for example:
+ *
+ * <pre> {@code
+ * ConcurrentHistogram latencies = new ConcurrentHistogram();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     latencies, new ObjectName("com.example:type=Latency,name=requests"));}</pre>
+ *
+ * <p>Each attribute is computed from a separate {@linkplain
+ * ConcurrentHistogram#snapshot snapshot}, so attributes read together
+ * may reflect slightly different sets of recorded values.
+ *
+ * @author zohar
+ */
+public interface ConcurrentHistogramMXBean {
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    long getCount();
+
+    /**
+     * Returns the largest recorded value, or zero if none.
+     *
+     * @return the largest recorded value
+     */
+    long getMax();
+
+    /**
+     * Returns the approximate mean of the recorded values, or zero if
+     * none.
+     *
+     * @return the approximate mean
+     */
+    double getMean();
+
+    /**
+     * Returns the approximate median of the recorded values.
+     *
+     * @return the value at the 50th percentile
+     */
+    long get50thPercentile();
+
+    /**
+     * Returns the approximate 90th percentile of the recorded values.
+     *
+     * @return the value at the 90th percentile
+     */
+    long get90thPercentile();
+
+    /**
+     * Returns the approximate 99th percentile of the recorded values.
+     *
+     * @return the value at the 99th percentile
+     */
+    long get99thPercentile();
+
+    /**
+     * Returns the approximate 99.9th percentile of the recorded values.
+     *
+     * @return the value at the 99.9th percentile
+     */
+    long get999thPercentile();
+
+    /**
+     * Returns the approximate value at the given percentile of the
+     * recorded values.
+     *
+     * @param percentile the percentile, between 0.0 and 100.0
+     * @return the value at the given percentile
+     * @throws IllegalArgumentException if percentile is not between
+     *         0.0 and 100.0
+     */
+    long valueAtPercentile(double percentile);
+}
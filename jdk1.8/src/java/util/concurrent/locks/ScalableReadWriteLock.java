@@ -0,0 +1,797 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An implementation of {@link ReadWriteLock} for read-mostly data
+ * accessed by many threads at once, supporting similar semantics to
+ * {@link ReentrantReadWriteLock}.  Acquiring the read lock of a {@code
+ * ReentrantReadWriteLock} updates a single synchronization word, which
+ * becomes a point of contention as the number of reading threads grows.
+ * This class instead records readers in a table of padded counters,
+ * distributed among threads in the manner of the cells of {@link
+ * java.util.concurrent.atomic.LongAdder}, so that readers on different
+ * processors rarely update the same cache line.  In exchange, acquiring
+ * the write lock requires inspecting every counter, and waiting until
+ * all are zero.
+ *
+ * <p>This class has the following properties:
+ *
+ * <ul>
+ * <li><b>Acquisition order</b>
+ *
+ * <p>Writers are granted the lock in approximately arrival order, and
+ * are preferred to readers: once a writer has obtained the right to the
+ * write lock, threads attempting to acquire the read lock (other than
+ * those already holding it) wait until the write lock is released.
+ * Writers thus cannot be starved by a continuous stream of readers.
+ *
+ * <li><b>Reentrancy</b>
+ *
+ * <p>Both readers and writers may reacquire read or write locks in the
+ * style of a {@link ReentrantLock}.  A writer can acquire the read lock,
+ * and so downgrade by releasing the write lock.  Upgrading from a read
+ * lock to the write lock is not possible, and will deadlock.
+ *
+ * <li><b>Interruption of lock acquisition</b>
+ *
+ * <p>Both locks support interruption during lock acquisition, except
+ * that a writer that has obtained the right to the lock always waits,
+ * uninterruptibly and irrespective of any timeout, for existing readers
+ * to release it.
+ *
+ * <li><b>{@link Condition} support</b>
+ *
+ * <p>The write lock provides a {@link Condition} implementation that
+ * behaves in the same way, with respect to the write lock, as the
+ * {@link Condition} implementation provided by {@link
+ * ReentrantReadWriteLock#writeLock}.  The read lock does not support a
+ * {@link Condition} and {@code readLock().newCondition()} throws {@code
+ * UnsupportedOperationException}.
+ *
+ * <li><b>Instrumentation</b>
+ *
+ * <p>This class supports methods to determine whether locks are held
+ * or contended.  These methods are designed for monitoring system
+ * state, not for synchronization control.
+ * </ul>
+ *
+ * <p>Each lock occupies a cache line per counter, up to the number of
+ * processors, once readers contend, so this class is best suited to
+ * a modest number of long-lived, heavily read locks.
+ *
+ * @author zohar
+ */
+public class ScalableReadWriteLock implements ReadWriteLock {
+
+    /*
+     * Overview:
+     *
+     * The write lock is an AbstractQueuedSynchronizer whose state is
+     * the write hold count.  A reader increments one of the cells,
+     * and then checks the state: if it is zero, or the writer is the
+     * reader itself, or the reader already holds the read lock, the
+     * reader proceeds; otherwise it decrements its cell again and
+     * waits in shared mode of the synchronizer, which succeeds
+     * whenever the state is zero, before retrying.  A writer CASes the
+     * state from zero and then waits until all cells are zero.  Since
+     * both the cell updates and the state are volatile, either a
+     * reader sees the writer's state, or the writer sees the reader's
+     * increment.  Before its last check of the cells, a writer that
+     * must wait publishes itself in the volatile waitingWriter field,
+     * which readers read after decrementing their cell, so that
+     * either the writer sees the decrement or the reader sees the
+     * writer and unparks it.  (The exclusive owner thread of AQS is
+     * not volatile, so cannot serve for this.)  The writer
+     * nonetheless parks with a timeout, rechecking the cells on each
+     * wakeup.  The wait for readers happens within
+     * tryAcquire, so that Condition waits, which reacquire through
+     * tryAcquire, also exclude readers on return.
+     *
+     * Cells are distributed as in Striped64: each thread's hold
+     * counter for this lock caches the cell it last used, selected by
+     * a hash of the thread; a CAS failure on the cell while the thread
+     * holds no read lock causes it to move to another, first doubling
+     * the table if it is smaller than the number of CPUs.  Cells are
+     * never removed, and a table expansion copies the existing ones,
+     * so a hold can always be released on the cell that recorded it.
+     */
+
+    /** Number of CPUS, to place bound on table size */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** The maximum table size: the least power of two at least NCPU. */
+    static final int MAX_CELLS = (NCPU <= 1) ? 1 :
+        Integer.highestOneBit(NCPU - 1) << 1;
+
+    /** Spins waiting for readers before a writer parks. */
+    static final int WRITER_SPINS = (NCPU < 2) ? 0 : 64;
+
+    /** The maximum time a writer parks before rechecking readers. */
+    static final long WRITER_PARK_NANOS = 1L << 20;
+
+    /**
+     * A padded reader count, as with Striped64.Cell.
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile int value;
+        final boolean cas(int cmp, int val) {
+            return UNSAFE.compareAndSwapInt(this, valueOffset, cmp, val);
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> ak = Cell.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (ak.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * A counter for per-thread read hold counts, and the cell on
+     * which they are recorded.
+     */
+    static final class HoldCounter {
+        int count;
+        int hash = (int)Thread.currentThread().getId() * 0x9e3779b9;
+        Cell cell;
+    }
+
+    static final class ThreadLocalHoldCounter
+        extends ThreadLocal<HoldCounter> {
+        public HoldCounter initialValue() {
+            return new HoldCounter();
+        }
+    }
+
+    /** Table of cells.  When non-null, size is a power of 2. */
+    volatile Cell[] cells;
+
+    /** Spinlock (locked via CAS) used when resizing cells. */
+    volatile int cellsBusy;
+
+    /** The read hold counts of threads. */
+    final ThreadLocalHoldCounter readHolds = new ThreadLocalHoldCounter();
+
+    /** Performs all synchronization mechanics */
+    final Sync sync;
+    private final ReadLock readerLock;
+    private final WriteLock writerLock;
+
+    /**
+     * Creates a new {@code ScalableReadWriteLock}.
+     */
+    public ScalableReadWriteLock() {
+        Cell[] cs = new Cell[1];
+        cs[0] = new Cell();
+        cells = cs;
+        sync = new Sync();
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+    }
+
+    public ScalableReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public ScalableReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    /* ---------------- Reader cells -------------- */
+
+    /**
+     * Increments the cell of the given hold counter, moving to another
+     * cell on contention if no read lock is held.
+     */
+    final void incrementReaders(HoldCounter h) {
+        Cell c = h.cell;
+        if (c == null) {
+            Cell[] cs = cells;
+            c = h.cell = cs[h.hash & (cs.length - 1)];
+        }
+        int v = c.value;
+        if (c.cas(v, v + 1))
+            return;
+        for (;;) {
+            if (h.count == 0) {
+                Cell[] cs = cells;
+                int n = cs.length;
+                if (n < MAX_CELLS && cellsBusy == 0 && casCellsBusy()) {
+                    try {
+                        if (cells == cs) {      // expand table
+                            Cell[] rs = Arrays.copyOf(cs, n << 1);
+                            for (int i = n; i < rs.length; ++i)
+                                rs[i] = new Cell();
+                            cells = cs = rs;
+                        }
+                    } finally {
+                        cellsBusy = 0;
+                    }
+                }
+                else
+                    cs = cells;
+                int r = h.hash;     // rehash, as ThreadLocalRandom.advanceProbe
+                r ^= r << 13;
+                r ^= r >>> 17;
+                r ^= r << 5;
+                h.hash = r;
+                c = h.cell = cs[r & (cs.length - 1)];
+            }
+            if (c.cas(v = c.value, v + 1))
+                return;
+        }
+    }
+
+    /** Decrements the cell of the given hold counter. */
+    static void decrementReaders(HoldCounter h) {
+        Cell c = h.cell;
+        int v;
+        do {} while (!c.cas(v = c.value, v - 1));
+    }
+
+    /** Returns true if no cell records a reader. */
+    final boolean readersDrained() {
+        for (Cell c : cells) {
+            if (c.value != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * CASes the cellsBusy field from 0 to 1 to acquire lock.
+     */
+    final boolean casCellsBusy() {
+        return U.compareAndSwapInt(this, CELLSBUSY, 0, 1);
+    }
+
+    /* ---------------- Synchronization -------------- */
+
+    /**
+     * Synchronization control for the write lock, and for readers
+     * waiting for it to be released.  Uses AQS state to represent the
+     * number of write holds.
+     */
+    final class Sync extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = -3812290719049315726L;
+
+        /** The writer waiting for readers to release, or null */
+        transient volatile Thread waitingWriter;
+
+        protected final boolean tryAcquire(int acquires) {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c != 0) {
+                if (current != getExclusiveOwnerThread())
+                    return false;
+                setState(c + acquires);
+                return true;
+            }
+            if (!compareAndSetState(0, acquires))
+                return false;
+            setExclusiveOwnerThread(current);
+            awaitReaders();
+            return true;
+        }
+
+        /**
+         * Waits, uninterruptibly, until no readers hold the lock.
+         */
+        private void awaitReaders() {
+            if (readersDrained())
+                return;
+            boolean interrupted = false;
+            waitingWriter = Thread.currentThread();
+            for (int spins = WRITER_SPINS; !readersDrained(); ) {
+                if (spins > 0)
+                    --spins;
+                else {
+                    LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+                    if (Thread.interrupted())
+                        interrupted = true;
+                }
+            }
+            waitingWriter = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        protected final boolean tryRelease(int releases) {
+            if (Thread.currentThread() != getExclusiveOwnerThread())
+                throw new IllegalMonitorStateException();
+            int c = getState() - releases;
+            boolean free = c == 0;
+            if (free)
+                setExclusiveOwnerThread(null);
+            setState(c);
+            return free;
+        }
+
+        /**
+         * Succeeds, without holding anything, when the write lock is
+         * free, so that readers blocked by a writer wait in the queue
+         * until it releases.
+         */
+        protected final int tryAcquireShared(int unused) {
+            return (getState() == 0) ? 1 : -1;
+        }
+
+        protected final boolean isHeldExclusively() {
+            return getExclusiveOwnerThread() == Thread.currentThread();
+        }
+
+        /**
+         * Performs tryLock for the write lock, failing rather than
+         * waiting if readers hold the lock.
+         */
+        final boolean tryWriteLock() {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c != 0) {
+                if (current != getExclusiveOwnerThread())
+                    return false;
+                if (c == Integer.MAX_VALUE)
+                    throw new Error("Maximum lock count exceeded");
+                setState(c + 1);
+                return true;
+            }
+            if (!compareAndSetState(0, 1))
+                return false;
+            setExclusiveOwnerThread(current);
+            if (readersDrained())
+                return true;
+            release(1);             // wake readers queued meanwhile
+            return false;
+        }
+
+        /**
+         * Attempts to acquire the read lock without waiting, returning
+         * false if a writer holds or is acquiring the lock.
+         */
+        final boolean tryReadLock(HoldCounter h) {
+            incrementReaders(h);
+            if (h.count > 0 || getState() == 0 ||
+                getExclusiveOwnerThread() == Thread.currentThread()) {
+                if (h.count == Integer.MAX_VALUE) {
+                    decrementReaders(h);
+                    throw new Error("Maximum lock count exceeded");
+                }
+                ++h.count;
+                return true;
+            }
+            decrementReaders(h);
+            signalWriter();
+            return false;
+        }
+
+        final void unlockRead(HoldCounter h) {
+            if (h.count <= 0)
+                throw new IllegalMonitorStateException();
+            --h.count;
+            decrementReaders(h);
+            signalWriter();
+        }
+
+        /**
+         * Unparks a writer that may be waiting for readers.  Called
+         * after decrementing a cell.
+         */
+        final void signalWriter() {
+            Thread w = waitingWriter;
+            if (w != null)
+                LockSupport.unpark(w);
+        }
+
+        final ConditionObject newCondition() {
+            return new ConditionObject();
+        }
+
+        final Thread getOwner() {
+            return (getState() == 0) ? null : getExclusiveOwnerThread();
+        }
+
+        final int getWriteHoldCount() {
+            return isHeldExclusively() ? getState() : 0;
+        }
+
+        final boolean isWriteLocked() {
+            return getState() != 0;
+        }
+
+        final int getWriteLockCount() {
+            return getState();
+        }
+    }
+
+    /**
+     * The lock returned by method {@link ScalableReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock {
+        private final ScalableReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(ScalableReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock.
+         *
+         * <p>Acquires the read lock if the write lock is not held by
+         * another thread and no other thread is acquiring it, and
+         * returns immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for thread
+         * scheduling purposes and lies dormant until the write lock is
+         * released.
+         */
+        public void lock() {
+            HoldCounter h = lock.readHolds.get();
+            while (!lock.sync.tryReadLock(h))
+                lock.sync.acquireShared(1);
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            HoldCounter h = lock.readHolds.get();
+            while (!lock.sync.tryReadLock(h))
+                lock.sync.acquireSharedInterruptibly(1);
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held by
+         * another thread and no other thread is acquiring it at the
+         * time of invocation.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            return lock.sync.tryReadLock(lock.readHolds.get());
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by
+         * another thread within the given waiting time and the current
+         * thread has not been {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final long deadline = System.nanoTime() + nanos;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            HoldCounter h = lock.readHolds.get();
+            while (!lock.sync.tryReadLock(h)) {
+                if ((nanos = deadline - System.nanoTime()) <= 0L ||
+                    !lock.sync.tryAcquireSharedNanos(1, nanos))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.sync.unlockRead(lock.readHolds.get());
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link ScalableReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock {
+        private final Sync sync;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(ScalableReadWriteLock lock) {
+            sync = lock.sync;
+        }
+
+        /**
+         * Acquires the write lock.
+         *
+         * <p>Acquires the write lock if it is not held by another
+         * thread, waiting for any readers to release the read lock, and
+         * sets the write lock hold count to one.  If the current thread
+         * already holds the write lock then the hold count is
+         * incremented by one and the method returns immediately.
+         */
+        public void lock() {
+            sync.acquire(1);
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted} before obtaining the
+         * right to it.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            sync.acquireInterruptibly(1);
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread and no thread holds the read lock at the time of
+         * invocation.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         *         by the current thread, or the write lock was already
+         *         held by the current thread; and {@code false}
+         *         otherwise.
+         */
+        public boolean tryLock() {
+            return sync.tryWriteLock();
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another thread
+         * within the given waiting time and the current thread has not
+         * been {@linkplain Thread#interrupt interrupted}.  Once the right
+         * to the lock is obtained, waits for existing readers to release
+         * the read lock irrespective of the timeout.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was free and was acquired
+         *         by the current thread, or the write lock was already
+         *         held by the current thread; and {@code false} if the
+         *         waiting time elapsed before the lock could be acquired.
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return sync.tryAcquireNanos(1, unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread does not
+         *         hold this lock
+         */
+        public void unlock() {
+            sync.release(1);
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance, with the same semantics as the
+         * conditions of the write lock of a {@link ReentrantReadWriteLock}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return sync.newCondition();
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return sync.isHeldExclusively();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return sync.getWriteHoldCount();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked by"}
+         * followed by the {@linkplain Thread#getName name} of the owning thread.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            Thread o = sync.getOwner();
+            return super.toString() + ((o == null) ?
+                                       "[Unlocked]" :
+                                       "[Locked by thread " + o.getName() + "]");
+        }
+    }
+
+    // Instrumentation methods
+
+    /**
+     * Queries the number of read locks held for this lock, summed over
+     * the cells.  The result is exact only in the absence of concurrent
+     * updates.  This method is designed for use in monitoring system
+     * state, not for synchronization control.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        int n = 0;
+        for (Cell c : cells)
+            n += c.value;
+        return n;
+    }
+
+    /**
+     * Queries if the write lock is held by any thread, or a thread has
+     * obtained the right to it and is waiting for readers.  This method
+     * is designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return sync.isWriteLocked();
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return sync.isHeldExclusively();
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return sync.getWriteHoldCount();
+    }
+
+    /**
+     * Queries the number of reentrant read holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the read lock by the current thread,
+     *         or zero if the read lock is not held by the current thread
+     */
+    public int getReadHoldCount() {
+        return readHolds.get().count;
+    }
+
+    /**
+     * Queries whether any threads are waiting to acquire the read or
+     * write lock.
+     *
+     * @return {@code true} if there may be other threads waiting to
+     *         acquire the lock
+     */
+    public final boolean hasQueuedThreads() {
+        return sync.hasQueuedThreads();
+    }
+
+    /**
+     * Returns an estimate of the number of threads waiting to acquire
+     * either the read or write lock.
+     *
+     * @return the estimated number of threads waiting for this lock
+     */
+    public final int getQueueLength() {
+        return sync.getQueueLength();
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks, and the
+     * String {@code "Read locks ="} followed by the number of held
+     * read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        return super.toString() +
+            "[Write locks = " + sync.getWriteLockCount() +
+            ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long CELLSBUSY;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ScalableReadWriteLock.class;
+            CELLSBUSY = U.objectFieldOffset
+                (k.getDeclaredField("cellsBusy"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
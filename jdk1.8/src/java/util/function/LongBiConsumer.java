@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.function;
+
+/**
+ * Represents an operation that accepts two {@code long}-valued arguments,
+ * and returns no result.  This is the {@code (long, long)} specialization
+ * of {@link BiConsumer}.  Unlike most other functional interfaces,
+ * {@code LongBiConsumer} is expected to operate via side-effects.
+ *
+ * <p>This is a <a href="package-summary.html">functional interface</a>
+ * whose functional method is {@link #accept(long, long)}.
+ *
+ * @see BiConsumer
+ */
+@FunctionalInterface
+public interface LongBiConsumer {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param left the first input argument
+     * @param right the second input argument
+     */
+    void accept(long left, long right);
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.random;
+
+/**
+ * A splittable generator of pseudorandom values of the "LXM" family
+ * described by Guy Steele and Sebastiano Vigna ("LXM: Better Splittable
+ * Pseudorandom Number Generators (and Almost as Fast)", OOPSLA 2021).
+ * Each value combines the states of a 64-bit linear congruential
+ * generator (the "L") and of an xoroshiro128 generator (the "X"), and
+ * scrambles the sum with a mixing function (the "M").
+ *
+ * <p>The LCG and xoroshiro128 subgenerators have periods 2<sup>64</sup>
+ * and 2<sup>128</sup>&minus;1, so the period of this generator is
+ * 2<sup>64</sup>(2<sup>128</sup>&minus;1).  The additive parameter of the
+ * LCG selects one of 2<sup>63</sup> distinct sequences; {@link #split}
+ * chooses a fresh one along with the rest of the state of the new
+ * generator, which makes recursively split generators, as used by
+ * parallel streams, statistically independent with very high
+ * probability.  Values are nearly as cheap to compute as those of
+ * {@link java.util.SplittableRandom}, while the state is larger and the
+ * output function much stronger.
+ *
+ * <p>Instances of {@code L64X128MixRandom} are <em>not</em> thread-safe
+ * and not cryptographically secure.  Default-constructed instances do
+ * not use a cryptographically random seed unless the {@linkplain
+ * System#getProperty system property} {@code java.util.secureRandomSeed}
+ * is set to {@code true}.
+ */
+public final class L64X128MixRandom
+        implements RandomGenerator.SplittableGenerator {
+
+    /*
+     * The multiplier of the LCG subgenerator, from "Computationally
+     * easy, spectrally good multipliers for congruential pseudorandom
+     * number generators" by Steele and Vigna.
+     */
+    private static final long M = 0xd1342543de82ef95L;
+
+    /**
+     * The additive parameter of the LCG; always odd.
+     */
+    private final long a;
+
+    /**
+     * The state of the LCG.
+     */
+    private long s;
+
+    /**
+     * The state of the xoroshiro128 subgenerator; never both zero.
+     */
+    private long x0, x1;
+
+    /**
+     * Creates a new instance with the given parameters.  The low bit
+     * of {@code a} is ignored, and if {@code x0} and {@code x1} are
+     * both zero they are replaced by a fixed nonzero state.
+     *
+     * @param a the additive parameter of the LCG
+     * @param s the initial state of the LCG
+     * @param x0 the first word of the initial xoroshiro128 state
+     * @param x1 the second word of the initial xoroshiro128 state
+     */
+    public L64X128MixRandom(long a, long s, long x0, long x1) {
+        if ((x0 | x1) == 0L) {
+            x0 = RandomSupport.GOLDEN_RATIO_64;
+            x1 = RandomSupport.SILVER_RATIO_64;
+        }
+        this.a = a | 1L;
+        this.s = s;
+        this.x0 = x0;
+        this.x1 = x1;
+    }
+
+    /**
+     * Creates a new instance using the specified initial seed.
+     * Instances created with the same seed in the same program
+     * generate identical sequences of values.
+     *
+     * @param seed the initial seed
+     */
+    public L64X128MixRandom(long seed) {
+        this(RandomSupport.mixMurmur64(seed ^ RandomSupport.SILVER_RATIO_64),
+             1L,
+             RandomSupport.mixStafford13(seed),
+             RandomSupport.mixStafford13(seed + RandomSupport.GOLDEN_RATIO_64));
+    }
+
+    /**
+     * Creates a new instance that is likely to generate sequences of
+     * values that are statistically independent of those of any other
+     * instances in the current program; and may, and typically does,
+     * vary across program invocations.
+     */
+    public L64X128MixRandom() {
+        this(RandomSupport.nextSeed());
+    }
+
+    /**
+     * Constructs and returns a new instance that shares no mutable
+     * state with this one, initialized using values generated by this
+     * one.
+     *
+     * @return the new instance
+     */
+    public L64X128MixRandom split() {
+        return split(this);
+    }
+
+    public L64X128MixRandom split(SplittableGenerator source) {
+        return new L64X128MixRandom(source.nextLong(), source.nextLong(),
+                                    source.nextLong(), source.nextLong());
+    }
+
+    public long nextLong() {
+        final long result = RandomSupport.mixLea64(s + x0);
+        s = M * s + a;
+        long q0 = x0, q1 = x1;
+        q1 ^= q0;
+        q0 = Long.rotateLeft(q0, 24) ^ q1 ^ (q1 << 16);
+        q1 = Long.rotateLeft(q1, 37);
+        x0 = q0;
+        x1 = q1;
+        return result;
+    }
+}
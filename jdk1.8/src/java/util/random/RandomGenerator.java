@@ -0,0 +1,708 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.random;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link RandomGenerator} interface is designed to provide a common
+ * protocol for objects that generate random or (more typically)
+ * pseudorandom sequences of numbers (or Boolean values).  Such a sequence
+ * may be obtained by either repeatedly invoking a method that returns a
+ * single pseudorandomly chosen value, or by invoking a method that returns
+ * a stream of pseudorandomly chosen values.
+ *
+ * <p>Ideally, given an implicitly or explicitly specified range of values,
+ * each value would be chosen independently and uniformly from that range.
+ * In practice, one may have to settle for some approximation to
+ * independence and uniformity.
+ *
+ * <p>Only method {@link #nextLong()} must be implemented; all other
+ * methods have default implementations in terms of it, which
+ * implementations may override with faster or better ones.  Classes
+ * {@link Random}, {@link SecureRandom} and {@link SplittableRandom}
+ * implement this interface, as do the generators {@link
+ * Xoroshiro128PlusPlus} and {@link L64X128MixRandom} of this package.
+ *
+ * <p>Generators are in general <em>not</em> thread-safe.  Rather than
+ * sharing one instance across threads, each thread should use its own
+ * instance, obtained for example by {@linkplain SplittableGenerator#split
+ * splitting} or {@linkplain JumpableGenerator#copyAndJump jumping} a
+ * common one, or use {@link java.util.concurrent.ThreadLocalRandom}.
+ *
+ * <p>The streams returned by the default {@code ints}, {@code longs} and
+ * {@code doubles} methods of a {@link SplittableGenerator} split the
+ * generator when the stream is evaluated in parallel, so that each
+ * subtask uses its own independent generator.  Streams of other
+ * generators are not split, and are evaluated sequentially even in
+ * {@code parallel()} mode.
+ *
+ * <p>Instances of generators in this package are not cryptographically
+ * secure.  Consider instead using {@link SecureRandom} in
+ * security-sensitive applications.
+ */
+public interface RandomGenerator {
+
+    /**
+     * Returns an instance of the named algorithm, one of {@code
+     * "Random"}, {@code "SecureRandom"}, {@code "SplittableRandom"},
+     * {@code "Xoroshiro128PlusPlus"} or {@code "L64X128MixRandom"},
+     * seeded as by its no-argument constructor.
+     *
+     * @param name the name of the algorithm
+     * @return a new instance of the named algorithm
+     * @throws NullPointerException if name is null
+     * @throws IllegalArgumentException if the named algorithm is not found
+     */
+    static RandomGenerator of(String name) {
+        switch (name) {
+        case "Random":               return new Random();
+        case "SecureRandom":         return new SecureRandom();
+        case "SplittableRandom":     return new SplittableRandom();
+        case "Xoroshiro128PlusPlus": return new Xoroshiro128PlusPlus();
+        case "L64X128MixRandom":     return new L64X128MixRandom();
+        default:
+            throw new IllegalArgumentException(
+                "No implementation of the random number generator algorithm \"" +
+                name + "\" is available");
+        }
+    }
+
+    /**
+     * Returns a new instance of the default algorithm, currently
+     * {@link L64X128MixRandom}, a good choice for general-purpose
+     * applications that need neither cryptographic security nor a
+     * specific algorithm.
+     *
+     * @return a new instance of the default algorithm
+     */
+    static RandomGenerator getDefault() {
+        return new L64X128MixRandom();
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code long} value.
+     *
+     * @return a pseudorandomly chosen {@code long} value
+     */
+    long nextLong();
+
+    /**
+     * Returns a pseudorandomly chosen {@code int} value.
+     *
+     * @implSpec The default implementation returns the 32 high-order
+     * bits of a call to {@code nextLong()}.
+     *
+     * @return a pseudorandomly chosen {@code int} value
+     */
+    default int nextInt() {
+        return (int)(nextLong() >>> 32);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code boolean} value.
+     *
+     * @implSpec The default implementation tests the high-order bit
+     * (sign bit) of a value produced by {@code nextInt()}.
+     *
+     * @return a pseudorandomly chosen {@code boolean} value
+     */
+    default boolean nextBoolean() {
+        return nextInt() < 0;
+    }
+
+    /**
+     * Returns a pseudorandom {@code float} value between zero
+     * (inclusive) and one (exclusive).
+     *
+     * @implSpec The default implementation uses the 24 high-order bits
+     * of a value produced by {@code nextInt()}.
+     *
+     * @return a pseudorandom {@code float} value between zero
+     *         (inclusive) and one (exclusive)
+     */
+    default float nextFloat() {
+        return (nextInt() >>> 8) * RandomSupport.FLOAT_UNIT;
+    }
+
+    /**
+     * Returns a pseudorandom {@code double} value between zero
+     * (inclusive) and one (exclusive).
+     *
+     * @implSpec The default implementation uses the 53 high-order bits
+     * of a value produced by {@code nextLong()}.
+     *
+     * @return a pseudorandom {@code double} value between zero
+     *         (inclusive) and one (exclusive)
+     */
+    default double nextDouble() {
+        return (nextLong() >>> 11) * RandomSupport.DOUBLE_UNIT;
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code int} value between zero
+     * (inclusive) and the specified bound (exclusive).
+     *
+     * @param bound the upper bound (exclusive).  Must be positive.
+     * @return a pseudorandomly chosen {@code int} value between zero
+     *         (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code bound} is not positive
+     */
+    default int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException(RandomSupport.BadBound);
+        return RandomSupport.boundedNextInt(this, 0, bound);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code int} value between the
+     * specified origin (inclusive) and the specified bound (exclusive).
+     *
+     * @param origin the least value that can be returned
+     * @param bound the upper bound (exclusive)
+     * @return a pseudorandomly chosen {@code int} value between the
+     *         origin (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code origin} is greater than
+     *         or equal to {@code bound}
+     */
+    default int nextInt(int origin, int bound) {
+        if (origin >= bound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return RandomSupport.boundedNextInt(this, origin, bound);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code long} value between zero
+     * (inclusive) and the specified bound (exclusive).
+     *
+     * @param bound the upper bound (exclusive).  Must be positive.
+     * @return a pseudorandomly chosen {@code long} value between zero
+     *         (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code bound} is not positive
+     */
+    default long nextLong(long bound) {
+        if (bound <= 0L)
+            throw new IllegalArgumentException(RandomSupport.BadBound);
+        return RandomSupport.boundedNextLong(this, 0L, bound);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code long} value between the
+     * specified origin (inclusive) and the specified bound (exclusive).
+     *
+     * @param origin the least value that can be returned
+     * @param bound the upper bound (exclusive)
+     * @return a pseudorandomly chosen {@code long} value between the
+     *         origin (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code origin} is greater than
+     *         or equal to {@code bound}
+     */
+    default long nextLong(long origin, long bound) {
+        if (origin >= bound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return RandomSupport.boundedNextLong(this, origin, bound);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code double} value between zero
+     * (inclusive) and the specified bound (exclusive).
+     *
+     * @param bound the upper bound (exclusive).  Must be positive.
+     * @return a pseudorandomly chosen {@code double} value between zero
+     *         (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code bound} is not positive
+     */
+    default double nextDouble(double bound) {
+        if (!(bound > 0.0))
+            throw new IllegalArgumentException(RandomSupport.BadBound);
+        return RandomSupport.boundedNextDouble(this, 0.0, bound);
+    }
+
+    /**
+     * Returns a pseudorandomly chosen {@code double} value between the
+     * specified origin (inclusive) and the specified bound (exclusive).
+     *
+     * @param origin the least value that can be returned
+     * @param bound the upper bound (exclusive)
+     * @return a pseudorandomly chosen {@code double} value between the
+     *         origin (inclusive) and the bound (exclusive)
+     * @throws IllegalArgumentException if {@code origin} is greater than
+     *         or equal to {@code bound}
+     */
+    default double nextDouble(double origin, double bound) {
+        if (!(origin < bound))
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return RandomSupport.boundedNextDouble(this, origin, bound);
+    }
+
+    /**
+     * Returns a {@code double} value pseudorandomly chosen from a
+     * Gaussian (normal) distribution whose mean is 0 and whose
+     * standard deviation is 1.
+     *
+     * @implSpec The default implementation uses the polar method of
+     * G. E. P. Box, M. E. Muller, and G. Marsaglia, discarding the
+     * second of each pair of values it computes, so that it keeps no
+     * state of its own.
+     *
+     * @return a {@code double} value pseudorandomly chosen from a
+     *         Gaussian distribution
+     */
+    default double nextGaussian() {
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1; // between -1 and 1
+            v2 = 2 * nextDouble() - 1; // between -1 and 1
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+
+    /**
+     * Fills a user-supplied byte array with generated byte values
+     * pseudorandomly chosen uniformly from the range of values between
+     * -128 (inclusive) and 127 (inclusive).
+     *
+     * @implSpec The default implementation fills the array with the
+     * bytes of successive calls to {@code nextLong()}, low-order byte
+     * first.
+     *
+     * @param bytes the byte array to fill with pseudorandom bytes
+     * @throws NullPointerException if bytes is null
+     */
+    default void nextBytes(byte[] bytes) {
+        int i = 0, len = bytes.length;
+        for (int words = len >> 3; words-- > 0; ) {
+            long rnd = nextLong();
+            for (int n = 8; n-- > 0; rnd >>>= Byte.SIZE)
+                bytes[i++] = (byte)rnd;
+        }
+        if (i < len)
+            for (long rnd = nextLong(); i < len; rnd >>>= Byte.SIZE)
+                bytes[i++] = (byte)rnd;
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number of
+     * pseudorandom {@code int} values.
+     *
+     * @param streamSize the number of values to generate
+     * @return a stream of pseudorandom {@code int} values
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero
+     */
+    default IntStream ints(long streamSize) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        return StreamSupport.intStream
+            (new RandomSupport.RandomIntsSpliterator
+             (this, 0L, streamSize, Integer.MAX_VALUE, 0),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code int}
+     * values.
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * ints(Long.MAX_VALUE)}.
+     *
+     * @return a stream of pseudorandom {@code int} values
+     */
+    default IntStream ints() {
+        return StreamSupport.intStream
+            (new RandomSupport.RandomIntsSpliterator
+             (this, 0L, Long.MAX_VALUE, Integer.MAX_VALUE, 0),
+             false);
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number
+     * of pseudorandom {@code int} values, each conforming to the given
+     * origin (inclusive) and bound (exclusive).
+     *
+     * @param streamSize the number of values to generate
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code int} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero, or {@code randomNumberOrigin}
+     *         is greater than or equal to {@code randomNumberBound}
+     */
+    default IntStream ints(long streamSize, int randomNumberOrigin,
+                           int randomNumberBound) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        if (randomNumberOrigin >= randomNumberBound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.intStream
+            (new RandomSupport.RandomIntsSpliterator
+             (this, 0L, streamSize, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code
+     * int} values, each conforming to the given origin (inclusive) and bound
+     * (exclusive).
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * ints(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound)}.
+     *
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code int} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code randomNumberOrigin}
+     *         is greater than or equal to {@code randomNumberBound}
+     */
+    default IntStream ints(int randomNumberOrigin, int randomNumberBound) {
+        if (randomNumberOrigin >= randomNumberBound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.intStream
+            (new RandomSupport.RandomIntsSpliterator
+             (this, 0L, Long.MAX_VALUE, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number of
+     * pseudorandom {@code long} values.
+     *
+     * @param streamSize the number of values to generate
+     * @return a stream of pseudorandom {@code long} values
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero
+     */
+    default LongStream longs(long streamSize) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        return StreamSupport.longStream
+            (new RandomSupport.RandomLongsSpliterator
+             (this, 0L, streamSize, Long.MAX_VALUE, 0L),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code
+     * long} values.
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * longs(Long.MAX_VALUE)}.
+     *
+     * @return a stream of pseudorandom {@code long} values
+     */
+    default LongStream longs() {
+        return StreamSupport.longStream
+            (new RandomSupport.RandomLongsSpliterator
+             (this, 0L, Long.MAX_VALUE, Long.MAX_VALUE, 0L),
+             false);
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number of
+     * pseudorandom {@code long}, each conforming to the given origin
+     * (inclusive) and bound (exclusive).
+     *
+     * @param streamSize the number of values to generate
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code long} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero, or {@code randomNumberOrigin}
+     *         is greater than or equal to {@code randomNumberBound}
+     */
+    default LongStream longs(long streamSize, long randomNumberOrigin,
+                             long randomNumberBound) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        if (randomNumberOrigin >= randomNumberBound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.longStream
+            (new RandomSupport.RandomLongsSpliterator
+             (this, 0L, streamSize, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code
+     * long} values, each conforming to the given origin (inclusive) and bound
+     * (exclusive).
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * longs(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound)}.
+     *
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code long} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code randomNumberOrigin}
+     *         is greater than or equal to {@code randomNumberBound}
+     */
+    default LongStream longs(long randomNumberOrigin, long randomNumberBound) {
+        if (randomNumberOrigin >= randomNumberBound)
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.longStream
+            (new RandomSupport.RandomLongsSpliterator
+             (this, 0L, Long.MAX_VALUE, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number of
+     * pseudorandom {@code double} values, each between zero
+     * (inclusive) and one (exclusive).
+     *
+     * @param streamSize the number of values to generate
+     * @return a stream of {@code double} values
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero
+     */
+    default DoubleStream doubles(long streamSize) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        return StreamSupport.doubleStream
+            (new RandomSupport.RandomDoublesSpliterator
+             (this, 0L, streamSize, Double.MAX_VALUE, 0.0),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code
+     * double} values, each between zero (inclusive) and one
+     * (exclusive).
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * doubles(Long.MAX_VALUE)}.
+     *
+     * @return a stream of pseudorandom {@code double} values
+     */
+    default DoubleStream doubles() {
+        return StreamSupport.doubleStream
+            (new RandomSupport.RandomDoublesSpliterator
+             (this, 0L, Long.MAX_VALUE, Double.MAX_VALUE, 0.0),
+             false);
+    }
+
+    /**
+     * Returns a stream producing the given {@code streamSize} number of
+     * pseudorandom {@code double} values, each conforming to the given origin
+     * (inclusive) and bound (exclusive).
+     *
+     * @param streamSize the number of values to generate
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code double} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code streamSize} is
+     *         less than zero, or {@code randomNumberOrigin}
+     *         is not less than {@code randomNumberBound}
+     */
+    default DoubleStream doubles(long streamSize, double randomNumberOrigin,
+                                 double randomNumberBound) {
+        if (streamSize < 0L)
+            throw new IllegalArgumentException(RandomSupport.BadSize);
+        if (!(randomNumberOrigin < randomNumberBound))
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.doubleStream
+            (new RandomSupport.RandomDoublesSpliterator
+             (this, 0L, streamSize, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * Returns an effectively unlimited stream of pseudorandom {@code
+     * double} values, each conforming to the given origin (inclusive) and bound
+     * (exclusive).
+     *
+     * @implNote This method is implemented to be equivalent to {@code
+     * doubles(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound)}.
+     *
+     * @param randomNumberOrigin the origin (inclusive) of each random value
+     * @param randomNumberBound the bound (exclusive) of each random value
+     * @return a stream of pseudorandom {@code double} values,
+     *         each with the given origin (inclusive) and bound (exclusive)
+     * @throws IllegalArgumentException if {@code randomNumberOrigin}
+     *         is not less than {@code randomNumberBound}
+     */
+    default DoubleStream doubles(double randomNumberOrigin, double randomNumberBound) {
+        if (!(randomNumberOrigin < randomNumberBound))
+            throw new IllegalArgumentException(RandomSupport.BadRange);
+        return StreamSupport.doubleStream
+            (new RandomSupport.RandomDoublesSpliterator
+             (this, 0L, Long.MAX_VALUE, randomNumberOrigin, randomNumberBound),
+             false);
+    }
+
+    /**
+     * A generator that can be split: method {@link #split} returns a new
+     * generator sharing no mutable state with this one, whose values
+     * are, with very high probability, statistically independent of
+     * those of this generator.  Either or both may be further split, and
+     * the same properties apply to the entire set of generators so
+     * constructed.  This is the basis for parallel streams of
+     * pseudorandom values, and for giving each task of a fork/join-style
+     * computation its own generator.
+     */
+    interface SplittableGenerator extends RandomGenerator {
+
+        /**
+         * Returns a new generator split off from this one.  Calling
+         * this method advances the state of this generator.
+         *
+         * @return a new generator sharing no mutable state with this one
+         */
+        SplittableGenerator split();
+
+        /**
+         * Returns a new generator split off from this one, using the
+         * given generator rather than this one as the source of
+         * pseudorandom values used to initialize it.
+         *
+         * @param source a generator used to initialize the new one
+         * @return a new generator sharing no mutable state with this
+         *         one or the source
+         * @throws NullPointerException if source is null
+         */
+        SplittableGenerator split(SplittableGenerator source);
+
+        /**
+         * Returns a stream producing the given {@code streamSize} number
+         * of new generators split off from this one.
+         *
+         * @param streamSize the number of generators to produce
+         * @return a stream of generators
+         * @throws IllegalArgumentException if {@code streamSize} is
+         *         less than zero
+         */
+        default Stream<SplittableGenerator> splits(long streamSize) {
+            if (streamSize < 0L)
+                throw new IllegalArgumentException(RandomSupport.BadSize);
+            return StreamSupport.stream
+                (new RandomSupport.RandomSplitsSpliterator
+                 (this, 0L, streamSize), false);
+        }
+
+        /**
+         * Returns an effectively unlimited stream of new generators split
+         * off from this one.
+         *
+         * @implNote This method is implemented to be equivalent to {@code
+         * splits(Long.MAX_VALUE)}.
+         *
+         * @return a stream of generators
+         */
+        default Stream<SplittableGenerator> splits() {
+            return splits(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * A generator whose state can be advanced in constant time by a large
+     * fixed distance, the {@linkplain #jumpDistance jump distance}.
+     * Copying a generator and jumping the original yields two generators
+     * whose sequences do not overlap for at least that many values,
+     * which suffices to give each of a set of threads its own generator.
+     */
+    interface JumpableGenerator extends RandomGenerator {
+
+        /**
+         * Returns a new generator whose state is a copy of this one.
+         *
+         * @return a copy of this generator
+         */
+        JumpableGenerator copy();
+
+        /**
+         * Advances the state of this generator as if by {@link
+         * #jumpDistance} calls of {@code nextLong()}.
+         */
+        void jump();
+
+        /**
+         * Returns the distance by which {@link #jump} advances the state
+         * of this generator.
+         *
+         * @return the jump distance, as a {@code double} since it may
+         *         exceed {@code Long.MAX_VALUE}
+         */
+        double jumpDistance();
+
+        /**
+         * Returns a copy of this generator, then jumps this one.  The
+         * copy may be used for at most {@link #jumpDistance} values
+         * without overlapping any later copy.
+         *
+         * @return a copy of this generator, taken before jumping
+         */
+        default JumpableGenerator copyAndJump() {
+            JumpableGenerator result = copy();
+            jump();
+            return result;
+        }
+
+        /**
+         * Returns a stream producing the given {@code streamSize} number
+         * of generators, obtained by repeatedly invoking {@link
+         * #copyAndJump}.  The stream is evaluated sequentially, since
+         * jumping is a sequential operation on this generator.
+         *
+         * @param streamSize the number of generators to produce
+         * @return a stream of generators
+         * @throws IllegalArgumentException if {@code streamSize} is
+         *         less than zero
+         */
+        default Stream<RandomGenerator> jumps(long streamSize) {
+            if (streamSize < 0L)
+                throw new IllegalArgumentException(RandomSupport.BadSize);
+            return StreamSupport.stream
+                (new RandomSupport.RandomJumpsSpliterator
+                 (this, 0L, streamSize), false);
+        }
+
+        /**
+         * Returns an effectively unlimited stream of generators obtained
+         * by repeatedly invoking {@link #copyAndJump}.
+         *
+         * @implNote This method is implemented to be equivalent to {@code
+         * jumps(Long.MAX_VALUE)}.
+         *
+         * @return a stream of generators
+         */
+        default Stream<RandomGenerator> jumps() {
+            return jumps(Long.MAX_VALUE);
+        }
+    }
+}
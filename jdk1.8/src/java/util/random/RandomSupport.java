@@ -0,0 +1,483 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.random;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator.JumpableGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Constants, bounded-value algorithms, seeding and stream spliterators
+ * shared by the implementations of {@link RandomGenerator}.  The
+ * bounded algorithms and spliterators are those of {@link
+ * java.util.SplittableRandom}, expressed in terms of an arbitrary
+ * generator.
+ */
+final class RandomSupport {
+    private RandomSupport() {}
+
+    // IllegalArgumentException messages
+    static final String BadBound = "bound must be positive";
+    static final String BadRange = "bound must be greater than origin";
+    static final String BadSize  = "size must be non-negative";
+
+    /**
+     * The least non-zero values returned by nextFloat() and
+     * nextDouble().
+     */
+    static final float FLOAT_UNIT = 0x1.0p-24f;   // 1.0f / (1 << 24)
+    static final double DOUBLE_UNIT = 0x1.0p-53;  // 1.0 / (1L << 53)
+
+    /**
+     * The fractional parts of the golden ratio and of the silver ratio
+     * (1 + sqrt(2)), as 64-bit odd integers; used to perturb seeds.
+     */
+    static final long GOLDEN_RATIO_64 = 0x9e3779b97f4a7c15L;
+    static final long SILVER_RATIO_64 = 0x6a09e667f3bcc909L;
+
+    /**
+     * Computes Stafford variant 13 of 64bit mix function.
+     */
+    static long mixStafford13(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Computes the MurmurHash3 64-bit finalizer.
+     */
+    static long mixMurmur64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Computes Doug Lea's 64-bit mix function, used as the output
+     * function of the LXM generators.
+     */
+    static long mixLea64(long z) {
+        z = (z ^ (z >>> 32)) * 0xdaba0b6eb09322e3L;
+        z = (z ^ (z >>> 32)) * 0xdaba0b6eb09322e3L;
+        return z ^ (z >>> 32);
+    }
+
+    /**
+     * The seed generator for default constructors, advanced by the
+     * golden ratio for each seed handed out, as in SplittableRandom.
+     */
+    private static final AtomicLong defaultGen = new AtomicLong(initialSeed());
+
+    private static long initialSeed() {
+        String pp = java.security.AccessController.doPrivileged(
+                new sun.security.action.GetPropertyAction(
+                        "java.util.secureRandomSeed"));
+        if (pp != null && pp.equalsIgnoreCase("true")) {
+            byte[] seedBytes = java.security.SecureRandom.getSeed(8);
+            long s = (long)(seedBytes[0]) & 0xffL;
+            for (int i = 1; i < 8; ++i)
+                s = (s << 8) | ((long)(seedBytes[i]) & 0xffL);
+            return s;
+        }
+        return (mixStafford13(System.currentTimeMillis()) ^
+                mixStafford13(System.nanoTime()));
+    }
+
+    /**
+     * Returns a seed for a default-constructed generator, likely to
+     * differ from those of all other generators in the program.
+     */
+    static long nextSeed() {
+        return mixMurmur64(defaultGen.getAndAdd(GOLDEN_RATIO_64));
+    }
+
+    /*
+     * Bounded forms of nextX used by the default methods of
+     * RandomGenerator and by the stream spliterators.  See
+     * SplittableRandom.internalNextLong for an account of the four
+     * cases.
+     */
+
+    /**
+     * Returns a value between origin (inclusive) and bound
+     * (exclusive), or if origin is not less than bound, an unbounded
+     * value.
+     */
+    static int boundedNextInt(RandomGenerator rng, int origin, int bound) {
+        int r = rng.nextInt();
+        if (origin < bound) {
+            int n = bound - origin, m = n - 1;
+            if ((n & m) == 0)
+                r = (r & m) + origin;
+            else if (n > 0) {
+                for (int u = r >>> 1;
+                     u + m - (r = u % n) < 0;
+                     u = rng.nextInt() >>> 1)
+                    ;
+                r += origin;
+            }
+            else {
+                while (r < origin || r >= bound)
+                    r = rng.nextInt();
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns a value between origin (inclusive) and bound
+     * (exclusive), or if origin is not less than bound, an unbounded
+     * value.
+     */
+    static long boundedNextLong(RandomGenerator rng, long origin, long bound) {
+        long r = rng.nextLong();
+        if (origin < bound) {
+            long n = bound - origin, m = n - 1;
+            if ((n & m) == 0L)
+                r = (r & m) + origin;
+            else if (n > 0L) {
+                for (long u = r >>> 1;
+                     u + m - (r = u % n) < 0L;
+                     u = rng.nextLong() >>> 1)
+                    ;
+                r += origin;
+            }
+            else {
+                while (r < origin || r >= bound)
+                    r = rng.nextLong();
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns a value between origin (inclusive) and bound
+     * (exclusive), or if origin is not less than bound, a value
+     * between zero (inclusive) and one (exclusive).
+     */
+    static double boundedNextDouble(RandomGenerator rng, double origin,
+                                    double bound) {
+        double r = rng.nextDouble();
+        if (origin < bound) {
+            r = r * (bound - origin) + origin;
+            if (r >= bound) // correct for rounding
+                r = Double.longBitsToDouble(Double.doubleToLongBits(bound) - 1);
+        }
+        return r;
+    }
+
+    /**
+     * Returns a generator for the lower half of a split stream, or
+     * null if the given generator cannot be split.
+     */
+    static RandomGenerator splitOrNull(RandomGenerator rng) {
+        return (rng instanceof SplittableGenerator) ?
+            ((SplittableGenerator)rng).split() : null;
+    }
+
+    /**
+     * Spliterator for int streams.  We multiplex the four int
+     * versions into one class by treating a bound less than origin as
+     * unbounded, and also by treating "infinite" as equivalent to
+     * Long.MAX_VALUE.  Splitting is possible only if the generator is
+     * a SplittableGenerator; the lower half then uses a generator
+     * split off from that of the upper half.
+     */
+    static final class RandomIntsSpliterator implements Spliterator.OfInt {
+        final RandomGenerator rng;
+        long index;
+        final long fence;
+        final int origin;
+        final int bound;
+        RandomIntsSpliterator(RandomGenerator rng, long index, long fence,
+                              int origin, int bound) {
+            this.rng = rng; this.index = index; this.fence = fence;
+            this.origin = origin; this.bound = bound;
+        }
+
+        public RandomIntsSpliterator trySplit() {
+            long i = index, m = (i + fence) >>> 1;
+            RandomGenerator r;
+            return (m <= i || (r = splitOrNull(rng)) == null) ? null :
+                new RandomIntsSpliterator(r, i, index = m, origin, bound);
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return (Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+
+        public boolean tryAdvance(IntConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                consumer.accept(boundedNextInt(rng, origin, bound));
+                index = i + 1;
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                index = f;
+                RandomGenerator r = rng;
+                int o = origin, b = bound;
+                do {
+                    consumer.accept(boundedNextInt(r, o, b));
+                } while (++i < f);
+            }
+        }
+    }
+
+    /**
+     * Spliterator for long streams.
+     */
+    static final class RandomLongsSpliterator implements Spliterator.OfLong {
+        final RandomGenerator rng;
+        long index;
+        final long fence;
+        final long origin;
+        final long bound;
+        RandomLongsSpliterator(RandomGenerator rng, long index, long fence,
+                               long origin, long bound) {
+            this.rng = rng; this.index = index; this.fence = fence;
+            this.origin = origin; this.bound = bound;
+        }
+
+        public RandomLongsSpliterator trySplit() {
+            long i = index, m = (i + fence) >>> 1;
+            RandomGenerator r;
+            return (m <= i || (r = splitOrNull(rng)) == null) ? null :
+                new RandomLongsSpliterator(r, i, index = m, origin, bound);
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return (Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+
+        public boolean tryAdvance(LongConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                consumer.accept(boundedNextLong(rng, origin, bound));
+                index = i + 1;
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(LongConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                index = f;
+                RandomGenerator r = rng;
+                long o = origin, b = bound;
+                do {
+                    consumer.accept(boundedNextLong(r, o, b));
+                } while (++i < f);
+            }
+        }
+    }
+
+    /**
+     * Spliterator for double streams.
+     */
+    static final class RandomDoublesSpliterator implements Spliterator.OfDouble {
+        final RandomGenerator rng;
+        long index;
+        final long fence;
+        final double origin;
+        final double bound;
+        RandomDoublesSpliterator(RandomGenerator rng, long index, long fence,
+                                 double origin, double bound) {
+            this.rng = rng; this.index = index; this.fence = fence;
+            this.origin = origin; this.bound = bound;
+        }
+
+        public RandomDoublesSpliterator trySplit() {
+            long i = index, m = (i + fence) >>> 1;
+            RandomGenerator r;
+            return (m <= i || (r = splitOrNull(rng)) == null) ? null :
+                new RandomDoublesSpliterator(r, i, index = m, origin, bound);
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return (Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+
+        public boolean tryAdvance(DoubleConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                consumer.accept(boundedNextDouble(rng, origin, bound));
+                index = i + 1;
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(DoubleConsumer consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                index = f;
+                RandomGenerator r = rng;
+                double o = origin, b = bound;
+                do {
+                    consumer.accept(boundedNextDouble(r, o, b));
+                } while (++i < f);
+            }
+        }
+    }
+
+    /**
+     * Spliterator for streams of generators split off from a
+     * SplittableGenerator.  The lower half of a split draws its
+     * generators from one split off from that of the upper half.
+     */
+    static final class RandomSplitsSpliterator
+            implements Spliterator<SplittableGenerator> {
+        final SplittableGenerator rng;
+        long index;
+        final long fence;
+        RandomSplitsSpliterator(SplittableGenerator rng, long index, long fence) {
+            this.rng = rng; this.index = index; this.fence = fence;
+        }
+
+        public RandomSplitsSpliterator trySplit() {
+            long i = index, m = (i + fence) >>> 1;
+            return (m <= i) ? null :
+                new RandomSplitsSpliterator(rng.split(), i, index = m);
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return (Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+
+        public boolean tryAdvance(Consumer<? super SplittableGenerator> consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                consumer.accept(rng.split());
+                index = i + 1;
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super SplittableGenerator> consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                index = f;
+                SplittableGenerator r = rng;
+                do {
+                    consumer.accept(r.split());
+                } while (++i < f);
+            }
+        }
+    }
+
+    /**
+     * Spliterator for streams of generators copied off a
+     * JumpableGenerator.  Never splits: a copy of a copy, jumped by
+     * the same distance, would overlap the sequence of the original.
+     */
+    static final class RandomJumpsSpliterator
+            implements Spliterator<RandomGenerator> {
+        final JumpableGenerator rng;
+        long index;
+        final long fence;
+        RandomJumpsSpliterator(JumpableGenerator rng, long index, long fence) {
+            this.rng = rng; this.index = index; this.fence = fence;
+        }
+
+        public Spliterator<RandomGenerator> trySplit() {
+            return null;
+        }
+
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        public int characteristics() {
+            return (Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+
+        public boolean tryAdvance(Consumer<? super RandomGenerator> consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                consumer.accept(rng.copyAndJump());
+                index = i + 1;
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super RandomGenerator> consumer) {
+            if (consumer == null) throw new NullPointerException();
+            long i = index, f = fence;
+            if (i < f) {
+                index = f;
+                JumpableGenerator r = rng;
+                do {
+                    consumer.accept(r.copyAndJump());
+                } while (++i < f);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.random;
+
+/**
+ * A small and fast jumpable generator of pseudorandom values, using
+ * the "xoroshiro128++" algorithm of David Blackman and Sebastiano
+ * Vigna ("Scrambled Linear Pseudorandom Number Generators", ACM
+ * Transactions on Mathematical Software, 2021).
+ *
+ * <p>The state consists of two 64-bit words, not both zero, and the
+ * period is 2<sup>128</sup>&minus;1.  Each value costs a handful of
+ * shifts, rotations and xors, with no multiplication, making this one
+ * of the fastest generators that pass the usual statistical test
+ * suites.  Method {@link #jump} advances the state by
+ * 2<sup>64</sup> values, so that a generator can be handed to each of
+ * many threads by {@linkplain #copyAndJump copying and jumping} a
+ * common one.  Instances cannot be {@linkplain
+ * RandomGenerator.SplittableGenerator split}; when independent
+ * generators must be created recursively, as by parallel streams,
+ * consider {@link L64X128MixRandom} instead.
+ *
+ * <p>Instances of {@code Xoroshiro128PlusPlus} are <em>not</em>
+ * thread-safe and not cryptographically secure.  Default-constructed
+ * instances do not use a cryptographically random seed unless the
+ * {@linkplain System#getProperty system property} {@code
+ * java.util.secureRandomSeed} is set to {@code true}.
+ */
+public final class Xoroshiro128PlusPlus
+        implements RandomGenerator.JumpableGenerator {
+
+    /*
+     * The jump polynomial, from the reference implementation,
+     * advancing the state by 2^64 calls to nextLong.
+     */
+    private static final long[] JUMP = {
+        0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L
+    };
+
+    /**
+     * The two words of state; never both zero.
+     */
+    private long x0, x1;
+
+    /**
+     * Creates a new instance with the given state, which is replaced
+     * by a fixed nonzero state if both words are zero.
+     *
+     * @param x0 the first word of the initial state
+     * @param x1 the second word of the initial state
+     */
+    public Xoroshiro128PlusPlus(long x0, long x1) {
+        if ((x0 | x1) == 0L) {
+            x0 = RandomSupport.GOLDEN_RATIO_64;
+            x1 = RandomSupport.SILVER_RATIO_64;
+        }
+        this.x0 = x0;
+        this.x1 = x1;
+    }
+
+    /**
+     * Creates a new instance using the specified initial seed.
+     * Instances created with the same seed in the same program
+     * generate identical sequences of values.
+     *
+     * @param seed the initial seed
+     */
+    public Xoroshiro128PlusPlus(long seed) {
+        this(RandomSupport.mixStafford13(seed ^ RandomSupport.SILVER_RATIO_64),
+             RandomSupport.mixStafford13(seed + RandomSupport.GOLDEN_RATIO_64));
+    }
+
+    /**
+     * Creates a new instance that is likely to generate sequences of
+     * values that are statistically independent of those of any other
+     * instances in the current program; and may, and typically does,
+     * vary across program invocations.
+     */
+    public Xoroshiro128PlusPlus() {
+        this(RandomSupport.nextSeed());
+    }
+
+    public Xoroshiro128PlusPlus copy() {
+        return new Xoroshiro128PlusPlus(x0, x1);
+    }
+
+    public long nextLong() {
+        final long s0 = x0;
+        long s1 = x1;
+        final long result = Long.rotateLeft(s0 + s1, 17) + s0;
+        s1 ^= s0;
+        x0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+        x1 = Long.rotateLeft(s1, 28);
+        return result;
+    }
+
+    /**
+     * Advances the state of this generator as if by 2<sup>64</sup>
+     * calls of {@code nextLong()}.
+     */
+    public void jump() {
+        long s0 = 0L, s1 = 0L;
+        for (long j : JUMP) {
+            for (int b = 0; b < 64; ++b) {
+                if ((j & (1L << b)) != 0L) {
+                    s0 ^= x0;
+                    s1 ^= x1;
+                }
+                nextLong();
+            }
+        }
+        x0 = s0;
+        x1 = s1;
+    }
+
+    /**
+     * Returns 2<sup>64</sup>, the distance by which {@link #jump}
+     * advances the state of this generator.
+     *
+     * @return 2<sup>64</sup>
+     */
+    public double jumpDistance() {
+        return 0x1.0p64;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+/**
+ * Interfaces and classes for generating pseudorandom numbers.
+ *
+ * <p>Interface {@link java.util.random.RandomGenerator} is the common
+ * protocol of all generators, including {@link java.util.Random},
+ * {@link java.security.SecureRandom} and {@link java.util.SplittableRandom}.
+ * Its nested interfaces describe generators that can be
+ * {@linkplain java.util.random.RandomGenerator.SplittableGenerator split}
+ * into independent ones, as needed by parallel streams and fork/join
+ * computations, and generators that can
+ * {@linkplain java.util.random.RandomGenerator.JumpableGenerator jump}
+ * ahead in their sequence, so that one sequence can be shared out among
+ * threads.
+ *
+ * <p>This package also provides two fast generators that are not
+ * cryptographically secure:
+ *
+ * <ul>
+ *     <li>{@link java.util.random.Xoroshiro128PlusPlus}, a jumpable
+ *     generator with 128 bits of state and no multiplications, for
+ *     sequential use or a fixed set of threads;
+ *     </li>
+ *
+ *     <li>{@link java.util.random.L64X128MixRandom}, a splittable
+ *     generator of the LXM family, for parallel streams and recursively
+ *     forked computations.
+ *     </li>
+ * </ul>
+ *
+ * <p>Generators are not thread-safe in general.  For a generator shared
+ * implicitly by all threads, use
+ * {@link java.util.concurrent.ThreadLocalRandom}; for cryptographically
+ * secure values drawn in small amounts by many threads, use
+ * {@link java.security.SecureRandom#getBufferedInstance}.
+ */
+package java.util.random;
@@ -26,6 +26,8 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -148,6 +150,13 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * The pool in which a parallel pipeline is evaluated, or null to use the
+     * pool of the evaluating thread, or the common pool; only valid for the
+     * source stage.
+     */
+    private ForkJoinPool pool;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -229,9 +238,13 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        if (!isParallel())
+            return terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        ForkJoinPool p = sourceStage.pool;
+        if (p != null && ForkJoinTask.getPool() != p)
+            return p.invoke(ForkJoinTask.adapt(
+                () -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))));
+        return terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()));
     }
 
     /**
@@ -246,6 +259,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
+        ForkJoinPool p;
+        if (isParallel() && (p = sourceStage.pool) != null &&
+            ForkJoinTask.getPool() != p)
+            return p.invoke(ForkJoinTask.adapt(() -> toArrayNode(generator)));
+        return toArrayNode(generator);
+    }
+
+    /**
+     * Collects the elements output from the pipeline stage, in the current
+     * thread, once it has been consumed.
+     */
+    private Node<E_OUT> toArrayNode(IntFunction<E_OUT[]> generator) {
         // If the last intermediate operation is stateful then
         // evaluate directly to avoid an extra collection step
         if (isParallel() && previousStage != null && opIsStateful()) {
@@ -309,6 +334,16 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S parallel() {
         sourceStage.parallel = true;
+        sourceStage.pool = null;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        sourceStage.parallel = true;
+        sourceStage.pool = pool;
         return (S) this;
     }
 
@@ -509,12 +544,42 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     }
 
     @Override
-    @SuppressWarnings("unchecked")
+    @SuppressWarnings({"unchecked", "rawtypes"})
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
-        for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
+        for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; ) {
+            FusedOps.Step step;
+            if (FusedOps.ENABLED && (step = p.fusionStep()) != null) {
+                // Extend the run upstream; only its last stage may change
+                // the shape of the stream
+                int length = 1;
+                for (AbstractPipeline q = p.previousStage; q.depth > 0; q = q.previousStage) {
+                    FusedOps.Step s = q.fusionStep();
+                    if (s == null || s.isShapeChanging())
+                        break;
+                    length++;
+                }
+                if (length > 1) {
+                    FusedOps.Step[] steps = new FusedOps.Step[length];
+                    steps[length - 1] = step;
+                    AbstractPipeline q = p.previousStage;
+                    for (int i = length - 2; i >= 0; i--, q = q.previousStage)
+                        steps[i] = q.fusionStep();
+                    Sink fused = FusedOps.wrapSink(steps, sink);
+                    if (fused != null) {
+                        sink = fused;
+                        p = q;
+                        continue;
+                    }
+                    // Not fused yet, wrap the whole run so that its
+                    // evaluations are only counted once
+                    for (int i = 1; i < length; i++, p = p.previousStage)
+                        sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+                }
+            }
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+            p = p.previousStage;
         }
         return (Sink<P_IN>) sink;
     }
@@ -657,6 +722,22 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     abstract Sink<E_IN> opWrapSink(int flags, Sink<E_OUT> sink);
 
+    /**
+     * Returns the step performed by this operation if it is a stateless
+     * operation whose sink may be fused with the sinks of adjacent stages,
+     * see {@link FusedOps}.  The step must be equivalent to the sink
+     * returned by {@link #opWrapSink}.
+     *
+     * @implSpec The default implementation returns {@code null}, the
+     * operation is not fused.
+     *
+     * @return the step performed by this operation, or {@code null} if it
+     *         cannot be fused
+     */
+    FusedOps.Step fusionStep() {
+        return null;
+    }
+
     /**
      * Performs a parallel evaluation of the operation using the specified
      * {@code PipelineHelper} which describes the upstream intermediate
@@ -99,6 +99,8 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
      */
     @Override
     public void compute() {
+        if (statistics != null)
+            statistics.recordExecution(forker);
         Spliterator<P_IN> rs = spliterator, ls;
         long sizeEstimate = rs.estimateSize();
         long sizeThreshold = getTargetSize(sizeEstimate);
@@ -130,6 +132,10 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
                 task = rightChild;
                 taskToFork = leftChild;
             }
+            if (statistics != null) {
+                statistics.recordSplit();
+                taskToFork.forker = Thread.currentThread();
+            }
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
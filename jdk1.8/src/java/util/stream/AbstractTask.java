@@ -96,6 +96,17 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      */
     static final int LEAF_TARGET = ForkJoinPool.getCommonPoolParallelism() << 2;
 
+    /**
+     * Returns the target factor of leaf tasks for the pool in which tasks
+     * created by the current thread will run: {@link #LEAF_TARGET} for the
+     * common pool, else similarly based on the parallelism of the pool of
+     * the current worker thread.
+     */
+    static int leafTarget() {
+        ForkJoinPool pool = getPool();
+        return (pool == null) ? LEAF_TARGET : pool.getParallelism() << 2;
+    }
+
     /** The pipeline helper, common to all tasks in a computation */
     protected final PipelineHelper<P_OUT> helper;
 
@@ -125,6 +136,15 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     /** The result of this node, if completed */
     private R localResult;
 
+    /**
+     * Statistics of the pool, common to all tasks in a computation, or
+     * null if statistics are not being collected
+     */
+    final ParallelStreamStatistics statistics;
+
+    /** The thread that forked this task, or null if not forked */
+    Thread forker;
+
     /**
      * Constructor for root nodes.
      *
@@ -139,6 +159,7 @@ abstract class AbstractTask<P_IN, P_OUT, R,
         this.helper = helper;
         this.spliterator = spliterator;
         this.targetSize = 0L;
+        this.statistics = ParallelStreamStatistics.current();
     }
 
     /**
@@ -154,6 +175,7 @@ abstract class AbstractTask<P_IN, P_OUT, R,
         this.spliterator = spliterator;
         this.helper = parent.helper;
         this.targetSize = parent.targetSize;
+        this.statistics = parent.statistics;
     }
 
     /**
@@ -176,12 +198,14 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     protected abstract R doLeaf();
 
     /**
-     * Returns a suggested target leaf size based on the initial size estimate.
+     * Returns a suggested target leaf size based on the initial size estimate
+     * and the parallelism of the pool in which tasks created by the current
+     * thread will run.
      *
      * @return suggested target leaf size
      */
     public static long suggestTargetSize(long sizeEstimate) {
-        long est = sizeEstimate / LEAF_TARGET;
+        long est = sizeEstimate / leafTarget();
         return est > 0L ? est : 1L;
     }
 
@@ -289,6 +313,8 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      */
     @Override
     public void compute() {
+        if (statistics != null)
+            statistics.recordExecution(forker);
         Spliterator<P_IN> rs = spliterator, ls; // right, left spliterators
         long sizeEstimate = rs.estimateSize();
         long sizeThreshold = getTargetSize(sizeEstimate);
@@ -310,6 +336,10 @@ abstract class AbstractTask<P_IN, P_OUT, R,
                 task = rightChild;
                 taskToFork = leftChild;
             }
+            if (statistics != null) {
+                statistics.recordSplit();
+                taskToFork.forker = Thread.currentThread();
+            }
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -116,6 +118,40 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * Returns an equivalent stream that is parallel, and whose terminal
+     * operation is evaluated using tasks in the given pool rather than
+     * the {@link ForkJoinPool#commonPool() common pool}.  The elements are
+     * divided among tasks according to the parallelism of the given pool.
+     * May return itself, either because the stream was already parallel
+     * in the given pool, or because the underlying stream state was
+     * modified.  A subsequent call to {@link #parallel()} or {@link
+     * #sequential()} replaces the choice of pool.
+     *
+     * <p>The thread invoking the terminal operation waits for it to
+     * complete in the given pool.  Pools whose parallelism is bounded can
+     * thus be used to isolate the parallel pipelines of different callers
+     * from each other, and from other users of the common pool.  The pool
+     * is not used for traversal of the stream through its {@link
+     * #iterator()} or {@link #spliterator()}.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns {@link #parallel()}, and so
+     * evaluates the stream as any parallel stream of this implementation.
+     *
+     * @param pool the pool in which to evaluate the stream
+     * @return a parallel stream
+     * @throws NullPointerException if the pool is null
+     * @see ParallelStreamStatistics
+     */
+    default S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        return parallel();
+    }
+
     /**
      * Returns an equivalent stream that is
      * <a href="package-summary.html#Ordering">unordered</a>.  May return
@@ -42,15 +42,22 @@ import java.util.LongSummaryStatistics;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -196,6 +203,108 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Simple implementation class for {@code IntCollector}.
+     *
+     * @param <A> the type of the mutable result container
+     * @param <R> the type of the result
+     */
+    static class IntCollectorImpl<A, R> implements IntCollector<A, R> {
+        private final Supplier<A> supplier;
+        private final ObjIntConsumer<A> accumulator;
+        private final BinaryOperator<A> combiner;
+        private final Function<A, R> finisher;
+        private final Set<Collector.Characteristics> characteristics;
+
+        IntCollectorImpl(Supplier<A> supplier,
+                         ObjIntConsumer<A> accumulator,
+                         BinaryOperator<A> combiner,
+                         Function<A,R> finisher,
+                         Set<Collector.Characteristics> characteristics) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public ObjIntConsumer<A> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public BinaryOperator<A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+
+        @Override
+        public Set<Collector.Characteristics> characteristics() {
+            return characteristics;
+        }
+    }
+
+    /**
+     * Simple implementation class for {@code LongCollector}.
+     *
+     * @param <A> the type of the mutable result container
+     * @param <R> the type of the result
+     */
+    static class LongCollectorImpl<A, R> implements LongCollector<A, R> {
+        private final Supplier<A> supplier;
+        private final ObjLongConsumer<A> accumulator;
+        private final BinaryOperator<A> combiner;
+        private final Function<A, R> finisher;
+        private final Set<Collector.Characteristics> characteristics;
+
+        LongCollectorImpl(Supplier<A> supplier,
+                          ObjLongConsumer<A> accumulator,
+                          BinaryOperator<A> combiner,
+                          Function<A,R> finisher,
+                          Set<Collector.Characteristics> characteristics) {
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public ObjLongConsumer<A> accumulator() {
+            return accumulator;
+        }
+
+        @Override
+        public Supplier<A> supplier() {
+            return supplier;
+        }
+
+        @Override
+        public BinaryOperator<A> combiner() {
+            return combiner;
+        }
+
+        @Override
+        public Function<A, R> finisher() {
+            return finisher;
+        }
+
+        @Override
+        public Set<Collector.Characteristics> characteristics() {
+            return characteristics;
+        }
+    }
+
     /**
      * Returns a {@code Collector} that accumulates the input elements into a
      * new {@code Collection}, in encounter order.  The {@code Collection} is
@@ -410,7 +519,7 @@ public final class Collectors {
      */
     public static <T> Collector<T, ?, Long>
     counting() {
-        return reducing(0L, e -> 1L, Long::sum);
+        return summingLong(e -> 1L);
     }
 
     /**
@@ -1091,6 +1200,252 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to an
+     * {@code int}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>This produces the same result as
+     * {@code groupingBy(t -> classifier.applyAsInt(t), downstream)}, but
+     * elements are grouped in a hash table specialized for {@code int} keys,
+     * so that keys are not boxed for each element but only once per distinct
+     * key, when the resulting {@code Map} is built.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingByIntConcurrent(ToIntFunction, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Integer, D>> groupingByInt(ToIntFunction<? super T> classifier,
+                                                   Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        return groupingByKey(t -> classifier.applyAsInt(t), k -> (int) k,
+                             downstream, HashMap::new);
+    }
+
+    /**
+     * Returns a concurrent {@code Collector} implementing a cascaded
+     * "group by" operation on input elements of type {@code T}, grouping
+     * elements according to an {@code int}-valued classification function,
+     * as {@link #groupingByInt(ToIntFunction, Collector)} does.
+     *
+     * <p>Rather than sharing one {@code ConcurrentMap} between threads, each
+     * thread groups elements into a table of its own, and these tables are
+     * merged once all elements have been accumulated.  The downstream
+     * collector need not be concurrent, and its containers are never
+     * accessed by more than one thread at a time, so that no locking is
+     * needed.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a concurrent, unordered {@code Collector} implementing the
+     * cascaded group-by operation
+     *
+     * @see #groupingByInt(ToIntFunction, Collector)
+     * @see #groupingByConcurrent(Function, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, ConcurrentMap<Integer, D>> groupingByIntConcurrent(ToIntFunction<? super T> classifier,
+                                                                       Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        return perThread(groupingByKey(t -> classifier.applyAsInt(t), k -> (int) k,
+                                       downstream, ConcurrentHashMap::new));
+    }
+
+    /**
+     * Returns a {@code Collector} implementing a cascaded "group by" operation
+     * on input elements of type {@code T}, grouping elements according to a
+     * {@code long}-valued classification function, and then performing a
+     * reduction operation on the values associated with a given key using the
+     * specified downstream {@code Collector}.
+     *
+     * <p>This produces the same result as
+     * {@code groupingBy(t -> classifier.applyAsLong(t), downstream)}, but
+     * elements are grouped in a hash table specialized for {@code long} keys,
+     * so that keys are not boxed for each element but only once per distinct
+     * key, when the resulting {@code Map} is built.
+     *
+     * <p>There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} returned.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingByLongConcurrent(ToLongFunction, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, Map<Long, D>> groupingByLong(ToLongFunction<? super T> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        return groupingByKey(classifier, k -> k, downstream, HashMap::new);
+    }
+
+    /**
+     * Returns a concurrent {@code Collector} implementing a cascaded
+     * "group by" operation on input elements of type {@code T}, grouping
+     * elements according to a {@code long}-valued classification function,
+     * as {@link #groupingByLong(ToLongFunction, Collector)} does.
+     *
+     * <p>Each thread groups elements into a table of its own, as for
+     * {@link #groupingByIntConcurrent(ToIntFunction, Collector)}.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a concurrent, unordered {@code Collector} implementing the
+     * cascaded group-by operation
+     *
+     * @see #groupingByLong(ToLongFunction, Collector)
+     * @see #groupingByConcurrent(Function, Collector)
+     */
+    public static <T, A, D>
+    Collector<T, ?, ConcurrentMap<Long, D>> groupingByLongConcurrent(ToLongFunction<? super T> classifier,
+                                                                     Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        return perThread(groupingByKey(classifier, k -> k, downstream, ConcurrentHashMap::new));
+    }
+
+    /**
+     * Implementation of the primitive-keyed "group by" collectors, grouping
+     * elements in a {@link LongKeyTable}.
+     */
+    private static <T, K, A, D, M extends Map<K, D>>
+    Collector<T, LongKeyTable<A>, M> groupingByKey(ToLongFunction<? super T> classifier,
+                                                   LongFunction<? extends K> keyMapper,
+                                                   Collector<? super T, A, D> downstream,
+                                                   Supplier<M> mapFactory) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BiConsumer<LongKeyTable<A>, T> accumulator = (m, t) ->
+                downstreamAccumulator.accept(m.computeIfAbsent(classifier.applyAsLong(t), downstreamSupplier), t);
+        BinaryOperator<A> op = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        return new CollectorImpl<>(LongKeyTable::new, accumulator,
+                                   (left, right) -> left.merge(right, op),
+                                   m -> m.toMap(mapFactory.get(), keyMapper, downstreamFinisher),
+                                   CH_NOID);
+    }
+
+    /**
+     * Implementation of {@link IntCollector#groupingBy(IntUnaryOperator, IntCollector)}
+     * and {@link IntCollector#groupingByConcurrent(IntUnaryOperator, IntCollector)}.
+     */
+    static <A, D, M extends Map<Integer, D>>
+    IntCollector<LongKeyTable<A>, M> groupingByKey(IntUnaryOperator classifier,
+                                                   IntCollector<A, D> downstream,
+                                                   Supplier<M> mapFactory) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        ObjIntConsumer<A> downstreamAccumulator = downstream.accumulator();
+        ObjIntConsumer<LongKeyTable<A>> accumulator = (m, i) ->
+                downstreamAccumulator.accept(m.computeIfAbsent(classifier.applyAsInt(i), downstreamSupplier), i);
+        BinaryOperator<A> op = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        return new IntCollectorImpl<>(LongKeyTable::new, accumulator,
+                                      (left, right) -> left.merge(right, op),
+                                      m -> m.toMap(mapFactory.get(), k -> (int) k, downstreamFinisher),
+                                      CH_NOID);
+    }
+
+    /**
+     * Implementation of {@link LongCollector#groupingBy(LongUnaryOperator, LongCollector)}
+     * and {@link LongCollector#groupingByConcurrent(LongUnaryOperator, LongCollector)}.
+     */
+    static <A, D, M extends Map<Long, D>>
+    LongCollector<LongKeyTable<A>, M> groupingByKey(LongUnaryOperator classifier,
+                                                    LongCollector<A, D> downstream,
+                                                    Supplier<M> mapFactory) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        ObjLongConsumer<A> downstreamAccumulator = downstream.accumulator();
+        ObjLongConsumer<LongKeyTable<A>> accumulator = (m, l) ->
+                downstreamAccumulator.accept(m.computeIfAbsent(classifier.applyAsLong(l), downstreamSupplier), l);
+        BinaryOperator<A> op = downstream.combiner();
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        return new LongCollectorImpl<>(LongKeyTable::new, accumulator,
+                                       (left, right) -> left.merge(right, op),
+                                       m -> m.toMap(mapFactory.get(), k -> k, downstreamFinisher),
+                                       CH_NOID);
+    }
+
+    /**
+     * Adapts a collector into a concurrent, unordered collector accumulating
+     * into one container of the given collector per thread.
+     */
+    static <T, A, R> Collector<T, ?, R> perThread(Collector<T, A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        BiConsumer<A, T> accumulator = collector.accumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        Function<A, R> finisher = collector.finisher();
+        return new CollectorImpl<T, PerThread<A>, R>(
+                () -> new PerThread<>(supplier),
+                (p, t) -> accumulator.accept(p.get(), t),
+                PerThread::merge,
+                p -> finisher.apply(p.combine(combiner)), CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * Adapts an {@code IntCollector} into a concurrent, unordered collector
+     * accumulating into one container of the given collector per thread.
+     */
+    static <A, R> IntCollector<?, R> perThread(IntCollector<A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        ObjIntConsumer<A> accumulator = collector.accumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        Function<A, R> finisher = collector.finisher();
+        return new IntCollectorImpl<PerThread<A>, R>(
+                () -> new PerThread<>(supplier),
+                (p, i) -> accumulator.accept(p.get(), i),
+                PerThread::merge,
+                p -> finisher.apply(p.combine(combiner)), CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * Adapts a {@code LongCollector} into a concurrent, unordered collector
+     * accumulating into one container of the given collector per thread.
+     */
+    static <A, R> LongCollector<?, R> perThread(LongCollector<A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        ObjLongConsumer<A> accumulator = collector.accumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        Function<A, R> finisher = collector.finisher();
+        return new LongCollectorImpl<PerThread<A>, R>(
+                () -> new PerThread<>(supplier),
+                (p, l) -> accumulator.accept(p.get(), l),
+                PerThread::merge,
+                p -> finisher.apply(p.combine(combiner)), CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * {@code BinaryOperator} merging two histograms of the same length.
+     */
+    static long[] histogramMerger(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++)
+            left[i] += right[i];
+        return left;
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
@@ -1537,7 +1892,7 @@ public final class Collectors {
     /**
      * Implementation class used by partitioningBy.
      */
-    private static final class Partition<T>
+    static final class Partition<T>
             extends AbstractMap<Boolean, T>
             implements Map<Boolean, T> {
         final T forTrue;
@@ -1565,4 +1920,151 @@ public final class Collectors {
             };
         }
     }
+
+    /**
+     * Open-addressing hash table from primitive keys to result containers,
+     * used by the primitive-keyed "group by" collectors so that elements are
+     * grouped without boxing their keys.  {@code int} keys are stored widened
+     * to {@code long}.  A {@code null} value denotes an empty slot, which is
+     * safe since result containers are never {@code null}.
+     *
+     * @param <V> the type of the result containers
+     */
+    static final class LongKeyTable<V> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * Returns the index of the slot holding the given key, or of the
+         * empty slot where it belongs.
+         */
+        private int indexOf(long key) {
+            long[] ks = keys;
+            Object[] vs = values;
+            int mask = ks.length - 1;
+            int i = hash(key) & mask;
+            while (vs[i] != null && ks[i] != key)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        private void insert(int i, long key, Object value) {
+            keys[i] = key;
+            values[i] = value;
+            if (++size > (keys.length >>> 1))
+                resize();
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length << 1];
+            values = new Object[oldValues.length << 1];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = indexOf(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V computeIfAbsent(long key, Supplier<? extends V> supplier) {
+            int i = indexOf(key);
+            Object v = values[i];
+            if (v == null)
+                insert(i, key, v = Objects.requireNonNull(supplier.get()));
+            return (V) v;
+        }
+
+        @SuppressWarnings("unchecked")
+        LongKeyTable<V> merge(LongKeyTable<V> other, BinaryOperator<V> op) {
+            long[] ks = other.keys;
+            Object[] vs = other.values;
+            for (int j = 0; j < ks.length; j++) {
+                Object v = vs[j];
+                if (v != null) {
+                    int i = indexOf(ks[j]);
+                    if (values[i] == null)
+                        insert(i, ks[j], v);
+                    else
+                        values[i] = Objects.requireNonNull(op.apply((V) values[i], (V) v));
+                }
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        <K, D, M extends Map<K, D>> M toMap(M map,
+                                            LongFunction<? extends K> keyMapper,
+                                            Function<? super V, ? extends D> finisher) {
+            long[] ks = keys;
+            Object[] vs = values;
+            for (int j = 0; j < ks.length; j++) {
+                if (vs[j] != null)
+                    map.put(keyMapper.apply(ks[j]), finisher.apply((V) vs[j]));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Result container of a collector adapted by {@code perThread}.  Each
+     * thread accumulates into a container of its own, and the containers of
+     * all threads are combined when the result is finished.  Containers are
+     * found through a map owned by this object rather than a
+     * {@code ThreadLocal}, so that neither they nor the threads are retained
+     * once the collection completes; a {@code ThreadLocal} entry would stay
+     * in each pool thread until the thread next expunged stale entries.
+     *
+     * @param <A> the type of the underlying result containers
+     */
+    static final class PerThread<A> {
+        private final Supplier<A> supplier;
+        private final ConcurrentHashMap<Thread, A> local = new ConcurrentHashMap<>();
+        private final Queue<A> containers = new ConcurrentLinkedQueue<>();
+
+        PerThread(Supplier<A> supplier) {
+            this.supplier = supplier;
+        }
+
+        /**
+         * Returns the container of the current thread.
+         */
+        A get() {
+            Thread t = Thread.currentThread();
+            A a = local.get(t);
+            if (a == null) {
+                local.put(t, a = supplier.get());
+                containers.add(a);
+            }
+            return a;
+        }
+
+        PerThread<A> merge(PerThread<A> other) {
+            containers.addAll(other.containers);
+            return this;
+        }
+
+        /**
+         * Combines the containers of all threads; must only be called once
+         * accumulation has completed.
+         */
+        A combine(BinaryOperator<A> combiner) {
+            local.clear();
+            A result = null;
+            for (A a : containers)
+                result = (result == null) ? a : combiner.apply(result, a);
+            return (result == null) ? supplier.get() : result;
+        }
+    }
 }
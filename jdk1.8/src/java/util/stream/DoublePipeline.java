@@ -351,6 +351,16 @@ abstract class DoublePipeline<E_IN>
         }
     }
 
+    @Override
+    public final Stream<double[]> chunked(int size) {
+        return WindowOps.makeDouble(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<double[]> windowed(int size, int step) {
+        return WindowOps.makeDouble(this, size, step, false);
+    }
+
     @Override
     public final DoubleStream sorted() {
         return SortedOps.makeDouble(this);
@@ -279,6 +279,66 @@ public interface DoubleStream extends BaseStream<Double, DoubleStream> {
      */
     DoubleStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped
+     * into consecutive chunks of {@code size} elements, in encounter order.
+     * The last chunk holds the remaining elements and may be smaller.  Each
+     * chunk is a new array.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.doubleStream(stream.spliterator(), stream.isParallel())
+     *                  .chunked(size)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a chunk
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @see Stream#chunked(int)
+     */
+    default Stream<double[]> chunked(int size) {
+        return StreamSupport.doubleStream(spliterator(), isParallel())
+                            .chunked(size)
+                            .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of sliding windows over the elements of
+     * this stream, in encounter order.  The first window holds the first
+     * {@code size} elements, and each following window starts {@code step}
+     * elements after the start of the previous one.  Only full windows are
+     * produced.  Each window is a new array.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.doubleStream(stream.spliterator(), stream.isParallel())
+     *                  .windowed(size, step)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a window
+     * @param step the number of elements between the starts of two
+     *        consecutive windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     * @see Stream#windowed(int, int)
+     */
+    default Stream<double[]> windowed(int size, int step) {
+        return StreamSupport.doubleStream(spliterator(), isParallel())
+                            .windowed(size, step)
+                            .onClose(this::close);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -256,6 +256,8 @@ final class ForEachOps {
         private final Sink<S> sink;
         private final PipelineHelper<T> helper;
         private long targetSize;
+        private final ParallelStreamStatistics statistics;
+        private Thread forker;
 
         ForEachTask(PipelineHelper<T> helper,
                     Spliterator<S> spliterator,
@@ -265,6 +267,7 @@ final class ForEachOps {
             this.helper = helper;
             this.spliterator = spliterator;
             this.targetSize = 0L;
+            this.statistics = ParallelStreamStatistics.current();
         }
 
         ForEachTask(ForEachTask<S, T> parent, Spliterator<S> spliterator) {
@@ -273,10 +276,13 @@ final class ForEachOps {
             this.sink = parent.sink;
             this.targetSize = parent.targetSize;
             this.helper = parent.helper;
+            this.statistics = parent.statistics;
         }
 
         // Similar to AbstractTask but doesn't need to track child tasks
         public void compute() {
+            if (statistics != null)
+                statistics.recordExecution(forker);
             Spliterator<S> rightSplit = spliterator, leftSplit;
             long sizeEstimate = rightSplit.estimateSize(), sizeThreshold;
             if ((sizeThreshold = targetSize) == 0L)
@@ -304,6 +310,10 @@ final class ForEachOps {
                     forkRight = true;
                     taskToFork = leftTask;
                 }
+                if (statistics != null) {
+                    statistics.recordSplit();
+                    taskToFork.forker = Thread.currentThread();
+                }
                 taskToFork.fork();
                 sizeEstimate = rightSplit.estimateSize();
             }
@@ -378,7 +388,7 @@ final class ForEachOps {
             this.spliterator = spliterator;
             this.targetSize = AbstractTask.suggestTargetSize(spliterator.estimateSize());
             // Size map to avoid concurrent re-sizes
-            this.completionMap = new ConcurrentHashMap<>(Math.max(16, AbstractTask.LEAF_TARGET << 1));
+            this.completionMap = new ConcurrentHashMap<>(Math.max(16, AbstractTask.leafTarget() << 1));
             this.action = action;
             this.leftPredecessor = null;
         }
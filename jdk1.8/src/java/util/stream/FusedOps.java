@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.lang.reflect.Constructor;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.Label;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import sun.misc.Unsafe;
+
+import static jdk.internal.org.objectweb.asm.Opcodes.*;
+
+/**
+ * Fusion of adjacent stateless stages of a reference pipeline into a single
+ * {@code Sink}.
+ *
+ * <p>Each stage of a pipeline normally wraps the downstream sink in a sink of
+ * its own, so a pipeline such as {@code filter(p).map(f).mapToInt(g)} makes
+ * three {@code accept} calls per element, one per stage, on top of the calls
+ * to the functions of the stages.  These call sites live in the sink classes
+ * of the stages, which are shared by every pipeline using the same kind of
+ * stage, so they quickly become megamorphic and are rarely inlined.
+ *
+ * <p>A run of adjacent {@code filter}, {@code map} and {@code mapTo*} stages
+ * is instead applied by one sink, which calls the functions of the stages in
+ * turn and then the downstream sink once.  The class of this sink is spun
+ * per <em>shape</em> of the run, that is the kinds of its stages and the
+ * classes of their functions, in the same way as
+ * {@code InnerClassLambdaMetafactory} spins lambda classes.  The call sites
+ * of each spun class therefore only ever see the classes of one shape, and
+ * can be inlined.  Since spinning a class is much more expensive than
+ * evaluating a pipeline once, a shape is only fused once it has been
+ * evaluated {@link #FUSION_THRESHOLD} times; until then its stages wrap
+ * their own sinks.
+ *
+ * <p>Fusion is off by default, and is turned on if the system property
+ * {@code org.openjdk.java.util.stream.fuseStages} is {@code "true"}.  The
+ * threshold is set by the system property
+ * {@code org.openjdk.java.util.stream.fusionThreshold}.
+ */
+final class FusedOps {
+    private static final String FUSE_STAGES_PROPERTY = "org.openjdk.java.util.stream.fuseStages";
+    private static final String FUSION_THRESHOLD_PROPERTY = "org.openjdk.java.util.stream.fusionThreshold";
+
+    /** Should adjacent stateless stages be fused? */
+    static final boolean ENABLED = AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(FUSE_STAGES_PROPERTY));
+
+    /** Number of evaluations of a shape after which its sink class is spun */
+    static final int FUSION_THRESHOLD = AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger(FUSION_THRESHOLD_PROPERTY, 16));
+
+    /**
+     * Maximum number of spun sink classes, beyond which new shapes are not
+     * fused, bounding the metaspace used by fusion.
+     */
+    private static final int MAX_SPUN_CLASSES = 1024;
+
+    private static final AtomicInteger spunClasses = new AtomicInteger();
+
+    private static final Unsafe UNSAFE = Unsafe.getUnsafe();
+
+    /** Kinds of steps */
+    static final byte FILTER = 0;
+    static final byte MAP = 1;
+    static final byte MAP_TO_INT = 2;
+    static final byte MAP_TO_LONG = 3;
+    static final byte MAP_TO_DOUBLE = 4;
+
+    private FusedOps() { }
+
+    /**
+     * The step performed by a stage that can be fused with adjacent stages:
+     * its kind and its function.  Only the last step of a fused run may
+     * change the shape of the stream.
+     */
+    static final class Step {
+        final byte kind;
+        final Object function;
+
+        Step(byte kind, Object function) {
+            this.kind = kind;
+            this.function = function;
+        }
+
+        boolean isShapeChanging() {
+            return kind > MAP;
+        }
+    }
+
+    /**
+     * Shapes seen so far, per class of the function of the first step, so
+     * that the shapes of a class, and their spun sink classes, do not
+     * outlive it.
+     */
+    private static final ClassValue<ConcurrentHashMap<Shape, Shape>> SHAPES
+            = new ClassValue<ConcurrentHashMap<Shape, Shape>>() {
+        @Override
+        protected ConcurrentHashMap<Shape, Shape> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Wraps a sink with a single sink performing the steps of a run of
+     * adjacent fusible stages, if the shape of the run has been evaluated
+     * often enough.
+     *
+     * @param steps the steps of the stages, in encounter order; only the
+     *        last one may change the shape of the stream
+     * @param sink the sink to wrap
+     * @param <T> the type of the elements accepted by the first stage
+     * @return the wrapped sink, or {@code null} if the stages should wrap
+     *         their own sinks
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Sink<T> wrapSink(Step[] steps, Sink<?> sink) {
+        int n = steps.length;
+        byte[] kinds = new byte[n];
+        Class<?>[] classes = new Class<?>[n];
+        Object[] functions = new Object[n];
+        for (int i = 0; i < n; i++) {
+            kinds[i] = steps[i].kind;
+            functions[i] = steps[i].function;
+            classes[i] = functions[i].getClass();
+        }
+
+        ConcurrentHashMap<Shape, Shape> shapes = SHAPES.get(classes[0]);
+        Shape key = new Shape(kinds, classes);
+        Shape shape = shapes.putIfAbsent(key, key);
+        if (shape == null)
+            shape = key;
+        FusedSink prototype = shape.prototype();
+        return (prototype != null)
+               ? (Sink<T>) prototype.newSink(functions, sink)
+               : null;
+    }
+
+    /**
+     * The kinds of the steps of a run of stages and the classes of their
+     * functions, holding the prototype of the sink class spun for them.
+     */
+    private static final class Shape {
+        private final byte[] kinds;
+        private final Class<?>[] classes;
+        private final int hash;
+
+        /** Number of evaluations, counted racily until the class is spun */
+        private int evaluations;
+        private volatile FusedSink prototype;
+        private boolean unfusible;
+
+        Shape(byte[] kinds, Class<?>[] classes) {
+            this.kinds = kinds;
+            this.classes = classes;
+            this.hash = 31 * Arrays.hashCode(kinds) + Arrays.hashCode(classes);
+        }
+
+        /**
+         * Returns the prototype of the sink class of this shape, spinning it
+         * if this shape has been evaluated often enough, or {@code null} if
+         * this shape should not be fused yet.
+         */
+        FusedSink prototype() {
+            FusedSink p = prototype;
+            if (p != null || unfusible || ++evaluations < FUSION_THRESHOLD)
+                return p;
+            synchronized (this) {
+                if ((p = prototype) == null && !unfusible) {
+                    if (spunClasses.getAndIncrement() >= MAX_SPUN_CLASSES)
+                        unfusible = true;
+                    else
+                        prototype = p = spinSink(kinds);
+                }
+            }
+            return p;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Shape))
+                return false;
+            Shape s = (Shape) o;
+            return Arrays.equals(kinds, s.kinds) && Arrays.equals(classes, s.classes);
+        }
+    }
+
+    /**
+     * Base class of spun sinks.  A spun sink holds the functions of the
+     * steps in fields of their functional interface types, and its
+     * {@code accept} method calls them in turn.
+     */
+    abstract static class FusedSink extends Sink.ChainedReference<Object, Object> {
+        private final boolean sized;
+
+        FusedSink(boolean sized, Sink<?> downstream) {
+            super(castingSink(downstream));
+            this.sized = sized;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Sink<Object> castingSink(Sink<?> sink) {
+            return (Sink<Object>) sink;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(sized ? size : -1);
+        }
+
+        /**
+         * Creates a sink of the same class as this one.
+         *
+         * @param functions the functions of the steps
+         * @param downstream the downstream sink
+         * @return the new sink
+         */
+        abstract FusedSink newSink(Object[] functions, Sink<?> downstream);
+    }
+
+    private static final String SINK = "java/util/stream/Sink";
+    private static final String CHAINED_REFERENCE = "java/util/stream/Sink$ChainedReference";
+    private static final String FUSED_SINK = "java/util/stream/FusedOps$FusedSink";
+    private static final String SPUN_SINK = "java/util/stream/FusedOps$FusedSink$$Spun";
+    private static final String NEW_SINK_DESC = "([Ljava/lang/Object;Ljava/util/stream/Sink;)L" + FUSED_SINK + ";";
+    private static final String CONSTRUCTOR_DESC = "([Ljava/lang/Object;Ljava/util/stream/Sink;)V";
+
+    /** Functional interface, method and result type of each kind of step */
+    private static final String[] INTERFACES = {
+            "java/util/function/Predicate", "java/util/function/Function",
+            "java/util/function/ToIntFunction", "java/util/function/ToLongFunction",
+            "java/util/function/ToDoubleFunction" };
+    private static final String[] METHODS = {
+            "test", "apply", "applyAsInt", "applyAsLong", "applyAsDouble" };
+    private static final String[] RESULTS = { "Z", "Ljava/lang/Object;", "I", "J", "D" };
+
+    /** Downstream of prototypes, which never accept elements */
+    private static final Sink<Object> NO_DOWNSTREAM = t -> { };
+
+    /**
+     * Spins a sink class performing steps of the given kinds, and returns a
+     * prototype instance of it.
+     */
+    private static FusedSink spinSink(byte[] kinds) {
+        int n = kinds.length;
+        boolean sized = true;
+        for (byte kind : kinds)
+            sized &= kind != FILTER;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_8, ACC_SUPER | ACC_FINAL | ACC_SYNTHETIC, SPUN_SINK, null, FUSED_SINK, null);
+        for (int i = 0; i < n; i++)
+            cw.visitField(ACC_PRIVATE | ACC_FINAL, "f" + i, "L" + INTERFACES[kinds[i]] + ";", null, null)
+              .visitEnd();
+
+        // Constructor storing the functions in typed fields
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitInsn(sized ? ICONST_1 : ICONST_0);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, FUSED_SINK, "<init>", "(ZLjava/util/stream/Sink;)V", false);
+        for (int i = 0; i < n; i++) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(i);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, INTERFACES[kinds[i]]);
+            mv.visitFieldInsn(PUTFIELD, SPUN_SINK, "f" + i, "L" + INTERFACES[kinds[i]] + ";");
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(0, "newSink", NEW_SINK_DESC, null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, SPUN_SINK);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, SPUN_SINK, "<init>", CONSTRUCTOR_DESC, false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+
+        // accept(Object t), with the current element held in local 1
+        mv = cw.visitMethod(ACC_PUBLIC, "accept", "(Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        for (int i = 0; i < n; i++) {
+            byte kind = kinds[i];
+            if (kind > MAP) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, CHAINED_REFERENCE, "downstream", "L" + SINK + ";");
+            }
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, SPUN_SINK, "f" + i, "L" + INTERFACES[kind] + ";");
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEINTERFACE, INTERFACES[kind], METHODS[kind],
+                               "(Ljava/lang/Object;)" + RESULTS[kind], true);
+            switch (kind) {
+                case FILTER:
+                    Label next = new Label();
+                    mv.visitJumpInsn(IFNE, next);
+                    mv.visitInsn(RETURN);
+                    mv.visitLabel(next);
+                    break;
+                case MAP:
+                    mv.visitVarInsn(ASTORE, 1);
+                    break;
+                default:
+                    mv.visitMethodInsn(INVOKEINTERFACE, SINK, "accept",
+                                       "(" + RESULTS[kind] + ")V", true);
+                    mv.visitInsn(RETURN);
+                    break;
+            }
+        }
+        if (kinds[n - 1] <= MAP) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, CHAINED_REFERENCE, "downstream", "L" + SINK + ";");
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEINTERFACE, SINK, "accept", "(Ljava/lang/Object;)V", true);
+            mv.visitInsn(RETURN);
+        }
+        mv.visitMaxs(-1, -1);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        Class<?> spun = UNSAFE.defineAnonymousClass(FusedOps.class, cw.toByteArray(), null);
+        try {
+            Constructor<?> constructor = spun.getDeclaredConstructor(Object[].class, Sink.class);
+            constructor.setAccessible(true);
+            return (FusedSink) constructor.newInstance(new Object[n], NO_DOWNSTREAM);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new InternalError("Exception spinning fused sink", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Factory methods for transforming streams with a {@link Gatherer}.
+ */
+final class GatherOps {
+
+    private GatherOps() { }
+
+    private static final BiConsumer<Object, Gatherer.Downstream<Object>> NO_FINISHER
+            = (state, downstream) -> { };
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <A, R> BiConsumer<A, Gatherer.Downstream<? super R>> noFinisher() {
+        return (BiConsumer) NO_FINISHER;
+    }
+
+    /**
+     * Simple implementation class for {@code Gatherer}.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     */
+    static class GathererImpl<T, A, R> implements Gatherer<T, A, R> {
+        private final Supplier<A> initializer;
+        private final Integrator<A, T, R> integrator;
+        private final BiConsumer<A, Downstream<? super R>> finisher;
+
+        GathererImpl(Supplier<A> initializer,
+                     Integrator<A, T, R> integrator,
+                     BiConsumer<A, Downstream<? super R>> finisher) {
+            this.initializer = initializer;
+            this.integrator = integrator;
+            this.finisher = finisher;
+        }
+
+        @Override
+        public Supplier<A> initializer() {
+            return initializer;
+        }
+
+        @Override
+        public Integrator<A, T, R> integrator() {
+            return integrator;
+        }
+
+        @Override
+        public BiConsumer<A, Downstream<? super R>> finisher() {
+            return finisher;
+        }
+    }
+
+    /**
+     * Appends a "gather" operation to the provided stream.
+     *
+     * @param <T> the type of the input elements
+     * @param <A> the type of the gatherer's state
+     * @param <R> the type of the output elements
+     * @param upstream a reference stream with element type T
+     * @param gatherer the gatherer
+     * @return the new stream
+     */
+    static <T, A, R> Stream<R> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       Gatherer<? super T, A, R> gatherer) {
+        Objects.requireNonNull(gatherer);
+        return new ReferencePipeline.StatefulOp<T, R>(upstream, StreamShape.REFERENCE,
+                                                      StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT |
+                                                      StreamOpFlag.NOT_SIZED | StreamOpFlag.IS_SHORT_CIRCUIT) {
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<R> sink) {
+                return new GatherSink<>(gatherer, sink);
+            }
+
+            @Override
+            <P_IN> Node<R> opEvaluateParallel(PipelineHelper<R> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<R[]> generator) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<T> upstream = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+                // Barrier, the state is integrated sequentially in encounter
+                // order
+                @SuppressWarnings("unchecked")
+                IntFunction<T[]> upstreamGenerator = n -> (T[]) new Object[n];
+                Node<T> n = upstream.evaluate(spliterator, true, upstreamGenerator);
+                Node.Builder<R> nb = Nodes.builder(-1, generator);
+                Sink<T> sink = opWrapSink(helper.getStreamAndOpFlags(), nb);
+                Spliterator<T> s = n.spliterator();
+                sink.begin(n.count());
+                do { } while (!sink.cancellationRequested() && s.tryAdvance(sink));
+                sink.end();
+                return nb.build();
+            }
+
+            @Override
+            <P_IN> Spliterator<R> opEvaluateParallelLazy(PipelineHelper<R> helper,
+                                                         Spliterator<P_IN> spliterator) {
+                @SuppressWarnings("unchecked")
+                IntFunction<R[]> generator = n -> (R[]) new Object[n];
+                return opEvaluateParallel(helper, spliterator, generator).spliterator();
+            }
+        };
+    }
+
+    /**
+     * A sink integrating elements with a gatherer and pushing its output
+     * elements downstream.
+     */
+    private static final class GatherSink<T, A, R>
+            extends Sink.ChainedReference<T, R>
+            implements Gatherer.Downstream<R> {
+        private final Gatherer<? super T, A, R> gatherer;
+        private final Gatherer.Integrator<A, ? super T, R> integrator;
+        private A state;
+        private boolean rejected;
+
+        GatherSink(Gatherer<? super T, A, R> gatherer, Sink<? super R> downstream) {
+            super(downstream);
+            this.gatherer = gatherer;
+            this.integrator = gatherer.integrator();
+        }
+
+        @Override
+        public void begin(long size) {
+            state = gatherer.initializer().get();
+            rejected = false;
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (!rejected && !integrator.integrate(state, t, this))
+                rejected = true;
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return rejected || downstream.cancellationRequested();
+        }
+
+        @Override
+        public void end() {
+            gatherer.finisher().accept(state, this);
+            state = null;
+            downstream.end();
+        }
+
+        @Override
+        public boolean push(R r) {
+            if (downstream.cancellationRequested())
+                return false;
+            downstream.accept(r);
+            return !downstream.cancellationRequested();
+        }
+
+        @Override
+        public boolean isRejecting() {
+            return downstream.cancellationRequested();
+        }
+    }
+}
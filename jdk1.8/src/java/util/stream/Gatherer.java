@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * An intermediate operation that transforms a stream of input elements into
+ * a stream of output elements, optionally using a mutable state and
+ * optionally stopping before all input elements have been consumed.
+ * Gatherers are used with {@link Stream#gather(Gatherer)} and can express
+ * operations such as folds, scans, deduplication of consecutive elements,
+ * windowing, or taking elements while a condition holds.
+ *
+ * <p>A {@code Gatherer} is specified by three functions that work together
+ * to process input elements: <ul>
+ *     <li>creation of a new state ({@link #initializer()})</li>
+ *     <li>integrating an input element, possibly updating the state and
+ *     pushing any number of output elements downstream
+ *     ({@link #integrator()})</li>
+ *     <li>an optional final action when there are no more input elements,
+ *     possibly pushing further output elements downstream
+ *     ({@link #finisher()})</li>
+ * </ul>
+ *
+ * <p>The integrator returns {@code false} to indicate that it does not
+ * accept any more input elements, in which case the stream stops supplying
+ * them, as it does for a short-circuiting operation such as
+ * {@link Stream#limit(long)}.  The finisher is invoked in either case.
+ *
+ * <p>Input elements are integrated one at a time, in encounter order if the
+ * stream has one, and by a single thread at a time, so the state need not
+ * be thread-safe.  In a parallel pipeline the upstream is evaluated in
+ * parallel, and its results are then gathered sequentially.
+ *
+ * <p>For example, the following gatherer emits the running sum of a
+ * stream of integers:
+ * <pre>{@code
+ *     Gatherer<Integer, int[], Integer> runningSum = Gatherer.of(
+ *         () -> new int[1],
+ *         (sum, e, downstream) -> downstream.push(sum[0] += e));
+ * }</pre>
+ *
+ * @param <T> the type of input elements to the gather operation
+ * @param <A> the mutable state type of the gather operation (often
+ *            hidden as an implementation detail)
+ * @param <R> the type of output elements of the gather operation
+ * @see Stream#gather(Gatherer)
+ */
+public interface Gatherer<T, A, R> {
+    /**
+     * A function that creates and returns a new mutable state.
+     *
+     * @return a function which returns a new, mutable state
+     */
+    Supplier<A> initializer();
+
+    /**
+     * A function that integrates an input element into the state, pushing
+     * output elements downstream.
+     *
+     * @return a function which integrates an input element
+     */
+    Integrator<A, T, R> integrator();
+
+    /**
+     * A function that is invoked once there are no more input elements, or
+     * once the integrator or the downstream have rejected further input
+     * elements.  It may push output elements downstream.
+     *
+     * @return a function which performs the final action
+     */
+    BiConsumer<A, Downstream<? super R>> finisher();
+
+    /**
+     * Returns a new {@code Gatherer} described by the given
+     * {@code initializer} and {@code integrator} functions, with a finisher
+     * that does nothing.
+     *
+     * @param initializer The initializer function for the new gatherer
+     * @param integrator The integrator function for the new gatherer
+     * @param <T> The type of input elements for the new gatherer
+     * @param <A> The state type of the new gatherer
+     * @param <R> The type of output elements for the new gatherer
+     * @throws NullPointerException if any argument is null
+     * @return the new {@code Gatherer}
+     */
+    public static<T, A, R> Gatherer<T, A, R> of(Supplier<A> initializer,
+                                                Integrator<A, T, R> integrator) {
+        return of(initializer, integrator, GatherOps.noFinisher());
+    }
+
+    /**
+     * Returns a new {@code Gatherer} described by the given
+     * {@code initializer}, {@code integrator} and {@code finisher} functions.
+     *
+     * @param initializer The initializer function for the new gatherer
+     * @param integrator The integrator function for the new gatherer
+     * @param finisher The finisher function for the new gatherer
+     * @param <T> The type of input elements for the new gatherer
+     * @param <A> The state type of the new gatherer
+     * @param <R> The type of output elements for the new gatherer
+     * @throws NullPointerException if any argument is null
+     * @return the new {@code Gatherer}
+     */
+    public static<T, A, R> Gatherer<T, A, R> of(Supplier<A> initializer,
+                                                Integrator<A, T, R> integrator,
+                                                BiConsumer<A, Downstream<? super R>> finisher) {
+        Objects.requireNonNull(initializer);
+        Objects.requireNonNull(integrator);
+        Objects.requireNonNull(finisher);
+        return new GatherOps.GathererImpl<>(initializer, integrator, finisher);
+    }
+
+    /**
+     * Integrates an input element of a {@link Gatherer}.
+     *
+     * @param <A> the type of the state
+     * @param <T> the type of input elements
+     * @param <R> the type of output elements
+     */
+    @FunctionalInterface
+    interface Integrator<A, T, R> {
+        /**
+         * Integrates the provided element, possibly updating the state and
+         * pushing output elements to the provided downstream.
+         *
+         * @param state the state of the gatherer
+         * @param element the input element
+         * @param downstream the downstream to push output elements to
+         * @return {@code true} if further input elements are accepted,
+         *         {@code false} otherwise
+         */
+        boolean integrate(A state, T element, Downstream<? super R> downstream);
+    }
+
+    /**
+     * The receiver of the output elements of a {@link Gatherer}.
+     *
+     * @param <T> the type of output elements
+     */
+    @FunctionalInterface
+    interface Downstream<T> {
+        /**
+         * Pushes an element downstream.
+         *
+         * @param element the output element
+         * @return {@code true} if the downstream accepts further elements,
+         *         {@code false} otherwise
+         */
+        boolean push(T element);
+
+        /**
+         * Returns whether the downstream rejects further elements, in which
+         * case pushing elements has no effect.
+         *
+         * @implSpec The default implementation returns {@code false}.
+         *
+         * @return {@code true} if further elements are rejected
+         */
+        default boolean isRejecting() {
+            return false;
+        }
+    }
+}
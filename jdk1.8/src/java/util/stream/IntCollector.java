@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A <a href="package-summary.html#Reduction">mutable reduction operation</a>
+ * on {@code int} elements, which accumulates the elements into a mutable
+ * result container without boxing them.  This is the primitive
+ * specialization of {@link Collector} for {@code int}, used with
+ * {@link IntStream#collect(IntCollector)}.
+ *
+ * <p>An {@code IntCollector} is specified by the same four functions and
+ * {@link Collector.Characteristics characteristics} as a {@code Collector},
+ * and is subject to the same constraints, except that the accumulator
+ * incorporates an {@code int} into the result container.
+ *
+ * <p>This interface also provides factories for common reductions, for
+ * example counting the number of occurrences of each value of an
+ * {@code IntStream}:
+ * <pre>{@code
+ *     Map<Integer, Long> counts
+ *         = ints.collect(IntCollector.groupingBy(i -> i, IntCollector.counting()));
+ * }</pre>
+ * Elements are grouped by {@code int} keys in a hash table specialized for
+ * primitive keys, so that no object is allocated per element.  A key is
+ * only boxed once, when the resulting {@code Map} is built.
+ *
+ * <p>The {@code Concurrent} variants are {@link
+ * Collector.Characteristics#CONCURRENT concurrent} and {@link
+ * Collector.Characteristics#UNORDERED unordered}.  Rather than sharing one
+ * container between threads, each thread accumulates into a container of
+ * its own, and these containers are merged once all elements have been
+ * accumulated, so threads never contend for a lock or a shared counter.
+ *
+ * @param <A> the mutable accumulation type of the reduction operation (often
+ *            hidden as an implementation detail)
+ * @param <R> the result type of the reduction operation
+ * @see Collector
+ * @see IntStream#collect(IntCollector)
+ */
+public interface IntCollector<A, R> {
+    /**
+     * A function that creates and returns a new mutable result container.
+     *
+     * @return a function which returns a new, mutable result container
+     */
+    Supplier<A> supplier();
+
+    /**
+     * A function that folds a value into a mutable result container.
+     *
+     * @return a function which folds a value into a mutable result container
+     */
+    ObjIntConsumer<A> accumulator();
+
+    /**
+     * A function that accepts two partial results and merges them.  The
+     * combiner function may fold state from one argument into the other and
+     * return that, or may return a new result container.
+     *
+     * @return a function which combines two partial results into a combined
+     * result
+     */
+    BinaryOperator<A> combiner();
+
+    /**
+     * Perform the final transformation from the intermediate accumulation type
+     * {@code A} to the final result type {@code R}.
+     *
+     * <p>If the characteristic {@code IDENTITY_FINISH} is
+     * set, this function may be presumed to be an identity transform with an
+     * unchecked cast from {@code A} to {@code R}.
+     *
+     * @return a function which transforms the intermediate result to the final
+     * result
+     */
+    Function<A, R> finisher();
+
+    /**
+     * Returns a {@code Set} of {@code Collector.Characteristics} indicating
+     * the characteristics of this collector.  This set should be immutable.
+     *
+     * @return an immutable set of collector characteristics
+     */
+    Set<Collector.Characteristics> characteristics();
+
+    /**
+     * Returns a new {@code IntCollector} described by the given
+     * {@code supplier}, {@code accumulator}, and {@code combiner} functions.
+     * The resulting {@code IntCollector} has the
+     * {@code Collector.Characteristics.IDENTITY_FINISH} characteristic.
+     *
+     * @param supplier The supplier function for the new collector
+     * @param accumulator The accumulator function for the new collector
+     * @param combiner The combiner function for the new collector
+     * @param characteristics The collector characteristics for the new
+     *                        collector
+     * @param <R> The type of intermediate accumulation result, and final result,
+     *           for the new collector
+     * @throws NullPointerException if any argument is null
+     * @return the new {@code IntCollector}
+     */
+    public static<R> IntCollector<R, R> of(Supplier<R> supplier,
+                                           ObjIntConsumer<R> accumulator,
+                                           BinaryOperator<R> combiner,
+                                           Collector.Characteristics... characteristics) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        Objects.requireNonNull(combiner);
+        Objects.requireNonNull(characteristics);
+        Set<Collector.Characteristics> cs = (characteristics.length == 0)
+                                            ? Collectors.CH_ID
+                                            : Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.IDENTITY_FINISH,
+                                                                                     characteristics));
+        return new Collectors.IntCollectorImpl<>(supplier, accumulator, combiner, r -> r, cs);
+    }
+
+    /**
+     * Returns a new {@code IntCollector} described by the given
+     * {@code supplier}, {@code accumulator}, {@code combiner}, and
+     * {@code finisher} functions.
+     *
+     * @param supplier The supplier function for the new collector
+     * @param accumulator The accumulator function for the new collector
+     * @param combiner The combiner function for the new collector
+     * @param finisher The finisher function for the new collector
+     * @param characteristics The collector characteristics for the new
+     *                        collector
+     * @param <A> The intermediate accumulation type of the new collector
+     * @param <R> The final result type of the new collector
+     * @throws NullPointerException if any argument is null
+     * @return the new {@code IntCollector}
+     */
+    public static<A, R> IntCollector<A, R> of(Supplier<A> supplier,
+                                              ObjIntConsumer<A> accumulator,
+                                              BinaryOperator<A> combiner,
+                                              Function<A, R> finisher,
+                                              Collector.Characteristics... characteristics) {
+        Objects.requireNonNull(supplier);
+        Objects.requireNonNull(accumulator);
+        Objects.requireNonNull(combiner);
+        Objects.requireNonNull(finisher);
+        Objects.requireNonNull(characteristics);
+        Set<Collector.Characteristics> cs = Collectors.CH_NOID;
+        if (characteristics.length > 0) {
+            cs = EnumSet.noneOf(Collector.Characteristics.class);
+            Collections.addAll(cs, characteristics);
+            cs = Collections.unmodifiableSet(cs);
+        }
+        return new Collectors.IntCollectorImpl<>(supplier, accumulator, combiner, finisher, cs);
+    }
+
+    /**
+     * Returns an {@code IntCollector} that counts the number of input
+     * elements.
+     *
+     * @return an {@code IntCollector} that counts the input elements
+     */
+    public static IntCollector<?, Long> counting() {
+        return new Collectors.IntCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, i) -> a[0]++,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], Collectors.CH_NOID);
+    }
+
+    /**
+     * Returns an {@code IntCollector} that produces the sum of the input
+     * elements, as a {@code long} so that the sum does not overflow for
+     * streams of fewer than 2<sup>32</sup> elements.
+     *
+     * @return an {@code IntCollector} that sums the input elements
+     */
+    public static IntCollector<?, Long> summing() {
+        return new Collectors.IntCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, i) -> a[0] += i,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], Collectors.CH_NOID);
+    }
+
+    /**
+     * Returns an {@code IntCollector} that produces summary statistics of
+     * the input elements.
+     *
+     * @return an {@code IntCollector} implementing the summary-statistics
+     * reduction
+     */
+    public static IntCollector<?, IntSummaryStatistics> summarizing() {
+        return new Collectors.IntCollectorImpl<IntSummaryStatistics, IntSummaryStatistics>(
+                IntSummaryStatistics::new,
+                IntSummaryStatistics::accept,
+                (l, r) -> { l.combine(r); return l; },
+                r -> r, Collectors.CH_ID);
+    }
+
+    /**
+     * Returns an {@code IntCollector} that counts the occurrences of each
+     * input element in a histogram, where element {@code i} of the resulting
+     * array is the number of input elements equal to {@code i}.
+     *
+     * <p>Each input element must be a valid index of the histogram; if not,
+     * an {@code ArrayIndexOutOfBoundsException} is thrown when the element
+     * is accumulated.  Elements may be mapped to buckets beforehand, for
+     * example {@code ints.map(i -> i / 10).collect(histogram(10))}.
+     *
+     * @param buckets the length of the histogram
+     * @return an {@code IntCollector} counting the input elements in a
+     * histogram
+     * @throws IllegalArgumentException if {@code buckets} is negative
+     */
+    public static IntCollector<?, long[]> histogram(int buckets) {
+        if (buckets < 0)
+            throw new IllegalArgumentException(Integer.toString(buckets));
+        return new Collectors.IntCollectorImpl<long[], long[]>(
+                () -> new long[buckets],
+                (h, i) -> h[i]++,
+                Collectors::histogramMerger,
+                h -> h, Collectors.CH_ID);
+    }
+
+    /**
+     * Returns a concurrent {@code IntCollector} that counts the occurrences
+     * of each input element in a histogram, as {@link #histogram(int)} does.
+     * Each thread counts into a histogram of its own.
+     *
+     * @param buckets the length of the histogram
+     * @return a concurrent, unordered {@code IntCollector} counting the input
+     * elements in a histogram
+     * @throws IllegalArgumentException if {@code buckets} is negative
+     */
+    public static IntCollector<?, long[]> histogramConcurrent(int buckets) {
+        return Collectors.perThread(histogram(buckets));
+    }
+
+    /**
+     * Returns an {@code IntCollector} implementing a cascaded "group by"
+     * operation on input elements, grouping elements according to an
+     * {@code int} classification function, and then performing a reduction
+     * operation on the values associated with a given key using the specified
+     * downstream {@code IntCollector}.
+     *
+     * <p>There are no guarantees on the type, mutability, serializability,
+     * or thread-safety of the {@code Map} returned.
+     *
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream an {@code IntCollector} implementing the downstream
+     *                   reduction
+     * @return an {@code IntCollector} implementing the cascaded group-by
+     * operation
+     * @see #groupingByConcurrent(IntUnaryOperator, IntCollector)
+     */
+    public static <A, D> IntCollector<?, Map<Integer, D>>
+    groupingBy(IntUnaryOperator classifier, IntCollector<A, D> downstream) {
+        return Collectors.groupingByKey(classifier, downstream, HashMap::new);
+    }
+
+    /**
+     * Returns a concurrent {@code IntCollector} implementing a cascaded
+     * "group by" operation on input elements, as
+     * {@link #groupingBy(IntUnaryOperator, IntCollector)} does.  Each thread
+     * groups elements into a table of its own.
+     *
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream an {@code IntCollector} implementing the downstream
+     *                   reduction
+     * @return a concurrent, unordered {@code IntCollector} implementing the
+     * cascaded group-by operation
+     * @see #groupingBy(IntUnaryOperator, IntCollector)
+     */
+    public static <A, D> IntCollector<?, ConcurrentMap<Integer, D>>
+    groupingByConcurrent(IntUnaryOperator classifier, IntCollector<A, D> downstream) {
+        return Collectors.perThread(
+                Collectors.groupingByKey(classifier, downstream,
+                                         ConcurrentHashMap::new));
+    }
+
+    /**
+     * Returns an {@code IntCollector} which partitions the input elements
+     * according to an {@code IntPredicate}, reduces the values in each
+     * partition according to another {@code IntCollector}, and organizes them
+     * into a {@code Map<Boolean, D>} whose values are the result of the
+     * downstream reduction.
+     *
+     * <p>There are no guarantees on the type, mutability, serializability,
+     * or thread-safety of the {@code Map} returned.
+     *
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param predicate a predicate used for classifying input elements
+     * @param downstream an {@code IntCollector} implementing the downstream
+     *                   reduction
+     * @return an {@code IntCollector} implementing the cascaded partitioning
+     *         operation
+     */
+    public static <A, D> IntCollector<?, Map<Boolean, D>>
+    partitioningBy(IntPredicate predicate, IntCollector<A, D> downstream) {
+        Objects.requireNonNull(predicate);
+        ObjIntConsumer<A> downstreamAccumulator = downstream.accumulator();
+        ObjIntConsumer<Collectors.Partition<A>> accumulator = (result, i) ->
+                downstreamAccumulator.accept(predicate.test(i) ? result.forTrue : result.forFalse, i);
+        BinaryOperator<A> op = downstream.combiner();
+        BinaryOperator<Collectors.Partition<A>> merger = (left, right) ->
+                new Collectors.Partition<>(op.apply(left.forTrue, right.forTrue),
+                                           op.apply(left.forFalse, right.forFalse));
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        Supplier<Collectors.Partition<A>> supplier = () ->
+                new Collectors.Partition<>(downstreamSupplier.get(),
+                                           downstreamSupplier.get());
+        Function<A, D> downstreamFinisher = downstream.finisher();
+        Function<Collectors.Partition<A>, Map<Boolean, D>> finisher = par ->
+                new Collectors.Partition<>(downstreamFinisher.apply(par.forTrue),
+                                           downstreamFinisher.apply(par.forFalse));
+        return new Collectors.IntCollectorImpl<>(supplier, accumulator, merger, finisher,
+                                                 Collectors.CH_NOID);
+    }
+}
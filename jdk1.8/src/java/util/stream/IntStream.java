@@ -33,6 +33,7 @@ import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.IntBinaryOperator;
 import java.util.function.IntConsumer;
@@ -272,6 +273,66 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
      */
     IntStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped
+     * into consecutive chunks of {@code size} elements, in encounter order.
+     * The last chunk holds the remaining elements and may be smaller.  Each
+     * chunk is a new array.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.intStream(stream.spliterator(), stream.isParallel())
+     *                  .chunked(size)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a chunk
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @see Stream#chunked(int)
+     */
+    default Stream<int[]> chunked(int size) {
+        return StreamSupport.intStream(spliterator(), isParallel())
+                            .chunked(size)
+                            .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of sliding windows over the elements of
+     * this stream, in encounter order.  The first window holds the first
+     * {@code size} elements, and each following window starts {@code step}
+     * elements after the start of the previous one.  Only full windows are
+     * produced.  Each window is a new array.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.intStream(stream.spliterator(), stream.isParallel())
+     *                  .windowed(size, step)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a window
+     * @param step the number of elements between the starts of two
+     *        consecutive windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     * @see Stream#windowed(int, int)
+     */
+    default Stream<int[]> windowed(int size, int step) {
+        return StreamSupport.intStream(spliterator(), isParallel())
+                            .windowed(size, step)
+                            .onClose(this::close);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -446,6 +507,45 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
                   ObjIntConsumer<R> accumulator,
                   BiConsumer<R, R> combiner);
 
+    /**
+     * Performs a <a href="package-summary.html#MutableReduction">mutable
+     * reduction</a> operation on the elements of this stream using an
+     * {@code IntCollector}, without boxing the elements.
+     *
+     * <p>If the stream is parallel, and the {@code IntCollector} is {@link
+     * Collector.Characteristics#CONCURRENT concurrent}, and either the stream
+     * is unordered or the collector is {@link
+     * Collector.Characteristics#UNORDERED unordered}, then a concurrent
+     * reduction will be performed, as for {@link Stream#collect(Collector)}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">terminal
+     * operation</a>.
+     *
+     * @implSpec The default implementation performs the reduction with
+     * {@link #collect(Supplier, ObjIntConsumer, BiConsumer)}, holding the result
+     * container of the collector in a one-element array so that a combiner
+     * returning a new container is supported.
+     *
+     * @param <R> the type of the result
+     * @param <A> the intermediate accumulation type of the {@code IntCollector}
+     * @param collector the {@code IntCollector} describing the reduction
+     * @return the result of the reduction
+     * @see #collect(Supplier, ObjIntConsumer, BiConsumer)
+     * @see IntCollector
+     */
+    @SuppressWarnings("unchecked")
+    default <A, R> R collect(IntCollector<A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        ObjIntConsumer<A> accumulator = collector.accumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        A container = (A) collect(() -> new Object[] { supplier.get() },
+                                  (box, e) -> accumulator.accept((A) box[0], e),
+                                  (left, right) -> left[0] = combiner.apply((A) left[0], (A) right[0]))[0];
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) container
+               : collector.finisher().apply(container);
+    }
+
     /**
      * Returns the sum of elements in this stream.  This is a special case
      * of a <a href="package-summary.html#Reduction">reduction</a>
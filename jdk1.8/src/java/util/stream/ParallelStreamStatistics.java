@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the fork/join tasks used to evaluate parallel stream pipelines
+ * in a particular {@link ForkJoinPool}, for monitoring the load that
+ * parallel streams place on the pool.  Parallel pipelines are evaluated in
+ * the pool given to {@link BaseStream#parallel(ForkJoinPool)}, or otherwise
+ * in the pool of the thread invoking the terminal operation if it is a
+ * {@link java.util.concurrent.ForkJoinWorkerThread}, or otherwise in the
+ * {@link ForkJoinPool#commonPool() common pool}.
+ *
+ * <p>Three counts are maintained, each since the first parallel pipeline
+ * was evaluated in the pool:
+ * <ul>
+ * <li>The <em>split count</em> is the number of times a task divided its
+ * portion of the input into two, forking one of the resulting tasks.
+ * <li>The <em>executed count</em> is the number of tasks run by the pool,
+ * including the root task of each evaluation.  A task that splits
+ * continues with one of the resulting tasks itself, which is not counted
+ * separately.
+ * <li>The <em>stolen count</em> is the number of executed tasks that were
+ * run by a thread other than the one that forked them.
+ * </ul>
+ *
+ * <p>The counts are maintained for the tasks of the operations {@code
+ * forEach}, {@code reduce}, {@code collect}, and the searching and
+ * short-circuiting operations, and are updated concurrently with
+ * evaluation, so are only approximate while pipelines are running.
+ *
+ * <p>Collection is disabled by default, so that evaluation does not pay
+ * for counting that nobody reads.  It is enabled by setting the system
+ * property {@code java.util.stream.ParallelStreamStatistics.enabled} to
+ * {@code true}, or by invoking {@link #setEnabled}.  Only evaluations
+ * started while collection is enabled are counted.
+ */
+public final class ParallelStreamStatistics {
+
+    /** Statistics for the common pool, which is never collected. */
+    private static final ParallelStreamStatistics COMMON =
+        new ParallelStreamStatistics();
+
+    /** Statistics for other pools, weakly keyed by pool. */
+    private static final ConcurrentHashMap<PoolKey, ParallelStreamStatistics>
+        pools = new ConcurrentHashMap<>();
+
+    /** Queue of keys of pools that have been collected. */
+    private static final ReferenceQueue<ForkJoinPool> stale =
+        new ReferenceQueue<>();
+
+    /** Whether tasks record their execution. */
+    private static volatile boolean enabled =
+        AccessController.doPrivileged(
+            (PrivilegedAction<Boolean>) () -> Boolean.getBoolean(
+                "java.util.stream.ParallelStreamStatistics.enabled"));
+
+    /**
+     * A weak reference to a pool, equal to others referring to the same
+     * pool, and to no other after the pool is collected.
+     */
+    static final class PoolKey extends WeakReference<ForkJoinPool> {
+        final int hash;
+        PoolKey(ForkJoinPool pool, ReferenceQueue<ForkJoinPool> queue) {
+            super(pool, queue);
+            hash = System.identityHashCode(pool);
+        }
+        public int hashCode() {
+            return hash;
+        }
+        public boolean equals(Object o) {
+            ForkJoinPool pool;
+            return o == this ||
+                (o instanceof PoolKey &&
+                 (pool = get()) != null &&
+                 pool == ((PoolKey)o).get());
+        }
+    }
+
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder stolen = new LongAdder();
+
+    private ParallelStreamStatistics() { }
+
+    /**
+     * Enables or disables the collection of statistics.
+     *
+     * @param on true to enable collection, false to disable it
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Returns {@code true} if statistics are being collected.
+     *
+     * @return {@code true} if statistics are being collected
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the statistics for parallel stream evaluation in the given
+     * pool.  The counts remain zero unless collection is enabled.
+     *
+     * @param pool the pool
+     * @return the statistics for the pool
+     * @throws NullPointerException if the pool is null
+     */
+    public static ParallelStreamStatistics of(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        if (pool == ForkJoinPool.commonPool())
+            return COMMON;
+        PoolKey key = new PoolKey(pool, null);
+        ParallelStreamStatistics s = pools.get(key);
+        if (s == null) {
+            for (Object k; (k = stale.poll()) != null; )
+                pools.remove(k);
+            ParallelStreamStatistics created = new ParallelStreamStatistics();
+            if ((s = pools.putIfAbsent(new PoolKey(pool, stale), created))
+                == null)
+                s = created;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the statistics for the pool in which tasks created by the
+     * current thread will run, or null if collection is disabled.
+     */
+    static ParallelStreamStatistics current() {
+        if (!enabled)
+            return null;
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return (pool == null) ? COMMON : of(pool);
+    }
+
+    /**
+     * Records the execution of a task by the current thread.
+     *
+     * @param forker the thread that forked the task, or null if the task
+     *        was not forked
+     */
+    void recordExecution(Thread forker) {
+        executed.increment();
+        if (forker != null && forker != Thread.currentThread())
+            stolen.increment();
+    }
+
+    /**
+     * Records the splitting of a task.
+     */
+    void recordSplit() {
+        splits.increment();
+    }
+
+    /**
+     * Returns the number of times a task was split.
+     *
+     * @return the split count
+     */
+    public long getSplitCount() {
+        return splits.sum();
+    }
+
+    /**
+     * Returns the number of tasks executed.
+     *
+     * @return the executed count
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns the number of tasks executed by a thread other than the one
+     * that forked them.
+     *
+     * @return the stolen count
+     */
+    public long getStolenCount() {
+        return stolen.sum();
+    }
+
+    /**
+     * Returns a string identifying these statistics, including the split,
+     * executed and stolen counts.
+     *
+     * @return a string identifying these statistics
+     */
+    public String toString() {
+        return super.toString() +
+            "[splits = " + getSplitCount() +
+            ", executed = " + getExecutedCount() +
+            ", stolen = " + getStolenCount() + "]";
+    }
+}
@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -176,6 +177,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
+
+            @Override
+            FusedOps.Step fusionStep() {
+                return new FusedOps.Step(FusedOps.FILTER, predicate);
+            }
         };
     }
 
@@ -194,6 +200,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
+
+            @Override
+            FusedOps.Step fusionStep() {
+                return new FusedOps.Step(FusedOps.MAP, mapper);
+            }
         };
     }
 
@@ -211,6 +222,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
+
+            @Override
+            FusedOps.Step fusionStep() {
+                return new FusedOps.Step(FusedOps.MAP_TO_INT, mapper);
+            }
         };
     }
 
@@ -228,6 +244,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
+
+            @Override
+            FusedOps.Step fusionStep() {
+                return new FusedOps.Step(FusedOps.MAP_TO_LONG, mapper);
+            }
         };
     }
 
@@ -245,6 +266,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                     }
                 };
             }
+
+            @Override
+            FusedOps.Step fusionStep() {
+                return new FusedOps.Step(FusedOps.MAP_TO_DOUBLE, mapper);
+            }
         };
     }
 
@@ -411,6 +437,21 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> chunked(int size) {
+        return WindowOps.makeRef(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> windowed(int size, int step) {
+        return WindowOps.makeRef(this, size, step, false);
+    }
+
+    @Override
+    public final <R> Stream<R> gather(Gatherer<? super P_OUT, ?, R> gatherer) {
+        return GatherOps.makeRef(this, gatherer);
+    }
+
     // Terminal operations from Stream
 
     @Override
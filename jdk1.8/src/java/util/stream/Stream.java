@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -478,6 +479,123 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped
+     * into consecutive chunks of {@code size} elements, in encounter order.
+     * The last chunk holds the remaining elements and may be smaller.  Each
+     * chunk is a new unmodifiable {@code List}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  Only one chunk is buffered at a time, so
+     * chunking a large or infinite stream does not require materializing it,
+     * and short-circuiting downstream operations stop the traversal as soon
+     * as they are satisfied.
+     *
+     * @apiNote
+     * This method is useful to process elements in batches, for example to
+     * insert rows into a database 1000 at a time:
+     * <pre>{@code
+     *     rows.chunked(1000).forEach(batch -> dao.insertAll(batch));
+     * }</pre>
+     *
+     * <p>On parallel pipelines the stream is split at chunk boundaries and
+     * chunks are formed independently for each split, provided the number of
+     * elements of each split is known, as for sources such as arrays and
+     * {@code ArrayList}s followed by operations such as {@link #map}.
+     * Otherwise the elements are collected before being chunked.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.stream(stream.spliterator(), stream.isParallel())
+     *                  .chunked(size)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a chunk
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    default Stream<List<T>> chunked(int size) {
+        return StreamSupport.stream(spliterator(), isParallel())
+                            .chunked(size)
+                            .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of sliding windows over the elements of
+     * this stream, in encounter order.  The first window holds the first
+     * {@code size} elements, and each following window starts {@code step}
+     * elements after the start of the previous one.  Only full windows are
+     * produced; if this stream has fewer than {@code size} elements the
+     * resulting stream is empty.  Each window is a new unmodifiable
+     * {@code List}.
+     *
+     * <p>For example, windows of size 3 and step 1 over the elements
+     * {@code 1, 2, 3, 4, 5} are {@code [1, 2, 3]}, {@code [2, 3, 4]} and
+     * {@code [3, 4, 5]}, and windows of size 2 and step 3 are {@code [1, 2]}
+     * and {@code [4, 5]}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  Only the last {@code size} elements are
+     * buffered at a time, and parallel pipelines are split at window
+     * boundaries as described for {@link #chunked(int)}.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.stream(stream.spliterator(), stream.isParallel())
+     *                  .windowed(size, step)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param size the number of elements in a window
+     * @param step the number of elements between the starts of two
+     *        consecutive windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is not
+     *         positive
+     */
+    default Stream<List<T>> windowed(int size, int step) {
+        return StreamSupport.stream(spliterator(), isParallel())
+                            .windowed(size, step)
+                            .onClose(this::close);
+    }
+
+    /**
+     * Returns a stream consisting of the results of applying the given
+     * gatherer to the elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">short-circuiting
+     * stateful intermediate operation</a>.  The gatherer's integrator may
+     * stop the consumption of further elements, and output elements are only
+     * produced until downstream operations are satisfied.
+     *
+     * @apiNote
+     * The gatherer's state is updated by one thread at a time and in
+     * encounter order, hence on parallel pipelines the elements of this
+     * stream are collected before being gathered.  Operations following
+     * {@code gather} are evaluated in parallel again.
+     *
+     * @implSpec
+     * The default implementation is equivalent to, for this {@code stream}:
+     * <pre>{@code
+     *     StreamSupport.stream(stream.spliterator(), stream.isParallel())
+     *                  .gather(gatherer)
+     *                  .onClose(stream::close);
+     * }</pre>
+     *
+     * @param <R> The element type of the new stream
+     * @param gatherer the gatherer
+     * @return the new stream
+     * @see Gatherer
+     */
+    default <R> Stream<R> gather(Gatherer<? super T, ?, R> gatherer) {
+        return StreamSupport.stream(spliterator(), isParallel())
+                            .gather(gatherer)
+                            .onClose(this::close);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
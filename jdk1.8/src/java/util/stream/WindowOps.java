@@ -0,0 +1,648 @@
+/*
+ * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming streams into streams of windows, each
+ * window holding a run of consecutive elements of the upstream.
+ *
+ * <p>Window {@code j} holds the upstream elements at positions
+ * {@code j * step} (inclusive) to {@code j * step + size} (exclusive) in the
+ * encounter order.  Windows overlap if {@code step < size} and skip elements
+ * if {@code step > size}.  A window is only produced if it is full, unless
+ * partial windows are requested in which case the last window may hold fewer
+ * than {@code size} elements.
+ *
+ * <p>A sequential pipeline keeps a ring buffer of the last {@code size}
+ * elements and never holds more than that.  A parallel pipeline splits the
+ * upstream, then aligns each split to a window boundary by pulling the few
+ * elements shared with the following split into both of them, so windows are
+ * formed independently for each split.  This requires exact sizes for every
+ * split of the upstream; if the upstream is not {@code SUBSIZED} its elements
+ * are first collected into a {@code Node}.
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    /**
+     * Flags for all window operations, the number of windows is not the
+     * number of upstream elements
+     */
+    private static final int FLAGS = StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT
+                                     | StreamOpFlag.NOT_SIZED;
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements in a window, greater than zero
+     * @param step the distance between the first elements of two consecutive
+     *        windows, greater than zero
+     * @param partial whether the last window may be partial
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       int size, int step, boolean partial) {
+        checkArguments(size, step);
+        return new WindowOp<>(upstream, StreamShape.REFERENCE,
+                              new WindowSink.OfRef<T>(size, step, partial));
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements in a window, greater than zero
+     * @param step the distance between the first elements of two consecutive
+     *        windows, greater than zero
+     * @param partial whether the last window may be partial
+     * @return the new stream
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                 int size, int step, boolean partial) {
+        checkArguments(size, step);
+        return new WindowOp<>(upstream, StreamShape.INT_VALUE,
+                              new WindowSink.OfInt(size, step, partial));
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements in a window, greater than zero
+     * @param step the distance between the first elements of two consecutive
+     *        windows, greater than zero
+     * @param partial whether the last window may be partial
+     * @return the new stream
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                   int size, int step, boolean partial) {
+        checkArguments(size, step);
+        return new WindowOp<>(upstream, StreamShape.LONG_VALUE,
+                              new WindowSink.OfLong(size, step, partial));
+    }
+
+    /**
+     * Appends a "window" operation to the provided stream.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements in a window, greater than zero
+     * @param step the distance between the first elements of two consecutive
+     *        windows, greater than zero
+     * @param partial whether the last window may be partial
+     * @return the new stream
+     */
+    static Stream<double[]> makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                       int size, int step, boolean partial) {
+        checkArguments(size, step);
+        return new WindowOp<>(upstream, StreamShape.DOUBLE_VALUE,
+                              new WindowSink.OfDouble(size, step, partial));
+    }
+
+    private static void checkArguments(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+    }
+
+    /**
+     * Returns the number of windows starting at a position in the range
+     * {@code [lo, hi)} in a stream of {@code count} elements.
+     */
+    static long windowCount(long lo, long hi, long count,
+                            int size, int step, boolean partial) {
+        // A window starting at st is produced if st < count when partial
+        // windows are allowed, and st + size <= count otherwise
+        long bound = Math.min(hi, partial ? count : count - size + 1);
+        if (bound <= lo)
+            return 0;
+        return ceilDiv(bound, step) - ceilDiv(lo, step);
+    }
+
+    private static long ceilDiv(long x, int y) {
+        return (x + y - 1) / y;
+    }
+
+    /**
+     * The stage for a window operation, of any input shape.
+     *
+     * @param <T> the type of input elements, boxed if primitive
+     * @param <W> the type of windows
+     */
+    private static final class WindowOp<T, W> extends ReferencePipeline.StatefulOp<T, W> {
+        /**
+         * Prototype of the sink forming windows, copied for each use
+         */
+        private final WindowSink<T, W> prototype;
+
+        WindowOp(AbstractPipeline<?, T, ?> upstream, StreamShape inputShape,
+                 WindowSink<T, W> prototype) {
+            super(upstream, inputShape, FLAGS);
+            this.prototype = prototype;
+        }
+
+        @Override
+        Sink<T> opWrapSink(int flags, Sink<W> sink) {
+            return prototype.copy(sink, 0, Long.MAX_VALUE);
+        }
+
+        @Override
+        <P_IN> Spliterator<W> opEvaluateParallelLazy(PipelineHelper<W> helper,
+                                                     Spliterator<P_IN> spliterator) {
+            @SuppressWarnings("unchecked")
+            PipelineHelper<T> upstream = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+            Spliterator<T> s = upstream.wrapSpliterator(spliterator);
+            if (s.getExactSizeIfKnown() < 0 || !s.hasCharacteristics(Spliterator.SUBSIZED)) {
+                // Barrier, the position of each element must be known to
+                // split at window boundaries
+                @SuppressWarnings("unchecked")
+                IntFunction<T[]> generator = n -> (T[]) new Object[n];
+                s = upstream.evaluate(spliterator, true, generator).spliterator();
+            }
+            return new WindowSpliterator<>(prototype, s);
+        }
+
+        @Override
+        <P_IN> Node<W> opEvaluateParallel(PipelineHelper<W> helper,
+                                          Spliterator<P_IN> spliterator,
+                                          IntFunction<W[]> generator) {
+            Spliterator<W> s = opEvaluateParallelLazy(helper, spliterator);
+            return Nodes.collect(new ReferencePipeline.Head<W, W>(
+                                         s, StreamOpFlag.fromCharacteristics(s), true),
+                                 s, true, generator);
+        }
+    }
+
+    /**
+     * A sink forming windows of elements and pushing each window downstream
+     * once complete.  Windows are only formed if they start at a position in
+     * the range {@code [lo, hi)}, where {@code lo} is the position of the
+     * first element accepted.
+     *
+     * @param <T> the type of input elements, boxed if primitive
+     * @param <W> the type of windows
+     */
+    abstract static class WindowSink<T, W> implements Sink<T> {
+        final int size;
+        final int step;
+        final boolean partial;
+        final long lo;
+        final long hi;
+        final Sink<? super W> downstream;
+
+        /**
+         * Ring buffer of the last {@code size} elements, created lazily
+         */
+        Object ring;
+        /**
+         * Position of the next element to be accepted
+         */
+        long index;
+
+        WindowSink(int size, int step, boolean partial,
+                   long lo, long hi, Sink<? super W> downstream) {
+            this.size = size;
+            this.step = step;
+            assert !partial || step == size;
+            this.partial = partial;
+            this.lo = lo;
+            this.hi = hi;
+            this.downstream = downstream;
+        }
+
+        /**
+         * Returns a sink with the same window size, step and shape.
+         */
+        abstract WindowSink<T, W> copy(Sink<? super W> downstream, long lo, long hi);
+
+        /**
+         * Returns a new array of the input shape.
+         */
+        abstract Object newArray(int length);
+
+        /**
+         * Returns the window for a newly created array of elements.
+         */
+        abstract W window(Object array);
+
+        /**
+         * Returns a node builder of the input shape.
+         */
+        abstract Node.Builder<T> newBuilder();
+
+        @Override
+        public void begin(long size) {
+            index = lo;
+            downstream.begin(size >= 0
+                             ? windowCount(lo, hi, lo + size, this.size, step, partial)
+                             : -1);
+        }
+
+        @Override
+        public void end() {
+            // Push the last window, if partial and started in range
+            long start = index - index % step;
+            if (partial && start < index && start >= lo && start < hi
+                && !downstream.cancellationRequested())
+                push(start, (int) (index - start));
+            ring = null;
+            downstream.end();
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return downstream.cancellationRequested();
+        }
+
+        /**
+         * Returns the slot of the ring buffer holding the next element.
+         */
+        final int slot() {
+            if (ring == null)
+                ring = newArray(size);
+            return (int) ((index - lo) % size);
+        }
+
+        /**
+         * Completes the acceptance of an element stored at {@link #slot()},
+         * pushing the window it completes, if any.
+         */
+        final void advance() {
+            long start = ++index - size;
+            if (start >= lo && start < hi && start % step == 0)
+                push(start, size);
+        }
+
+        private void push(long start, int length) {
+            Object window = newArray(length);
+            int from = (int) ((start - lo) % size);
+            int n = Math.min(length, size - from);
+            System.arraycopy(ring, from, window, 0, n);
+            System.arraycopy(ring, 0, window, n, length - n);
+            downstream.accept(window(window));
+        }
+
+        static final class OfRef<T> extends WindowSink<T, List<T>> {
+            OfRef(int size, int step, boolean partial) {
+                this(size, step, partial, 0, Long.MAX_VALUE, t -> { });
+            }
+
+            OfRef(int size, int step, boolean partial,
+                  long lo, long hi, Sink<? super List<T>> downstream) {
+                super(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            OfRef<T> copy(Sink<? super List<T>> downstream, long lo, long hi) {
+                return new OfRef<>(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            Object newArray(int length) {
+                return new Object[length];
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            List<T> window(Object array) {
+                return Collections.unmodifiableList(Arrays.asList((T[]) array));
+            }
+
+            @Override
+            Node.Builder<T> newBuilder() {
+                @SuppressWarnings("unchecked")
+                IntFunction<T[]> generator = n -> (T[]) new Object[n];
+                return Nodes.builder(-1, generator);
+            }
+
+            @Override
+            public void accept(T t) {
+                int i = slot();
+                ((Object[]) ring)[i] = t;
+                advance();
+            }
+        }
+
+        static final class OfInt extends WindowSink<Integer, int[]>
+                implements Sink.OfInt {
+            OfInt(int size, int step, boolean partial) {
+                this(size, step, partial, 0, Long.MAX_VALUE, t -> { });
+            }
+
+            OfInt(int size, int step, boolean partial,
+                  long lo, long hi, Sink<? super int[]> downstream) {
+                super(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            WindowSink.OfInt copy(Sink<? super int[]> downstream, long lo, long hi) {
+                return new WindowSink.OfInt(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            Object newArray(int length) {
+                return new int[length];
+            }
+
+            @Override
+            int[] window(Object array) {
+                return (int[]) array;
+            }
+
+            @Override
+            Node.Builder<Integer> newBuilder() {
+                return Nodes.intBuilder();
+            }
+
+            @Override
+            public void accept(int t) {
+                int i = slot();
+                ((int[]) ring)[i] = t;
+                advance();
+            }
+        }
+
+        static final class OfLong extends WindowSink<Long, long[]>
+                implements Sink.OfLong {
+            OfLong(int size, int step, boolean partial) {
+                this(size, step, partial, 0, Long.MAX_VALUE, t -> { });
+            }
+
+            OfLong(int size, int step, boolean partial,
+                   long lo, long hi, Sink<? super long[]> downstream) {
+                super(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            WindowSink.OfLong copy(Sink<? super long[]> downstream, long lo, long hi) {
+                return new WindowSink.OfLong(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            Object newArray(int length) {
+                return new long[length];
+            }
+
+            @Override
+            long[] window(Object array) {
+                return (long[]) array;
+            }
+
+            @Override
+            Node.Builder<Long> newBuilder() {
+                return Nodes.longBuilder();
+            }
+
+            @Override
+            public void accept(long t) {
+                int i = slot();
+                ((long[]) ring)[i] = t;
+                advance();
+            }
+        }
+
+        static final class OfDouble extends WindowSink<Double, double[]>
+                implements Sink.OfDouble {
+            OfDouble(int size, int step, boolean partial) {
+                this(size, step, partial, 0, Long.MAX_VALUE, t -> { });
+            }
+
+            OfDouble(int size, int step, boolean partial,
+                     long lo, long hi, Sink<? super double[]> downstream) {
+                super(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            WindowSink.OfDouble copy(Sink<? super double[]> downstream, long lo, long hi) {
+                return new WindowSink.OfDouble(size, step, partial, lo, hi, downstream);
+            }
+
+            @Override
+            Object newArray(int length) {
+                return new double[length];
+            }
+
+            @Override
+            double[] window(Object array) {
+                return (double[]) array;
+            }
+
+            @Override
+            Node.Builder<Double> newBuilder() {
+                return Nodes.doubleBuilder();
+            }
+
+            @Override
+            public void accept(double t) {
+                int i = slot();
+                ((double[]) ring)[i] = t;
+                advance();
+            }
+        }
+    }
+
+    /**
+     * A spliterator of windows over a spliterator of elements whose splits
+     * all have an exact size.
+     *
+     * <p>The elements of a window spliterator are those of a head, the
+     * elements pulled from the preceding split, followed by those of the
+     * wrapped spliterator, followed by those of a tail, the elements pulled
+     * from the following split.  Windows are formed for start positions in
+     * the range {@code [lo, hi)}.  On splitting, the elements needed to
+     * complete the last window of the prefix are pulled from the suffix, and
+     * become both the tail of the prefix and the head of the suffix.
+     *
+     * <p>Splitting is only supported before traversal has started.
+     *
+     * @param <T> the type of elements, boxed if primitive
+     * @param <W> the type of windows
+     */
+    static final class WindowSpliterator<T, W> implements Spliterator<W> {
+        private final WindowSink<T, W> prototype;
+        // Number of elements of the root spliterator
+        private final long count;
+        private long lo;
+        private final long hi;
+        private final int characteristics;
+
+        private Spliterator<T> head;
+        private long headCount;
+        private Spliterator<T> s;
+        private Spliterator<T> tail;
+
+        // Buffer of windows for partial traversal, and the sink feeding it
+        private SpinedBuffer<W> buffer;
+        private long nextToConsume;
+        private WindowSink<T, W> bufferSink;
+        // True if all elements have been pushed to the sink
+        private boolean finished;
+        // Number of windows traversed
+        private long traversed;
+
+        WindowSpliterator(WindowSink<T, W> prototype, Spliterator<T> s) {
+            this(prototype, s.getExactSizeIfKnown(), 0, Long.MAX_VALUE,
+                 null, 0, s, null,
+                 s.characteristics() & Spliterator.ORDERED);
+        }
+
+        private WindowSpliterator(WindowSink<T, W> prototype, long count,
+                                  long lo, long hi,
+                                  Spliterator<T> head, long headCount,
+                                  Spliterator<T> s, Spliterator<T> tail,
+                                  int characteristics) {
+            this.prototype = prototype;
+            this.count = count;
+            this.lo = lo;
+            this.hi = hi;
+            this.head = head;
+            this.headCount = headCount;
+            this.s = s;
+            this.tail = tail;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public Spliterator<W> trySplit() {
+            if (bufferSink != null || count < 0
+                || !s.hasCharacteristics(Spliterator.SUBSIZED))
+                return null;
+            Spliterator<T> prefix = s.trySplit();
+            if (prefix == null)
+                return null;
+            long mid = lo + headCount + prefix.getExactSizeIfKnown();
+
+            // Pull the elements of the last window starting before mid
+            // that lie beyond it
+            long last = mid - 1 - (mid - 1) % prototype.step;
+            long needed = last >= lo ? last + prototype.size - mid : 0;
+            Node.Builder<T> b = prototype.newBuilder();
+            b.begin(-1);
+            for (long i = 0; i < needed; i++) {
+                if (!s.tryAdvance(b) && (tail == null || !tail.tryAdvance(b)))
+                    break;
+            }
+            b.end();
+            Node<T> pulled = b.build();
+
+            WindowSpliterator<T, W> split
+                    = new WindowSpliterator<>(prototype, count, lo, mid,
+                                              head, headCount, prefix,
+                                              pulled.spliterator(),
+                                              characteristics);
+            lo = mid;
+            head = pulled.spliterator();
+            headCount = pulled.count();
+            return split;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (bufferSink == null) {
+                SpinedBuffer<W> b = buffer = new SpinedBuffer<>();
+                bufferSink = prototype.copy(b::accept, lo, hi);
+                bufferSink.begin(-1);
+                if (head != null)
+                    head.forEachRemaining(bufferSink);
+            }
+            while (nextToConsume >= buffer.count()) {
+                if (buffer.count() > 0) {
+                    buffer.clear();
+                    nextToConsume = 0;
+                }
+                if (finished)
+                    return false;
+                if (s.tryAdvance(bufferSink)
+                    || (tail != null && tail.tryAdvance(bufferSink)))
+                    continue;
+                finished = true;
+                bufferSink.end();
+            }
+            traversed++;
+            action.accept(buffer.get(nextToConsume++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super W> action) {
+            if (action == null)
+                throw new NullPointerException();
+            if (bufferSink == null) {
+                WindowSink<T, W> sink = prototype.copy(w -> {
+                    traversed++;
+                    action.accept(w);
+                }, lo, hi);
+                bufferSink = sink;
+                sink.begin(-1);
+                if (head != null)
+                    head.forEachRemaining(sink);
+                s.forEachRemaining(sink);
+                if (tail != null)
+                    tail.forEachRemaining(sink);
+                finished = true;
+                sink.end();
+                buffer = new SpinedBuffer<>();
+            }
+            else {
+                while (tryAdvance(action)) { }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            if (count >= 0)
+                return windowCount(lo, hi, count, prototype.size,
+                                   prototype.step, prototype.partial)
+                       - traversed;
+            long est = s.estimateSize();
+            return est == Long.MAX_VALUE ? est : est / prototype.step;
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return count >= 0 ? estimateSize() : -1;
+        }
+
+        @Override
+        public int characteristics() {
+            return count >= 0
+                   ? characteristics | Spliterator.NONNULL
+                     | Spliterator.SIZED | Spliterator.SUBSIZED
+                   : characteristics | Spliterator.NONNULL;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.zohar.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * <h3>简易基准测试运行器</h3>
+ * 仓库没有 JMH 依赖，这里按 JMH 的基本流程实现：先预热若干轮，再正式测量若干轮，
+ * 每轮所有线程通过栅栏同时开始，固定时长后停止，统计吞吐量。
+ * <p>
+ * 同时通过 {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}
+ * 统计所有线程分配的字节数，除以计入吞吐量的操作数得到每次操作分配的字节数，
+ * 通过 {@link GarbageCollectorMXBean} 统计测量期间的 GC 次数和耗时，
+ * 代替 JMH 的 GC profiler。
+ * <p>
+ * 运行参数通过系统属性配置，列表用逗号分隔：
+ * <ul>
+ *     <li>{@code bench.threads} 线程数，默认 {@code 1,2,4,8}</li>
+ *     <li>{@code bench.warmup} 预热轮数，默认 3</li>
+ *     <li>{@code bench.iterations} 测量轮数，默认 5</li>
+ *     <li>{@code bench.time} 每轮时长（毫秒），默认 1000</li>
+ * </ul>
+ * 与 JMH 不同，所有配置在同一个 JVM 中执行，没有 fork，先跑的配置产生的 JIT
+ * 编译结果会影响后面的配置，比较时最好每次只跑一组参数。
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 10:20
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * 单个线程执行的操作。结果通过 {@link #consume(long)} 吸收，
+     * 避免被 JIT 当作死代码消除，作用相当于 JMH 的 Blackhole。
+     */
+    public abstract static class Task {
+
+        private long sink;
+
+        /**
+         * 执行一次操作
+         *
+         * @return 完成的操作数，例如队列超时没有取到元素时返回 0
+         */
+        public abstract int op();
+
+        /**
+         * 是否计入吞吐量，例如只统计消费者的吞吐量时生产者返回 false
+         */
+        public boolean measured() {
+            return true;
+        }
+
+        protected final void consume(long value) {
+            sink ^= value;
+        }
+
+        protected final void consume(Object value) {
+            sink ^= System.identityHashCode(value);
+        }
+    }
+
+    /**
+     * 一组参数下的被测对象，每轮为每个线程创建一个 {@link Task}
+     */
+    public interface Workload {
+
+        /**
+         * 创建第 index 个线程的操作
+         *
+         * @param index   线程序号
+         * @param threads 线程总数
+         * @return 操作
+         */
+        Task newTask(int index, int threads);
+
+        /**
+         * 每轮结束后调用，用于唤醒阻塞的线程或恢复状态
+         */
+        default void afterIteration() {
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile long blackhole;
+
+    private BenchmarkRunner() {
+    }
+
+    public static int[] intList(String property, String defaultValue) {
+        String[] parts = System.getProperty(property, defaultValue).split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    public static String[] stringList(String property, String defaultValue) {
+        String[] values = System.getProperty(property, defaultValue).split(",");
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i].trim();
+        }
+        return values;
+    }
+
+    public static int[] threadCounts() {
+        return intList("bench.threads", "1,2,4,8");
+    }
+
+    public static void printHeader() {
+        System.out.printf(Locale.ROOT, "%-48s %8s %16s %12s %10s %8s %8s%n",
+                "Benchmark", "Threads", "ops/s", "error", "B/op", "gc.count", "gc.ms");
+    }
+
+    /**
+     * 运行一组参数并打印结果
+     *
+     * @param name     名称，包含参数
+     * @param threads  线程数
+     * @param workload 被测对象
+     */
+    public static void run(String name, int threads, Workload workload) {
+        int warmup = Integer.getInteger("bench.warmup", 3);
+        int iterations = Integer.getInteger("bench.iterations", 5);
+        long time = Long.getLong("bench.time", 1000L);
+        for (int i = 0; i < warmup; i++) {
+            iteration(workload, threads, time);
+        }
+        double[] throughput = new double[iterations];
+        double bytes = 0;
+        long ops = 0;
+        long gcCount = gcCount(), gcTime = gcTime();
+        for (int i = 0; i < iterations; i++) {
+            Result result = iteration(workload, threads, time);
+            throughput[i] = result.ops * 1e9 / result.nanos;
+            bytes += result.bytes;
+            ops += result.ops;
+        }
+        gcCount = gcCount() - gcCount;
+        gcTime = gcTime() - gcTime;
+        double mean = 0;
+        for (double t : throughput) {
+            mean += t;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double t : throughput) {
+            variance += (t - mean) * (t - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : Double.NaN;
+        System.out.printf(Locale.ROOT, "%-48s %8d %16.0f %12.0f %10.1f %8d %8d%n",
+                name, threads, mean, error, ops == 0 ? Double.NaN : bytes / ops, gcCount, gcTime);
+    }
+
+    private static final class Result {
+        long ops;
+        long bytes;
+        long nanos;
+    }
+
+    private static Result iteration(Workload workload, int threads, long time) {
+        Task[] tasks = new Task[threads];
+        for (int i = 0; i < threads; i++) {
+            tasks[i] = workload.newTask(i, threads);
+        }
+        long[] ops = new long[threads];
+        long[] bytes = new long[threads];
+        long[] sinks = new long[threads];
+        Stopper stopper = new Stopper();
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            Thread worker = new Thread(() -> {
+                Task task = tasks[index];
+                long id = Thread.currentThread().getId();
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                long before = THREADS.getThreadAllocatedBytes(id);
+                long count = 0;
+                while (!stopper.stop) {
+                    count += task.op();
+                }
+                bytes[index] = THREADS.getThreadAllocatedBytes(id) - before;
+                ops[index] = count;
+                sinks[index] = task.sink;
+            }, "bench-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        Result result = new Result();
+        try {
+            start.await();
+            long begin = System.nanoTime();
+            Thread.sleep(time);
+            stopper.stop = true;
+            result.nanos = System.nanoTime() - begin;
+            workload.afterIteration();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        long sink = 0;
+        for (int i = 0; i < threads; i++) {
+            if (tasks[i].measured()) {
+                result.ops += ops[i];
+            }
+            result.bytes += bytes[i];
+            sink ^= sinks[i];
+        }
+        blackhole ^= sink;
+        return result;
+    }
+
+    private static final class Stopper {
+        volatile boolean stop;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h3>计数器基准测试</h3>
+ * 比较 {@link AtomicLong} 和 {@link LongAdder} 在多线程累加时的吞吐量。
+ * {@link AtomicLong} 所有线程 CAS 同一个变量，{@link LongAdder} 竞争时把线程分散到不同的 Cell 上，
+ * 代价是 {@link LongAdder#sum()} 需要遍历所有 Cell。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.counters} 默认 {@code AtomicLong,LongAdder}</li>
+ *     <li>{@code bench.readPercent} 读取计数的操作百分比，默认 {@code 0,10}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 11:50
+ */
+public class CounterBenchmark {
+
+    public static void main(String[] args) {
+        String[] counters = BenchmarkRunner.stringList("bench.counters", "AtomicLong,LongAdder");
+        int[] readPercents = BenchmarkRunner.intList("bench.readPercent", "0,10");
+        BenchmarkRunner.printHeader();
+        for (String counter : counters) {
+            for (int readPercent : readPercents) {
+                for (int threads : BenchmarkRunner.threadCounts()) {
+                    BenchmarkRunner.run(counter + " read=" + readPercent + "%", threads,
+                            workload(counter, readPercent));
+                }
+            }
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(String counter, int readPercent) {
+        switch (counter) {
+            case "AtomicLong": {
+                AtomicLong atomicLong = new AtomicLong();
+                return (index, threads) -> new Task() {
+                    int n;
+
+                    @Override
+                    public int op() {
+                        if (++n % 100 < readPercent) {
+                            consume(atomicLong.get());
+                        } else {
+                            atomicLong.incrementAndGet();
+                        }
+                        return 1;
+                    }
+                };
+            }
+            case "LongAdder": {
+                LongAdder longAdder = new LongAdder();
+                return (index, threads) -> new Task() {
+                    int n;
+
+                    @Override
+                    public int op() {
+                        if (++n % 100 < readPercent) {
+                            consume(longAdder.sum());
+                        } else {
+                            longAdder.increment();
+                        }
+                        return 1;
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown counter: " + counter);
+        }
+    }
+}
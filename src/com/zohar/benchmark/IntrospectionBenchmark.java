@@ -0,0 +1,150 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.TreeMap;
+
+/**
+ * <h3>类元数据缓存基准测试</h3>
+ * 多个线程反复查询同一批类的元数据，这些查询在第一次之后都应该命中缓存：
+ * <ul>
+ *     <li>{@code beanInfo} {@link Introspector#getBeanInfo(Class)}，
+ *     JDK 8 中每次查询都要获取一把全局锁，多线程下互相阻塞</li>
+ *     <li>{@code property} 创建 {@link PropertyDescriptor}，通过类的公有方法缓存查找 getter/setter，
+ *     {@code java.beans.XMLEncoder} 也走这条路径</li>
+ *     <li>{@code descriptor} {@link ObjectStreamClass#lookup(Class)}，
+ *     JDK 8 中每次查询都要新建一个弱引用键并处理引用队列</li>
+ * </ul>
+ * 改为 {@link ClassValue} 实现后查询不加锁也不分配对象。
+ * 修改后的 {@code java.beans} 和 {@code java.io} 需要用 {@code -Xbootclasspath/p:} 加载后对比。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code beanInfo,property,descriptor}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 18:50
+ */
+public class IntrospectionBenchmark {
+
+    public static class Order implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long id;
+
+        private String customer;
+
+        private Date created;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public void setCustomer(String customer) {
+            this.customer = customer;
+        }
+
+        public Date getCreated() {
+            return created;
+        }
+
+        public void setCreated(Date created) {
+            this.created = created;
+        }
+    }
+
+    public static class PriorityOrder extends Order {
+
+        private static final long serialVersionUID = 1L;
+
+        private int priority;
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+    }
+
+    private static final Class<?>[] CLASSES = {Order.class, PriorityOrder.class, Date.class,
+            ArrayList.class, LinkedList.class, HashMap.class, TreeMap.class, String.class};
+
+    private static final String[] PROPERTIES = {"id", "customer", "created", "priority"};
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "beanInfo,property,descriptor");
+        BenchmarkRunner.printHeader();
+        for (String op : ops) {
+            for (int threads : BenchmarkRunner.threadCounts()) {
+                BenchmarkRunner.run(op, threads, workload(op));
+            }
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(String op) {
+        switch (op) {
+            case "beanInfo":
+                return (index, threads) -> new Task() {
+                    int i = index;
+
+                    @Override
+                    public int op() {
+                        try {
+                            consume(Introspector.getBeanInfo(CLASSES[i++ & 7]));
+                        } catch (IntrospectionException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return 1;
+                    }
+                };
+            case "property":
+                return (index, threads) -> new Task() {
+                    int i = index;
+
+                    @Override
+                    public int op() {
+                        try {
+                            consume(new PropertyDescriptor(PROPERTIES[i++ & 3], PriorityOrder.class));
+                        } catch (IntrospectionException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return 1;
+                    }
+                };
+            case "descriptor":
+                return (index, threads) -> new Task() {
+                    int i = index;
+
+                    @Override
+                    public int op() {
+                        consume(ObjectStreamClass.lookup(CLASSES[i++ & 7]));
+                        return 1;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+}
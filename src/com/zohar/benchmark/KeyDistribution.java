@@ -0,0 +1,94 @@
+package com.zohar.benchmark;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h3>键分布</h3>
+ * 生成 [0, n) 范围内的键。为了不把生成键的开销算进被测操作，每个线程预先生成
+ * {@link #SAMPLES} 个键，测量时循环使用。
+ * <ul>
+ *     <li>{@link #UNIFORM} 均匀分布</li>
+ *     <li>{@link #ZIPFIAN} Zipf 分布（theta = 0.99），按 YCSB 的 ZipfianGenerator 实现，
+ *     热点键经过散列打散，不会集中在有序 Map 的某一段</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 10:40
+ */
+public enum KeyDistribution {
+
+    UNIFORM {
+        @Override
+        int next(SplittableRandom random, int n) {
+            return random.nextInt(n);
+        }
+    },
+
+    ZIPFIAN {
+        @Override
+        int next(SplittableRandom random, int n) {
+            double zetaN = zeta(n);
+            double alpha = 1.0 / (1.0 - THETA);
+            double eta = (1 - Math.pow(2.0 / n, 1 - THETA)) / (1 - zeta(2) / zetaN);
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            long rank;
+            if (uz < 1.0) {
+                rank = 0;
+            } else if (uz < 1.0 + Math.pow(0.5, THETA)) {
+                rank = 1;
+            } else {
+                rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));
+            }
+            return (int) Math.floorMod(scramble(Math.min(rank, n - 1)), (long) n);
+        }
+    };
+
+    /**
+     * 每个线程预先生成的键个数，必须是 2 的幂
+     */
+    public static final int SAMPLES = 1 << 16;
+
+    private static final double THETA = 0.99;
+
+    private static final Map<Integer, Double> ZETA = new ConcurrentHashMap<>();
+
+    abstract int next(SplittableRandom random, int n);
+
+    /**
+     * 生成一组键
+     *
+     * @param n    键的范围
+     * @param seed 随机种子，不同线程使用不同的种子
+     * @return 长度为 {@link #SAMPLES} 的键
+     */
+    public Integer[] keys(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Integer[] keys = new Integer[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            keys[i] = next(random, n);
+        }
+        return keys;
+    }
+
+    /**
+     * 计算 zeta(n) = 1 + 1/2^theta + ... + 1/n^theta，n 较大时耗时较长，因此缓存结果
+     */
+    private static double zeta(int n) {
+        return ZETA.computeIfAbsent(n, k -> {
+            double sum = 0;
+            for (int i = 1; i <= k; i++) {
+                sum += 1 / Math.pow(i, THETA);
+            }
+            return sum;
+        });
+    }
+
+    private static long scramble(long rank) {
+        long h = rank * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,161 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <h3>锁竞争基准测试</h3>
+ * 比较 {@code synchronized}、{@link ReentrantLock}、{@link StampedLock} 随线程数增加的吞吐量变化。
+ * 每次操作在锁内更新两个共享变量，锁外执行一段不访问共享数据的计算，
+ * 计算量越小竞争越激烈。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.locks} 默认
+ *     {@code synchronized,ReentrantLock,ReentrantLock-fair,StampedLock-write,StampedLock-optimistic}</li>
+ *     <li>{@code bench.work} 锁外计算的循环次数，默认 {@code 0,100}</li>
+ *     <li>{@code bench.writePercent} StampedLock-optimistic 中写操作的百分比，默认 10，
+ *     其余为乐观读</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 11:40
+ */
+public class LockBenchmark {
+
+    public static void main(String[] args) {
+        String[] locks = BenchmarkRunner.stringList("bench.locks",
+                "synchronized,ReentrantLock,ReentrantLock-fair,StampedLock-write,StampedLock-optimistic");
+        int[] works = BenchmarkRunner.intList("bench.work", "0,100");
+        int writePercent = Integer.getInteger("bench.writePercent", 10);
+        BenchmarkRunner.printHeader();
+        for (String lock : locks) {
+            for (int work : works) {
+                for (int threads : BenchmarkRunner.threadCounts()) {
+                    BenchmarkRunner.run(lock + " work=" + work, threads, workload(lock, work, writePercent));
+                }
+            }
+        }
+    }
+
+    /**
+     * 锁保护的共享数据，x 和 y 总是相等
+     */
+    private static final class Point {
+        long x;
+        long y;
+    }
+
+    private static BenchmarkRunner.Workload workload(String lock, int work, int writePercent) {
+        Point point = new Point();
+        switch (lock) {
+            case "synchronized":
+                return (index, threads) -> new WorkTask(work) {
+                    @Override
+                    void critical() {
+                        synchronized (point) {
+                            point.x++;
+                            point.y++;
+                        }
+                    }
+                };
+            case "ReentrantLock":
+            case "ReentrantLock-fair": {
+                ReentrantLock reentrantLock = new ReentrantLock(lock.endsWith("fair"));
+                return (index, threads) -> new WorkTask(work) {
+                    @Override
+                    void critical() {
+                        reentrantLock.lock();
+                        try {
+                            point.x++;
+                            point.y++;
+                        } finally {
+                            reentrantLock.unlock();
+                        }
+                    }
+                };
+            }
+            case "StampedLock-write": {
+                StampedLock stampedLock = new StampedLock();
+                return (index, threads) -> new WorkTask(work) {
+                    @Override
+                    void critical() {
+                        long stamp = stampedLock.writeLock();
+                        try {
+                            point.x++;
+                            point.y++;
+                        } finally {
+                            stampedLock.unlockWrite(stamp);
+                        }
+                    }
+                };
+            }
+            case "StampedLock-optimistic": {
+                StampedLock stampedLock = new StampedLock();
+                return (index, threads) -> new WorkTask(work) {
+                    int n;
+
+                    @Override
+                    void critical() {
+                        if (++n % 100 < writePercent) {
+                            long stamp = stampedLock.writeLock();
+                            try {
+                                point.x++;
+                                point.y++;
+                            } finally {
+                                stampedLock.unlockWrite(stamp);
+                            }
+                            return;
+                        }
+                        long stamp = stampedLock.tryOptimisticRead();
+                        long x = point.x, y = point.y;
+                        if (!stampedLock.validate(stamp)) {
+                            stamp = stampedLock.readLock();
+                            try {
+                                x = point.x;
+                                y = point.y;
+                            } finally {
+                                stampedLock.unlockRead(stamp);
+                            }
+                        }
+                        consume(x - y);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown lock: " + lock);
+        }
+    }
+
+    /**
+     * 先执行锁外计算，再进入临界区
+     */
+    private abstract static class WorkTask extends Task {
+
+        private final int work;
+        private long seed = System.nanoTime();
+
+        WorkTask(int work) {
+            this.work = work;
+        }
+
+        abstract void critical();
+
+        @Override
+        public final int op() {
+            long s = seed;
+            for (int i = 0; i < work; i++) {
+                s ^= s << 13;
+                s ^= s >>> 7;
+                s ^= s << 17;
+            }
+            seed = s;
+            consume(s);
+            critical();
+            return 1;
+        }
+    }
+}
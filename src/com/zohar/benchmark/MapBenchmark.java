@@ -0,0 +1,121 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * <h3>Map 基准测试</h3>
+ * 比较 {@link HashMap}、{@link TreeMap}、{@link ConcurrentHashMap}、{@link ConcurrentSkipListMap}
+ * 在不同大小、不同键分布下的 get、put 和遍历性能。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.maps} 默认 {@code HashMap,TreeMap,ConcurrentHashMap,ConcurrentSkipListMap}</li>
+ *     <li>{@code bench.sizes} 默认 {@code 1000,100000,1000000}，
+ *     测试 1 亿个元素时需要相应调大堆，例如 {@code -Xmx16g -Dbench.sizes=100000000}</li>
+ *     <li>{@code bench.distributions} 默认 {@code UNIFORM,ZIPFIAN}</li>
+ *     <li>{@code bench.ops} 默认 {@code get,put,iterate}</li>
+ * </ul>
+ * put 只覆盖已有的键，Map 大小不变。非线程安全的 Map 只在单线程下测试 put。
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 11:00
+ */
+public class MapBenchmark {
+
+    public static void main(String[] args) {
+        String[] maps = BenchmarkRunner.stringList("bench.maps",
+                "HashMap,TreeMap,ConcurrentHashMap,ConcurrentSkipListMap");
+        int[] sizes = BenchmarkRunner.intList("bench.sizes", "1000,100000,1000000");
+        String[] distributions = BenchmarkRunner.stringList("bench.distributions", "UNIFORM,ZIPFIAN");
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "get,put,iterate");
+        BenchmarkRunner.printHeader();
+        for (String mapName : maps) {
+            for (int size : sizes) {
+                Map<Integer, Integer> map = newMap(mapName).get();
+                for (int i = 0; i < size; i++) {
+                    map.put(i, i);
+                }
+                boolean concurrent = map instanceof ConcurrentHashMap || map instanceof ConcurrentSkipListMap;
+                for (String op : ops) {
+                    String[] keyDistributions = "iterate".equals(op) ? new String[]{"-"} : distributions;
+                    for (String distribution : keyDistributions) {
+                        for (int threads : BenchmarkRunner.threadCounts()) {
+                            if ("put".equals(op) && !concurrent && threads > 1) {
+                                continue;
+                            }
+                            String name = mapName + "." + op + " size=" + size
+                                    + ("-".equals(distribution) ? "" : " " + distribution.toLowerCase());
+                            BenchmarkRunner.run(name, threads, workload(map, size, op, distribution));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Supplier<Map<Integer, Integer>> newMap(String name) {
+        switch (name) {
+            case "HashMap":
+                return HashMap::new;
+            case "TreeMap":
+                return TreeMap::new;
+            case "ConcurrentHashMap":
+                return ConcurrentHashMap::new;
+            case "ConcurrentSkipListMap":
+                return ConcurrentSkipListMap::new;
+            default:
+                throw new IllegalArgumentException("Unknown map: " + name);
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(Map<Integer, Integer> map, int size,
+                                                     String op, String distribution) {
+        switch (op) {
+            case "get":
+                return (index, threads) -> new Task() {
+                    final Integer[] keys = KeyDistribution.valueOf(distribution).keys(size, index + 1);
+                    int i;
+
+                    @Override
+                    public int op() {
+                        consume(map.get(keys[i++ & (KeyDistribution.SAMPLES - 1)]));
+                        return 1;
+                    }
+                };
+            case "put":
+                return (index, threads) -> new Task() {
+                    final Integer[] keys = KeyDistribution.valueOf(distribution).keys(size, index + 1);
+                    int i;
+
+                    @Override
+                    public int op() {
+                        Integer key = keys[i++ & (KeyDistribution.SAMPLES - 1)];
+                        consume(map.put(key, key));
+                        return 1;
+                    }
+                };
+            case "iterate":
+                return (index, threads) -> new Task() {
+                    @Override
+                    public int op() {
+                        long sum = 0;
+                        for (Map.Entry<Integer, Integer> e : map.entrySet()) {
+                            sum += e.getValue();
+                        }
+                        consume(sum);
+                        return 1;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + op);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h3>阻塞队列基准测试</h3>
+ * 比较 {@link ArrayBlockingQueue}、{@link LinkedBlockingQueue}、{@link LinkedTransferQueue}
+ * 在不同生产者、消费者数量下的吞吐量，只统计消费者取到的元素个数。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.queues} 默认 {@code ArrayBlockingQueue,LinkedBlockingQueue,LinkedTransferQueue}</li>
+ *     <li>{@code bench.producers} 生产者数量，默认 {@code 1,2,4}</li>
+ *     <li>{@code bench.consumers} 消费者数量，默认 {@code 1,2,4}</li>
+ *     <li>{@code bench.capacity} 有界队列的容量，默认 1024</li>
+ * </ul>
+ * {@link LinkedTransferQueue} 是无界队列，生产者如果只 offer 会无限堆积元素，
+ * 所以用它特有的 {@link LinkedTransferQueue#tryTransfer(Object, long, TimeUnit)}
+ * 测试直接交给消费者的吞吐量。生产者和消费者都用带超时的操作，避免测量结束时阻塞。
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 11:20
+ */
+public class QueueBenchmark {
+
+    private static final long TIMEOUT_MICROS = 1000;
+
+    public static void main(String[] args) {
+        String[] queues = BenchmarkRunner.stringList("bench.queues",
+                "ArrayBlockingQueue,LinkedBlockingQueue,LinkedTransferQueue");
+        int[] producerCounts = BenchmarkRunner.intList("bench.producers", "1,2,4");
+        int[] consumerCounts = BenchmarkRunner.intList("bench.consumers", "1,2,4");
+        int capacity = Integer.getInteger("bench.capacity", 1024);
+        BenchmarkRunner.printHeader();
+        for (String queueName : queues) {
+            for (int producers : producerCounts) {
+                for (int consumers : consumerCounts) {
+                    BlockingQueue<Integer> queue = newQueue(queueName, capacity);
+                    String name = queueName + " producers=" + producers + " consumers=" + consumers;
+                    BenchmarkRunner.run(name, producers + consumers, workload(queue, producers));
+                }
+            }
+        }
+    }
+
+    private static BlockingQueue<Integer> newQueue(String name, int capacity) {
+        switch (name) {
+            case "ArrayBlockingQueue":
+                return new ArrayBlockingQueue<>(capacity);
+            case "LinkedBlockingQueue":
+                return new LinkedBlockingQueue<>(capacity);
+            case "LinkedTransferQueue":
+                return new LinkedTransferQueue<>();
+            default:
+                throw new IllegalArgumentException("Unknown queue: " + name);
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(BlockingQueue<Integer> queue, int producers) {
+        return new BenchmarkRunner.Workload() {
+            @Override
+            public Task newTask(int index, int threads) {
+                return index < producers ? new Producer(queue, index) : new Consumer(queue);
+            }
+
+            @Override
+            public void afterIteration() {
+                queue.clear();
+            }
+        };
+    }
+
+    private static final class Producer extends Task {
+
+        private final BlockingQueue<Integer> queue;
+        private final Integer element;
+
+        Producer(BlockingQueue<Integer> queue, int index) {
+            this.queue = queue;
+            this.element = index;
+        }
+
+        @Override
+        public int op() {
+            try {
+                boolean added = queue instanceof LinkedTransferQueue
+                        ? ((LinkedTransferQueue<Integer>) queue).tryTransfer(element, TIMEOUT_MICROS, TimeUnit.MICROSECONDS)
+                        : queue.offer(element, TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+                return added ? 1 : 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+
+        @Override
+        public boolean measured() {
+            return false;
+        }
+    }
+
+    private static final class Consumer extends Task {
+
+        private final BlockingQueue<Integer> queue;
+
+        Consumer(BlockingQueue<Integer> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public int op() {
+            try {
+                Integer e = queue.poll(TIMEOUT_MICROS, TimeUnit.MICROSECONDS);
+                if (e == null) {
+                    return 0;
+                }
+                consume(e);
+                return 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <h3>反射调用基准测试</h3>
+ * 分两部分：
+ * <ol>
+ *     <li>吞吐量：以 getter/setter 为例，比较直接调用、{@link Method#invoke} 和
+ *     保存在 {@code static final} 字段中的 {@link MethodHandle}（{@code invokeExact}，参数和返回值不装箱）</li>
+ *     <li>元空间占用：对一批不同的方法各调用若干次后，统计新加载的类数和元空间增量。
+ *     JDK 8 的 {@link Method#invoke} 前 15 次（{@code sun.reflect.inflationThreshold}）走本地调用，
+ *     之后为每个方法生成一个字节码访问器类；改为 {@code MethodHandle} 实现后，
+ *     同一擦除签名的方法共享 {@code LambdaForm}</li>
+ * </ol>
+ * 修改后的 {@code java.lang.reflect} 需要用 {@code -Xbootclasspath/p:} 加载，
+ * 分别以 {@code -Dsun.reflect.useDirectMethodHandle=true} 和 {@code =false} 各运行一次进行对比。
+ * {@code handle} 使用 {@link MethodHandles.Lookup#unreflect}，与 {@code Method.unreflect()} 返回的句柄相同。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code direct,invoke,handle,metaspace}</li>
+ *     <li>{@code bench.calls} 元空间测试中每个方法的调用次数，默认 {@code 20}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 18:10
+ */
+public class ReflectionBenchmark {
+
+    public static class Bean {
+
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    private static volatile long blackhole;
+
+    private static final Method GETTER;
+
+    private static final Method SETTER;
+
+    private static final MethodHandle GETTER_HANDLE;
+
+    private static final MethodHandle SETTER_HANDLE;
+
+    static {
+        try {
+            GETTER = Bean.class.getMethod("getValue");
+            SETTER = Bean.class.getMethod("setValue", int.class);
+            GETTER_HANDLE = MethodHandles.lookup().unreflect(GETTER);
+            SETTER_HANDLE = MethodHandles.lookup().unreflect(SETTER);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "direct,invoke,handle,metaspace");
+        System.out.println("sun.reflect.useDirectMethodHandle="
+                + System.getProperty("sun.reflect.useDirectMethodHandle", "(default)"));
+        boolean header = false;
+        for (String op : ops) {
+            if ("metaspace".equals(op)) {
+                metaspace(Integer.getInteger("bench.calls", 20));
+                continue;
+            }
+            if (!header) {
+                BenchmarkRunner.printHeader();
+                header = true;
+            }
+            for (int threads : BenchmarkRunner.threadCounts()) {
+                BenchmarkRunner.run(op, threads, workload(op));
+            }
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(String op) {
+        switch (op) {
+            case "direct":
+                return (index, threads) -> new Task() {
+                    final Bean bean = new Bean();
+
+                    @Override
+                    public int op() {
+                        bean.setValue(bean.getValue() + 1);
+                        return 1;
+                    }
+                };
+            case "invoke":
+                return (index, threads) -> new Task() {
+                    final Bean bean = new Bean();
+
+                    @Override
+                    public int op() {
+                        try {
+                            int value = (Integer) GETTER.invoke(bean);
+                            SETTER.invoke(bean, value + 1);
+                        } catch (IllegalAccessException | InvocationTargetException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return 1;
+                    }
+                };
+            case "handle":
+                return (index, threads) -> new Task() {
+                    final Bean bean = new Bean();
+
+                    @Override
+                    public int op() {
+                        try {
+                            int value = (int) GETTER_HANDLE.invokeExact(bean);
+                            SETTER_HANDLE.invokeExact(bean, value + 1);
+                        } catch (Throwable t) {
+                            throw new IllegalStateException(t);
+                        }
+                        return 1;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    /**
+     * 调用包装类和 {@link Math} 中参数都是基本类型的静态方法，这些方法没有副作用
+     */
+    private static void metaspace(int calls) {
+        List<Method> methods = new ArrayList<>();
+        Class<?>[] classes = {Math.class, StrictMath.class, Integer.class, Long.class, Short.class,
+                Byte.class, Character.class, Boolean.class, Float.class, Double.class};
+        for (Class<?> c : classes) {
+            for (Method m : c.getMethods()) {
+                if (Modifier.isStatic(m.getModifiers()) && m.getParameterCount() > 0 && primitiveParameters(m)) {
+                    methods.add(m);
+                }
+            }
+        }
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        long classes0 = classLoading.getTotalLoadedClassCount();
+        long metaspace0 = metaspaceUsed();
+        long begin = System.nanoTime();
+        long sink = 0;
+        for (Method m : methods) {
+            Object[] arguments = arguments(m);
+            for (int i = 0; i < calls; i++) {
+                try {
+                    Object result = m.invoke(null, arguments);
+                    sink += result == null ? 0 : result.hashCode();
+                } catch (InvocationTargetException e) {
+                    sink++;
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        long nanos = System.nanoTime() - begin;
+        blackhole ^= sink;
+        System.out.printf(Locale.ROOT, "%-12s %8s %8s %14s %14s %12s%n",
+                "Metaspace", "methods", "calls", "classes.new", "metaspace.KB", "time.ms");
+        System.out.printf(Locale.ROOT, "%-12s %8d %8d %14d %14.1f %12.1f%n",
+                "reflection", methods.size(), calls,
+                classLoading.getTotalLoadedClassCount() - classes0,
+                (metaspaceUsed() - metaspace0) / 1024.0, nanos / 1e6);
+    }
+
+    private static boolean primitiveParameters(Method m) {
+        for (Class<?> p : m.getParameterTypes()) {
+            if (!p.isPrimitive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 每个参数取 1，避免除零等异常，个别方法仍会抛出异常时记为一次调用
+     */
+    private static Object[] arguments(Method m) {
+        Class<?>[] types = m.getParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> t = types[i];
+            if (t == boolean.class) {
+                arguments[i] = Boolean.TRUE;
+            } else if (t == char.class) {
+                arguments[i] = '1';
+            } else if (t == byte.class) {
+                arguments[i] = (byte) 1;
+            } else if (t == short.class) {
+                arguments[i] = (short) 1;
+            } else if (t == int.class) {
+                arguments[i] = 1;
+            } else if (t == long.class) {
+                arguments[i] = 1L;
+            } else if (t == float.class) {
+                arguments[i] = 1f;
+            } else {
+                arguments[i] = 1d;
+            }
+        }
+        return arguments;
+    }
+
+    private static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+}
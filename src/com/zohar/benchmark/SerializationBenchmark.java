@@ -0,0 +1,155 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamSession;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <h3>序列化基准测试</h3>
+ * 模拟 RPC 中每条消息新建一对对象流的场景，每次操作序列化一条消息再反序列化：
+ * <ul>
+ *     <li>{@code plain} {@link ObjectOutputStream}/{@link ObjectInputStream}，每个流都要完整地写出并解析一遍类描述符</li>
+ *     <li>{@code session} {@link ObjectStreamSession} 创建的流，类描述符在会话中只完整传输一次，之后只写一个整数编号，
+ *     句柄表按之前的消息预先分配容量</li>
+ * </ul>
+ * 结果另外输出每条消息的平均字节数。
+ * 修改后的 {@code java.io} 需要用 {@code -Xbootclasspath/p:} 加载。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code plain,session}</li>
+ *     <li>{@code bench.items} 每条消息中订单项的数量，默认 {@code 16}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 19:30
+ */
+public class SerializationBenchmark {
+
+    public static class Item implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String sku;
+
+        private final int quantity;
+
+        private final long priceCents;
+
+        Item(String sku, int quantity, long priceCents) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.priceCents = priceCents;
+        }
+    }
+
+    public static class Request implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+
+        private final String method;
+
+        private final Date deadline;
+
+        private final List<Item> items;
+
+        Request(long id, String method, Date deadline, List<Item> items) {
+            this.id = id;
+            this.method = method;
+            this.deadline = deadline;
+            this.items = items;
+        }
+    }
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "plain,session");
+        int items = Integer.getInteger("bench.items", 16);
+        for (String op : ops) {
+            System.out.printf("%s: %d bytes/message%n", op, new RoundTrip(op, items).messageSize());
+        }
+        BenchmarkRunner.printHeader();
+        for (String op : ops) {
+            for (int threads : BenchmarkRunner.threadCounts()) {
+                BenchmarkRunner.run(op, threads, (index, n) -> new RoundTrip(op, items));
+            }
+        }
+    }
+
+    /**
+     * 每个线程一对会话，分别代表发送方和接收方
+     */
+    private static final class RoundTrip extends Task {
+
+        private final ObjectStreamSession sender;
+
+        private final ObjectStreamSession receiver;
+
+        private final int items;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+
+        private long id;
+
+        RoundTrip(String op, int items) {
+            switch (op) {
+                case "plain":
+                    sender = null;
+                    receiver = null;
+                    break;
+                case "session":
+                    sender = new ObjectStreamSession();
+                    receiver = new ObjectStreamSession();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown op: " + op);
+            }
+            this.items = items;
+        }
+
+        /**
+         * 第一条消息包含完整的类描述符，取第二条消息的大小
+         */
+        int messageSize() {
+            op();
+            op();
+            return buffer.size();
+        }
+
+        @Override
+        public int op() {
+            long n = id++;
+            List<Item> list = new ArrayList<>(items);
+            for (int i = 0; i < items; i++) {
+                list.add(new Item("SKU-" + i, i + 1, 100L * i + n));
+            }
+            Request request = new Request(n, "OrderService.submit", new Date(n), list);
+            try {
+                buffer.reset();
+                try (ObjectOutputStream out = sender == null
+                        ? new ObjectOutputStream(buffer) : sender.newObjectOutputStream(buffer)) {
+                    out.writeObject(request);
+                }
+                ByteArrayInputStream bytes = new ByteArrayInputStream(buffer.toByteArray());
+                try (ObjectInputStream in = receiver == null
+                        ? new ObjectInputStream(bytes) : receiver.newObjectInputStream(bytes)) {
+                    consume(((Request) in.readObject()).id);
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * <h3>数组排序基准测试</h3>
+ * 比较 {@link Arrays#sort} 和 {@link Arrays#parallelSort} 在不同输入形态下的吞吐量：
+ * <ul>
+ *     <li>{@code sort} 基准，基本类型数组使用 DualPivotQuicksort，对象数组使用 TimSort</li>
+ *     <li>{@code parallelSort} 先检测已有的有序段，对象数组按有序段归并，
+ *     较大的基本类型数组使用并行基数排序</li>
+ * </ul>
+ * 输入形态：
+ * <ul>
+ *     <li>{@code sorted} 已升序</li>
+ *     <li>{@code reverse} 已降序</li>
+ *     <li>{@code sawtooth} 由长度为 {@code bench.run} 的升序段拼成，类似多个有序日志文件拼接</li>
+ *     <li>{@code random} 随机</li>
+ * </ul>
+ * 每次操作先把原始数据复制到工作数组再排序，两种方式都包含这次复制的开销。
+ * {@code parallelSort} 使用公共 ForkJoinPool，所以只用一个测量线程，
+ * 并行度由 {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism} 控制，为 1 时退化为 {@code sort}。
+ * JDK 8 上需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util}。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code sort,parallelSort}</li>
+ *     <li>{@code bench.types} 元素类型，默认 {@code int,long,double,Object}</li>
+ *     <li>{@code bench.shapes} 输入形态，默认 {@code sorted,reverse,sawtooth,random}</li>
+ *     <li>{@code bench.sizes} 数组长度，默认 {@code 1000000}</li>
+ *     <li>{@code bench.run} sawtooth 的升序段长度，默认 1000</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 22:50
+ */
+public class SortBenchmark {
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "sort,parallelSort");
+        String[] types = BenchmarkRunner.stringList("bench.types", "int,long,double,Object");
+        String[] shapes = BenchmarkRunner.stringList("bench.shapes", "sorted,reverse,sawtooth,random");
+        int[] sizes = BenchmarkRunner.intList("bench.sizes", "1000000");
+        int run = Integer.getInteger("bench.run", 1000);
+        BenchmarkRunner.printHeader();
+        for (String type : types) {
+            for (String shape : shapes) {
+                for (int size : sizes) {
+                    long[] keys = keys(shape, size, run);
+                    for (String op : ops) {
+                        String name = op + " " + type + " " + shape + " size=" + size;
+                        BenchmarkRunner.run(name, 1, workload(op, type, keys));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long[] keys(String shape, int size, int run) {
+        long[] keys = new long[size];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < size; i++) {
+            switch (shape) {
+                case "sorted":
+                    keys[i] = i;
+                    break;
+                case "reverse":
+                    keys[i] = size - i;
+                    break;
+                case "sawtooth":
+                    keys[i] = i % run;
+                    break;
+                case "random":
+                    keys[i] = random.nextInt();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown shape: " + shape);
+            }
+        }
+        return keys;
+    }
+
+    private static BenchmarkRunner.Workload workload(String op, String type, long[] keys) {
+        boolean parallel;
+        switch (op) {
+            case "sort":
+                parallel = false;
+                break;
+            case "parallelSort":
+                parallel = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+        int n = keys.length;
+        switch (type) {
+            case "int": {
+                int[] source = new int[n];
+                for (int i = 0; i < n; i++) {
+                    source[i] = (int) keys[i];
+                }
+                return (index, threads) -> new SortTask() {
+                    final int[] work = new int[n];
+
+                    @Override
+                    long sort() {
+                        System.arraycopy(source, 0, work, 0, n);
+                        if (parallel) {
+                            Arrays.parallelSort(work);
+                        } else {
+                            Arrays.sort(work);
+                        }
+                        return work[n >>> 1];
+                    }
+                };
+            }
+            case "long": {
+                long[] source = keys.clone();
+                return (index, threads) -> new SortTask() {
+                    final long[] work = new long[n];
+
+                    @Override
+                    long sort() {
+                        System.arraycopy(source, 0, work, 0, n);
+                        if (parallel) {
+                            Arrays.parallelSort(work);
+                        } else {
+                            Arrays.sort(work);
+                        }
+                        return work[n >>> 1];
+                    }
+                };
+            }
+            case "double": {
+                double[] source = new double[n];
+                for (int i = 0; i < n; i++) {
+                    source[i] = keys[i] / 3.0;
+                }
+                return (index, threads) -> new SortTask() {
+                    final double[] work = new double[n];
+
+                    @Override
+                    long sort() {
+                        System.arraycopy(source, 0, work, 0, n);
+                        if (parallel) {
+                            Arrays.parallelSort(work);
+                        } else {
+                            Arrays.sort(work);
+                        }
+                        return Double.doubleToRawLongBits(work[n >>> 1]);
+                    }
+                };
+            }
+            case "Object": {
+                Long[] source = new Long[n];
+                for (int i = 0; i < n; i++) {
+                    source[i] = keys[i];
+                }
+                return (index, threads) -> new SortTask() {
+                    final Long[] work = new Long[n];
+
+                    @Override
+                    long sort() {
+                        System.arraycopy(source, 0, work, 0, n);
+                        if (parallel) {
+                            Arrays.parallelSort(work);
+                        } else {
+                            Arrays.sort(work);
+                        }
+                        return work[n >>> 1];
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    /**
+     * 每次操作排序一个数组，把中间位置的元素交给 {@link #consume(long)}
+     */
+    private abstract static class SortTask extends Task {
+
+        abstract long sort();
+
+        @Override
+        public int op() {
+            consume(sort());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * <h3>流水线融合基准测试</h3>
+ * 测量 {@code filter().map().mapToInt().sum()} 这类无状态流水线的吞吐量，数据源为数组和 {@link ArrayList}。
+ * 每个中间操作包装一层 {@code Sink}，每个元素要经过多次 {@code accept} 虚调用；
+ * 开启流水线融合后，相邻的 filter/map/mapToXxx 由按流水线形状生成的单个 {@code Sink} 执行。
+ * <p>
+ * 融合由 {@code java.util.stream.FusedOps} 实现，生成的类通过 {@code Unsafe.defineAnonymousClass} 定义，
+ * 这个方法只有 JDK 8 有，所以要在 JDK 8 上用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.stream}，
+ * 分别以 {@code -Dorg.openjdk.java.util.stream.fuseStages=true} 和不设置（默认关闭）各运行一次进行对比。
+ * <p>
+ * 实际应用中同一个 {@code Sink} 类会被许多不同的 lambda 使用，其中的调用点是多态的，
+ * 因此测量前先用多种 lambda 运行同样结构的流水线，污染类型 profile，模拟这种情况。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.sources} 默认 {@code array,list}</li>
+ *     <li>{@code bench.sizes} 元素个数，默认 {@code 1000,100000}</li>
+ *     <li>{@code bench.pollute} 是否先污染类型 profile，默认 {@code true}</li>
+ * </ul>
+ * 一次操作为对一个元素执行整条流水线，即吞吐量是每秒处理的元素数。
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 15:40
+ */
+public class StreamPipelineBenchmark {
+
+    public static void main(String[] args) {
+        String[] sources = BenchmarkRunner.stringList("bench.sources", "array,list");
+        int[] sizes = BenchmarkRunner.intList("bench.sizes", "1000,100000");
+        if (Boolean.parseBoolean(System.getProperty("bench.pollute", "true"))) {
+            pollute();
+        }
+        BenchmarkRunner.printHeader();
+        for (String source : sources) {
+            for (int size : sizes) {
+                for (int threads : BenchmarkRunner.threadCounts()) {
+                    BenchmarkRunner.run(source + " size=" + size, threads, workload(source, size));
+                }
+            }
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(String source, int size) {
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = i;
+        }
+        Supplier<Stream<Integer>> streams;
+        switch (source) {
+            case "array":
+                streams = () -> Arrays.stream(array);
+                break;
+            case "list": {
+                List<Integer> list = new ArrayList<>(Arrays.asList(array));
+                streams = list::stream;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown source: " + source);
+        }
+        return (index, threads) -> new Task() {
+            @Override
+            public int op() {
+                consume(streams.get()
+                        .filter(i -> (i & 1) == 0)
+                        .map(i -> i * 3)
+                        .mapToInt(i -> i + 1)
+                        .sum());
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 用不同的 lambda 运行同样结构的流水线，让各个 Sink 类中的调用点变成多态
+     */
+    private static void pollute() {
+        Integer[] array = new Integer[1000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        long sum = 0;
+        for (int n = 0; n < 20_000; n++) {
+            sum += Arrays.stream(array).filter(i -> i > 10).map(i -> i - 1).mapToInt(i -> i).sum();
+            sum += Arrays.stream(array).filter(i -> i % 3 != 0).map(i -> i ^ 7).mapToInt(i -> i * 2).sum();
+            sum += Arrays.stream(array).filter(i -> i < 900).map(i -> i + 5).mapToInt(Integer::intValue).sum();
+            sum += Arrays.stream(array).map(i -> i << 1).filter(i -> i != 4).mapToLong(i -> i).sum();
+        }
+        System.out.println("# polluted " + sum);
+    }
+}
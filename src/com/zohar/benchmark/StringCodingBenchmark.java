@@ -0,0 +1,143 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+/**
+ * <h3>字符串编解码基准测试</h3>
+ * 测量 {@code new String(byte[], cs)} 和 {@code String.getBytes(cs)} 在
+ * ISO-8859-1、US-ASCII 和 UTF-8 下的吞吐量，用于比较 {@code StringCoding} 中
+ * 跳过编解码器的 Latin-1 快速路径与原来的实现：
+ * 先用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.lang.StringCoding} 运行一次，
+ * 再不加该参数在原版 JDK 8 上运行一次作为基准。
+ * <p>
+ * 文本：
+ * <ul>
+ *     <li>{@code ascii} 纯 ASCII，三种字符集都走快速路径</li>
+ *     <li>{@code latin1} 末尾是 {@code é}，只有 ISO-8859-1 走快速路径，
+ *     其余两种要扫描到最后才退回编解码器，用来衡量快速路径失败的代价</li>
+ *     <li>{@code utf16} 末尾是非 Latin-1 字符，三种字符集都退回编解码器</li>
+ * </ul>
+ * 字符集有两种传法：{@code charset} 传 {@link Charset} 对象，原来的实现每次调用都新建编解码器；
+ * {@code name} 传字符集名，原来的实现使用线程缓存的编解码器。
+ * 解码的输入是文本按同一字符集编码得到的字节，US-ASCII 下无法映射的字符已被替换为 {@code ?}。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code decode,encode}</li>
+ *     <li>{@code bench.charsets} 默认 {@code ISO-8859-1,US-ASCII,UTF-8}</li>
+ *     <li>{@code bench.forms} 默认 {@code charset,name}</li>
+ *     <li>{@code bench.texts} 默认 {@code ascii,latin1,utf16}</li>
+ *     <li>{@code bench.lengths} 字符串长度，默认 {@code 16,256}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 16:30
+ */
+public class StringCodingBenchmark {
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "decode,encode");
+        String[] charsets = BenchmarkRunner.stringList("bench.charsets", "ISO-8859-1,US-ASCII,UTF-8");
+        String[] forms = BenchmarkRunner.stringList("bench.forms", "charset,name");
+        String[] texts = BenchmarkRunner.stringList("bench.texts", "ascii,latin1,utf16");
+        int[] lengths = BenchmarkRunner.intList("bench.lengths", "16,256");
+        BenchmarkRunner.printHeader();
+        for (String op : ops) {
+            for (String charset : charsets) {
+                for (String form : forms) {
+                    for (String text : texts) {
+                        for (int length : lengths) {
+                            for (int threads : BenchmarkRunner.threadCounts()) {
+                                String name = op + " " + charset + " " + form + " " + text + " length=" + length;
+                                BenchmarkRunner.run(name, threads,
+                                        workload(op, Charset.forName(charset), form, text(text, length)));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成指定长度的文本，{@code latin1} 和 {@code utf16} 只替换最后一个字符，
+     * 快速路径要扫描到最后才能发现
+     */
+    private static String text(String kind, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        String source = "the quick brown fox jumps over the lazy dog ";
+        while (sb.length() < length) {
+            sb.append(source);
+        }
+        sb.setLength(length);
+        switch (kind) {
+            case "ascii":
+                break;
+            case "latin1":
+                sb.setCharAt(length - 1, 'é');
+                break;
+            case "utf16":
+                sb.setCharAt(length - 1, '中');
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown text: " + kind);
+        }
+        return sb.toString();
+    }
+
+    private static BenchmarkRunner.Workload workload(String op, Charset charset, String form, String text) {
+        boolean byName;
+        switch (form) {
+            case "charset":
+                byName = false;
+                break;
+            case "name":
+                byName = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown form: " + form);
+        }
+        String charsetName = charset.name();
+        byte[] bytes = text.getBytes(charset);
+        switch (op) {
+            case "decode":
+                return (index, threads) -> new Task() {
+                    @Override
+                    public int op() {
+                        consume(byName ? decode(bytes, charsetName) : new String(bytes, charset));
+                        return 1;
+                    }
+                };
+            case "encode":
+                return (index, threads) -> new Task() {
+                    @Override
+                    public int op() {
+                        consume(byName ? encode(text, charsetName) : text.getBytes(charset));
+                        return 1;
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    private static String decode(byte[] bytes, String charsetName) {
+        try {
+            return new String(bytes, charsetName);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static byte[] encode(String text, String charsetName) {
+        try {
+            return text.getBytes(charsetName);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
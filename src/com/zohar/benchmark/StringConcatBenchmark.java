@@ -0,0 +1,117 @@
+package com.zohar.benchmark;
+
+import com.zohar.benchmark.BenchmarkRunner.Task;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.StringConcatFactory;
+
+/**
+ * <h3>字符串拼接基准测试</h3>
+ * 以一行日志的格式化为例，比较两种拼接方式的吞吐量和每次操作分配的字节数：
+ * <ul>
+ *     <li>{@code builder} JDK 8 的 javac 对 {@code a + b + c} 生成的代码，
+ *     即默认容量的 {@link StringBuilder} 依次 append 后 toString，容量不够时成倍扩容，toString 时再复制一次</li>
+ *     <li>{@code indy} 由 {@link StringConcatFactory#makeConcatWithConstants} 链接的调用点，
+ *     与编译器生成 invokedynamic 时的行为相同</li>
+ * </ul>
+ * {@code indy} 使用的拼接策略由 {@code -Djava.lang.invoke.stringConcat=MH_INLINE_SIZED_EXACT}
+ * （默认）、{@code MH_SB_SIZED_EXACT} 或 {@code MH_SB_SIZED} 指定，该属性只在第一次链接时读取，
+ * 每种策略需要单独运行一次。JDK 8 上需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.lang.invoke}。
+ * <p>
+ * 参数（系统属性）：
+ * <ul>
+ *     <li>{@code bench.ops} 默认 {@code builder,indy}</li>
+ * </ul>
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 17:20
+ */
+public class StringConcatBenchmark {
+
+    /**
+     * 对应 {@code time + " " + level + " [" + thread + "] request id=" + id + " handled in " + millis + " ms: " + message}
+     */
+    private static final MethodHandle CONCAT;
+
+    static {
+        MethodType type = MethodType.methodType(String.class,
+                String.class, String.class, String.class, long.class, int.class, Object.class);
+        try {
+            CONCAT = StringConcatFactory.makeConcatWithConstants(MethodHandles.lookup(), "concat", type,
+                    "\u0001 \u0001 [\u0001] request id=\u0001 handled in \u0001 ms: \u0001").dynamicInvoker();
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final String[] LEVELS = {"DEBUG", "INFO", "WARN"};
+
+    public static void main(String[] args) {
+        String[] ops = BenchmarkRunner.stringList("bench.ops", "builder,indy");
+        System.out.println("java.lang.invoke.stringConcat="
+                + System.getProperty("java.lang.invoke.stringConcat", "(default)"));
+        BenchmarkRunner.printHeader();
+        for (String op : ops) {
+            for (int threads : BenchmarkRunner.threadCounts()) {
+                BenchmarkRunner.run(op, threads, workload(op));
+            }
+        }
+    }
+
+    private static BenchmarkRunner.Workload workload(String op) {
+        switch (op) {
+            case "builder":
+                return (index, threads) -> new LogTask(index) {
+                    @Override
+                    String format(String time, String level, String thread, long id, int millis, Object message) {
+                        return new StringBuilder().append(time).append(" ").append(level).append(" [")
+                                .append(thread).append("] request id=").append(id).append(" handled in ")
+                                .append(millis).append(" ms: ").append(message).toString();
+                    }
+                };
+            case "indy":
+                return (index, threads) -> new LogTask(index) {
+                    @Override
+                    String format(String time, String level, String thread, long id, int millis, Object message) {
+                        try {
+                            return (String) CONCAT.invokeExact(time, level, thread, id, millis, message);
+                        } catch (Throwable t) {
+                            throw new IllegalStateException(t);
+                        }
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown op: " + op);
+        }
+    }
+
+    /**
+     * 每次格式化一行日志，参数随操作次数变化，避免被常量折叠
+     */
+    private abstract static class LogTask extends Task {
+
+        private final String thread;
+
+        private final Object message = new StringBuilder("GET /api/orders/list?page=3&size=20");
+
+        private long id;
+
+        LogTask(int index) {
+            this.thread = "bench-worker-" + index;
+        }
+
+        abstract String format(String time, String level, String thread, long id, int millis, Object message);
+
+        @Override
+        public int op() {
+            long n = id++;
+            String line = format("2026-10-17 17:20:00.123", LEVELS[(int) (n % LEVELS.length)], thread,
+                    n, (int) (n & 1023), message);
+            consume(line.length());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.zohar.java.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.ObjectStreamSession;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 ObjectStreamSession 跨多个流共享类描述符</h3>
+ * 同一会话的多个输出流依次写入的消息，由对端会话的输入流按顺序读回后与原对象相等；
+ * 类描述符只在会话中第一次出现时完整写出，之后的消息比普通流短；中途出现的新类照常写出。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.io}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 00:20
+ */
+class ObjectStreamSessionTest {
+
+    enum Status { NEW, PAID, SHIPPED }
+
+    static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String name;
+        final int quantity;
+        final Status status;
+
+        Item(String name, int quantity, Status status) {
+            this.name = name;
+            this.quantity = quantity;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return name.equals(other.name) && quantity == other.quantity && status == other.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, quantity, status);
+        }
+    }
+
+    static class Order implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final long id;
+        final List<Item> items;
+        final double[] prices;
+
+        Order(long id, List<Item> items, double[] prices) {
+            this.id = id;
+            this.items = items;
+            this.prices = prices;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Order)) {
+                return false;
+            }
+            Order other = (Order) o;
+            return id == other.id && items.equals(other.items) && Arrays.equals(prices, other.prices);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, items);
+        }
+    }
+
+    /**
+     * 在第三条消息才出现的类
+     */
+    static class Note implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final String text;
+
+        Note(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Note && text.equals(((Note) o).text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode();
+        }
+    }
+
+    private static Order order(long id) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            items.add(new Item("item-" + id + "-" + i, i, Status.values()[i % 3]));
+        }
+        return new Order(id, items, new double[]{id, id * 1.5});
+    }
+
+    private static byte[] write(ObjectStreamSession session, Object message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = session == null
+                ? new ObjectOutputStream(bytes) : session.newObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object read(ObjectStreamSession session, byte[] message) throws Exception {
+        try (ObjectInputStream in = session.newObjectInputStream(new ByteArrayInputStream(message))) {
+            return in.readObject();
+        }
+    }
+
+    @Test
+    public void roundTripAcrossStreams() throws Exception {
+        ObjectStreamSession writer = new ObjectStreamSession();
+        ObjectStreamSession reader = new ObjectStreamSession();
+        List<Object> sent = new ArrayList<>();
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Object message = (i == 2) ? Arrays.asList(order(i), new Note("new class in the middle")) : order(i);
+            sent.add(message);
+            messages.add(write(writer, message));
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(sent.get(i), read(reader, messages.get(i)), "message " + i);
+        }
+        // 描述符已在第一条消息写出，后面的消息比第一条和普通流都短
+        int plain = write(null, order(3)).length;
+        assertTrue(messages.get(3).length < messages.get(0).length);
+        assertTrue(messages.get(3).length < plain, messages.get(3).length + " >= " + plain);
+    }
+
+    /**
+     * 没有读过前面消息的会话无法解析引用已共享描述符的消息
+     */
+    @Test
+    public void laterMessageNeedsEarlierOnes() throws Exception {
+        ObjectStreamSession writer = new ObjectStreamSession();
+        write(writer, order(0));
+        byte[] second = write(writer, order(1));
+        assertThrows(StreamCorruptedException.class, () -> read(new ObjectStreamSession(), second));
+    }
+
+    @Test
+    public void protocolVersion1Rejected() throws Exception {
+        ObjectStreamSession session = new ObjectStreamSession();
+        try (ObjectOutputStream out = session.newObjectOutputStream(new ByteArrayOutputStream())) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> out.useProtocolVersion(ObjectStreamConstants.PROTOCOL_VERSION_1));
+            out.useProtocolVersion(ObjectStreamConstants.PROTOCOL_VERSION_2);
+        }
+    }
+}
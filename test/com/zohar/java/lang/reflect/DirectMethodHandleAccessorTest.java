@@ -0,0 +1,251 @@
+package com.zohar.java.lang.reflect;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试由直接方法句柄实现的 Method.invoke、Constructor.newInstance 和 unreflect</h3>
+ * 参数的拆箱和基本类型拓宽与原来的实现一致，无法转换的参数抛出 IllegalArgumentException，
+ * 被调用方法自己抛出的异常包装为 InvocationTargetException；静态初始化的错误原样抛出；
+ * 调用者敏感的方法退回 ReflectionFactory 的实现；跨包子类通过 unreflect 得到的 protected 实例成员
+ * 只接受调用者类的实例。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.lang.reflect}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 10:30
+ */
+class DirectMethodHandleAccessorTest {
+
+    static class Target {
+        final String name;
+
+        Target(String name) {
+            this.name = name;
+        }
+
+        Target(long x, double y) {
+            this.name = x + "," + y;
+        }
+
+        Target(Object unused) {
+            throw new IllegalArgumentException("thrown by constructor");
+        }
+
+        static long widen(long x) {
+            return x;
+        }
+
+        static double toDouble(double x) {
+            return x;
+        }
+
+        static int charToInt(int x) {
+            return x;
+        }
+
+        static boolean not(boolean b) {
+            return !b;
+        }
+
+        static void fail(String message) {
+            throw new IllegalArgumentException(message);
+        }
+
+        String name() {
+            return name;
+        }
+
+        protected String protectedName() {
+            return name;
+        }
+    }
+
+    static class BadStaticMethod {
+        static {
+            if (true) {
+                throw new IllegalStateException("static init of BadStaticMethod");
+            }
+        }
+
+        static void touch() {
+        }
+    }
+
+    static class BadConstructor {
+        static {
+            if (true) {
+                throw new IllegalStateException("static init of BadConstructor");
+            }
+        }
+
+        BadConstructor() {
+        }
+    }
+
+    abstract static class Abstract {
+        Abstract() {
+        }
+    }
+
+    /**
+     * 跨包继承 AbstractList，可以访问 Object.clone 和 AbstractList.modCount 两个 protected 实例成员
+     */
+    static class Sub extends AbstractList<Object> {
+
+        static MethodHandle[] unreflect() throws Exception {
+            Method clone = Object.class.getDeclaredMethod("clone");
+            Field modCount = AbstractList.class.getDeclaredField("modCount");
+            return new MethodHandle[]{clone.unreflect(), modCount.unreflectGetter(), modCount.unreflectSetter()};
+        }
+
+        static MethodHandle[] lookup() throws Exception {
+            Method clone = Object.class.getDeclaredMethod("clone");
+            Field modCount = AbstractList.class.getDeclaredField("modCount");
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            return new MethodHandle[]{lookup.unreflect(clone), lookup.unreflectGetter(modCount),
+                    lookup.unreflectSetter(modCount)};
+        }
+
+        @Override
+        public Object get(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    private static Object invoke(String name, Class<?> type, Object arg) throws Exception {
+        return Target.class.getDeclaredMethod(name, type).invoke(null, arg);
+    }
+
+    /**
+     * 包装类型拆箱后按基本类型拓宽的规则转换，char 可以拓宽为 int 以上的数值类型
+     */
+    @Test
+    public void unboxesAndWidensArguments() throws Exception {
+        assertEquals(7L, invoke("widen", long.class, (byte) 7));
+        assertEquals(7L, invoke("widen", long.class, (short) 7));
+        assertEquals(7L, invoke("widen", long.class, 7));
+        assertEquals(7L, invoke("widen", long.class, 'a' - 90));
+        assertEquals(97L, invoke("widen", long.class, 'a'));
+        assertEquals(1.5, invoke("toDouble", double.class, 1.5f));
+        assertEquals(3.0, invoke("toDouble", double.class, 3L));
+        assertEquals(97, invoke("charToInt", int.class, 'a'));
+        assertEquals(false, invoke("not", boolean.class, true));
+
+        Constructor<Target> ctor = Target.class.getDeclaredConstructor(long.class, double.class);
+        assertEquals("3,2.0", ctor.newInstance(3, 2).name);
+        assertEquals("3,0.5", ctor.newInstance((byte) 3, 0.5f).name);
+    }
+
+    /**
+     * 窄化、布尔与数值互转、null 传给基本类型、参数个数不对都是 IllegalArgumentException，不会调用方法
+     */
+    @Test
+    public void unconvertibleArgumentsAreIllegal() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> invoke("charToInt", int.class, 7L));
+        assertThrows(IllegalArgumentException.class, () -> invoke("widen", long.class, 1.0f));
+        assertThrows(IllegalArgumentException.class, () -> invoke("charToInt", int.class, true));
+        assertThrows(IllegalArgumentException.class, () -> invoke("not", boolean.class, 1));
+        assertThrows(IllegalArgumentException.class, () -> invoke("widen", long.class, null));
+        assertThrows(IllegalArgumentException.class, () -> invoke("widen", long.class, "7"));
+        Method widen = Target.class.getDeclaredMethod("widen", long.class);
+        assertThrows(IllegalArgumentException.class, () -> widen.invoke(null));
+        assertThrows(IllegalArgumentException.class, () -> widen.invoke(null, 1, 2));
+
+        Method name = Target.class.getDeclaredMethod("name");
+        assertEquals("t", name.invoke(new Target("t")));
+        assertThrows(NullPointerException.class, () -> name.invoke(null));
+        assertThrows(IllegalArgumentException.class, () -> name.invoke("not a target"));
+
+        Constructor<Target> ctor = Target.class.getDeclaredConstructor(long.class, double.class);
+        assertThrows(IllegalArgumentException.class, () -> ctor.newInstance(1.0, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> ctor.newInstance(1L));
+    }
+
+    /**
+     * 方法或构造器自己抛出的 IllegalArgumentException 不能和参数错误混淆
+     */
+    @Test
+    public void exceptionsFromTargetAreWrapped() throws Exception {
+        InvocationTargetException e = assertThrows(InvocationTargetException.class,
+                () -> invoke("fail", String.class, "thrown by method"));
+        assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+        assertEquals("thrown by method", e.getCause().getMessage());
+
+        Constructor<Target> ctor = Target.class.getDeclaredConstructor(Object.class);
+        e = assertThrows(InvocationTargetException.class, () -> ctor.newInstance("x"));
+        assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+        assertEquals("thrown by constructor", e.getCause().getMessage());
+
+        Constructor<Abstract> abstractCtor = Abstract.class.getDeclaredConstructor();
+        assertThrows(InstantiationException.class, abstractCtor::newInstance);
+    }
+
+    /**
+     * 静态初始化失败时第一次调用原样抛出 ExceptionInInitializerError，之后抛出 NoClassDefFoundError
+     */
+    @Test
+    public void staticInitializerErrorsAreNotWrapped() throws Exception {
+        Method touch = BadStaticMethod.class.getDeclaredMethod("touch");
+        ExceptionInInitializerError error = assertThrows(ExceptionInInitializerError.class,
+                () -> touch.invoke(null));
+        assertEquals(IllegalStateException.class, error.getCause().getClass());
+        assertThrows(NoClassDefFoundError.class, () -> touch.invoke(null));
+
+        Constructor<BadConstructor> ctor = BadConstructor.class.getDeclaredConstructor();
+        error = assertThrows(ExceptionInInitializerError.class, ctor::newInstance);
+        assertEquals(IllegalStateException.class, error.getCause().getClass());
+        assertThrows(NoClassDefFoundError.class, ctor::newInstance);
+    }
+
+    /**
+     * Class.forName 按调用者的类加载器加载类，反射调用时调用者必须是本测试类而不是访问器
+     */
+    @Test
+    public void callerSensitiveMethodsSeeTheirCaller() throws Exception {
+        Method forName = Class.class.getMethod("forName", String.class);
+        for (int i = 0; i < 20; i++) {
+            assertSame(DirectMethodHandleAccessorTest.class,
+                    forName.invoke(null, DirectMethodHandleAccessorTest.class.getName()));
+        }
+        assertThrows(IllegalAccessException.class, forName::unreflect);
+    }
+
+    /**
+     * 跨包子类得到的 protected 实例成员的句柄只接受调用者类的实例，和 Lookup 一致；
+     * 同一个包内或者 setAccessible 之后仍然接受声明类的实例
+     */
+    @Test
+    public void protectedReceiverIsNarrowedToCaller() throws Throwable {
+        MethodHandle[] handles = Sub.unreflect();
+        MethodHandle[] expected = Sub.lookup();
+        for (int i = 0; i < handles.length; i++) {
+            assertEquals(expected[i].type(), handles[i].type());
+            assertEquals(Sub.class, handles[i].type().parameterType(0));
+        }
+        MethodHandle getter = handles[1];
+        assertEquals(0, (int) getter.invokeWithArguments(new Sub()));
+        assertThrows(ClassCastException.class, () -> getter.invokeWithArguments(new ArrayList<>()));
+
+        Method protectedName = Target.class.getDeclaredMethod("protectedName");
+        assertEquals(Target.class, protectedName.unreflect().type().parameterType(0));
+        Method clone = Object.class.getDeclaredMethod("clone");
+        clone.setAccessible(true);
+        assertEquals(Object.class, clone.unreflect().type().parameterType(0));
+    }
+}
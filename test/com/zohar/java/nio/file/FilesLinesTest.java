@@ -0,0 +1,92 @@
+package com.zohar.java.nio.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * <h3>测试 Files.lines 和 Files.lineSequences</h3>
+ * 默认文件系统上的普通文件按行切分并映射读取，并行遍历结果与顺序读取一致；
+ * 大小为 0 的文件（包括 /proc 下内容在读取时才生成的文件）和非普通文件退回用 BufferedReader 顺序读取。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.nio.file}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 23:10
+ */
+class FilesLinesTest {
+
+    @Test
+    public void parallelLinesMatchReadAllLines() throws IOException {
+        Path file = Files.createTempFile("lines", ".txt");
+        try {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                expected.add(i % 10 == 0 ? "" : "line " + i + (i % 7 == 0 ? " é中" : ""));
+            }
+            Files.write(file, expected, StandardCharsets.UTF_8);
+            assertEquals(expected, Files.readAllLines(file));
+            try (Stream<String> lines = Files.lines(file)) {
+                assertEquals(expected, lines.parallel().collect(Collectors.toList()));
+            }
+            try (Stream<CharSequence> lines = Files.lineSequences(file)) {
+                assertEquals(expected, lines.parallel().map(CharSequence::toString).collect(Collectors.toList()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        Path file = Files.createTempFile("empty", ".txt");
+        try {
+            try (Stream<String> lines = Files.lines(file)) {
+                assertEquals(0, lines.parallel().count());
+            }
+            try (Stream<CharSequence> lines = Files.lineSequences(file, StandardCharsets.ISO_8859_1)) {
+                assertEquals(0, lines.count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * /proc 下的文件大小为 0，但读取时有内容
+     */
+    @Test
+    public void zeroSizeFileWithContent() throws IOException {
+        Path status = Paths.get("/proc/self/status");
+        assumeTrue(Files.isReadable(status) && Files.size(status) == 0);
+        try (Stream<String> lines = Files.lines(status)) {
+            assertTrue(lines.parallel().anyMatch(line -> line.startsWith("Name:")));
+        }
+        try (Stream<CharSequence> lines = Files.lineSequences(status)) {
+            assertTrue(lines.anyMatch(line -> line.toString().startsWith("Pid:")));
+        }
+    }
+
+    /**
+     * /dev/null 不是普通文件
+     */
+    @Test
+    public void nonRegularFile() throws IOException {
+        Path devNull = Paths.get("/dev/null");
+        assumeTrue(Files.isReadable(devNull) && !Files.isRegularFile(devNull));
+        try (Stream<String> lines = Files.lines(devNull, StandardCharsets.US_ASCII)) {
+            assertEquals(0, lines.count());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.zohar.java.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 HashMap 的渐进式扩容</h3>
+ * 扩容进行中时，键可能在旧表中也可能在新表中。查找、遍历等只读操作不应该搬移节点，
+ * 也就不会让进行中的迭代器失效；遍历时两张表中的每个元素都恰好访问一次。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 21:00
+ */
+class HashMapIncrementalResizeTest {
+
+    /**
+     * 初始容量 4096、负载因子 0.75 时，第 3073 个键触发扩容，之后旧表保留到后续插入把它搬完
+     */
+    private static final int RESIZE_TRIGGER = 3073;
+
+    private static HashMap<Integer, Integer> transferring(int extra) {
+        HashMap<Integer, Integer> map = new HashMap<>(4096, 0.75f, true);
+        for (int i = 0; i < RESIZE_TRIGGER + extra; i++) {
+            map.put(i, i);
+        }
+        return map;
+    }
+
+    @Test
+    public void readsDoNotInvalidateIterators() {
+        HashMap<Integer, Integer> map = transferring(0);
+        Random random = new Random(11);
+        Set<Integer> seen = new HashSet<>();
+        for (Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Integer> e = it.next();
+            assertTrue(seen.add(e.getKey()));
+            int k = random.nextInt(RESIZE_TRIGGER * 2);
+            assertEquals(k < RESIZE_TRIGGER, map.containsKey(k));
+            assertEquals(k >= RESIZE_TRIGGER ? null : seen.contains(k) ? k + 1 : k, map.get(k));
+            assertEquals(Integer.valueOf(-1), map.getOrDefault(-1, -1));
+            if ((e.getKey() & 1) == 0) {
+                e.setValue(e.getValue() + 1);
+            } else {
+                map.put(e.getKey(), e.getValue() + 1);
+            }
+        }
+        assertEquals(RESIZE_TRIGGER, seen.size());
+        for (int i = 0; i < RESIZE_TRIGGER; i++) {
+            assertEquals(Integer.valueOf(i + 1), map.get(i));
+        }
+    }
+
+    @Test
+    public void traversalsVisitEachEntryOnce() {
+        for (int extra : new int[]{0, 1, 100, 1000}) {
+            HashMap<Integer, Integer> map = transferring(extra);
+            int size = RESIZE_TRIGGER + extra;
+            assertEquals(size, map.size());
+            assertEquals(size, new HashSet<>(map.keySet()).size());
+            assertEquals(size, new ArrayList<>(map.values()).size());
+            assertEquals(size, map.entrySet().stream().map(Map.Entry::getKey).distinct().count());
+            assertEquals(size, map.keySet().parallelStream().distinct().count());
+            Set<Integer> keys = new HashSet<>();
+            map.forEach((k, v) -> assertTrue(keys.add(k)));
+            assertEquals(size, keys.size());
+            assertTrue(map.containsValue(size - 1));
+            assertFalse(map.containsValue(size));
+
+            List<Spliterator<Integer>> parts = new ArrayList<>();
+            parts.add(map.keySet().spliterator());
+            for (int i = 0; i < parts.size(); i++) {
+                Spliterator<Integer> split = parts.get(i).trySplit();
+                if (split != null) {
+                    parts.add(split);
+                    i--;
+                }
+            }
+            keys.clear();
+            for (Spliterator<Integer> part : parts) {
+                while (part.tryAdvance(k -> assertTrue(keys.add(k)))) {
+                }
+            }
+            assertEquals(size, keys.size());
+        }
+    }
+
+    @Test
+    public void removalsDuringTransfer() {
+        HashMap<Integer, Integer> map = transferring(0);
+        TreeMap<Integer, Integer> expected = new TreeMap<>(map);
+        for (Iterator<Integer> it = map.keySet().iterator(); it.hasNext(); ) {
+            int k = it.next();
+            if (k % 3 == 0) {
+                it.remove();
+                expected.remove(k);
+            }
+        }
+        for (int k = 1; k < RESIZE_TRIGGER; k += 3) {
+            assertEquals(Integer.valueOf(k), map.remove(k));
+            assertNull(map.remove(k));
+            expected.remove(k);
+        }
+        assertEquals(expected, new TreeMap<>(map));
+    }
+
+    @Test
+    public void randomOperationsMatchTreeMap() {
+        Random random = new Random(13);
+        HashMap<Integer, Integer> map = new HashMap<>(16, 0.75f, true);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int k = random.nextInt(40_000);
+            switch (random.nextInt(6)) {
+                case 0:
+                    assertEquals(expected.put(k, i), map.put(k, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(k), map.remove(k));
+                    break;
+                case 2:
+                    assertEquals(expected.get(k), map.get(k));
+                    break;
+                case 3:
+                    assertEquals(expected.merge(k, 1, Integer::sum), map.merge(k, 1, Integer::sum));
+                    break;
+                case 4:
+                    assertEquals(expected.computeIfAbsent(k, x -> x), map.computeIfAbsent(k, x -> x));
+                    break;
+                default:
+                    assertEquals(expected.putIfAbsent(k, i), map.putIfAbsent(k, i));
+                    break;
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, new TreeMap<>(map));
+    }
+}
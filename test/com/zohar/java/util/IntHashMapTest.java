@@ -0,0 +1,124 @@
+package com.zohar.java.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IntHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 IntHashMap 的删除和扩容</h3>
+ * 删除时会把同一探测序列中后面的元素前移，扩容时会把所有元素重新放到新表中，
+ * 两者都要保证之后仍能查到每一个键。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 20:10
+ */
+class IntHashMapTest {
+
+    /**
+     * 默认容量 16、负载因子 0.5 时，8 个键不触发扩容，表中一半槽位被占用，
+     * 很容易形成连续的探测序列。依次删除其中每一个键，其余的键都应该还能查到
+     */
+    @Test
+    public void removeShiftsProbeRun() {
+        Random random = new Random(7);
+        for (int round = 0; round < 1000; round++) {
+            int[] keys = new int[8];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(1 << 20) + 1;
+            }
+            for (int removed = 0; removed < keys.length; removed++) {
+                IntHashMap<String> map = new IntHashMap<>();
+                for (int k : keys) {
+                    map.put(k, "v" + k);
+                }
+                int size = map.size();
+                assertEquals("v" + keys[removed], map.remove(keys[removed]));
+                assertNull(map.remove(keys[removed]));
+                assertEquals(size - 1, map.size());
+                for (int k : keys) {
+                    if (k == keys[removed]) {
+                        assertFalse(map.containsKey(k));
+                    } else {
+                        assertEquals("v" + k, map.get(k));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void zeroKeyAndNullValue() {
+        IntHashMap<String> map = new IntHashMap<>();
+        assertNull(map.put(0, null));
+        assertTrue(map.containsKey(0));
+        assertNull(map.get(0));
+        assertEquals(1, map.size());
+        assertEquals("zero", map.getOrDefault(1, "zero"));
+        map.put(0, "zero");
+        assertEquals("zero", map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void resizeKeepsAllMappings() {
+        IntHashMap<Integer> map = new IntHashMap<>(2);
+        for (int i = -5000; i < 5000; i++) {
+            map.put(i, i * 2);
+        }
+        assertEquals(10000, map.size());
+        for (int i = -5000; i < 5000; i++) {
+            assertEquals(Integer.valueOf(i * 2), map.get(i));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals(10000, keys.length);
+        assertEquals(-5000, keys[0]);
+        assertEquals(4999, keys[keys.length - 1]);
+        for (int i = -5000; i < 5000; i += 2) {
+            assertEquals(Integer.valueOf(i * 2), map.remove(i));
+        }
+        assertEquals(5000, map.size());
+        for (int i = -5000; i < 5000; i++) {
+            assertEquals(i % 2 != 0, map.containsKey(i));
+        }
+    }
+
+    /**
+     * 随机增删，与 HashMap 的结果对比
+     */
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        IntHashMap<Integer> map = new IntHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(2048) - 1024;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, i), map.put(key, i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.keys().length);
+    }
+}
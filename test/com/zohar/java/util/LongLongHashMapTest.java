@@ -0,0 +1,168 @@
+package com.zohar.java.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LongLongHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 LongLongHashMap 的无映射返回值、merge、computeIfAbsent 和冲突下的扩容</h3>
+ * 没有映射时返回 0，和映射到 0 的键只能通过 containsKey 或 getOrDefault 区分；键 0 单独存放。
+ * 大量键落在同一个初始槽位时，删除和扩容后每个键仍然能查到。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 11:40
+ */
+class LongLongHashMapTest {
+
+    /**
+     * 返回 0 既可能是没有映射，也可能是映射到 0
+     */
+    @Test
+    public void zeroIsTheNoEntryValue() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertEquals(0L, map.get(42));
+        assertEquals(0L, map.remove(42));
+        assertEquals(-1L, map.getOrDefault(42, -1));
+        assertFalse(map.containsKey(42));
+
+        assertEquals(0L, map.put(42, 0));
+        assertEquals(0L, map.get(42));
+        assertTrue(map.containsKey(42));
+        assertEquals(0L, map.getOrDefault(42, -1));
+        assertTrue(map.containsValue(0));
+        assertEquals(0L, map.put(42, 7));
+        assertEquals(7L, map.put(42, 8));
+        assertEquals(8L, map.remove(42));
+        assertFalse(map.containsKey(42));
+        assertTrue(map.isEmpty());
+    }
+
+    /**
+     * 键 0 不占用键表中的槽位，和其他键互不影响
+     */
+    @Test
+    public void zeroKey() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertFalse(map.containsKey(0));
+        map.put(0, 100);
+        map.put(1, 1);
+        map.put(-1, -1);
+        assertEquals(3, map.size());
+        assertEquals(100L, map.get(0));
+        assertTrue(map.containsValue(100));
+        assertTrue(Arrays.stream(map.keys()).anyMatch(k -> k == 0));
+        assertEquals(100L, map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(0L, map.get(0));
+        assertEquals(1L, map.get(1));
+        assertEquals(-1L, map.get(-1));
+        assertEquals(2, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void mergeCounts() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(1000) - 500;
+            assertEquals(expected.merge(key, 1L, Long::sum).longValue(), map.merge(key, 1, Long::sum));
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v.longValue(), map.get(k)));
+        // 不存在时直接放入 value，不调用 remappingFunction
+        assertEquals(5L, map.merge(10_000, 5, (a, b) -> {
+            throw new AssertionError();
+        }));
+        // 结果为 0 时也不删除映射
+        assertEquals(0L, map.merge(10_000, -5, Long::sum));
+        assertTrue(map.containsKey(10_000));
+        assertThrows(NullPointerException.class, () -> map.merge(1, 1, null));
+    }
+
+    @Test
+    public void computeIfAbsentComputesOnce() {
+        LongLongHashMap map = new LongLongHashMap();
+        int[] calls = new int[1];
+        for (int round = 0; round < 3; round++) {
+            for (long k = -100; k <= 100; k++) {
+                assertEquals(k * k, map.computeIfAbsent(k, key -> {
+                    calls[0]++;
+                    return key * key;
+                }));
+            }
+        }
+        assertEquals(201, calls[0]);
+        assertEquals(201, map.size());
+        // 已经映射到 0 的键不会重新计算
+        assertEquals(0L, map.computeIfAbsent(0, key -> {
+            throw new AssertionError();
+        }));
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.computeIfAbsent(1000, key -> map.put(1001, 1)));
+        assertFalse(map.containsKey(1000));
+        assertThrows(NullPointerException.class, () -> map.computeIfAbsent(2000, null));
+    }
+
+    /**
+     * 选出在 16 个槽位的表中初始槽位相同的键，插入时形成很长的探测序列并多次扩容，
+     * 中途删除一部分，剩下的键都要能查到，被删除的键都查不到
+     */
+    @Test
+    public void resizeUnderCollisions() {
+        long[] colliding = new long[2000];
+        int homeSlot = hash(1) & 15;
+        int n = 0;
+        for (long k = 1; n < colliding.length; k++) {
+            if ((hash(k) & 15) == homeSlot) {
+                colliding[n++] = k;
+            }
+        }
+        LongLongHashMap map = new LongLongHashMap(16, 0.9f);
+        for (int i = 0; i < colliding.length; i++) {
+            map.put(colliding[i], i);
+            if (i % 3 == 2) {
+                assertEquals(i - 1, map.remove(colliding[i - 1]));
+            }
+        }
+        for (int i = 0; i < colliding.length; i++) {
+            boolean removed = i % 3 == 1 && i + 1 < colliding.length;
+            assertEquals(!removed, map.containsKey(colliding[i]), "key " + colliding[i]);
+            assertEquals(removed ? 0L : i, map.get(colliding[i]));
+        }
+        int size = map.size();
+        assertEquals(size, map.keys().length);
+        assertEquals(size, map.keyStream().count());
+        long[] sum = new long[1];
+        map.forEach((k, v) -> sum[0] += v);
+        assertEquals(Arrays.stream(map.values()).sum(), sum[0]);
+
+        LongLongHashMap copy = map.clone();
+        for (long k : colliding) {
+            map.remove(k);
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(size, copy.size());
+    }
+
+    /**
+     * 和 LongLongHashMap.hash 相同的扰动函数
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int x = (int) (h ^ (h >>> 32));
+        return x ^ (x >>> 16);
+    }
+}
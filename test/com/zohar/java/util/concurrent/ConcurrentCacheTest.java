@@ -0,0 +1,86 @@
+package com.zohar.java.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 ConcurrentCache 的淘汰策略</h3>
+ * 频率草图按缓存中的条目数分配和扩容，按权重限制的缓存即使最大权重很大，也不会一开始就分配巨大的数组；
+ * 按数量限制的缓存在扫描式访问下仍然保留高频条目。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 21:50
+ */
+class ConcurrentCacheTest {
+
+    /**
+     * 最大权重 2^40，按原来的实现频率草图会分配 2 GiB 的数组
+     */
+    @Test
+    public void hugeMaximumWeight() {
+        ConcurrentCache<Integer, String> cache = ConcurrentCache.<Integer, String>newBuilder()
+                .maximumWeight(1L << 40)
+                .weigher((k, v) -> v.length())
+                .executor(Runnable::run)
+                .build();
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, "value-" + i);
+        }
+        cache.cleanUp();
+        assertEquals(10_000, cache.estimatedSize());
+        assertEquals(0, cache.evictionCount());
+        assertEquals("value-1234", cache.get(1234));
+    }
+
+    @Test
+    public void weightedCacheEvictsByWeight() {
+        ConcurrentCache<Integer, String> cache = ConcurrentCache.<Integer, String>newBuilder()
+                .maximumWeight(1000)
+                .weigher((k, v) -> 10)
+                .executor(Runnable::run)
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v");
+        }
+        cache.cleanUp();
+        assertEquals(100, cache.estimatedSize());
+        assertEquals(900, cache.evictionCount());
+    }
+
+    /**
+     * 先反复访问一批热点键，再插入大量只访问一次的键，热点键应该大部分被保留
+     */
+    @Test
+    public void frequentKeysSurviveScan() {
+        ConcurrentCache<Integer, Integer> cache = ConcurrentCache.<Integer, Integer>newBuilder()
+                .maximumSize(100)
+                .executor(Runnable::run)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertEquals(Integer.valueOf(i), cache.get(i));
+            }
+            cache.cleanUp();
+        }
+        for (int i = 1000; i < 11_000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        assertEquals(100, cache.estimatedSize());
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(i) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 40, "retained " + retained);
+    }
+}
@@ -0,0 +1,160 @@
+package com.zohar.java.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.OffHeapConcurrentHashMap;
+import java.util.concurrent.OffHeapConcurrentHashMap.Serializer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 OffHeapConcurrentHashMap 的基本操作和关闭</h3>
+ * 关闭时要等正在进行的操作完成后才释放堆外内存，之后的操作都抛出 {@link IllegalStateException}。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 21:30
+ */
+class OffHeapConcurrentHashMapTest {
+
+    private static OffHeapConcurrentHashMap<String, String> newMap() {
+        return new OffHeapConcurrentHashMap<>(OffHeapConcurrentHashMap.stringSerializer(),
+                OffHeapConcurrentHashMap.stringSerializer());
+    }
+
+    @Test
+    public void operationsMatchHashMap() {
+        try (OffHeapConcurrentHashMap<String, String> map = newMap()) {
+            Map<String, String> expected = new HashMap<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 50_000; i++) {
+                String k = "k" + random.nextInt(5000);
+                String v = "v" + i;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        assertEquals(expected.put(k, v), map.put(k, v));
+                        break;
+                    case 1:
+                        assertEquals(expected.remove(k), map.remove(k));
+                        break;
+                    case 2:
+                        assertEquals(expected.putIfAbsent(k, v), map.putIfAbsent(k, v));
+                        break;
+                    default:
+                        assertEquals(expected.get(k), map.get(k));
+                        break;
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected, new HashMap<>(map));
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertEquals(0L, map.usedMemory());
+        }
+    }
+
+    /**
+     * 读取线程停在值的反序列化中，此时它正在访问堆外内存，关闭必须等它结束
+     */
+    @Test
+    public void closeWaitsForOperationInProgress() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Serializer<String> strings = OffHeapConcurrentHashMap.stringSerializer();
+        Serializer<String> blocking = new Serializer<String>() {
+            @Override
+            public int serializedSize(String s) {
+                return strings.serializedSize(s);
+            }
+
+            @Override
+            public void serialize(String s, ByteBuffer dst) {
+                strings.serialize(s, dst);
+            }
+
+            @Override
+            public String deserialize(ByteBuffer src) {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return strings.deserialize(src);
+            }
+        };
+        OffHeapConcurrentHashMap<String, String> map = new OffHeapConcurrentHashMap<>(strings, blocking);
+        map.put("key", "value");
+        AtomicReference<String> read = new AtomicReference<>();
+        Thread reader = new Thread(() -> read.set(map.get("key")));
+        reader.start();
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        Thread closer = new Thread(map::close);
+        closer.start();
+        closer.join(200);
+        assertTrue(closer.isAlive());
+        assertThrows(IllegalStateException.class, () -> map.containsKey("key"));
+        release.countDown();
+        reader.join(10_000);
+        closer.join(10_000);
+        assertFalse(closer.isAlive());
+        assertEquals("value", read.get());
+        assertEquals(0L, map.reservedMemory());
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * 多个线程不停写入、删除、遍历时关闭，之后每个线程的操作都抛出 {@link IllegalStateException}
+     */
+    @Test
+    public void closeRacesWithWriters() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            OffHeapConcurrentHashMap<String, String> map = new OffHeapConcurrentHashMap<>(16, 4, 4096,
+                    OffHeapConcurrentHashMap.stringSerializer(), OffHeapConcurrentHashMap.stringSerializer());
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] workers = new Thread[4];
+            for (int t = 0; t < workers.length; t++) {
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        for (int i = 0; ; i++) {
+                            String k = "key-" + random.nextInt(2000);
+                            if ((i & 3) == 3) {
+                                map.remove(k);
+                            } else if ((i & 1023) == 0) {
+                                map.entrySet().forEach(Map.Entry::getValue);
+                            } else {
+                                map.put(k, "value-with-some-length-" + i);
+                            }
+                        }
+                    } catch (IllegalStateException expected) {
+                        // map closed
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                workers[t].start();
+            }
+            Thread.sleep(20);
+            map.close();
+            for (Thread worker : workers) {
+                worker.join(10_000);
+                assertFalse(worker.isAlive());
+            }
+            assertNull(failure.get());
+            assertEquals(0L, map.reservedMemory());
+            assertThrows(IllegalStateException.class, () -> map.put("k", "v"));
+            assertThrows(IllegalStateException.class, () -> map.get("k"));
+            assertThrows(IllegalStateException.class, map::clear);
+            map.close();
+        }
+    }
+}
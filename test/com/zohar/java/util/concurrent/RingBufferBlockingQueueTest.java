@@ -0,0 +1,159 @@
+package com.zohar.java.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RingBufferBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 RingBufferBlockingQueue 的阻塞唤醒和中间元素删除</h3>
+ * 生产者和消费者都阻塞等待时不能丢失唤醒；{@code remove(Object)} 删除中间元素后其余元素保持原来的顺序。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 22:10
+ */
+class RingBufferBlockingQueueTest {
+
+    private static final int ROUNDS = 200_000;
+
+    /**
+     * 容量为 2 的队列，生产者用 put、消费者用 take 交替阻塞，丢失一次唤醒就会永久阻塞
+     */
+    @Test
+    public void putAndTakeDoNotLoseWakeups() throws Exception {
+        RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<>(2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < ROUNDS; i++) {
+                    queue.put(i);
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        long[] sum = new long[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < ROUNDS; i++) {
+                    int e = queue.take();
+                    assertEquals(i, e);
+                    sum[0] += e;
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        producer.start();
+        consumer.start();
+        producer.join(60_000);
+        consumer.join(60_000);
+        assertFalse(producer.isAlive());
+        assertFalse(consumer.isAlive());
+        assertNull(failure.get());
+        assertEquals((long) ROUNDS * (ROUNDS - 1) / 2, sum[0]);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void removeInteriorElements() {
+        RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<>(8);
+        // 让位置绕过数组末尾
+        for (int i = 0; i < 6; i++) {
+            queue.offer(-1);
+            queue.poll();
+        }
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+        assertFalse(queue.remove(8));
+        assertFalse(queue.remove(null));
+        assertTrue(queue.remove(5));
+        assertTrue(queue.remove(0));
+        assertTrue(queue.remove(7));
+        assertFalse(queue.remove(5));
+        assertEquals(5, queue.size());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 6), Arrays.asList(queue.toArray()));
+        assertTrue(queue.offer(8));
+        assertTrue(queue.offer(9));
+        assertTrue(queue.offer(10));
+        assertFalse(queue.offer(11));
+        List<Integer> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 6, 8, 9, 10), drained);
+    }
+
+    /**
+     * 多个生产者、消费者和删除线程并发，每个元素恰好被取出或删除一次
+     */
+    @Test
+    public void removeRacesWithProducersAndConsumers() throws Exception {
+        RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<>(64);
+        int producers = 2;
+        int perProducer = 50_000;
+        int total = producers * perProducer;
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(base + i);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    Integer e;
+                    while ((e = queue.take()) >= 0) {
+                        assertTrue(taken.add(e), "duplicate " + e);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                for (int i = 0; i < total; i += 7) {
+                    if (queue.remove(i)) {
+                        assertTrue(taken.add(i), "duplicate " + i);
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }));
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (int p = 0; p < producers; p++) {
+            threads.get(p).join(60_000);
+        }
+        threads.get(threads.size() - 1).join(60_000);
+        queue.put(-1);
+        queue.put(-1);
+        for (Thread t : threads) {
+            t.join(60_000);
+            assertFalse(t.isAlive());
+        }
+        assertNull(failure.get());
+        assertEquals(total, taken.size());
+    }
+}
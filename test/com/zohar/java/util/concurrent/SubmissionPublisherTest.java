@@ -0,0 +1,212 @@
+package com.zohar.java.util.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 SubmissionPublisher 的阻塞提交和缓冲区扩容</h3>
+ * 生产者在某个订阅者的缓冲区满时阻塞，阻塞期间不能占着锁，其他线程仍然可以发布、订阅和关闭；
+ * 缓冲区扩容和消费者并发时，每个元素恰好交付一次且保持顺序。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 23:40
+ */
+class SubmissionPublisherTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 一个订阅者不请求元素，提交线程阻塞在它的缓冲区上；
+     * 此时其他线程的 offer、subscribe 和 getNumberOfSubscribers 都必须立即返回
+     */
+    @Test
+    public void blockedSubmitDoesNotBlockOtherCalls() throws Exception {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, 2);
+        TestSubscriber stalled = new TestSubscriber(0);
+        publisher.subscribe(stalled);
+        assertTrue(stalled.subscribed.await(10, TimeUnit.SECONDS));
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                publisher.submit(i);
+            }
+            submitted.countDown();
+        });
+        producer.start();
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+
+        AtomicInteger dropped = new AtomicInteger(1);
+        Thread other = new Thread(() -> {
+            dropped.set(publisher.offer(42, null));
+            publisher.subscribe(new TestSubscriber(Long.MAX_VALUE));
+            publisher.getNumberOfSubscribers();
+        });
+        other.start();
+        other.join(10_000);
+        assertFalse(other.isAlive());
+        assertTrue(dropped.get() < 0);
+        assertEquals(2, publisher.getNumberOfSubscribers());
+
+        stalled.subscription.request(Long.MAX_VALUE);
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        producer.join(10_000);
+        publisher.close();
+        assertTrue(stalled.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(3, stalled.items.size());
+    }
+
+    /**
+     * 超时的 offer 在缓冲区一直满时返回负数，并且不会阻塞关闭
+     */
+    @Test
+    public void timedOfferGivesUp() throws Exception {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, 1);
+        TestSubscriber stalled = new TestSubscriber(0);
+        publisher.subscribe(stalled);
+        assertTrue(stalled.subscribed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, publisher.offer(0, null));
+        AtomicInteger result = new AtomicInteger();
+        Thread producer = new Thread(() -> result.set(publisher.offer(1, 200, TimeUnit.MILLISECONDS, null)));
+        producer.start();
+        Thread.sleep(50);
+        Thread closer = new Thread(publisher::close);
+        closer.start();
+        closer.join(10_000);
+        assertFalse(closer.isAlive());
+        producer.join(10_000);
+        assertFalse(producer.isAlive());
+        assertTrue(result.get() < 0);
+    }
+
+    /**
+     * 多个生产者并发提交，订阅者逐个请求，缓冲区反复填满并从初始容量扩容，
+     * 每个元素恰好交付一次，同一生产者的元素保持提交顺序
+     */
+    @Test
+    public void concurrentSubmitsDeliverEachItemOnce() throws Exception {
+        int producers = 3;
+        int perProducer = 20_000;
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, 256);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger received = new AtomicInteger();
+        publisher.subscribe(new Flow.Subscriber<Integer>() {
+            Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                int p = item / perProducer;
+                int i = item % perProducer;
+                if (i != last[p] + 1) {
+                    failure.compareAndSet(null, new AssertionError("item " + item + " after " + last[p]));
+                }
+                last[p] = i;
+                received.incrementAndGet();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure.compareAndSet(null, throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    publisher.submit(base + i);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(60_000);
+            assertFalse(t.isAlive());
+        }
+        publisher.close();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertEquals(producers * perProducer, received.get());
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<Integer> {
+
+        final long initialRequest;
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final List<Integer> items = new ArrayList<>();
+        volatile Flow.Subscription subscription;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
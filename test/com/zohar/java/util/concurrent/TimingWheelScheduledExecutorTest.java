@@ -0,0 +1,106 @@
+package com.zohar.java.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimingWheelScheduledExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 TimingWheelScheduledExecutor 的延迟精度、取消和关闭</h3>
+ * 任务不能早于延迟执行，跨越多层时间轮的任务在逐层下移后仍然按时执行；
+ * 取消的任务在一轮内被移除；关闭后周期任务被取消，延迟任务照常执行。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 23:50
+ */
+class TimingWheelScheduledExecutorTest {
+
+    /**
+     * 每层时间轮只有 4 个桶，几百毫秒的延迟要经过多层下移
+     */
+    @Test
+    public void tasksRunNoEarlierThanDelayAcrossWheels() throws Exception {
+        TimingWheelScheduledExecutor executor = new TimingWheelScheduledExecutor(
+                1, TimeUnit.MILLISECONDS, 4, Executors.defaultThreadFactory(), null);
+        int tasks = 500;
+        CountDownLatch done = new CountDownLatch(tasks);
+        AtomicReference<String> failure = new AtomicReference<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < tasks; i++) {
+            long delayMillis = random.nextInt(300);
+            long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            executor.schedule(() -> {
+                long early = due - System.nanoTime();
+                if (early > 0) {
+                    failure.compareAndSet(null, "ran " + early + "ns early");
+                }
+                done.countDown();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledTasksAreRemoved() throws Exception {
+        TimingWheelScheduledExecutor executor = new TimingWheelScheduledExecutor();
+        AtomicInteger ran = new AtomicInteger();
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            futures.add(executor.schedule(ran::incrementAndGet, 1 + i % 3600, TimeUnit.SECONDS));
+        }
+        for (ScheduledFuture<?> f : futures) {
+            assertTrue(f.cancel(false));
+            assertTrue(f.isCancelled());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getTaskCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getTaskCount());
+        assertEquals(0, ran.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 关闭后周期任务被取消，尚未到期的延迟任务到期后仍然执行，全部完成后才终止
+     */
+    @Test
+    public void shutdownCancelsPeriodicAndRunsDelayed() throws Exception {
+        TimingWheelScheduledExecutor executor = new TimingWheelScheduledExecutor();
+        CountDownLatch ticks = new CountDownLatch(5);
+        ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(ticks::countDown, 0, 5, TimeUnit.MILLISECONDS);
+        assertTrue(ticks.await(10, TimeUnit.SECONDS));
+        ScheduledFuture<String> delayed = executor.schedule(() -> "done", 100, TimeUnit.MILLISECONDS);
+        executor.shutdown();
+        assertTrue(periodic.isCancelled());
+        assertFalse(executor.isTerminated());
+        assertEquals("done", delayed.get(10, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownNowReturnsPendingTasks() throws Exception {
+        TimingWheelScheduledExecutor executor = new TimingWheelScheduledExecutor();
+        for (int i = 0; i < 10; i++) {
+            executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        }
+        assertEquals(10, executor.shutdownNow().size());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,181 @@
+package com.zohar.java.util.concurrent.atomic;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.ConcurrentHistogram;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 ConcurrentHistogram 的精度、并发记录和区间快照</h3>
+ * 百分位数的相对误差不超过 2^-p，最大值精确；多线程并发记录不丢失计数；
+ * {@code snapshotThenReset} 和记录线程并发时每个值恰好计入一个快照。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent.atomic}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 00:00
+ */
+class ConcurrentHistogramTest {
+
+    @Test
+    public void percentilesWithinPrecision() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(100_000, snapshot.valueAtPercentile(100.0));
+        double[] percentiles = {1.0, 50.0, 90.0, 99.0, 99.9};
+        for (double p : percentiles) {
+            long expected = (long) (p * 1000);
+            long actual = snapshot.valueAtPercentile(p);
+            assertTrue(actual >= expected && actual <= expected * (1 + 1.0 / 128), p + ": " + actual);
+        }
+        assertEquals(50_000.5, snapshot.getMean(), 50_000.5 / 128);
+        // 小于 2^7 的值各占一个桶
+        histogram.reset();
+        histogram.record(0);
+        histogram.record(127);
+        histogram.record(127);
+        snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCountAtValue(0));
+        assertEquals(2, snapshot.getCountAtValue(127));
+        assertEquals(0, snapshot.getCountAtValue(126));
+        assertEquals(0, snapshot.getMin());
+    }
+
+    /**
+     * 超过 highestTrackableValue 的值计入最后一个桶，最大值仍然精确
+     */
+    @Test
+    public void valuesAboveHighestTrackableValue() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(1000, 7);
+        histogram.record(10);
+        histogram.record(1_000_000_000L);
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1_000_000_000L, snapshot.getMax());
+        assertEquals(1_000_000_000L, snapshot.valueAtPercentile(100.0));
+        assertEquals(1, snapshot.getCountAtValue(1000));
+        assertEquals(10, snapshot.valueAtPercentile(50.0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentHistogram(0, 7));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentHistogram(1000, 17));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.valueAtPercentile(100.5));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        int threads = 4;
+        int perThread = 200_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long value = 1000L * (t + 1);
+            recorders.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(value);
+                }
+            }));
+        }
+        for (Thread t : recorders) {
+            t.start();
+        }
+        for (Thread t : recorders) {
+            t.join(60_000);
+            assertFalse(t.isAlive());
+        }
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals(1000L * threads, snapshot.getMax());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread, snapshot.getCountAtValue(1000L * (t + 1)));
+        }
+    }
+
+    /**
+     * 记录线程不停记录，同时反复取区间快照，所有快照的计数之和等于记录的总数
+     */
+    @Test
+    public void snapshotThenResetLosesNothing() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        int perThread = 200_000;
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            recorders.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i & 1023);
+                }
+            }));
+        }
+        for (Thread t : recorders) {
+            t.start();
+        }
+        long total = 0;
+        while (recorders.get(0).isAlive() || recorders.get(1).isAlive()) {
+            total += histogram.snapshotThenReset().getCount();
+        }
+        for (Thread t : recorders) {
+            t.join(60_000);
+        }
+        total += histogram.snapshotThenReset().getCount();
+        assertEquals(2L * perThread, total);
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void serializationKeepsCounts() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(1L << 20, 5);
+        for (long v = 0; v < 10_000; v += 3) {
+            histogram.record(v);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(histogram);
+        }
+        ConcurrentHistogram copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ConcurrentHistogram) in.readObject();
+        }
+        assertEquals(histogram.getHighestTrackableValue(), copy.getHighestTrackableValue());
+        assertEquals(histogram.getPrecision(), copy.getPrecision());
+        assertEquals(histogram.snapshot().toString(), copy.snapshot().toString());
+        copy.record(1);
+        assertEquals(histogram.getCount() + 1, copy.getCount());
+    }
+
+    /**
+     * 直接注册为 MXBean，通过 MBeanServer 读取属性和调用操作
+     */
+    @Test
+    public void registersAsMXBean() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram();
+        for (long v = 1; v <= 100; v++) {
+            histogram.record(v);
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.zohar.test:type=Latency,name=" + System.nanoTime());
+        server.registerMBean(histogram, name);
+        try {
+            assertEquals(100L, server.getAttribute(name, "Count"));
+            assertEquals(100L, server.getAttribute(name, "Max"));
+            assertEquals(50L, server.getAttribute(name, "50thPercentile"));
+            assertEquals(90L, server.invoke(name, "valueAtPercentile",
+                    new Object[]{90.0}, new String[]{double.class.getName()}));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.zohar.java.util.concurrent.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ScalableReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 ScalableReadWriteLock 的读写互斥和写线程唤醒</h3>
+ * 写线程取得写锁后要等所有读线程释放，最后一个读线程释放时必须唤醒它。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.concurrent.locks}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 22:30
+ */
+class ScalableReadWriteLockTest {
+
+    /**
+     * 读线程持有读锁时写线程等待，读锁释放后写线程立即取得写锁，期间新的读线程被挡住
+     */
+    @Test
+    public void writerWaitsForReaders() throws Exception {
+        ScalableReadWriteLock lock = new ScalableReadWriteLock();
+        lock.readLock().lock();
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            lock.writeLock().lock();
+            locked.countDown();
+            lock.writeLock().unlock();
+        });
+        writer.start();
+        assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(lock.isWriteLocked());
+        AtomicBoolean read = new AtomicBoolean();
+        Thread reader = new Thread(() -> read.set(lock.readLock().tryLock()));
+        reader.start();
+        reader.join(10_000);
+        assertFalse(read.get());
+        lock.readLock().unlock();
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        writer.join(10_000);
+        assertFalse(lock.isWriteLocked());
+        assertTrue(lock.readLock().tryLock());
+        lock.readLock().unlock();
+    }
+
+    /**
+     * 读线程和写线程反复加锁，写锁内修改两个字段，读锁内两个字段必须一致
+     */
+    @Test
+    public void readersAndWritersExcludeEachOther() throws Exception {
+        ScalableReadWriteLock lock = new ScalableReadWriteLock();
+        long[] fields = new long[2];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200_000; i++) {
+                        lock.readLock().lock();
+                        try {
+                            assertEquals(fields[0], fields[1]);
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        for (int t = 0; t < 2; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        lock.writeLock().lock();
+                        try {
+                            fields[0]++;
+                            Thread.yield();
+                            fields[1]++;
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(120_000);
+            assertFalse(t.isAlive());
+        }
+        assertNull(failure.get());
+        assertEquals(40_000, fields[0]);
+        assertEquals(40_000, fields[1]);
+        assertFalse(lock.isWriteLocked());
+    }
+}
@@ -0,0 +1,156 @@
+package com.zohar.java.util.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Gatherer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 gather 在并行流中的结果</h3>
+ * 并行流先并行计算上游，再按遇到顺序单线程 gather，之后的操作又并行执行。
+ * 按窗口分组、带 finisher 输出不满的最后一组、以及提前停止的 gatherer，
+ * 在各种数据源（能均匀分割的 ArrayList、不能精确分割的 LinkedList 和迭代器）上的并行结果都要和顺序结果一致。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.stream}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 11:20
+ */
+class GatherOpsTest {
+
+    private static final int[] SIZES = {0, 1, 2, 7, 10, 63, 100, 1001, 4099};
+
+    private static List<Integer> range(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static List<Supplier<Stream<Integer>>> parallelSources(List<Integer> list) {
+        return Arrays.asList(
+                list::parallelStream,
+                () -> new LinkedList<>(list).parallelStream(),
+                () -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(list.iterator(), Spliterator.ORDERED), true),
+                () -> list.parallelStream().filter(i -> i % 3 != 1).map(i -> i),
+                () -> list.parallelStream().map(i -> i));
+    }
+
+    private static <R> void assertAllSourcesAgree(String name, Function<Stream<Integer>, List<R>> op) {
+        for (int n : SIZES) {
+            List<Integer> list = range(n);
+            List<Supplier<Stream<Integer>>> sources = parallelSources(list);
+            for (int i = 0; i < sources.size(); i++) {
+                // 顺序流使用同一个数据源，只是不并行
+                List<R> expected = op.apply(sources.get(i).get().sequential());
+                assertEquals(expected, op.apply(sources.get(i).get()), name + " n=" + n + " source=" + i);
+            }
+        }
+    }
+
+    /**
+     * 每 size 个元素一组，finisher 输出不满的最后一组
+     */
+    private static Gatherer<Integer, List<Integer>[], List<Integer>> grouped(int size) {
+        @SuppressWarnings("unchecked")
+        Supplier<List<Integer>[]> initializer = () -> new List[]{new ArrayList<Integer>()};
+        return Gatherer.of(initializer,
+                (state, e, downstream) -> {
+                    state[0].add(e);
+                    if (state[0].size() == size) {
+                        List<Integer> group = state[0];
+                        state[0] = new ArrayList<>();
+                        return downstream.push(group);
+                    }
+                    return true;
+                },
+                (state, downstream) -> {
+                    if (!state[0].isEmpty()) {
+                        downstream.push(state[0]);
+                    }
+                });
+    }
+
+    /**
+     * 相邻两个元素的差，依赖前一个元素
+     */
+    private static Gatherer<Integer, int[], Integer> differences() {
+        return Gatherer.of(() -> new int[]{0, 0},
+                (state, e, downstream) -> {
+                    boolean more = state[1] == 0 || downstream.push(e - state[0]);
+                    state[0] = e;
+                    state[1] = 1;
+                    return more;
+                });
+    }
+
+    /**
+     * 累加和超过 limit 时停止接受元素
+     */
+    private static Gatherer<Integer, long[], Long> runningSumUpTo(long limit) {
+        return Gatherer.of(() -> new long[1],
+                (sum, e, downstream) -> {
+                    sum[0] += e;
+                    return sum[0] <= limit && downstream.push(sum[0]);
+                });
+    }
+
+    @Test
+    public void groupsWithPartialLastGroup() {
+        for (int size : new int[]{1, 3, 7, 64}) {
+            assertAllSourcesAgree("grouped(" + size + ")",
+                    s -> s.gather(grouped(size)).collect(Collectors.toList()));
+        }
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)),
+                range(10).parallelStream().gather(grouped(4)).collect(Collectors.toList()));
+    }
+
+    /**
+     * 分割点两侧的相邻元素也要相减，连续整数的差全是 1
+     */
+    @Test
+    public void statefulAcrossSplitPoints() {
+        assertAllSourcesAgree("differences", s -> s.gather(differences()).collect(Collectors.toList()));
+        List<Integer> list = range(4099);
+        assertTrue(list.parallelStream().gather(differences()).allMatch(d -> d == 1));
+        assertEquals(4098, list.parallelStream().gather(differences()).count());
+    }
+
+    @Test
+    public void shortCircuitMatchesSequential() {
+        for (long limit : new long[]{0, 10, 5_000, Long.MAX_VALUE}) {
+            assertAllSourcesAgree("runningSumUpTo(" + limit + ")",
+                    s -> s.gather(runningSumUpTo(limit)).collect(Collectors.toList()));
+            // gather 之后的 limit 让下游提前停止
+            assertAllSourcesAgree("runningSumUpTo(" + limit + ").limit(5)",
+                    s -> s.gather(runningSumUpTo(limit)).limit(5).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * gather 之后的操作并行执行，结果仍然按遇到顺序，并且可以继续 chunked 和 windowed
+     */
+    @Test
+    public void operationsAfterGather() {
+        assertAllSourcesAgree("gather then map", s -> s.gather(grouped(5))
+                .map(g -> g.stream().mapToInt(Integer::intValue).sum())
+                .collect(Collectors.toList()));
+        assertAllSourcesAgree("gather then windowed", s -> s.gather(differences())
+                .windowed(3, 2)
+                .collect(Collectors.toList()));
+        assertAllSourcesAgree("chunked then gather", s -> s.chunked(3)
+                .gather(Gatherer.<List<Integer>, Object, Integer>of(Object::new,
+                        (state, chunk, downstream) -> downstream.push(chunk.size())))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.zohar.java.util.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试按线程累加的并发收集器</h3>
+ * {@code groupingByIntConcurrent} 等并发收集器每个线程累加到自己的容器中，结束时合并。
+ * 收集完成后这些容器不能再被线程池中的线程引用。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.stream}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/17 23:30
+ */
+class PerThreadCollectorTest {
+
+    @Test
+    public void matchesSequentialGrouping() {
+        Map<Integer, Long> expected = IntStream.range(0, 200_000).boxed()
+                .collect(Collectors.groupingBy(i -> i % 97, Collectors.counting()));
+        ConcurrentMap<Integer, Long> actual = IntStream.range(0, 200_000).boxed().parallel()
+                .collect(Collectors.groupingByIntConcurrent(i -> i % 97, Collectors.counting()));
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * 下游收集器的容器只在收集过程中使用，结果中只保留 finisher 的返回值，
+     * 收集完成后容器应该可以被回收
+     */
+    @Test
+    public void containersAreNotRetainedByPoolThreads() throws Exception {
+        List<WeakReference<long[]>> containers = new ArrayList<>();
+        Collector<Integer, long[], Long> counting = Collector.of(
+                () -> {
+                    long[] count = new long[1];
+                    synchronized (containers) {
+                        containers.add(new WeakReference<>(count));
+                    }
+                    return count;
+                },
+                (count, i) -> count[0]++,
+                (left, right) -> {
+                    left[0] += right[0];
+                    return left;
+                },
+                count -> count[0]);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<Integer, Long> result = pool.submit(() -> IntStream.range(0, 100_000).boxed().parallel()
+                    .collect(Collectors.groupingByIntConcurrent(i -> i & 7, counting))).get();
+            assertEquals(8, result.size());
+            assertEquals(100_000L, result.values().stream().mapToLong(Long::longValue).sum());
+            assertFalse(containers.isEmpty());
+            for (int i = 0; i < 10 && !allCleared(containers); i++) {
+                System.gc();
+                Thread.sleep(50);
+            }
+            assertTrue(allCleared(containers));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static boolean allCleared(List<WeakReference<long[]>> refs) {
+        return refs.stream().allMatch(ref -> ref.get() == null);
+    }
+}
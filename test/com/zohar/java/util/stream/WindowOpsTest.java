@@ -0,0 +1,181 @@
+package com.zohar.java.util.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * <h3>测试 chunked 和 windowed 在并行流中的分割对齐</h3>
+ * 并行流在窗口边界处分割，跨越分割点的元素同时成为前半部分的尾部和后半部分的头部；
+ * 元素个数不能被窗口整除时最后一个 chunk 不满。
+ * 各种数据源（能均匀分割的 ArrayList、不能精确分割的 LinkedList 和迭代器）的并行结果都要和顺序结果一致。
+ * 需要用 {@code -Xbootclasspath/p:} 加载修改后的 {@code java.util.stream}
+ *
+ * @author zohar
+ * @version 1.0
+ * 2026/10/18 11:00
+ */
+class WindowOpsTest {
+
+    private static final int[] SIZES = {0, 1, 2, 7, 10, 63, 100, 1001, 4099};
+
+    /**
+     * {size, step}，包括重叠、相邻和跳过元素的窗口
+     */
+    private static final int[][] WINDOWS = {{1, 1}, {3, 1}, {4, 3}, {5, 5}, {2, 3}, {7, 2}, {64, 17}};
+
+    private static List<Integer> range(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * 同一份数据的并行数据源：能按大小精确分割的 ArrayList，
+     * 分割不均匀的 LinkedList，以及按迭代器分批分割、大小已知或未知的 Spliterator
+     */
+    private static List<Supplier<Stream<Integer>>> parallelSources(List<Integer> list) {
+        return Arrays.asList(
+                list::parallelStream,
+                () -> new LinkedList<>(list).parallelStream(),
+                () -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(list.iterator(), Spliterator.ORDERED), true),
+                () -> StreamSupport.stream(Spliterators.spliterator(list.iterator(), list.size(), Spliterator.ORDERED), true));
+    }
+
+    private static <R> void assertAllSourcesAgree(String name, Function<Stream<Integer>, List<R>> op) {
+        for (int n : SIZES) {
+            List<Integer> list = range(n);
+            List<R> expected = op.apply(list.stream());
+            List<Supplier<Stream<Integer>>> sources = parallelSources(list);
+            for (int i = 0; i < sources.size(); i++) {
+                assertEquals(expected, op.apply(sources.get(i).get()), name + " n=" + n + " source=" + i);
+            }
+            // 上游的 filter 使大小未知，map 保持大小
+            assertEquals(op.apply(list.stream().filter(i -> i % 3 != 1)),
+                    op.apply(list.parallelStream().filter(i -> i % 3 != 1)), name + " n=" + n + " filter");
+            assertEquals(op.apply(list.stream().map(i -> i * 2)),
+                    op.apply(list.parallelStream().map(i -> i * 2)), name + " n=" + n + " map");
+        }
+    }
+
+    @Test
+    public void chunkedParallelMatchesSequential() {
+        for (int size : new int[]{1, 2, 3, 7, 64, 1000}) {
+            assertAllSourcesAgree("chunked(" + size + ")", s -> s.chunked(size).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void windowedParallelMatchesSequential() {
+        for (int[] w : WINDOWS) {
+            assertAllSourcesAgree("windowed(" + w[0] + ", " + w[1] + ")",
+                    s -> s.windowed(w[0], w[1]).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * 最后一个 chunk 只包含剩下的元素；窗口只在满时产生
+     */
+    @Test
+    public void partialTrailingChunk() {
+        List<Integer> list = range(10);
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5, 6, 7), Arrays.asList(8, 9)),
+                list.parallelStream().chunked(4).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(3, 4, 5, 6), Arrays.asList(6, 7, 8, 9)),
+                list.parallelStream().windowed(4, 3).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(5, 6, 7, 8)),
+                list.parallelStream().windowed(4, 5).collect(Collectors.toList()));
+        assertEquals(0, list.parallelStream().windowed(11, 1).count());
+        assertEquals(Arrays.asList(list), list.parallelStream().chunked(11).collect(Collectors.toList()));
+    }
+
+    /**
+     * 窗口比每个分割都大时，被拉到前半部分的元素还要继续从后面的分割中拉取
+     */
+    @Test
+    public void windowsSpanningSeveralSplits() {
+        List<Integer> list = range(1000);
+        for (int[] w : new int[][]{{100, 1}, {333, 7}, {999, 1}, {1000, 1}}) {
+            List<List<Integer>> expected = list.stream().windowed(w[0], w[1]).collect(Collectors.toList());
+            assertEquals(expected, list.parallelStream().windowed(w[0], w[1]).collect(Collectors.toList()));
+            assertEquals(expected, split(list.parallelStream().windowed(w[0], w[1]).spliterator(), 8));
+        }
+    }
+
+    /**
+     * 手动分割窗口流的 Spliterator，按遇到顺序遍历所有部分，
+     * 交替使用 tryAdvance 和 forEachRemaining，拼起来应该和顺序结果一致
+     */
+    @Test
+    public void manualSplitsConcatenateToSequential() {
+        for (int n : SIZES) {
+            List<Integer> list = range(n);
+            for (int size : new int[]{1, 3, 7}) {
+                assertEquals(list.stream().chunked(size).collect(Collectors.toList()),
+                        split(list.parallelStream().chunked(size).spliterator(), 6), "chunked n=" + n);
+            }
+            for (int[] w : WINDOWS) {
+                Spliterator<List<Integer>> s = list.parallelStream().windowed(w[0], w[1]).spliterator();
+                List<List<Integer>> expected = list.stream().windowed(w[0], w[1]).collect(Collectors.toList());
+                assertEquals(expected.size(), s.getExactSizeIfKnown(), "size n=" + n);
+                assertEquals(expected, split(s, 6), "windowed n=" + n);
+            }
+        }
+    }
+
+    @Test
+    public void primitiveStreamsMatchSequential() {
+        for (int n : SIZES) {
+            for (int[] w : WINDOWS) {
+                assertEquals(toStrings(IntStream.range(0, n).windowed(w[0], w[1])),
+                        toStrings(IntStream.range(0, n).parallel().windowed(w[0], w[1])));
+                assertEquals(toStrings(IntStream.range(0, n).filter(i -> i % 5 != 0).chunked(w[0])),
+                        toStrings(IntStream.range(0, n).parallel().filter(i -> i % 5 != 0).chunked(w[0])));
+            }
+        }
+    }
+
+    private static List<String> toStrings(Stream<int[]> s) {
+        return s.map(Arrays::toString).collect(Collectors.toList());
+    }
+
+    /**
+     * 递归分割到指定深度后按顺序遍历，偶数位置的部分逐个 tryAdvance，奇数位置的用 forEachRemaining
+     */
+    private static <T> List<T> split(Spliterator<T> s, int depth) {
+        List<Spliterator<T>> parts = new ArrayList<>();
+        collectParts(s, depth, parts);
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            Spliterator<T> part = parts.get(i);
+            if (i % 2 == 0) {
+                while (part.tryAdvance(result::add)) {
+                }
+            } else {
+                part.forEachRemaining(result::add);
+            }
+        }
+        return result;
+    }
+
+    private static <T> void collectParts(Spliterator<T> s, int depth, List<Spliterator<T>> parts) {
+        Spliterator<T> prefix = depth > 0 ? s.trySplit() : null;
+        if (prefix != null) {
+            collectParts(prefix, depth - 1, parts);
+            collectParts(s, depth - 1, parts);
+        } else {
+            parts.add(s);
+        }
+    }
+}